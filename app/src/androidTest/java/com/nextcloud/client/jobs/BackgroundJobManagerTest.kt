@@ -16,10 +16,12 @@ import androidx.work.ExistingPeriodicWorkPolicy
 import androidx.work.ExistingWorkPolicy
 import androidx.work.OneTimeWorkRequest
 import androidx.work.PeriodicWorkRequest
+import androidx.work.WorkContinuation
 import androidx.work.WorkInfo
 import androidx.work.WorkManager
 import com.nextcloud.client.account.User
 import com.nextcloud.client.core.Clock
+import com.nextcloud.client.jobs.upload.FileUploadWorker
 import com.nextcloud.utils.extensions.toByteArray
 import com.owncloud.android.lib.common.utils.Log_OC
 import org.apache.commons.io.FileUtils
@@ -42,6 +44,8 @@ import org.mockito.kotlin.argThat
 import org.mockito.kotlin.argumentCaptor
 import org.mockito.kotlin.eq
 import org.mockito.kotlin.mock
+import org.mockito.kotlin.never
+import org.mockito.kotlin.times
 import org.mockito.kotlin.verify
 import org.mockito.kotlin.whenever
 import java.io.File
@@ -64,6 +68,7 @@ import java.util.concurrent.TimeoutException
     BackgroundJobManagerTest.PeriodicContactsBackup::class,
     BackgroundJobManagerTest.ImmediateContactsBackup::class,
     BackgroundJobManagerTest.ImmediateContactsImport::class,
+    BackgroundJobManagerTest.FilesUpload::class,
     BackgroundJobManagerTest.Tags::class
 )
 class BackgroundJobManagerTest {
@@ -385,6 +390,50 @@ class BackgroundJobManagerTest {
         }
     }
 
+    class FilesUpload : Fixture() {
+
+        private lateinit var continuation: WorkContinuation
+
+        @Before
+        fun setUp() {
+            continuation = mock()
+            whenever(continuation.then(any<OneTimeWorkRequest>())).thenReturn(continuation)
+            whenever(
+                workManager.beginUniqueWork(any(), any(), argThat(IsOneTimeWorkRequest()))
+            ).thenReturn(continuation)
+        }
+
+        @Test
+        fun bulk_upload_is_split_into_chained_jobs() {
+            val uploadIds = LongArray(BackgroundJobManagerImpl.MAX_UPLOAD_IDS_PER_JOB * 2 + 1) { it.toLong() }
+
+            backgroundJobManager.startFilesUploadJob(user, uploadIds)
+
+            val firstCaptor: KArgumentCaptor<OneTimeWorkRequest> = argumentCaptor()
+            val nextCaptor: KArgumentCaptor<OneTimeWorkRequest> = argumentCaptor()
+            verify(workManager).beginUniqueWork(
+                eq(BackgroundJobManagerImpl.JOB_FILES_UPLOAD + USER_ACCOUNT_NAME),
+                eq(ExistingWorkPolicy.APPEND_OR_REPLACE),
+                firstCaptor.capture()
+            )
+            verify(continuation, times(2)).then(nextCaptor.capture())
+            verify(continuation).enqueue()
+
+            val requests = firstCaptor.allValues + nextCaptor.allValues
+            val chunks = requests.map { it.workSpec.input.getLongArray(FileUploadWorker.UPLOAD_IDS)!! }
+            assertEquals(uploadIds.toList(), chunks.flatMap { it.toList() })
+            assertEquals(1, chunks.last().size)
+            requests.forEach { assertHasRequiredTags(it.tags, BackgroundJobManagerImpl.JOB_FILES_UPLOAD, user) }
+        }
+
+        @Test
+        fun no_job_is_started_without_uploads() {
+            backgroundJobManager.startFilesUploadJob(user, LongArray(0))
+
+            verify(workManager, never()).beginUniqueWork(any(), any(), argThat(IsOneTimeWorkRequest()))
+        }
+    }
+
     class Tags {
         @Test
         fun split_tag_key_and_value() {
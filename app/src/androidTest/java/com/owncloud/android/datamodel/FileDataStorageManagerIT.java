@@ -20,7 +20,9 @@ import com.owncloud.android.lib.resources.status.CapabilityBooleanType;
 import com.owncloud.android.lib.resources.status.GetCapabilitiesRemoteOperation;
 import com.owncloud.android.lib.resources.status.OCCapability;
 import com.owncloud.android.operations.RefreshFolderOperation;
+import com.owncloud.android.utils.FileSortOrder;
 import com.owncloud.android.utils.FileStorageUtils;
+import com.owncloud.android.utils.MimeType;
 
 import junit.framework.TestCase;
 
@@ -31,6 +33,8 @@ import org.junit.Test;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static com.owncloud.android.lib.resources.files.SearchRemoteOperation.SearchType.GALLERY_SEARCH;
@@ -300,6 +304,70 @@ abstract public class FileDataStorageManagerIT extends AbstractOnServerIT {
                      sut.getFolderContent(sut.getFileByDecryptedRemotePath("/"), false).get(0));
     }
 
+    @Test
+    public void testSaveGalleryItems() {
+        List<OCFile> files = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            OCFile file = new OCFile("/image" + i + ".png");
+            file.setMimeType("image/png");
+            file.setEtag("etag" + i);
+            file.setModificationTimestamp(i);
+            files.add(file);
+        }
+
+        sut.saveGalleryItems(files, Collections.emptyList());
+
+        assertEquals(1000, sut.getGalleryItems(0, Long.MAX_VALUE).size());
+        long firstId = files.get(0).getFileId();
+        assertEquals(files.get(0), sut.getFileById(firstId));
+
+        // update the first file, remove all others
+        OCFile changedFile = new OCFile("/image0.png");
+        changedFile.setMimeType("image/png");
+        changedFile.setEtag("changed");
+        sut.saveGalleryItems(Collections.singletonList(changedFile), files.subList(1, files.size()));
+
+        List<OCFile> galleryItems = sut.getGalleryItems(0, Long.MAX_VALUE);
+        assertEquals(1, galleryItems.size());
+        assertEquals(firstId, changedFile.getFileId());
+        assertEquals("changed", galleryItems.get(0).getEtag());
+    }
+
+    @Test
+    public void testSaveFolderUpdatesSyncDateOfUnchangedChildren() {
+        OCFile root = sut.getFileByDecryptedRemotePath("/");
+        OCFile folder = new OCFile("/refresh/");
+        folder.setMimeType(MimeType.DIRECTORY);
+        folder.setParentId(root.getFileId());
+        folder.setRemoteId("30000000");
+        sut.saveFile(folder);
+        folder = sut.getFileByDecryptedRemotePath("/refresh/");
+
+        List<OCFile> children = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            OCFile file = new OCFile("/refresh/" + i + ".txt");
+            file.setMimeType("text/plain");
+            file.setRemoteId("3000000" + (i + 1));
+            file.setEtag("etag" + i);
+            file.setLastSyncDateForProperties(1000);
+            children.add(file);
+        }
+        sut.saveFolder(folder, children, Collections.emptyList());
+
+        // refresh without changes, only the sync date moves on
+        for (OCFile child : children) {
+            child.setLastSyncDateForProperties(2000);
+        }
+        children.get(0).setEtag("changed");
+        sut.saveFolder(folder, children, Collections.emptyList());
+
+        for (int i = 0; i < 3; i++) {
+            OCFile stored = sut.getFileByDecryptedRemotePath("/refresh/" + i + ".txt");
+            assertEquals(2000, stored.getLastSyncDateForProperties());
+            assertEquals(i == 0 ? "changed" : "etag" + i, stored.getEtag());
+        }
+    }
+
     @Test
     public void testSaveNewFile() {
         assertTrue(new CreateFolderRemoteOperation("/1/1/", true).execute(client).isSuccess());
@@ -334,6 +402,133 @@ abstract public class FileDataStorageManagerIT extends AbstractOnServerIT {
         sut.saveNewFile(newFile);
     }
 
+    @Test
+    public void testSortedFolderContent() {
+        OCFile root = sut.getFileByDecryptedRemotePath("/");
+
+        for (int i = 0; i < 10; i++) {
+            boolean folder = i % 3 == 0;
+            OCFile file = new OCFile("/" + i + (folder ? "/" : ".txt"));
+            file.setMimeType(folder ? MimeType.DIRECTORY : "text/plain");
+            file.setParentId(root.getFileId());
+            file.setRemoteId("0000000" + i);
+            file.setFileLength((i * 7) % 10);
+            file.setModificationTimestamp((i * 3) % 10);
+            file.setFavorite(i % 4 == 0);
+            sut.saveFile(file);
+        }
+
+        for (FileSortOrder sortOrder : FileSortOrder.sortOrders.values()) {
+            List<OCFile> expected = sortOrder.sortCloudFiles(sut.getFolderContent(root, false));
+            List<OCFile> actual = sut.getSortedFolderContent(root, false, sortOrder, null);
+
+            assertEquals(sortOrder.name, getRemotePaths(expected), getRemotePaths(actual));
+        }
+
+        // folders are kept when filtering by mime type
+        assertEquals(4, sut.getSortedFolderContent(root, false, FileSortOrder.SORT_A_TO_Z, "image/").size());
+        assertEquals(10, sut.getSortedFolderContent(root, false, FileSortOrder.SORT_A_TO_Z, "text/").size());
+    }
+
+    @Test
+    public void testSearchFilesByName() {
+        OCFile root = sut.getFileByDecryptedRemotePath("/");
+
+        String[] paths = {"/Holiday pictures.zip", "/holiday.txt", "/IMG_2023_0101.jpg", "/IMG20230101.jpg", "/Holiday/"};
+        for (int i = 0; i < paths.length; i++) {
+            OCFile file = new OCFile(paths[i]);
+            file.setMimeType(paths[i].endsWith("/") ? MimeType.DIRECTORY : "text/plain");
+            file.setParentId(root.getFileId());
+            file.setRemoteId("1000000" + i);
+            sut.saveFile(file);
+        }
+
+        // exact name first, folders are not returned
+        assertEquals(Arrays.asList("/holiday.txt", "/Holiday pictures.zip"),
+                     getRemotePaths(sut.searchFilesByName("holiday", 10)));
+        assertEquals(Arrays.asList("/Holiday pictures.zip"), getRemotePaths(sut.searchFilesByName("hol pic", 10)));
+        assertEquals(1, sut.searchFilesByName("holiday", 1).size());
+
+        // names containing the query within a word are only scanned for if no word matches
+        assertEquals(Arrays.asList("/IMG_2023_0101.jpg"), getRemotePaths(sut.searchFilesByName("2023", 10)));
+        assertEquals(Arrays.asList("/IMG20230101.jpg"), getRemotePaths(sut.searchFilesByName("30101", 10)));
+        assertEquals(Arrays.asList("/IMG_2023_0101.jpg"), getRemotePaths(sut.searchFilesByName("_", 10)));
+
+        // renames are followed by the index
+        OCFile file = sut.getFileByDecryptedRemotePath("/holiday.txt");
+        file.setDecryptedRemotePath("/notes.txt");
+        file.setFileName("notes.txt");
+        sut.saveFile(file);
+        assertEquals(Arrays.asList("/notes.txt"), getRemotePaths(sut.searchFilesByName("notes", 10)));
+        assertEquals(Arrays.asList("/Holiday pictures.zip"), getRemotePaths(sut.searchFilesByName("holiday", 10)));
+    }
+
+    @Test
+    public void testLocalUsage() {
+        OCFile root = sut.getFileByDecryptedRemotePath("/");
+        OCFile folder = saveUsageFile("/usage/", root, MimeType.DIRECTORY, 0, false);
+        OCFile nested = saveUsageFile("/usage/nested/", folder, MimeType.DIRECTORY, 0, false);
+        saveUsageFile("/usage/0.txt", folder, "text/plain", 100, true);
+        saveUsageFile("/usage/nested/1.txt", nested, "text/plain", 100, true);
+        saveUsageFile("/usage/nested/2.txt", nested, "text/plain", 100, false);
+
+        // the first queries create the ledgers from the file table
+        assertEquals(200, sut.getLocalUsage(folder));
+        long rootUsage = sut.getLocalUsage(root);
+
+        // downloads, changed lengths, new files and local removals below it move the ledger without recomputing it
+        OCFile downloaded = sut.getFileByDecryptedRemotePath("/usage/nested/2.txt");
+        downloaded.setStoragePath("/storage/usage/nested/2.txt");
+        sut.saveFile(downloaded);
+        OCFile grown = sut.getFileByDecryptedRemotePath("/usage/nested/1.txt");
+        grown.setFileLength(250);
+        sut.saveFile(grown);
+        saveUsageFile("/usage/nested/3.txt", nested, "text/plain", 50, true);
+        OCFile removed = sut.getFileByDecryptedRemotePath("/usage/0.txt");
+        removed.setStoragePath(null);
+        sut.saveFile(removed);
+
+        assertEquals(400, sut.getLocalUsage(folder));
+        assertEquals(rootUsage + 200, sut.getLocalUsage(root));
+    }
+
+    @Test
+    public void testGetFolderImages() {
+        OCFile root = sut.getFileByDecryptedRemotePath("/");
+        OCFile folder = saveUsageFile("/images/", root, MimeType.DIRECTORY, 0, false);
+        saveUsageFile("/images/a.png", folder, "image/png", 100, false);
+        saveUsageFile("/images/b.JPG", folder, "IMAGE/JPEG", 100, false);
+        saveUsageFile("/images/c.jpg", folder, MimeType.FILE, 100, false);
+        saveUsageFile("/images/d.jpg", folder, "", 100, false);
+        saveUsageFile("/images/e.djvu", folder, "image/vnd.djvu", 100, false);
+        saveUsageFile("/images/f.bin", folder, MimeType.FILE, 100, false);
+        saveUsageFile("/images/g.txt", folder, "text/plain", 100, false);
+        saveUsageFile("/images/nested/", folder, MimeType.DIRECTORY, 0, false);
+
+        // upper case mime types and files recognized by their extension are images as well
+        assertEquals(Arrays.asList("/images/a.png", "/images/b.JPG", "/images/c.jpg", "/images/d.jpg"),
+                     getRemotePaths(sut.getFolderImages(folder, false)));
+    }
+
+    private OCFile saveUsageFile(String path, OCFile parent, String mimeType, long length, boolean downloaded) {
+        OCFile file = new OCFile(path);
+        file.setMimeType(mimeType);
+        file.setParentId(parent.getFileId());
+        file.setRemoteId("2" + Integer.toHexString(path.hashCode()));
+        file.setFileLength(length);
+        file.setStoragePath(downloaded ? "/storage" + path : null);
+        sut.saveFile(file);
+        return sut.getFileByDecryptedRemotePath(path);
+    }
+
+    private List<String> getRemotePaths(List<OCFile> files) {
+        List<String> paths = new ArrayList<>();
+        for (OCFile file : files) {
+            paths.add(file.getRemotePath());
+        }
+        return paths;
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testSaveNewFile_NonExistingParent() {
         assertTrue(new CreateFolderRemoteOperation("/1/1/", true).execute(client).isSuccess());
@@ -26,6 +26,7 @@ import com.owncloud.android.db.UploadResult;
 import com.owncloud.android.files.services.NameCollisionPolicy;
 import com.owncloud.android.lib.common.accounts.AccountUtils;
 import com.owncloud.android.operations.UploadFileOperation;
+import com.owncloud.android.operations.e2e.E2EUploadState;
 
 import org.junit.After;
 import org.junit.Before;
@@ -33,6 +34,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Random;
 import java.util.UUID;
@@ -176,6 +178,20 @@ public class UploadStorageManagerTest extends AbstractIT {
         assertNull(newUpload);
     }
 
+    @Test
+    public void removeUploadDiscardsEncryptedCopy() throws IOException {
+        ArbitraryDataProvider arbitraryDataProvider = new ArbitraryDataProviderImpl(targetContext);
+        long id = uploadsStorageManager.storeUpload(createUpload(account));
+        File encryptedCopy = File.createTempFile("encrypted", null, targetContext.getCacheDir());
+        new E2EUploadState("name", encryptedCopy.getAbsolutePath(), "wrapped key", "iv", "tag", 1, 1)
+            .save(arbitraryDataProvider, account.name, id);
+
+        assertEquals(1, uploadsStorageManager.removeUpload(id));
+
+        assertFalse(encryptedCopy.exists());
+        assertNull(E2EUploadState.load(arbitraryDataProvider, account.name, id));
+    }
+
     private void insertUploads(Account account, int rowsToInsert) {
         for (int i = 0; i < rowsToInsert; i++) {
             uploadsStorageManager.storeUpload(createUpload(account));
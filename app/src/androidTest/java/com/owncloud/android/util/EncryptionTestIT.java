@@ -25,6 +25,7 @@ import com.owncloud.android.datamodel.e2e.v1.decrypted.Encrypted;
 import com.owncloud.android.datamodel.e2e.v1.encrypted.EncryptedFolderMetadataFileV1;
 import com.owncloud.android.lib.common.utils.Log_OC;
 import com.owncloud.android.lib.resources.e2ee.CsrHelper;
+import com.owncloud.android.operations.e2e.E2EUploadState;
 import com.owncloud.android.utils.EncryptionUtils;
 
 import org.junit.Assert;
@@ -180,6 +181,20 @@ public class EncryptionTestIT extends AbstractIT {
         decryptStringAsymmetric(encryptedString, keyPair2.getPrivate());
     }
 
+    @Test
+    public void uploadStateKeyIsWrappedWithAccountKeys() throws Exception {
+        byte[] key = generateKey();
+        String wrappedKey = E2EUploadState.wrapKey(key, publicKey);
+
+        assertNotEquals(encodeBytesToBase64String(key), wrappedKey);
+
+        E2EUploadState state = new E2EUploadState("name", "/tmp/copy", wrappedKey, "iv", "tag", 1, 1);
+        assertArrayEquals(key, state.unwrapKey(privateKey));
+
+        KeyPair otherKeyPair = EncryptionUtils.generateKeyPair();
+        assertNull(state.unwrapKey(encodeBytesToBase64String(otherKeyPair.getPrivate().getEncoded())));
+    }
+
     @Test
     public void testModulus() throws Exception {
         KeyPair keyPair = EncryptionUtils.generateKeyPair();
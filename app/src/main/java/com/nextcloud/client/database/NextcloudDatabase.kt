@@ -13,23 +13,28 @@ import androidx.room.Database
 import androidx.room.Room
 import androidx.room.RoomDatabase
 import androidx.room.TypeConverters
+import androidx.sqlite.db.SupportSQLiteDatabase
 import com.nextcloud.client.core.Clock
 import com.nextcloud.client.core.ClockImpl
 import com.nextcloud.client.database.dao.ArbitraryDataDao
 import com.nextcloud.client.database.dao.FileDao
+import com.nextcloud.client.database.dao.LocalUsageDao
 import com.nextcloud.client.database.dao.OfflineOperationDao
 import com.nextcloud.client.database.dao.UploadDao
 import com.nextcloud.client.database.entity.ArbitraryDataEntity
 import com.nextcloud.client.database.entity.CapabilityEntity
 import com.nextcloud.client.database.entity.ExternalLinkEntity
 import com.nextcloud.client.database.entity.FileEntity
+import com.nextcloud.client.database.entity.FileNameSearchEntity
 import com.nextcloud.client.database.entity.FilesystemEntity
+import com.nextcloud.client.database.entity.LocalUsageEntity
 import com.nextcloud.client.database.entity.OfflineOperationEntity
 import com.nextcloud.client.database.entity.ShareEntity
 import com.nextcloud.client.database.entity.SyncedFolderEntity
 import com.nextcloud.client.database.entity.UploadEntity
 import com.nextcloud.client.database.entity.VirtualEntity
 import com.nextcloud.client.database.migrations.DatabaseMigrationUtil
+import com.nextcloud.client.database.migrations.LocalUsageTriggers
 import com.nextcloud.client.database.migrations.MIGRATION_88_89
 import com.nextcloud.client.database.migrations.Migration67to68
 import com.nextcloud.client.database.migrations.RoomMigration
@@ -43,7 +48,9 @@ import com.owncloud.android.db.ProviderMeta
         CapabilityEntity::class,
         ExternalLinkEntity::class,
         FileEntity::class,
+        FileNameSearchEntity::class,
         FilesystemEntity::class,
+        LocalUsageEntity::class,
         ShareEntity::class,
         SyncedFolderEntity::class,
         UploadEntity::class,
@@ -75,7 +82,12 @@ import com.owncloud.android.db.ProviderMeta
         AutoMigration(from = 86, to = 87, spec = DatabaseMigrationUtil.ResetCapabilitiesPostMigration::class),
         AutoMigration(from = 87, to = 88, spec = DatabaseMigrationUtil.ResetCapabilitiesPostMigration::class),
         // manual migration used for 88 to 89
-        AutoMigration(from = 89, to = 90)
+        AutoMigration(from = 89, to = 90),
+        AutoMigration(from = 90, to = 91),
+        AutoMigration(from = 91, to = 92),
+        AutoMigration(from = 92, to = 93, spec = DatabaseMigrationUtil.BuildFileNameSearchIndexPostMigration::class),
+        AutoMigration(from = 93, to = 94),
+        AutoMigration(from = 94, to = 95)
     ],
     exportSchema = true
 )
@@ -85,6 +97,7 @@ abstract class NextcloudDatabase : RoomDatabase() {
 
     abstract fun arbitraryDataDao(): ArbitraryDataDao
     abstract fun fileDao(): FileDao
+    abstract fun localUsageDao(): LocalUsageDao
     abstract fun offlineOperationDao(): OfflineOperationDao
     abstract fun uploadDao(): UploadDao
 
@@ -108,6 +121,13 @@ abstract class NextcloudDatabase : RoomDatabase() {
                     .addMigrations(RoomMigration())
                     .addMigrations(Migration67to68())
                     .addMigrations(MIGRATION_88_89)
+                    .addCallback(
+                        object : Callback() {
+                            override fun onOpen(db: SupportSQLiteDatabase) {
+                                LocalUsageTriggers.create(db)
+                            }
+                        }
+                    )
                     .build()
             }
             return instance!!
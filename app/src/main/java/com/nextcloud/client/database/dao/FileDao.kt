@@ -10,10 +10,38 @@ package com.nextcloud.client.database.dao
 import androidx.room.Dao
 import androidx.room.Query
 import com.nextcloud.client.database.entity.FileEntity
+import com.nextcloud.client.database.entity.FileListRow
+import com.nextcloud.client.database.entity.FileNameSearchEntity
 import com.owncloud.android.db.ProviderMeta.ProviderTableMeta
+import com.owncloud.android.utils.MimeType
 
 @Dao
 interface FileDao {
+    companion object {
+        const val IS_FOLDER = "(IFNULL(content_type, '') IN ('${MimeType.DIRECTORY}', '${MimeType.WEBDAV_FOLDER}'))"
+
+        /**
+         * Children of a folder; if a mime type prefix is given only folders and files of matching type.
+         */
+        const val FOLDER_CONTENT_FILTER = "FROM filelist WHERE parent = :parentId" +
+            " AND (:mimeTypePrefix IS NULL OR $IS_FOLDER" +
+            " OR substr(content_type, 1, length(:mimeTypePrefix)) = :mimeTypePrefix)"
+
+        const val FOLDER_CONTENT_SELECTION = "SELECT * $FOLDER_CONTENT_FILTER"
+
+        const val FOLDER_CONTENT_ROW_SELECTION = "SELECT _id, filename, content_type, modified, content_length," +
+            " favorite, hidden, media_path, local_id, remote_id, metadata_live_photo $FOLDER_CONTENT_FILTER"
+
+        // the sort orders mirror FileSortOrder: favourites first, then folders first except for the date order
+        const val ORDER_BY_NAME = "ORDER BY favorite DESC, $IS_FOLDER DESC, filename COLLATE NOCASE"
+        const val ORDER_BY_DATE = "ORDER BY favorite DESC, modified"
+        const val ORDER_BY_SIZE = "ORDER BY favorite DESC, $IS_FOLDER DESC, content_length"
+
+        const val ORDER_BY_NAME_MATCH = "filelist.filename = :name COLLATE NOCASE DESC," +
+            " substr(filelist.filename, 1, length(:name)) = :name COLLATE NOCASE DESC," +
+            " length(filelist.filename), filelist.filename COLLATE NOCASE"
+    }
+
     @Query("SELECT * FROM filelist WHERE _id = :id LIMIT 1")
     fun getFileById(id: Long): FileEntity?
 
@@ -35,6 +63,84 @@ interface FileDao {
     @Query("SELECT * FROM filelist WHERE parent = :parentId ORDER BY ${ProviderTableMeta.FILE_DEFAULT_SORT_ORDER}")
     fun getFolderContent(parentId: Long): List<FileEntity>
 
+    @Query("$FOLDER_CONTENT_SELECTION $ORDER_BY_NAME ASC")
+    fun getFolderContentByNameAscending(parentId: Long, mimeTypePrefix: String?): List<FileEntity>
+
+    @Query("$FOLDER_CONTENT_SELECTION $ORDER_BY_NAME DESC")
+    fun getFolderContentByNameDescending(parentId: Long, mimeTypePrefix: String?): List<FileEntity>
+
+    @Query("$FOLDER_CONTENT_SELECTION $ORDER_BY_DATE ASC")
+    fun getFolderContentByDateAscending(parentId: Long, mimeTypePrefix: String?): List<FileEntity>
+
+    @Query("$FOLDER_CONTENT_SELECTION $ORDER_BY_DATE DESC")
+    fun getFolderContentByDateDescending(parentId: Long, mimeTypePrefix: String?): List<FileEntity>
+
+    @Query("$FOLDER_CONTENT_SELECTION $ORDER_BY_SIZE ASC")
+    fun getFolderContentBySizeAscending(parentId: Long, mimeTypePrefix: String?): List<FileEntity>
+
+    @Query("$FOLDER_CONTENT_SELECTION $ORDER_BY_SIZE DESC")
+    fun getFolderContentBySizeDescending(parentId: Long, mimeTypePrefix: String?): List<FileEntity>
+
+    @Query("$FOLDER_CONTENT_ROW_SELECTION $ORDER_BY_NAME ASC")
+    fun getFolderContentRowsByNameAscending(parentId: Long, mimeTypePrefix: String?): List<FileListRow>
+
+    @Query("$FOLDER_CONTENT_ROW_SELECTION $ORDER_BY_NAME DESC")
+    fun getFolderContentRowsByNameDescending(parentId: Long, mimeTypePrefix: String?): List<FileListRow>
+
+    @Query("$FOLDER_CONTENT_ROW_SELECTION $ORDER_BY_DATE ASC")
+    fun getFolderContentRowsByDateAscending(parentId: Long, mimeTypePrefix: String?): List<FileListRow>
+
+    @Query("$FOLDER_CONTENT_ROW_SELECTION $ORDER_BY_DATE DESC")
+    fun getFolderContentRowsByDateDescending(parentId: Long, mimeTypePrefix: String?): List<FileListRow>
+
+    @Query("$FOLDER_CONTENT_ROW_SELECTION $ORDER_BY_SIZE ASC")
+    fun getFolderContentRowsBySizeAscending(parentId: Long, mimeTypePrefix: String?): List<FileListRow>
+
+    @Query("$FOLDER_CONTENT_ROW_SELECTION $ORDER_BY_SIZE DESC")
+    fun getFolderContentRowsBySizeDescending(parentId: Long, mimeTypePrefix: String?): List<FileListRow>
+
+    @Query("SELECT COUNT(*) FROM filelist WHERE parent = :parentId")
+    fun getFolderContentCount(parentId: Long): Int
+
+    @Query("SELECT * FROM filelist WHERE _id IN (:ids)")
+    fun getFilesByIds(ids: List<Long>): List<FileEntity>
+
+    /**
+     * Files whose name matches the full-text [match] expression, see [FileNameSearchEntity.matchExpression]. Names
+     * equal to [name] come first, then names starting with it, then shorter names.
+     */
+    @Query(
+        "SELECT filelist.* FROM filelist_fts JOIN filelist ON filelist._id = filelist_fts.docid" +
+            " WHERE filelist_fts MATCH :match AND file_owner = :fileOwner AND NOT $IS_FOLDER" +
+            " ORDER BY $ORDER_BY_NAME_MATCH LIMIT :limit"
+    )
+    fun searchFilesByName(match: String, name: String, fileOwner: String, limit: Int): List<FileEntity>
+
+    /**
+     * Files whose name contains [name] anywhere, also within a word, which [searchFilesByName] cannot find. Scans all
+     * files of the user.
+     */
+    @Query(
+        "SELECT * FROM filelist WHERE file_owner = :fileOwner AND NOT $IS_FOLDER" +
+            " AND instr(lower(filelist.filename), lower(:name)) > 0" +
+            " ORDER BY $ORDER_BY_NAME_MATCH LIMIT :limit"
+    )
+    fun searchFilesByNameSubstring(name: String, fileOwner: String, limit: Int): List<FileEntity>
+
+    /**
+     * Files of a folder whose mime type starts with [mimeTypePrefix], ignoring case, and files without a specific
+     * mime type, which only their name can classify.
+     */
+    @Query(
+        "SELECT * FROM filelist WHERE parent = :parentId AND NOT $IS_FOLDER" +
+            " AND (content_type LIKE :mimeTypePrefix || '%' OR IFNULL(content_type, '') IN ('', '${MimeType.FILE}'))" +
+            " ORDER BY ${ProviderTableMeta.FILE_DEFAULT_SORT_ORDER}"
+    )
+    fun getFolderFilesByMimeTypePrefix(parentId: Long, mimeTypePrefix: String): List<FileEntity>
+
+    @Query("SELECT * FROM filelist WHERE _id IN (:ids) OR (path IN (:paths) AND file_owner = :fileOwner)")
+    fun getFilesByIdsOrEncryptedRemotePaths(ids: List<Long>, paths: List<String>, fileOwner: String): List<FileEntity>
+
     @Query(
         "SELECT * FROM filelist WHERE modified >= :startDate" +
             " AND modified < :endDate" +
@@ -50,6 +156,30 @@ interface FileDao {
     @Query("SELECT * FROM filelist WHERE path LIKE :pathPattern AND file_owner = :fileOwner ORDER BY path ASC")
     fun getFolderWithDescendants(pathPattern: String, fileOwner: String): List<FileEntity>
 
+    /**
+     * One page of the non-folder files below a folder, found by the range of paths starting with the folder path
+     * ending with '/'. [pathPrefixEnd] is that prefix with its trailing '/' replaced by '0', the next character, so
+     * the range matches exactly the paths starting with the prefix. The first page starts after the prefix itself,
+     * the next ones after the last path of the previous page, so every page is read along the path index.
+     */
+    @Query(
+        "SELECT * FROM filelist WHERE file_owner = :fileOwner" +
+            " AND path > :afterPath AND path < :pathPrefixEnd" +
+            " AND NOT $IS_FOLDER" +
+            " AND (:includeApk OR substr(filename, -4) NOT IN ('.apk', '.aab'))" +
+            " AND (:mimeTypePattern IS NULL OR content_type LIKE :mimeTypePattern)" +
+            " ORDER BY path LIMIT :limit"
+    )
+    @Suppress("LongParameterList")
+    fun getFilesInsideFolderPage(
+        afterPath: String,
+        pathPrefixEnd: String,
+        fileOwner: String,
+        includeApk: Boolean,
+        mimeTypePattern: String?,
+        limit: Int
+    ): List<FileEntity>
+
     @Query("SELECT * FROM filelist where file_owner = :fileOwner AND etag_in_conflict IS NOT NULL")
     fun getFilesWithSyncConflict(fileOwner: String): List<FileEntity>
 
@@ -0,0 +1,53 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.nextcloud.client.database.dao
+
+import androidx.room.Dao
+import androidx.room.Insert
+import androidx.room.OnConflictStrategy
+import androidx.room.Query
+import androidx.room.Transaction
+import com.nextcloud.client.database.entity.LocalUsageEntity
+
+@Dao
+interface LocalUsageDao {
+    @Query("SELECT * FROM local_usage WHERE local_usage_account = :account AND local_usage_path = :path LIMIT 1")
+    fun get(account: String, path: String): LocalUsageEntity?
+
+    /**
+     * Sums up the downloaded files below a folder, found by the path range as in
+     * [FileDao.getFilesInsideFolderPage].
+     */
+    @Query(
+        "SELECT IFNULL(SUM(IFNULL(content_length, 0)), 0) FROM filelist WHERE file_owner = :account" +
+            " AND path > :pathPrefix AND path < :pathPrefixEnd" +
+            " AND media_path IS NOT NULL AND NOT ${FileDao.IS_FOLDER}"
+    )
+    fun computeLocalUsage(account: String, pathPrefix: String, pathPrefixEnd: String): Long
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    fun insert(entity: LocalUsageEntity)
+
+    /**
+     * Recomputes the usage of a folder and stores it. Runs in one transaction, so no change of the file table
+     * between both steps is lost.
+     */
+    @Transaction
+    fun reconcile(account: String, pathPrefix: String, pathPrefixEnd: String, timestamp: Long): LocalUsageEntity {
+        val entity = LocalUsageEntity(
+            account = account,
+            path = pathPrefix,
+            bytes = computeLocalUsage(account, pathPrefix, pathPrefixEnd),
+            reconciled = timestamp
+        )
+        insert(entity)
+        return entity
+    }
+
+    @Query("DELETE FROM local_usage WHERE local_usage_account = :account AND local_usage_path NOT IN (:paths)")
+    fun deleteAllExcept(account: String, paths: List<String>)
+}
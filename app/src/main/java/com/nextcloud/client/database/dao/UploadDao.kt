@@ -8,7 +8,10 @@
 package com.nextcloud.client.database.dao
 
 import androidx.room.Dao
+import androidx.room.Insert
 import androidx.room.Query
+import com.nextcloud.client.database.entity.UploadEntity
+import com.nextcloud.client.database.entity.UploadPathsRow
 import com.owncloud.android.db.ProviderMeta.ProviderTableMeta
 
 @Dao
@@ -19,4 +22,34 @@ interface UploadDao {
             ProviderTableMeta.UPLOADS_ACCOUNT_NAME + " = :accountName AND _id IS NOT NULL"
     )
     fun getAllIds(status: Int, accountName: String): List<Int>
+
+    @Query(
+        "SELECT _id, " + ProviderTableMeta.UPLOADS_LOCAL_PATH + ", " + ProviderTableMeta.UPLOADS_REMOTE_PATH +
+            " FROM " + ProviderTableMeta.UPLOADS_TABLE_NAME +
+            " WHERE " + ProviderTableMeta.UPLOADS_ACCOUNT_NAME + " = :accountName AND " +
+            ProviderTableMeta.UPLOADS_STATUS + " IN (:statuses)"
+    )
+    fun getUploadPaths(accountName: String, statuses: List<Int>): List<UploadPathsRow>
+
+    @Insert
+    fun insertAll(uploads: List<UploadEntity>): List<Long>
+
+    @Suppress("LongParameterList")
+    @Query(
+        "UPDATE " + ProviderTableMeta.UPLOADS_TABLE_NAME + " SET " +
+            ProviderTableMeta.UPLOADS_STATUS + " = :status, " +
+            ProviderTableMeta.UPLOADS_LAST_RESULT + " = :lastResult, " +
+            ProviderTableMeta.UPLOADS_UPLOAD_END_TIMESTAMP + " = :uploadEndTimestamp, " +
+            ProviderTableMeta.UPLOADS_FILE_SIZE + " = :fileSize, " +
+            ProviderTableMeta.UPLOADS_FOLDER_UNLOCK_TOKEN + " = :folderUnlockToken" +
+            " WHERE _id = :id"
+    )
+    fun updateState(
+        id: Long,
+        status: Int,
+        lastResult: Int,
+        uploadEndTimestamp: Long,
+        fileSize: Long,
+        folderUnlockToken: String?
+    )
 }
@@ -9,10 +9,23 @@ package com.nextcloud.client.database.entity
 
 import androidx.room.ColumnInfo
 import androidx.room.Entity
+import androidx.room.Index
 import androidx.room.PrimaryKey
 import com.owncloud.android.db.ProviderMeta.ProviderTableMeta
 
-@Entity(tableName = ProviderTableMeta.FILE_TABLE_NAME)
+@Entity(
+    tableName = ProviderTableMeta.FILE_TABLE_NAME,
+    indices = [
+        Index(
+            name = "index_filelist_parent_favorite_modified",
+            value = [ProviderTableMeta.FILE_PARENT, ProviderTableMeta.FILE_FAVORITE, ProviderTableMeta.FILE_MODIFIED]
+        ),
+        Index(
+            name = "index_filelist_file_owner_path",
+            value = [ProviderTableMeta.FILE_ACCOUNT_OWNER, ProviderTableMeta.FILE_PATH]
+        )
+    ]
+)
 data class FileEntity(
     @PrimaryKey(autoGenerate = true)
     @ColumnInfo(name = ProviderTableMeta._ID)
@@ -0,0 +1,39 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.nextcloud.client.database.entity
+
+import androidx.room.ColumnInfo
+import com.owncloud.android.db.ProviderMeta.ProviderTableMeta
+
+/**
+ * Projection of a [FileEntity] holding only the columns needed to filter, sort and count the rows of a folder
+ * listing. Full rows are loaded by id for the part of the listing actually shown.
+ */
+data class FileListRow(
+    @ColumnInfo(name = ProviderTableMeta._ID)
+    val id: Long,
+    @ColumnInfo(name = ProviderTableMeta.FILE_NAME)
+    val name: String?,
+    @ColumnInfo(name = ProviderTableMeta.FILE_CONTENT_TYPE)
+    val contentType: String?,
+    @ColumnInfo(name = ProviderTableMeta.FILE_MODIFIED)
+    val modified: Long?,
+    @ColumnInfo(name = ProviderTableMeta.FILE_CONTENT_LENGTH)
+    val contentLength: Long?,
+    @ColumnInfo(name = ProviderTableMeta.FILE_FAVORITE)
+    val favorite: Int?,
+    @ColumnInfo(name = ProviderTableMeta.FILE_HIDDEN)
+    val hidden: Int?,
+    @ColumnInfo(name = ProviderTableMeta.FILE_STORAGE_PATH)
+    val storagePath: String?,
+    @ColumnInfo(name = ProviderTableMeta.FILE_LOCAL_ID)
+    val localId: Long,
+    @ColumnInfo(name = ProviderTableMeta.FILE_REMOTE_ID)
+    val remoteId: String?,
+    @ColumnInfo(name = ProviderTableMeta.FILE_METADATA_LIVE_PHOTO)
+    val livePhoto: String?
+)
@@ -0,0 +1,45 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.nextcloud.client.database.entity
+
+import androidx.room.ColumnInfo
+import androidx.room.Entity
+import androidx.room.Fts4
+import androidx.room.FtsOptions
+import com.owncloud.android.db.ProviderMeta.ProviderTableMeta
+
+/**
+ * Full-text index over the (decrypted) names of [FileEntity].
+ *
+ * The index keeps no copy of the names, it refers to the file table. Room maintains it with triggers on the file
+ * table, so every write path, including the content provider, keeps it current.
+ */
+@Fts4(contentEntity = FileEntity::class, tokenizer = FtsOptions.TOKENIZER_UNICODE61)
+@Entity(tableName = ProviderTableMeta.FILE_NAME_SEARCH_TABLE_NAME)
+data class FileNameSearchEntity(
+    @ColumnInfo(name = ProviderTableMeta.FILE_NAME)
+    val name: String?
+) {
+    companion object {
+        private val NON_WORD_CHARACTERS = Regex("[^\\p{L}\\p{N}]+")
+
+        /**
+         * Match expression finding names with words starting with each word of [query], e.g. "hol pic" matches
+         * "Holiday pictures.zip". Words are split like the index tokenizer does, at anything but letters and digits.
+         *
+         * @return the expression, or null if the query has no words
+         */
+        @JvmStatic
+        fun matchExpression(query: String): String? {
+            val words = query.split(NON_WORD_CHARACTERS).filter { it.isNotEmpty() }
+            if (words.isEmpty()) {
+                return null
+            }
+            return words.joinToString(" ") { "\"$it*\"" }
+        }
+    }
+}
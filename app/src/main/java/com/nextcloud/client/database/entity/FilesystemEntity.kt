@@ -30,5 +30,13 @@ data class FilesystemEntity(
     @ColumnInfo(name = ProviderTableMeta.FILESYSTEM_CRC32)
     val crc32: String?,
     @ColumnInfo(name = ProviderTableMeta.FILESYSTEM_FILE_MODIFIED)
-    val fileModified: Long?
+    val fileModified: Long?,
+    @ColumnInfo(name = ProviderTableMeta.FILESYSTEM_FILE_SIZE)
+    val fileSize: Long?,
+    @ColumnInfo(name = ProviderTableMeta.FILESYSTEM_FILE_INODE)
+    val inode: Long?,
+    @ColumnInfo(name = ProviderTableMeta.FILESYSTEM_HASH_STRATEGY)
+    val hashStrategy: Int?,
+    @ColumnInfo(name = ProviderTableMeta.FILESYSTEM_FULL_CRC32)
+    val fullCrc32: String?
 )
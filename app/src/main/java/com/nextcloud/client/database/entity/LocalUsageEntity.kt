@@ -0,0 +1,46 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.nextcloud.client.database.entity
+
+import androidx.room.ColumnInfo
+import androidx.room.Entity
+import androidx.room.Index
+import androidx.room.PrimaryKey
+import com.owncloud.android.db.ProviderMeta.ProviderTableMeta
+
+/**
+ * Bytes of the downloaded files below a folder. Database triggers keep [bytes] current on every change of the file
+ * table, see [com.nextcloud.client.database.migrations.LocalUsageTriggers].
+ */
+@Entity(
+    tableName = ProviderTableMeta.LOCAL_USAGE_TABLE_NAME,
+    indices = [
+        Index(
+            value = [ProviderTableMeta.LOCAL_USAGE_ACCOUNT, ProviderTableMeta.LOCAL_USAGE_PATH],
+            unique = true
+        )
+    ]
+)
+data class LocalUsageEntity(
+    @PrimaryKey(autoGenerate = true)
+    @ColumnInfo(name = ProviderTableMeta._ID)
+    val id: Int? = null,
+
+    @ColumnInfo(name = ProviderTableMeta.LOCAL_USAGE_ACCOUNT)
+    val account: String,
+
+    /** Remote path of the folder, ending with '/' */
+    @ColumnInfo(name = ProviderTableMeta.LOCAL_USAGE_PATH)
+    val path: String,
+
+    @ColumnInfo(name = ProviderTableMeta.LOCAL_USAGE_BYTES)
+    val bytes: Long,
+
+    /** Time the bytes were last recomputed from the file table */
+    @ColumnInfo(name = ProviderTableMeta.LOCAL_USAGE_RECONCILED)
+    val reconciled: Long
+)
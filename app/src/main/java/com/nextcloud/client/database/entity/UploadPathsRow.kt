@@ -0,0 +1,22 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.nextcloud.client.database.entity
+
+import androidx.room.ColumnInfo
+import com.owncloud.android.db.ProviderMeta.ProviderTableMeta
+
+/**
+ * Projection of an [UploadEntity] identifying an upload by its paths, used to find uploads that are stored already.
+ */
+data class UploadPathsRow(
+    @ColumnInfo(name = ProviderTableMeta._ID)
+    val id: Long,
+    @ColumnInfo(name = ProviderTableMeta.UPLOADS_LOCAL_PATH)
+    val localPath: String?,
+    @ColumnInfo(name = ProviderTableMeta.UPLOADS_REMOTE_PATH)
+    val remotePath: String?
+)
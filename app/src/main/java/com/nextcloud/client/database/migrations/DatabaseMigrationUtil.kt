@@ -11,6 +11,7 @@ import androidx.room.DeleteColumn
 import androidx.room.migration.AutoMigrationSpec
 import androidx.sqlite.db.SupportSQLiteDatabase
 import com.nextcloud.client.database.migrations.model.SQLiteColumnType
+import com.owncloud.android.db.ProviderMeta.ProviderTableMeta
 
 object DatabaseMigrationUtil {
 
@@ -119,6 +120,19 @@ object DatabaseMigrationUtil {
         }
     }
 
+    /**
+     * Room AutoMigrationSpec to index the names of the existing files, the index only follows changes by itself.
+     */
+    class BuildFileNameSearchIndexPostMigration : AutoMigrationSpec {
+        override fun onPostMigrate(db: SupportSQLiteDatabase) {
+            db.execSQL(
+                "INSERT INTO ${ProviderTableMeta.FILE_NAME_SEARCH_TABLE_NAME}" +
+                    "(${ProviderTableMeta.FILE_NAME_SEARCH_TABLE_NAME}) VALUES('rebuild')"
+            )
+            super.onPostMigrate(db)
+        }
+    }
+
     @DeleteColumn.Entries(
         DeleteColumn(
             tableName = "offline_operations",
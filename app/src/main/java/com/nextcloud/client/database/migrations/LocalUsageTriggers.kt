@@ -0,0 +1,47 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.nextcloud.client.database.migrations
+
+import androidx.sqlite.db.SupportSQLiteDatabase
+import com.owncloud.android.utils.MimeType
+
+/**
+ * Triggers keeping [com.nextcloud.client.database.entity.LocalUsageEntity] rows current: every insert, update and
+ * delete of a downloaded file adds or subtracts its length on the rows of the folders containing it. Downloads,
+ * uploads, moves and removals all end up as such writes, whichever code path does them.
+ *
+ * Room does not manage triggers of regular tables, they are created whenever the database is opened.
+ */
+object LocalUsageTriggers {
+
+    private fun localLength(row: String) = "(CASE WHEN $row.media_path IS NULL" +
+        " OR IFNULL($row.content_type, '') IN ('${MimeType.DIRECTORY}', '${MimeType.WEBDAV_FOLDER}')" +
+        " THEN 0 ELSE IFNULL($row.content_length, 0) END)"
+
+    private fun addLength(row: String, sign: String) = "UPDATE local_usage" +
+        " SET local_usage_bytes = local_usage_bytes $sign ${localLength(row)}" +
+        " WHERE local_usage_account = $row.file_owner" +
+        " AND substr($row.path, 1, length(local_usage_path)) = local_usage_path;"
+
+    private val TRIGGERS = listOf(
+        "CREATE TRIGGER IF NOT EXISTS local_usage_after_insert AFTER INSERT ON filelist" +
+            " WHEN ${localLength("NEW")} > 0" +
+            " BEGIN ${addLength("NEW", "+")} END",
+        "CREATE TRIGGER IF NOT EXISTS local_usage_after_delete AFTER DELETE ON filelist" +
+            " WHEN ${localLength("OLD")} > 0" +
+            " BEGIN ${addLength("OLD", "-")} END",
+        "CREATE TRIGGER IF NOT EXISTS local_usage_after_update AFTER UPDATE ON filelist" +
+            " WHEN ${localLength("OLD")} != ${localLength("NEW")}" +
+            " OR (${localLength("NEW")} > 0 AND (OLD.path IS NOT NEW.path OR OLD.file_owner IS NOT NEW.file_owner))" +
+            " BEGIN ${addLength("OLD", "-")} ${addLength("NEW", "+")} END"
+    )
+
+    @JvmStatic
+    fun create(db: SupportSQLiteDatabase) {
+        TRIGGERS.forEach { db.execSQL(it) }
+    }
+}
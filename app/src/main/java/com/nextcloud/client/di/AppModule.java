@@ -166,7 +166,7 @@ class AppModule {
     Logger logger(Context context, Clock clock) {
         File logDir = new File(context.getFilesDir(), "logs");
         FileLogHandler handler = new FileLogHandler(logDir, "log.txt", 1024 * 1024);
-        LoggerImpl logger = new LoggerImpl(clock, handler, new Handler(), 1000);
+        LoggerImpl logger = new LoggerImpl(clock, handler, new Handler(), 4096);
         logger.start();
         return logger;
     }
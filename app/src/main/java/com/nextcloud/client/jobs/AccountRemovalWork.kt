@@ -83,6 +83,7 @@ class AccountRemovalWork(
         val arbitraryDataProvider: ArbitraryDataProvider = ArbitraryDataProviderImpl(context)
         val user = optionalUser.get()
         backgroundJobManager.cancelPeriodicContactsBackup(user)
+        ContactsBackupWork.getCacheFile(context, user.accountName).delete()
         val userRemoved = userAccountManager.removeUser(user)
         val storageManager = FileDataStorageManager(user, context.contentResolver)
 
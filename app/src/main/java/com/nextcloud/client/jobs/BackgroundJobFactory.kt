@@ -230,6 +230,7 @@ class BackgroundJobFactory @Inject constructor(
             localBroadcastManager.get(),
             backgroundJobManager.get(),
             preferences,
+            arbitraryDataProvider,
             context,
             params
         )
@@ -94,6 +94,9 @@ internal class BackgroundJobManagerImpl(
 
         const val MAX_CONTENT_TRIGGER_DELAY_MS = 10000L
 
+        /** Keeps the job input data well below its limit of 10 KB */
+        const val MAX_UPLOAD_IDS_PER_JOB = 500
+
         const val TAG_PREFIX_NAME = "name"
         const val TAG_PREFIX_USER = "user"
         const val TAG_PREFIX_CLASS = "class"
@@ -590,6 +593,9 @@ internal class BackgroundJobManagerImpl(
      * - FilesSyncWork
      * - ...
      *
+     * Enqueues one job per [MAX_UPLOAD_IDS_PER_JOB] uploads, chained after any running upload job of the user.
+     * Bulk uploads would otherwise exceed the size limit of the job input data.
+     *
      * @param user The user for whom the upload job is being created.
      * @param uploadIds Array of upload IDs to be processed. These IDs originate from multiple sources
      *                  and cannot be determined directly from the account name or a single function
@@ -597,21 +603,33 @@ internal class BackgroundJobManagerImpl(
      */
     override fun startFilesUploadJob(user: User, uploadIds: LongArray) {
         val tag = startFileUploadJobTag(user)
-        val dataBuilder = Data.Builder()
-            .putString(FileUploadWorker.ACCOUNT, user.accountName)
-            .putLongArray(FileUploadWorker.UPLOAD_IDS, uploadIds)
 
         val constraints = Constraints.Builder()
             .setRequiredNetworkType(NetworkType.CONNECTED)
             .build()
 
-        val request = oneTimeRequestBuilder(FileUploadWorker::class, JOB_FILES_UPLOAD, user)
-            .addTag(tag)
-            .setInputData(dataBuilder.build())
-            .setConstraints(constraints)
-            .build()
+        val requests = uploadIds.asList().chunked(MAX_UPLOAD_IDS_PER_JOB).map { chunk ->
+            val data = Data.Builder()
+                .putString(FileUploadWorker.ACCOUNT, user.accountName)
+                .putLongArray(FileUploadWorker.UPLOAD_IDS, chunk.toLongArray())
+                .build()
 
-        workManager.enqueueUniqueWork(tag, ExistingWorkPolicy.APPEND_OR_REPLACE, request)
+            oneTimeRequestBuilder(FileUploadWorker::class, JOB_FILES_UPLOAD, user)
+                .addTag(tag)
+                .setInputData(data)
+                .setConstraints(constraints)
+                .build()
+        }
+
+        if (requests.isEmpty()) {
+            return
+        }
+
+        var chain = workManager.beginUniqueWork(tag, ExistingWorkPolicy.APPEND_OR_REPLACE, requests.first())
+        for (request in requests.drop(1)) {
+            chain = chain.then(request)
+        }
+        chain.enqueue()
     }
 
     private fun startFileDownloadJobTag(user: User, fileId: Long): String =
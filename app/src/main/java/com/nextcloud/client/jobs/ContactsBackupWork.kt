@@ -12,7 +12,6 @@ import android.content.Context
 import android.content.Intent
 import android.content.ServiceConnection
 import android.content.res.Resources
-import android.database.Cursor
 import android.net.Uri
 import android.os.IBinder
 import android.provider.ContactsContract
@@ -38,10 +37,10 @@ import com.owncloud.android.ui.activity.ContactsPreferenceActivity
 import ezvcard.Ezvcard
 import ezvcard.VCardVersion
 import java.io.File
-import java.io.FileWriter
+import java.io.FileOutputStream
 import java.io.IOException
-import java.io.InputStream
 import java.io.InputStreamReader
+import java.net.URLEncoder
 import java.util.Calendar
 
 @Suppress("LongParameterList") // legacy code
@@ -59,7 +58,20 @@ class ContactsBackupWork(
         const val KEY_ACCOUNT = "account"
         const val KEY_FORCE = "force"
         const val JOB_INTERVAL_MS: Long = 24L * 60L * 60L * 1000L
-        const val BUFFER_SIZE = 1024
+        private const val CACHE_FOLDER = "contacts_backup"
+        private val CONTACTS_PROJECTION = arrayOf(
+            ContactsContract.Contacts.LOOKUP_KEY,
+            ContactsContract.Contacts.CONTACT_LAST_UPDATED_TIMESTAMP
+        )
+
+        /**
+         * Cache of the vCards exported by the backups of the account, see [ContactsBackupWriter]
+         */
+        @JvmStatic
+        fun getCacheFile(context: Context, accountName: String): File = File(
+            File(context.noBackupFilesDir, CACHE_FOLDER),
+            URLEncoder.encode(accountName, Charsets.UTF_8.name())
+        )
     }
 
     private var operationsServiceConnection: OperationsServiceConnection? = null
@@ -86,7 +98,7 @@ class ContactsBackupWork(
             Log_OC.d(TAG, "start contacts backup job")
             val backupFolder: String = resources.getString(R.string.contacts_backup_folder) + OCFile.PATH_SEPARATOR
             val daysToExpire: Int = applicationContext.getResources().getInteger(R.integer.contacts_backup_expire)
-            backupContact(user, backupFolder)
+            backupContact(user, backupFolder, force)
             // bind to Operations Service
             operationsServiceConnection = OperationsServiceConnection(
                 this,
@@ -111,42 +123,47 @@ class ContactsBackupWork(
         return Result.success()
     }
 
-    private fun backupContact(user: User, backupFolder: String) {
-        val vCard = ArrayList<String>()
-        val cursor = contentResolver.query(
-            ContactsContract.Contacts.CONTENT_URI,
-            null,
-            null,
-            null,
-            null
-        )
-        if (cursor != null && cursor.count > 0) {
-            cursor.moveToFirst()
-            for (i in 0 until cursor.count) {
-                vCard.add(getContactFromCursor(cursor))
-                cursor.moveToNext()
-            }
-        }
+    /**
+     * Streams all contacts into a new backup file. Scheduled backups take the vCards of contacts not updated since
+     * the last backup from the cache of [ContactsBackupWriter]; backups started by the user export every contact.
+     */
+    private fun backupContact(user: User, backupFolder: String, force: Boolean) {
         val filename = DateFormat.format("yyyy-MM-dd_HH-mm-ss", Calendar.getInstance()).toString() + ".vcf"
         Log_OC.d(TAG, "Storing: $filename")
         val file = File(applicationContext.getCacheDir(), filename)
-        var fw: FileWriter? = null
+        val cacheFile = getCacheFile(applicationContext, user.accountName)
+        val start = System.currentTimeMillis()
+
         try {
-            fw = FileWriter(file)
-            for (card in vCard) {
-                fw.write(card)
+            FileOutputStream(file).use { output ->
+                ContactsBackupWriter(cacheFile, output, !force).use { writer ->
+                    contentResolver.query(
+                        ContactsContract.Contacts.CONTENT_URI,
+                        CONTACTS_PROJECTION,
+                        null,
+                        null,
+                        null
+                    )?.use { cursor ->
+                        val lookupKeyColumn = cursor.getColumnIndexOrThrow(ContactsContract.Contacts.LOOKUP_KEY)
+                        val lastUpdatedColumn = cursor.getColumnIndexOrThrow(
+                            ContactsContract.Contacts.CONTACT_LAST_UPDATED_TIMESTAMP
+                        )
+                        while (cursor.moveToNext()) {
+                            val lookupKey = cursor.getString(lookupKeyColumn) ?: continue
+                            writer.write(lookupKey, cursor.getLong(lastUpdatedColumn)) { exportContact(lookupKey) }
+                        }
+                    }
+                    writer.finish()
+
+                    Log_OC.d(
+                        TAG,
+                        "Backed up ${writer.writtenCount} contacts, ${writer.exportedCount} of them exported, " +
+                            "${writer.failedCount} failed, in ${System.currentTimeMillis() - start} ms"
+                    )
+                }
             }
         } catch (e: IOException) {
             Log_OC.d(TAG, "Error ", e)
-        } finally {
-            cursor?.close()
-            if (fw != null) {
-                try {
-                    fw.close()
-                } catch (e: IOException) {
-                    Log_OC.d(TAG, "Error closing file writer ", e)
-                }
-            }
         }
 
         val request = UploadRequest.Builder(user, file.absolutePath, backupFolder + file.name)
@@ -196,42 +213,21 @@ class ContactsBackupWork(
         }
     }
 
-    @Suppress("NestedBlockDepth")
-    private fun getContactFromCursor(cursor: Cursor): String {
-        val lookupKey = cursor.getString(cursor.getColumnIndexOrThrow(ContactsContract.Contacts.LOOKUP_KEY))
+    /**
+     * @return the vCard 3.0 of the contact, null if it could not be exported
+     */
+    private fun exportContact(lookupKey: String): String? {
         val uri = Uri.withAppendedPath(ContactsContract.Contacts.CONTENT_VCARD_URI, lookupKey)
-        var vCard = ""
-        var inputStream: InputStream? = null
-        var inputStreamReader: InputStreamReader? = null
-        try {
-            inputStream = applicationContext.getContentResolver().openInputStream(uri)
-            val buffer = CharArray(BUFFER_SIZE)
-            val stringBuilder = StringBuilder()
-            if (inputStream != null) {
-                inputStreamReader = InputStreamReader(inputStream)
-                while (true) {
-                    val byteCount = inputStreamReader.read(buffer, 0, buffer.size)
-                    if (byteCount > 0) {
-                        stringBuilder.append(buffer, 0, byteCount)
-                    } else {
-                        break
-                    }
-                }
-            }
-            vCard = stringBuilder.toString()
+        return try {
+            val vCard = applicationContext.getContentResolver().openInputStream(uri)?.use { inputStream ->
+                InputStreamReader(inputStream).readText()
+            } ?: return null
             // bump to vCard 3.0 format (min version supported by server) since Android OS exports to 2.1
-            return Ezvcard.write(Ezvcard.parse(vCard).all()).version(VCardVersion.V3_0).go()
+            Ezvcard.write(Ezvcard.parse(vCard).all()).version(VCardVersion.V3_0).go()
         } catch (e: IOException) {
             Log_OC.d(TAG, e.message)
-        } finally {
-            try {
-                inputStream?.close()
-                inputStreamReader?.close()
-            } catch (e: IOException) {
-                Log_OC.e(TAG, "failed to close stream")
-            }
+            null
         }
-        return vCard
     }
 
     /**
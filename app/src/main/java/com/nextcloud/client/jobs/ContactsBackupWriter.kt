@@ -0,0 +1,200 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.nextcloud.client.jobs
+
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.Closeable
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.EOFException
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileOutputStream
+import java.io.IOException
+import java.io.OutputStream
+import java.io.RandomAccessFile
+
+/**
+ * Streams the vCards of a contacts backup to [output], one contact at a time.
+ *
+ * Every written vCard is also stored in [cacheFile] together with the last update timestamp of its contact. The next
+ * backup takes the vCards of contacts that were not updated since from the cache instead of exporting and converting
+ * them again. Only the position of every cached vCard is held in memory.
+ *
+ * The cache is replaced by the vCards of this backup on [finish]; without [finish] it is left untouched. Contacts
+ * that could not be exported are left out of both the backup and the new cache, so the next backup exports them
+ * again.
+ */
+class ContactsBackupWriter(
+    private val cacheFile: File,
+    output: OutputStream,
+    reuseCached: Boolean
+) : Closeable {
+
+    private companion object {
+        const val CACHE_VERSION = 1
+        const val RECORD_HEADER_SIZE = Int.SIZE_BYTES + Long.SIZE_BYTES + Int.SIZE_BYTES
+    }
+
+    private class CachedCard(val lastUpdated: Long, val offset: Long, val length: Int)
+
+    private val output = BufferedOutputStream(output)
+    private val cached: Map<String, CachedCard> = if (reuseCached) readCacheIndex() else emptyMap()
+    private val cacheInput: RandomAccessFile? = if (cached.isNotEmpty()) RandomAccessFile(cacheFile, "r") else null
+    private val newCacheFile = File(cacheFile.parentFile, cacheFile.name + ".tmp")
+    private val newCache: DataOutputStream = try {
+        createNewCache()
+    } catch (e: IOException) {
+        cacheInput?.close()
+        throw e
+    }
+    private var finished = false
+
+    var writtenCount = 0
+        private set
+
+    var exportedCount = 0
+        private set
+
+    var failedCount = 0
+        private set
+
+    /**
+     * Writes the vCard of a contact, from the cache if the contact was not updated since the last backup or else
+     * as returned by [export].
+     *
+     * @param lastUpdated last update timestamp of the contact, 0 if unknown
+     * @param export exports the vCard of the contact, null if that failed; the contact is skipped then
+     */
+    fun write(lookupKey: String, lastUpdated: Long, export: () -> String?) {
+        val card = readCached(lookupKey, lastUpdated) ?: export()?.toByteArray(Charsets.UTF_8)?.also {
+            exportedCount++
+        }
+        if (card == null) {
+            failedCount++
+            return
+        }
+
+        output.write(card)
+
+        val key = lookupKey.toByteArray(Charsets.UTF_8)
+        newCache.writeInt(key.size)
+        newCache.write(key)
+        newCache.writeLong(lastUpdated)
+        newCache.writeInt(card.size)
+        newCache.write(card)
+        writtenCount++
+    }
+
+    /**
+     * Flushes the backup and replaces the cache with the vCards written by this backup.
+     */
+    fun finish() {
+        output.flush()
+        newCache.close()
+        cacheInput?.close()
+        if (!newCacheFile.renameTo(cacheFile)) {
+            throw IOException("Could not replace " + cacheFile.absolutePath)
+        }
+        finished = true
+    }
+
+    override fun close() {
+        output.close()
+        newCache.close()
+        cacheInput?.close()
+        if (!finished) {
+            newCacheFile.delete()
+        }
+    }
+
+    private fun createNewCache(): DataOutputStream {
+        cacheFile.parentFile?.mkdirs()
+        val stream = DataOutputStream(BufferedOutputStream(FileOutputStream(newCacheFile)))
+        try {
+            stream.writeInt(CACHE_VERSION)
+        } catch (e: IOException) {
+            stream.close()
+            throw e
+        }
+        return stream
+    }
+
+    private fun readCached(lookupKey: String, lastUpdated: Long): ByteArray? {
+        val card = cached[lookupKey]
+        if (card == null || lastUpdated <= 0 || card.lastUpdated != lastUpdated) {
+            return null
+        }
+
+        return try {
+            ByteArray(card.length).also {
+                cacheInput!!.seek(card.offset)
+                cacheInput.readFully(it)
+            }
+        } catch (e: IOException) {
+            null
+        }
+    }
+
+    /**
+     * @return positions of the cached vCards by lookup key; a damaged cache yields the records before the damage
+     */
+    @Suppress("NestedBlockDepth")
+    private fun readCacheIndex(): Map<String, CachedCard> {
+        val index = HashMap<String, CachedCard>()
+        if (!cacheFile.exists()) {
+            return index
+        }
+
+        try {
+            DataInputStream(BufferedInputStream(FileInputStream(cacheFile))).use { input ->
+                if (input.readInt() != CACHE_VERSION) {
+                    return index
+                }
+                var offset = Int.SIZE_BYTES.toLong()
+                val fileLength = cacheFile.length()
+                while (true) {
+                    val keyLength = try {
+                        input.readInt()
+                    } catch (e: EOFException) {
+                        break
+                    }
+                    if (keyLength < 0 || offset + keyLength > fileLength) {
+                        break
+                    }
+                    val key = ByteArray(keyLength)
+                    input.readFully(key)
+                    val lastUpdated = input.readLong()
+                    val cardLength = input.readInt()
+                    val cardOffset = offset + RECORD_HEADER_SIZE + keyLength
+                    if (cardLength < 0 || cardOffset + cardLength > fileLength) {
+                        break
+                    }
+                    skipFully(input, cardLength)
+
+                    index[String(key, Charsets.UTF_8)] = CachedCard(lastUpdated, cardOffset, cardLength)
+                    offset = cardOffset + cardLength
+                }
+            }
+        } catch (e: IOException) {
+            // use the records read so far
+        }
+        return index
+    }
+
+    private fun skipFully(input: DataInputStream, count: Int) {
+        var remaining = count
+        while (remaining > 0) {
+            val skipped = input.skipBytes(remaining)
+            if (skipped <= 0) {
+                throw EOFException()
+            }
+            remaining -= skipped
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.nextcloud.client.jobs
+
+import java.util.BitSet
+import java.util.Locale
+
+/**
+ * Raw contact ids of the contacts on the device, keyed by a 64 bit digest of display name, primary phone number and
+ * primary email address, so an imported vCard is matched without exporting and parsing every device contact.
+ */
+class ContactsImportIndex {
+
+    companion object {
+        private const val FNV_OFFSET_BASIS = -0x340d631b7bdddcdbL
+        private const val FNV_PRIME = 0x100000001b3L
+        private const val SEPARATOR = 0
+
+        /**
+         * Digest of a contact; case, surrounding whitespace and phone number formatting are ignored.
+         */
+        @JvmStatic
+        fun digest(displayName: String, phone: String?, email: String?): Long {
+            var hash = FNV_OFFSET_BASIS
+            fun add(char: Int) {
+                hash = (hash xor char.toLong()) * FNV_PRIME
+            }
+
+            displayName.trim().lowercase(Locale.ROOT).forEach { add(it.code) }
+            add(SEPARATOR)
+            phone?.forEach { if (it.isDigit() || it == '+') add(it.code) }
+            add(SEPARATOR)
+            email?.trim()?.lowercase(Locale.ROOT)?.forEach { add(it.code) }
+            return hash
+        }
+
+        /**
+         * Maps positions in the list of vCards sorted by display name, as shown when selecting contacts to import,
+         * to positions in the vCard file. Sorting is stable, as the sorting of the shown list.
+         *
+         * @param displayNames display names of the vCards in file order
+         * @param sortedPositions selected positions in the sorted list
+         * @return selected positions in the vCard file
+         */
+        @JvmStatic
+        fun filePositions(displayNames: List<String>, sortedPositions: IntArray): BitSet {
+            val fileOrder = displayNames.indices.sortedWith { a, b ->
+                String.CASE_INSENSITIVE_ORDER.compare(displayNames[a], displayNames[b])
+            }
+
+            val selected = BitSet(displayNames.size)
+            for (position in sortedPositions) {
+                if (position in fileOrder.indices) {
+                    selected.set(fileOrder[position])
+                }
+            }
+            return selected
+        }
+    }
+
+    private val rawContactIds = HashMap<Long, Long>()
+
+    val size: Int
+        get() = rawContactIds.size
+
+    /**
+     * Adds a device contact; of contacts with the same digest the first one is kept.
+     */
+    fun add(displayName: String, phone: String?, email: String?, rawContactId: Long) {
+        rawContactIds.putIfAbsent(digest(displayName, phone, email), rawContactId)
+    }
+
+    /**
+     * @return raw contact id of the device contact matching the given vCard values, null if there is none
+     */
+    fun find(displayName: String, phone: String?, email: String?): Long? =
+        rawContactIds[digest(displayName, phone, email)]
+}
@@ -10,26 +10,23 @@ package com.nextcloud.client.jobs
 
 import android.content.ContentResolver
 import android.content.Context
-import android.database.Cursor
-import android.net.Uri
 import android.provider.ContactsContract
+import android.provider.ContactsContract.CommonDataKinds.Email
+import android.provider.ContactsContract.CommonDataKinds.Phone
+import android.provider.ContactsContract.RawContacts
 import androidx.work.Worker
 import androidx.work.WorkerParameters
 import com.nextcloud.client.logger.Logger
 import com.nextcloud.utils.extensions.toIntArray
 import com.owncloud.android.lib.common.utils.Log_OC
 import com.owncloud.android.ui.fragment.contactsbackup.BackupListFragment
-import com.owncloud.android.ui.fragment.contactsbackup.VCardComparator
-import ezvcard.Ezvcard
 import ezvcard.VCard
+import ezvcard.io.text.VCardReader
+import ezvcard.parameter.EmailType
+import ezvcard.parameter.TelephoneType
 import org.apache.commons.io.FileUtils
 import third_parties.ezvcard_android.ContactOperations
-import java.io.BufferedInputStream
 import java.io.File
-import java.io.FileInputStream
-import java.io.IOException
-import java.util.Collections
-import java.util.TreeMap
 
 class ContactsImportWork(
     appContext: Context,
@@ -46,7 +43,7 @@ class ContactsImportWork(
         const val SELECTED_CONTACTS_FILE_PATH = "selected_contacts_file_path"
     }
 
-    @Suppress("ComplexMethod", "NestedBlockDepth", "LongMethod", "ReturnCount") // legacy code
+    @Suppress("ReturnCount")
     override fun doWork(): Result {
         val vCardFilePath = inputData.getString(VCARD_FILE_PATH) ?: ""
         val contactsAccountName = inputData.getString(ACCOUNT_NAME)
@@ -65,63 +62,25 @@ class ContactsImportWork(
 
         val selectedContactsIndices = readCheckedContractsFromFile(selectedContactsFile)
 
-        val inputStream = BufferedInputStream(FileInputStream(vCardFilePath))
-        val vCards = ArrayList<VCard>()
-
-        var cursor: Cursor? = null
         @Suppress("TooGenericExceptionCaught") // legacy code
         try {
-            val operations = ContactOperations(applicationContext, contactsAccountName, contactsAccountType)
-            vCards.addAll(Ezvcard.parse(inputStream).all())
-            Collections.sort(
-                vCards,
-                VCardComparator()
-            )
-            cursor = contentResolver.query(
-                ContactsContract.Contacts.CONTENT_URI,
-                null,
-                null,
-                null,
-                null
-            )
-            val ownContactMap = TreeMap<VCard, Long?>(VCardComparator())
-            if (cursor != null && cursor.count > 0) {
-                cursor.moveToFirst()
-                for (i in 0 until cursor.count) {
-                    val vCard = getContactFromCursor(cursor)
-                    if (vCard != null) {
-                        ownContactMap[vCard] = cursor.getLong(cursor.getColumnIndexOrThrow("NAME_RAW_CONTACT_ID"))
-                    }
-                    cursor.moveToNext()
-                }
-            }
+            val vCardFile = File(vCardFilePath)
+            val displayNames = ArrayList<String>()
+            forEachVCard(vCardFile) { _, vCard -> displayNames.add(BackupListFragment.getDisplayName(vCard)) }
+            val selected = ContactsImportIndex.filePositions(displayNames, selectedContactsIndices)
+            displayNames.clear()
 
-            for (contactIndex in selectedContactsIndices) {
-                try {
-                    val vCard = vCards[contactIndex]
-                    if (BackupListFragment.getDisplayName(vCard).isEmpty()) {
-                        if (!ownContactMap.containsKey(vCard)) {
-                            operations.insertContact(vCard)
-                        } else {
-                            operations.updateContact(vCard, ownContactMap[vCard])
-                        }
-                    } else {
-                        operations.insertContact(vCard) // Insert All the contacts without name
-                    }
-                } catch (t: Throwable) {
-                    Log_OC.e(TAG, "skipping contactIndex: $contactIndex due to: $t")
+            val deviceContacts = readDeviceContacts(contactsAccountName, contactsAccountType)
+            val operations = ContactOperations(applicationContext, contactsAccountName, contactsAccountType)
+            forEachVCard(vCardFile) { position, vCard ->
+                if (selected[position]) {
+                    importContact(operations, deviceContacts, position, vCard)
                 }
             }
+            operations.flush()
+            Log_OC.d(TAG, "Imported ${operations.writtenContactsCount} of ${selected.cardinality()} contacts")
         } catch (e: Exception) {
             logger.e(TAG, "${e.message}", e)
-        } finally {
-            cursor?.close()
-        }
-
-        try {
-            inputStream.close()
-        } catch (e: IOException) {
-            logger.e(TAG, "Error closing vCard stream", e)
         }
 
         Log_OC.d(TAG, "ContractsImportWork successfully completed")
@@ -129,6 +88,49 @@ class ContactsImportWork(
         return Result.success()
     }
 
+    /**
+     * Parses the vCards of [file] one at a time, so only the current one is held in memory.
+     */
+    private fun forEachVCard(file: File, action: (position: Int, vCard: VCard) -> Unit) {
+        VCardReader(file).use { reader ->
+            var position = 0
+            while (true) {
+                val vCard = reader.readNext() ?: break
+                action(position, vCard)
+                position++
+            }
+        }
+    }
+
+    /**
+     * Queues the contact for insertion or, if it matches a contact of the account imported into, for replacing
+     * that contact's data.
+     */
+    private fun importContact(
+        operations: ContactOperations,
+        deviceContacts: ContactsImportIndex,
+        position: Int,
+        vCard: VCard
+    ) {
+        @Suppress("TooGenericExceptionCaught") // legacy code
+        try {
+            val displayName = BackupListFragment.getDisplayName(vCard)
+            val rawContactId = if (displayName.isEmpty()) {
+                null // Insert All the contacts without name
+            } else {
+                deviceContacts.find(displayName, primaryPhone(vCard), primaryEmail(vCard))
+            }
+
+            if (rawContactId == null) {
+                operations.queueInsertContact(vCard)
+            } else {
+                operations.queueUpdateContact(vCard, rawContactId)
+            }
+        } catch (t: Throwable) {
+            Log_OC.e(TAG, "skipping contact at position: $position due to: $t")
+        }
+    }
+
     @Suppress("TooGenericExceptionCaught")
     fun readCheckedContractsFromFile(file: File): IntArray = try {
         val fileData = FileUtils.readFileToByteArray(file)
@@ -138,21 +140,69 @@ class ContactsImportWork(
         intArrayOf()
     }
 
-    private fun getContactFromCursor(cursor: Cursor): VCard? {
-        val lookupKey = cursor.getString(cursor.getColumnIndexOrThrow(ContactsContract.Contacts.LOOKUP_KEY))
-        val uri = Uri.withAppendedPath(ContactsContract.Contacts.CONTENT_VCARD_URI, lookupKey)
-        var vCard: VCard? = null
-        try {
-            contentResolver.openInputStream(uri).use { inputStream ->
-                val vCardList = ArrayList<VCard>()
-                vCardList.addAll(Ezvcard.parse(inputStream).all())
-                if (vCardList.size > 0) {
-                    vCard = vCardList[0]
+    /**
+     * Indexes the raw contacts of the account imported into by display name and first phone number and email
+     * address, primary ones first. Contacts of other accounts are never matched, so they are not modified.
+     */
+    private fun readDeviceContacts(accountName: String?, accountType: String?): ContactsImportIndex {
+        val accountSelection = if (accountName == null || accountType == null) {
+            "${RawContacts.ACCOUNT_NAME} IS NULL AND ${RawContacts.ACCOUNT_TYPE} IS NULL"
+        } else {
+            "${RawContacts.ACCOUNT_NAME} = ? AND ${RawContacts.ACCOUNT_TYPE} = ?"
+        }
+        val accountArgs = if (accountName == null || accountType == null) null else arrayOf(accountName, accountType)
+
+        val contacts = HashMap<Long, DeviceContact>()
+        contentResolver.query(
+            RawContacts.CONTENT_URI,
+            arrayOf(RawContacts._ID, RawContacts.DISPLAY_NAME_PRIMARY),
+            "$accountSelection AND ${RawContacts.DELETED} = 0",
+            accountArgs,
+            null
+        )?.use { cursor ->
+            while (cursor.moveToNext()) {
+                contacts[cursor.getLong(0)] = DeviceContact(cursor.getString(1) ?: "", cursor.getLong(0))
+            }
+        }
+
+        contentResolver.query(
+            ContactsContract.Data.CONTENT_URI,
+            arrayOf(ContactsContract.Data.RAW_CONTACT_ID, ContactsContract.Data.MIMETYPE, ContactsContract.Data.DATA1),
+            "${ContactsContract.Data.MIMETYPE} IN (?, ?)",
+            arrayOf(Phone.CONTENT_ITEM_TYPE, Email.CONTENT_ITEM_TYPE),
+            "${ContactsContract.Data.IS_PRIMARY} DESC, ${ContactsContract.Data._ID}"
+        )?.use { cursor ->
+            while (cursor.moveToNext()) {
+                val contact = contacts[cursor.getLong(0)] ?: continue
+                if (cursor.getString(1) == Phone.CONTENT_ITEM_TYPE) {
+                    contact.phone = contact.phone ?: cursor.getString(2)
+                } else {
+                    contact.email = contact.email ?: cursor.getString(2)
                 }
             }
-        } catch (e: IOException) {
-            logger.d(TAG, "${e.message}")
         }
-        return vCard
+
+        val index = ContactsImportIndex()
+        for (contact in contacts.values) {
+            index.add(contact.displayName, contact.phone, contact.email, contact.rawContactId)
+        }
+        return index
+    }
+
+    private fun primaryPhone(vCard: VCard): String? {
+        val phones = vCard.telephoneNumbers
+        val phone = phones.firstOrNull { it.types.contains(TelephoneType.PREF) || it.pref == 1 } ?: phones.firstOrNull()
+        return phone?.text ?: phone?.uri?.number
+    }
+
+    private fun primaryEmail(vCard: VCard): String? {
+        val emails = vCard.emails
+        val email = emails.firstOrNull { it.types.contains(EmailType.PREF) || it.pref == 1 } ?: emails.firstOrNull()
+        return email?.value
+    }
+
+    private class DeviceContact(val displayName: String, val rawContactId: Long) {
+        var phone: String? = null
+        var email: String? = null
     }
 }
@@ -0,0 +1,100 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.nextcloud.client.jobs
+
+import java.util.concurrent.Executors
+import java.util.concurrent.locks.ReentrantLock
+import kotlin.concurrent.withLock
+
+/**
+ * Runs folder synchronizations in parallel, at most [globalLimit] at a time and at most [accountLimit] of the same
+ * account, so one account with many folders cannot occupy all slots.
+ *
+ * Items are started in the given order; an item whose account is at its limit is passed over by items of other
+ * accounts until a slot of its account is free.
+ */
+class FolderSyncScheduler<T>(
+    private val globalLimit: Int,
+    private val accountLimit: Int,
+    private val accountOf: (T) -> String
+) {
+
+    /**
+     * Runs [task] for all [items] and waits until all started tasks are done.
+     *
+     * [shouldStop] is evaluated before every item is started; once it returns true no further item is started.
+     *
+     * @return true if every item was handed to [task], false if the run was stopped early
+     */
+    @Suppress("TooGenericExceptionCaught")
+    fun run(items: List<T>, shouldStop: () -> Boolean, task: (T) -> Unit): Boolean {
+        if (items.isEmpty()) {
+            return true
+        }
+
+        val pending = items.toMutableList()
+        val running = mutableMapOf<String, Int>()
+        var runningTotal = 0
+        var failure: Throwable? = null
+        var stopped = false
+        val lock = ReentrantLock()
+        val slotFreed = lock.newCondition()
+        val executor = Executors.newFixedThreadPool(minOf(globalLimit, items.size))
+
+        try {
+            lock.withLock {
+                while (pending.isNotEmpty() && failure == null) {
+                    if (shouldStop()) {
+                        stopped = true
+                        break
+                    }
+
+                    val index = if (runningTotal < globalLimit) {
+                        pending.indexOfFirst { (running[accountOf(it)] ?: 0) < accountLimit }
+                    } else {
+                        -1
+                    }
+                    if (index < 0) {
+                        slotFreed.await()
+                        continue
+                    }
+
+                    val item = pending.removeAt(index)
+                    val account = accountOf(item)
+                    running[account] = (running[account] ?: 0) + 1
+                    runningTotal++
+
+                    executor.execute {
+                        var error: Throwable? = null
+                        try {
+                            task(item)
+                        } catch (t: Throwable) {
+                            error = t
+                        }
+                        lock.withLock {
+                            running[account] = running.getValue(account) - 1
+                            runningTotal--
+                            if (failure == null) {
+                                failure = error
+                            }
+                            slotFreed.signalAll()
+                        }
+                    }
+                }
+
+                while (runningTotal > 0) {
+                    slotFreed.await()
+                }
+            }
+        } finally {
+            executor.shutdown()
+        }
+
+        failure?.let { throw it }
+        return !stopped
+    }
+}
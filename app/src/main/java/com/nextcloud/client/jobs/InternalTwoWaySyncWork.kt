@@ -10,6 +10,7 @@ package com.nextcloud.client.jobs
 import android.content.Context
 import androidx.work.Worker
 import androidx.work.WorkerParameters
+import com.nextcloud.client.account.User
 import com.nextcloud.client.account.UserAccountManager
 import com.nextcloud.client.device.PowerManagementService
 import com.nextcloud.client.network.ConnectivityService
@@ -19,8 +20,10 @@ import com.owncloud.android.datamodel.FileDataStorageManager
 import com.owncloud.android.datamodel.OCFile
 import com.owncloud.android.lib.common.utils.Log_OC
 import com.owncloud.android.operations.SynchronizeFolderOperation
-import com.owncloud.android.utils.FileStorageUtils
 import java.io.File
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
 
 @Suppress("Detekt.NestedBlockDepth", "ReturnCount", "LongParameterList")
 class InternalTwoWaySyncWork(
@@ -31,14 +34,22 @@ class InternalTwoWaySyncWork(
     private val connectivityService: ConnectivityService,
     private val appPreferences: AppPreferences
 ) : Worker(context, params) {
+    @Volatile
     private var shouldRun = true
-    private var operation: SynchronizeFolderOperation? = null
+
+    @Volatile
+    private var outOfSpace = false
+    private val operations: MutableSet<SynchronizeFolderOperation> = ConcurrentHashMap.newKeySet()
+
+    /** Bytes the folders being synchronized may still download, guarded by [spaceLock] */
+    private var reservedSpace = 0L
+    private val spaceLock = Any()
+
+    private class FolderSync(val user: User, val storageManager: FileDataStorageManager, val folder: OCFile)
 
     override fun doWork(): Result {
         Log_OC.d(TAG, "Worker started!")
 
-        var result = true
-
         @Suppress("ComplexCondition")
         if (!appPreferences.isTwoWaySyncEnabled ||
             powerManagementService.isPowerSavingEnabled ||
@@ -50,46 +61,38 @@ class InternalTwoWaySyncWork(
             return Result.success()
         }
 
-        val users = userAccountManager.allUsers
-
-        for (user in users) {
+        val runStart = getRunStart()
+        val folderSyncs = mutableListOf<FolderSync>()
+        for (user in userAccountManager.allUsers) {
             val fileDataStorageManager = FileDataStorageManager(user, context.contentResolver)
             val folders = fileDataStorageManager.getInternalTwoWaySyncFolders(user)
+            fileDataStorageManager.retainLocalUsage(folders)
 
-            for (folder in folders) {
-                if (!shouldRun) {
-                    Log_OC.d(TAG, "Worker was stopped!")
-                    return Result.failure()
-                }
-
-                checkFreeSpace(folder)?.let { checkFreeSpaceResult ->
-                    return checkFreeSpaceResult
-                }
-
-                Log_OC.d(TAG, "Folder ${folder.remotePath}: started!")
-                operation = SynchronizeFolderOperation(context, folder.remotePath, user, fileDataStorageManager, true)
-                val operationResult = operation?.execute(context)
-
-                if (operationResult?.isSuccess == true) {
-                    Log_OC.d(TAG, "Folder ${folder.remotePath}: finished!")
-                } else {
-                    Log_OC.d(TAG, "Folder ${folder.remotePath} failed!")
-                    result = false
-                }
-
-                folder.apply {
-                    operationResult?.let {
-                        internalFolderSyncResult = it.code.toString()
-                    }
-
-                    internalFolderSyncTimestamp = System.currentTimeMillis()
-                }
+            folders
+                .filter { it.internalFolderSyncTimestamp < runStart }
+                .mapTo(folderSyncs) { FolderSync(user, fileDataStorageManager, it) }
+        }
+        // stalest first; folders finished by a stopped run were skipped above
+        folderSyncs.sortBy { it.folder.internalFolderSyncTimestamp }
+        Log_OC.d(TAG, "${folderSyncs.size} folders to synchronize")
 
-                fileDataStorageManager.saveFile(folder)
+        val failures = AtomicInteger()
+        val scheduler = FolderSyncScheduler<FolderSync>(MAX_PARALLEL_FOLDERS, MAX_PARALLEL_FOLDERS_PER_ACCOUNT) {
+            it.user.accountName
+        }
+        val completed = scheduler.run(folderSyncs, shouldStop = { !shouldRun || outOfSpace }) {
+            if (!syncFolder(it)) {
+                failures.incrementAndGet()
             }
         }
 
-        return if (result) {
+        if (!completed) {
+            Log_OC.d(TAG, if (outOfSpace) "Not enough space left!" else "Worker was stopped!")
+            return Result.failure()
+        }
+        appPreferences.setTwoWaySyncRunStart(0)
+
+        return if (failures.get() == 0) {
             Log_OC.d(TAG, "Worker finished with success!")
             Result.success()
         } else {
@@ -98,39 +101,132 @@ class InternalTwoWaySyncWork(
         }
     }
 
+    /**
+     * Start of the current run. A run stopped before it synchronized all folders is continued by the next worker, so
+     * the folders synchronized since the run start are not synchronized again.
+     */
+    private fun getRunStart(): Long {
+        val now = System.currentTimeMillis()
+        val stoppedRunStart = resumableRunStart(appPreferences.twoWaySyncRunStart, now)
+        if (stoppedRunStart != null) {
+            Log_OC.d(TAG, "Continuing run started at $stoppedRunStart")
+            return stoppedRunStart
+        }
+
+        appPreferences.setTwoWaySyncRunStart(now)
+        return now
+    }
+
+    /**
+     * @return false if the synchronization failed
+     */
+    private fun syncFolder(folderSync: FolderSync): Boolean {
+        val folder = folderSync.folder
+        val reserved = reserveSpace(folder, folderSync.storageManager)
+        if (reserved == null) {
+            outOfSpace = true
+            return false
+        }
+        try {
+            return synchronize(folderSync, folder)
+        } finally {
+            synchronized(spaceLock) { reservedSpace -= reserved }
+        }
+    }
+
+    private fun synchronize(folderSync: FolderSync, folder: OCFile): Boolean {
+        Log_OC.d(TAG, "Folder ${folder.remotePath}: started!")
+        val start = System.currentTimeMillis()
+        val operation = SynchronizeFolderOperation(
+            context,
+            folder.remotePath,
+            folderSync.user,
+            folderSync.storageManager,
+            true
+        )
+        operations.add(operation)
+        val operationResult = try {
+            operation.execute(context)
+        } finally {
+            operations.remove(operation)
+        }
+        val duration = System.currentTimeMillis() - start
+
+        val success = operationResult?.isSuccess == true
+        if (success) {
+            Log_OC.d(TAG, "Folder ${folder.remotePath}: finished in $duration ms!")
+        } else {
+            Log_OC.d(TAG, "Folder ${folder.remotePath} failed after $duration ms: ${operationResult?.code}")
+        }
+
+        folder.apply {
+            operationResult?.let {
+                internalFolderSyncResult = it.code.toString()
+            }
+
+            internalFolderSyncTimestamp = System.currentTimeMillis()
+        }
+
+        folderSync.storageManager.saveFile(folder)
+        return success
+    }
+
     override fun onStopped() {
         Log_OC.d(TAG, "OnStopped of worker called!")
-        operation?.cancel()
         shouldRun = false
+        operations.forEach { it.cancel() }
         super.onStopped()
     }
 
+    /**
+     * Reserves the space the folder may download. Folders are synchronized in parallel, so the free space is shared
+     * with the reservations of the other running folders; as the free space shrinks with their downloads while they
+     * keep their reservation, this errs on the side of too little space.
+     *
+     * @return the reserved bytes, to be released once the folder is synchronized, null if there is not enough space
+     */
     @Suppress("TooGenericExceptionCaught")
-    private fun checkFreeSpace(folder: OCFile): Result? {
+    private fun reserveSpace(folder: OCFile, fileDataStorageManager: FileDataStorageManager): Long? {
         val storagePath = folder.storagePath ?: MainApp.getStoragePath()
         val file = File(storagePath)
 
-        if (!file.exists()) return null
+        if (!file.exists()) return 0L
 
         return try {
-            val freeSpaceLeft = file.freeSpace
-            val localFolder = File(storagePath, MainApp.getDataFolder())
-            val localFolderSize = FileStorageUtils.getFolderSize(localFolder)
+            val localFolderSize = fileDataStorageManager.getLocalUsage(folder)
             val remoteFolderSize = folder.fileLength
+            val needed = maxOf(0L, remoteFolderSize - localFolderSize)
 
-            if (freeSpaceLeft < (remoteFolderSize - localFolderSize)) {
-                Log_OC.d(TAG, "Not enough space left!")
-                Result.failure()
-            } else {
-                null
+            synchronized(spaceLock) {
+                if (file.freeSpace - reservedSpace < needed) {
+                    Log_OC.d(TAG, "Not enough space left!")
+                    null
+                } else {
+                    reservedSpace += needed
+                    needed
+                }
             }
         } catch (e: Exception) {
-            Log_OC.d(TAG, "Error caught at checkFreeSpace: $e")
-            null
+            Log_OC.d(TAG, "Error caught at reserveSpace: $e")
+            0L
         }
     }
 
     companion object {
         const val TAG = "InternalTwoWaySyncWork"
+
+        private const val MAX_PARALLEL_FOLDERS = 4
+        private const val MAX_PARALLEL_FOLDERS_PER_ACCOUNT = 2
+
+        /** A stopped run older than this is not continued, a new one starts */
+        private val RUN_RESUME_WINDOW = TimeUnit.DAYS.toMillis(1)
+
+        /**
+         * @param stoppedRunStart start of the run a stopped worker left, 0 if there is none
+         * @return [stoppedRunStart] if that run is continued, null if a new run starts
+         */
+        @JvmStatic
+        internal fun resumableRunStart(stoppedRunStart: Long, now: Long): Long? =
+            stoppedRunStart.takeIf { it > 0 && now - it < RUN_RESUME_WINDOW }
     }
 }
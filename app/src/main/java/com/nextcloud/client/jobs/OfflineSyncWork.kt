@@ -23,9 +23,13 @@ import com.owncloud.android.datamodel.OCFile
 import com.owncloud.android.lib.common.operations.RemoteOperationResult.ResultCode
 import com.owncloud.android.lib.common.utils.Log_OC
 import com.owncloud.android.lib.resources.files.CheckEtagRemoteOperation
+import com.owncloud.android.lib.resources.files.ReadFolderRemoteOperation
+import com.owncloud.android.lib.resources.files.model.RemoteFile
 import com.owncloud.android.operations.SynchronizeFileOperation
 import com.owncloud.android.utils.FileStorageUtils
 import java.io.File
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
 
 @Suppress("LongParameterList") // Legacy code
 class OfflineSyncWork(
@@ -39,6 +43,73 @@ class OfflineSyncWork(
 
     companion object {
         const val TAG = "OfflineSyncJob"
+
+        /** Number of files synchronized at the same time */
+        private const val SYNC_PARALLELISM = 4
+
+        /**
+         * Sorts the children of a listed folder by what needs to be done with them, comparing them with
+         * [remoteChildren], the children on the server by remote path. Folders are only followed if they exist
+         * locally, files only if they are downloaded.
+         */
+        @JvmStatic
+        internal fun selectChanges(
+            children: List<OCFile>,
+            remoteChildren: Map<String, RemoteFile>,
+            hasLocalFolder: (OCFile) -> Boolean
+        ): ChildChanges {
+            val changes = ChildChanges()
+            for (child in children) {
+                val remoteChild = remoteChildren[child.remotePath]
+                if (child.isFolder) {
+                    if (!hasLocalFolder(child)) {
+                        continue
+                    }
+                    if (remoteChild == null) {
+                        changes.removedFolders.add(child)
+                    } else if (remoteChild.etag != child.etagOnServer) {
+                        changes.changedFolders.add(child to remoteChild.etag)
+                    }
+                } else if (child.isDown && (remoteChild == null || isChanged(child, remoteChild))) {
+                    changes.changedFiles.add(child to remoteChild)
+                }
+            }
+            return changes
+        }
+
+        /**
+         * Whether a downloaded file changed on the server, by eTag or for files without one by modification time,
+         * or locally since it was last synchronized.
+         */
+        @JvmStatic
+        internal fun isChanged(localFile: OCFile, remoteFile: RemoteFile): Boolean {
+            val serverChanged = if (localFile.etag.isNullOrEmpty()) {
+                remoteFile.modifiedTimestamp != localFile.modificationTimestampAtLastSyncForData
+            } else {
+                remoteFile.etag != localFile.etag
+            }
+            val localChanged = localFile.localModificationTimestamp > localFile.lastSyncDateForData
+            return serverChanged || localChanged
+        }
+    }
+
+    /**
+     * Children of a folder which changed: folders gone on the server, folders with their new eTag and files with
+     * their server version, null if gone on the server.
+     */
+    internal class ChildChanges {
+        val removedFolders = mutableListOf<OCFile>()
+        val changedFolders = mutableListOf<Pair<OCFile, String>>()
+        val changedFiles = mutableListOf<Pair<OCFile, RemoteFile?>>()
+    }
+
+    /**
+     * Files to synchronize and folders whose new eTag is stored once they were synchronized.
+     */
+    private class Changes {
+        val files = mutableListOf<SynchronizeFileOperation>()
+        val folders = mutableListOf<Pair<OCFile, String>>()
+        var requests = 0
     }
 
     override fun doWork(): Result {
@@ -50,63 +121,126 @@ class OfflineSyncWork(
                 if (ocRoot.storagePath == null) {
                     break
                 }
-                recursive(File(ocRoot.storagePath), storageManager, user)
+                syncChanges(ocRoot, storageManager, user)
             }
         }
         return Result.success()
     }
 
-    private fun recursive(folder: File, storageManager: FileDataStorageManager, user: User) {
-        val downloadFolder = FileStorageUtils.getSavePath(user.accountName)
-        val folderName = folder.absolutePath.replaceFirst(downloadFolder.toRegex(), "") + OCFile.PATH_SEPARATOR
-        Log_OC.d(TAG, "$folderName: enter")
-        // exit
-        if (folder.listFiles() == null) {
-            return
+    /**
+     * Synchronizes the downloaded files below [root] which changed on the server or locally.
+     *
+     * Folder eTags change with any change below them, so only folders with a changed eTag are listed, each with one
+     * depth 1 request which tells the eTags of all its children at once. If nothing changed this is a single request
+     * for the whole account. Files are then synchronized in parallel, without asking the server for them again.
+     */
+    private fun syncChanges(root: OCFile, storageManager: FileDataStorageManager, user: User) {
+        val updatedEtag = checkETagChanged(root, storageManager, user) ?: return
+        val changes = Changes().apply { requests++ }
+
+        collectChanges(root, updatedEtag, storageManager, user, changes)
+        Log_OC.d(
+            TAG,
+            "${user.accountName}: ${changes.requests} requests, ${changes.files.size} files to synchronize"
+        )
+
+        synchronize(changes.files)
+
+        // the synchronized files updated the folders in the database meanwhile
+        for ((folder, etag) in changes.folders) {
+            val storedFolder = storageManager.getFileByEncryptedRemotePath(folder.remotePath) ?: continue
+            storedFolder.etagOnServer = etag
+            storageManager.saveFile(storedFolder)
         }
+    }
+
+    @Suppress("ReturnCount")
+    private fun collectChanges(
+        folder: OCFile,
+        updatedEtag: String,
+        storageManager: FileDataStorageManager,
+        user: User,
+        changes: Changes
+    ) {
+        Log_OC.d(TAG, "${folder.remotePath}: enter")
 
-        val updatedEtag = checkETagChanged(folderName, storageManager, user) ?: return
-
-        // iterate over downloaded files
-        val files = folder.listFiles { obj: File -> obj.isFile }
-        if (files != null) {
-            for (file in files) {
-                val ocFile = storageManager.getFileByLocalPath(file.path)
-                val synchronizeFileOperation = SynchronizeFileOperation(
-                    ocFile?.remotePath,
-                    user,
-                    true,
-                    context,
-                    storageManager,
-                    true
-                )
-                synchronizeFileOperation.execute(context)
+        val result = ReadFolderRemoteOperation(folder.remotePath).execute(user, context)
+        changes.requests++
+        if (!result.isSuccess) {
+            if (result.code == ResultCode.FILE_NOT_FOUND) {
+                removeFolder(folder, storageManager)
+            } else {
+                Log_OC.e(TAG, "${folder.remotePath}: listing failed: ${result.logMessage}")
             }
+            return
         }
-        // recursive into folder
-        val subfolders = folder.listFiles { obj: File -> obj.isDirectory }
-        if (subfolders != null) {
-            for (subfolder in subfolders) {
-                recursive(subfolder, storageManager, user)
+
+        // the first entry is the folder itself
+        val remoteChildren = result.data
+            .drop(1)
+            .filterIsInstance<RemoteFile>()
+            .associateBy { it.remotePath }
+
+        val childChanges = selectChanges(storageManager.getFolderContent(folder, false), remoteChildren) {
+            hasLocalFolder(it, user)
+        }
+        childChanges.removedFolders.forEach { removeFolder(it, storageManager) }
+        for ((child, etag) in childChanges.changedFolders) {
+            collectChanges(child, etag, storageManager, user, changes)
+        }
+        for ((child, remoteChild) in childChanges.changedFiles) {
+            val serverFile = remoteChild?.let {
+                FileStorageUtils.fillOCFile(it).apply { lastSyncDateForProperties = System.currentTimeMillis() }
             }
+            changes.files.add(
+                SynchronizeFileOperation(child, serverFile, user, true, context, storageManager, true)
+            )
+        }
+
+        changes.folders.add(folder to updatedEtag)
+    }
+
+    private fun hasLocalFolder(folder: OCFile, user: User): Boolean =
+        File(FileStorageUtils.getSavePath(user.accountName) + folder.decryptedRemotePath).isDirectory
+
+    private fun synchronize(operations: List<SynchronizeFileOperation>) {
+        if (operations.isEmpty()) {
+            return
         }
-        // update eTag
-        @Suppress("TooGenericExceptionCaught") // legacy code
+
+        val executor = Executors.newFixedThreadPool(minOf(SYNC_PARALLELISM, operations.size))
         try {
-            val ocFolder = storageManager.getFileByPath(folderName)
-            ocFolder.etagOnServer = updatedEtag
-            storageManager.saveFile(ocFolder)
-        } catch (e: Exception) {
-            Log_OC.e(TAG, "Failed to update etag on " + folder.absolutePath, e)
+            executor.invokeAll(
+                operations.map { operation ->
+                    Callable {
+                        val result = operation.execute(context)
+                        if (!result.isSuccess) {
+                            val remotePath = operation.localFile.remotePath
+                            Log_OC.e(TAG, "$remotePath: synchronization failed: ${result.logMessage}")
+                        }
+                    }
+                }
+            )
+        } catch (e: InterruptedException) {
+            Log_OC.e(TAG, "Synchronization interrupted", e)
+            Thread.currentThread().interrupt()
+        } finally {
+            executor.shutdownNow()
+        }
+    }
+
+    private fun removeFolder(folder: OCFile, storageManager: FileDataStorageManager) {
+        val removalResult = storageManager.removeFolder(folder, true, true)
+        if (!removalResult) {
+            Log_OC.e(TAG, "removal of " + folder.storagePath + " failed: file not found")
         }
     }
 
     /**
      * @return new eTag if changed, `null` otherwise
      */
-    private fun checkETagChanged(folderName: String, storageManager: FileDataStorageManager, user: User): String? {
-        val folder = storageManager.getFileByEncryptedRemotePath(folderName) ?: return null
-
+    private fun checkETagChanged(folder: OCFile, storageManager: FileDataStorageManager, user: User): String? {
+        val folderName = folder.remotePath
         Log_OC.d(TAG, "$folderName: current eTag: ${folder.etag}")
 
         // check for etag change, if false, skip
@@ -119,10 +253,7 @@ class OfflineSyncWork(
                 null
             }
             ResultCode.FILE_NOT_FOUND -> {
-                val removalResult = storageManager.removeFolder(folder, true, true)
-                if (!removalResult) {
-                    Log_OC.e(TAG, "removal of " + folder.storagePath + " failed: file not found")
-                }
+                removeFolder(folder, storageManager)
                 null
             }
             ResultCode.ETAG_CHANGED -> {
@@ -215,8 +215,8 @@ class FileDownloadWorker(
         fileDataStorageManager = FileDataStorageManager(user, context.contentResolver)
     }
 
-    private fun getFiles(file: OCFile): List<OCFile> = if (file.isFolder) {
-        fileDataStorageManager?.getAllFilesRecursivelyInsideFolder(file) ?: listOf()
+    private fun getFiles(file: OCFile): Iterable<OCFile> = if (file.isFolder) {
+        fileDataStorageManager?.iterateAllFilesRecursivelyInsideFolder(file, null) ?: listOf()
     } else {
         listOf(file)
     }
@@ -15,7 +15,7 @@ import com.nextcloud.client.account.UserAccountManager
 import com.nextcloud.client.device.BatteryStatus
 import com.nextcloud.client.device.PowerManagementService
 import com.nextcloud.client.jobs.BackgroundJobManager
-import com.nextcloud.client.jobs.upload.FileUploadWorker.Companion.currentUploadFileOperation
+import com.nextcloud.client.jobs.upload.FileUploadWorker.Companion.activeUploadFileOperations
 import com.nextcloud.client.network.Connectivity
 import com.nextcloud.client.network.ConnectivityService
 import com.nextcloud.utils.extensions.getUploadIds
@@ -246,6 +246,7 @@ class FileUploadHelper {
         for (upload in uploads) {
             upload.uploadStatus = UploadStatus.UPLOAD_CANCELLED
             uploadsStorageManager.updateUpload(upload)
+            uploadsStorageManager.discardEncryptedCopy(upload)
         }
 
         try {
@@ -332,19 +333,22 @@ class FileUploadHelper {
         return conditions
     }
 
-    @Suppress("ReturnCount")
     fun isUploadingNow(upload: OCUpload?): Boolean {
-        val currentUploadFileOperation = currentUploadFileOperation
-        if (currentUploadFileOperation == null || currentUploadFileOperation.user == null) return false
-        if (upload == null || upload.accountName != currentUploadFileOperation.user.accountName) return false
+        if (upload == null) return false
+
+        return activeUploadFileOperations.values.any { isUploadedBy(upload, it) }
+    }
+
+    private fun isUploadedBy(upload: OCUpload, operation: UploadFileOperation): Boolean {
+        if (operation.user == null || upload.accountName != operation.user.accountName) return false
 
-        return if (currentUploadFileOperation.oldFile != null) {
+        return if (operation.oldFile != null) {
             // For file conflicts check old file remote path
-            upload.remotePath == currentUploadFileOperation.remotePath ||
-                upload.remotePath == currentUploadFileOperation.oldFile!!
+            upload.remotePath == operation.remotePath ||
+                upload.remotePath == operation.oldFile!!
                     .remotePath
         } else {
-            upload.remotePath == currentUploadFileOperation.remotePath
+            upload.remotePath == operation.remotePath
         }
     }
 
@@ -22,7 +22,10 @@ import com.nextcloud.client.preferences.AppPreferences
 import com.nextcloud.model.WorkerState
 import com.nextcloud.model.WorkerStateLiveData
 import com.nextcloud.utils.extensions.getPercent
+import com.owncloud.android.datamodel.ArbitraryDataProvider
 import com.owncloud.android.datamodel.FileDataStorageManager
+import com.owncloud.android.datamodel.OCFile
+import com.owncloud.android.datamodel.ThumbnailLoader
 import com.owncloud.android.datamodel.ThumbnailsCacheManager
 import com.owncloud.android.datamodel.UploadsStorageManager
 import com.owncloud.android.db.OCUpload
@@ -32,10 +35,15 @@ import com.owncloud.android.lib.common.network.OnDatatransferProgressListener
 import com.owncloud.android.lib.common.operations.RemoteOperationResult
 import com.owncloud.android.lib.common.operations.RemoteOperationResult.ResultCode
 import com.owncloud.android.lib.common.utils.Log_OC
+import com.owncloud.android.lib.resources.files.ChunkedFileUploadRemoteOperation
 import com.owncloud.android.operations.UploadFileOperation
 import com.owncloud.android.utils.ErrorMessageAdapter
+import com.owncloud.android.utils.FileStorageUtils
 import com.owncloud.android.utils.theme.ViewThemeUtils
 import java.io.File
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicReference
 import kotlin.random.Random
 
 @Suppress("LongParameterList")
@@ -48,10 +56,10 @@ class FileUploadWorker(
     val localBroadcastManager: LocalBroadcastManager,
     private val backgroundJobManager: BackgroundJobManager,
     val preferences: AppPreferences,
+    private val arbitraryDataProvider: ArbitraryDataProvider,
     val context: Context,
     params: WorkerParameters
-) : Worker(context, params),
-    OnDatatransferProgressListener {
+) : Worker(context, params) {
 
     companion object {
         val TAG: String = FileUploadWorker::class.java.simpleName
@@ -59,7 +67,17 @@ class FileUploadWorker(
         const val NOTIFICATION_ERROR_ID: Int = 413
         const val ACCOUNT = "data_account"
         const val UPLOAD_IDS = "uploads_ids"
-        var currentUploadFileOperation: UploadFileOperation? = null
+
+        /**
+         * Per account key in [ArbitraryDataProvider] holding the number of parallel lanes used for small files.
+         */
+        const val UPLOAD_CONCURRENCY = "UPLOAD_CONCURRENCY"
+        const val DEFAULT_UPLOAD_CONCURRENCY = 3
+
+        /**
+         * Upload operations currently being executed by any upload worker, keyed by upload id.
+         */
+        val activeUploadFileOperations: MutableMap<Long, UploadFileOperation> = ConcurrentHashMap()
 
         private const val UPLOADS_ADDED_MESSAGE = "UPLOADS_ADDED"
         private const val UPLOAD_START_MESSAGE = "UPLOAD_START"
@@ -85,11 +103,15 @@ class FileUploadWorker(
         fun getUploadFinishMessage(): String = FileUploadWorker::class.java.name + UPLOAD_FINISH_MESSAGE
     }
 
-    private var lastPercent = 0
     private val notificationManager = UploadNotificationManager(context, viewThemeUtils, Random.nextInt())
     private val intents = FileUploaderIntents(context)
     private val fileUploaderDelegate = FileUploaderDelegate()
 
+    /**
+     * Operations started by this worker; [activeUploadFileOperations] holds those of all workers.
+     */
+    private val runningOperations: MutableMap<Long, UploadFileOperation> = ConcurrentHashMap()
+
     @Suppress("TooGenericExceptionCaught")
     override fun doWork(): Result = try {
         Log_OC.d(TAG, "FileUploadWorker started")
@@ -110,7 +132,7 @@ class FileUploadWorker(
         Log_OC.e(TAG, "FileUploadWorker stopped")
 
         setIdleWorkerState()
-        currentUploadFileOperation?.cancel(null)
+        runningOperations.values.forEach { it.cancel(null) }
         notificationManager.dismissNotification()
 
         super.onStopped()
@@ -121,66 +143,133 @@ class FileUploadWorker(
     }
 
     private fun setIdleWorkerState() {
-        WorkerStateLiveData.instance().setWorkState(WorkerState.UploadFinished(currentUploadFileOperation?.file))
+        WorkerStateLiveData.instance().setWorkState(
+            WorkerState.UploadFinished(runningOperations.values.firstOrNull()?.file)
+        )
     }
 
     @Suppress("ReturnCount")
     private fun uploadFiles(): Result {
         val accountName = inputData.getString(ACCOUNT) ?: return Result.failure()
         val uploadIds = inputData.getLongArray(UPLOAD_IDS) ?: return Result.success()
-        val uploads = uploadIds.map { id -> uploadsStorageManager.getUploadById(id) }.filterNotNull()
+        val uploads = uploadsStorageManager.getUploadsByIds(uploadIds)
         val totalUploadSize = uploadIds.size
 
-        for ((index, upload) in uploads.withIndex()) {
-            if (preferences.isGlobalUploadPaused) {
-                Log_OC.d(TAG, "Upload is paused, skip uploading files!")
-                notificationManager.notifyPaused(
-                    intents.notificationStartIntent(null)
-                )
-                return Result.success()
-            }
-
-            if (canExitEarly()) {
-                notificationManager.showConnectionErrorNotification()
-                return Result.failure()
-            }
+        val user = userAccountManager.getUser(accountName)
+        if (!user.isPresent) {
+            uploads.forEach { uploadsStorageManager.removeUpload(it.uploadId) }
+            return Result.success()
+        }
 
-            val user = userAccountManager.getUser(accountName)
-            if (!user.isPresent) {
-                uploadsStorageManager.removeUpload(upload.uploadId)
-                continue
-            }
+        val storageManager = FileDataStorageManager(user.get(), context.contentResolver)
+        val encryptedParents = HashMap<String, String?>()
+        val scheduler = UploadLaneScheduler<OCUpload>(
+            getUploadConcurrency(accountName),
+            ChunkedFileUploadRemoteOperation.CHUNK_SIZE_MOBILE,
+            serialKeyOf = { encryptedParents.getOrPut(parentPath(it)) { encryptedParentPath(it, storageManager) } }
+        ) { it.fileSize }
+        val startedUploads = AtomicInteger(0)
+        val stopResult = AtomicReference<Result?>(null)
+
+        val completed = scheduler.run(
+            uploads,
+            shouldStop = { shouldStopUploading(stopResult) }
+        ) { upload ->
+            runUpload(upload, user.get(), startedUploads.getAndIncrement(), totalUploadSize)
+        }
 
-            if (isStopped) {
-                continue
-            }
+        return if (completed) Result.success() else stopResult.get() ?: Result.success()
+    }
 
-            setWorkerState(user.get())
+    private fun runUpload(upload: OCUpload, user: User, uploadIndex: Int, totalUploadSize: Int) {
+        setWorkerState(user)
 
-            val operation = createUploadFileOperation(upload, user.get())
-            currentUploadFileOperation = operation
+        val operation = createUploadFileOperation(upload, user)
+        runningOperations[upload.uploadId] = operation
+        activeUploadFileOperations[upload.uploadId] = operation
 
+        synchronized(notificationManager) {
             notificationManager.prepareForStart(
                 operation,
                 cancelPendingIntent = intents.startIntent(operation),
                 startIntent = intents.notificationStartIntent(operation),
-                currentUploadIndex = index,
+                currentUploadIndex = uploadIndex,
                 totalUploadSize = totalUploadSize
             )
+        }
 
-            val result = upload(operation, user.get())
-            currentUploadFileOperation = null
+        val result = upload(operation, user)
+        runningOperations.remove(upload.uploadId)
+        activeUploadFileOperations.remove(upload.uploadId)
 
-            fileUploaderDelegate.sendBroadcastUploadFinished(
-                operation,
-                result,
-                operation.oldFile?.storagePath,
-                context,
-                localBroadcastManager
-            )
+        fileUploaderDelegate.sendBroadcastUploadFinished(
+            operation,
+            result,
+            operation.oldFile?.storagePath,
+            context,
+            localBroadcastManager
+        )
+    }
+
+    private fun parentPath(upload: OCUpload): String = parentPath(upload.remotePath) ?: OCFile.ROOT_PATH
+
+    private fun parentPath(path: String): String? = File(path).parent?.let {
+        if (it.endsWith(OCFile.PATH_SEPARATOR)) it else it + OCFile.PATH_SEPARATOR
+    }
+
+    /**
+     * Uploads into an end-to-end encrypted folder lock the folder and rewrite its metadata, so they must not run
+     * concurrently for the same folder.
+     *
+     * @return the parent path of [upload] if it is inside an encrypted folder, null otherwise
+     */
+    private fun encryptedParentPath(upload: OCUpload, storageManager: FileDataStorageManager): String? {
+        val parentPath = parentPath(upload)
+        var path: String? = parentPath
+        // the parent may not exist yet, then the closest existing ancestor tells about encryption
+        while (path != null) {
+            val folder = storageManager.getFileByPath(path)
+            if (folder != null) {
+                return if (FileStorageUtils.checkEncryptionStatus(folder, storageManager)) parentPath else null
+            }
+            path = parentPath(path)
         }
+        return null
+    }
+
+    private fun getUploadConcurrency(accountName: String): Int {
+        val value = arbitraryDataProvider.getIntegerValue(accountName, UPLOAD_CONCURRENCY)
+        return if (value > 0) value else DEFAULT_UPLOAD_CONCURRENCY
+    }
+
+    /**
+     * Checked by every upload lane before it starts the next upload. The first lane noticing a pause or a lost
+     * connection records the worker result and shows the matching notification, all lanes then stop.
+     */
+    @Suppress("ReturnCount")
+    private fun shouldStopUploading(stopResult: AtomicReference<Result?>): Boolean {
+        synchronized(stopResult) {
+            if (stopResult.get() != null) {
+                return true
+            }
+
+            if (preferences.isGlobalUploadPaused) {
+                Log_OC.d(TAG, "Upload is paused, skip uploading files!")
+                notificationManager.notifyPaused(
+                    intents.notificationStartIntent(null)
+                )
+                stopResult.set(Result.success())
+                return true
+            }
 
-        return Result.success()
+            if (canExitEarly()) {
+                notificationManager.showConnectionErrorNotification()
+                stopResult.set(Result.failure())
+                return true
+            }
+
+            return false
+        }
     }
 
     private fun canExitEarly(): Boolean {
@@ -212,7 +301,7 @@ class FileUploadWorker(
         true,
         FileDataStorageManager(user, context.contentResolver)
     ).apply {
-        addDataTransferProgressListener(this@FileUploadWorker)
+        addDataTransferProgressListener(UploadProgressListener(this))
     }
 
     @Suppress("TooGenericExceptionCaught", "DEPRECATION")
@@ -228,7 +317,10 @@ class FileUploadWorker(
             val task = ThumbnailsCacheManager.ThumbnailGenerationTask(storageManager, user)
             val file = File(uploadFileOperation.originalStoragePath)
             val remoteId: String? = uploadFileOperation.file.remoteId
-            task.execute(ThumbnailsCacheManager.ThumbnailGenerationTaskObject(file, remoteId))
+            task.executeOnExecutor(
+                ThumbnailLoader.executor,
+                ThumbnailsCacheManager.ThumbnailGenerationTaskObject(file, remoteId)
+            )
         } catch (e: Exception) {
             Log_OC.e(TAG, "Error uploading", e)
             result = RemoteOperationResult<Any?>(e)
@@ -323,41 +415,51 @@ class FileUploadWorker(
     private val minProgressUpdateInterval = 750
     private var lastUpdateTime = 0L
 
-    @Suppress("MagicNumber")
-    override fun onTransferProgress(
-        progressRate: Long,
-        totalTransferredSoFar: Long,
-        totalToTransfer: Long,
-        fileAbsoluteName: String
-    ) {
-        val percent = getPercent(totalTransferredSoFar, totalToTransfer)
-        val currentTime = System.currentTimeMillis()
-
-        if (percent != lastPercent && (currentTime - lastUpdateTime) >= minProgressUpdateInterval) {
-            notificationManager.run {
-                val accountName = currentUploadFileOperation?.user?.accountName
-                val remotePath = currentUploadFileOperation?.remotePath
-
-                updateUploadProgress(percent, currentUploadFileOperation)
-
-                if (accountName != null && remotePath != null) {
-                    val key: String = FileUploadHelper.buildRemoteName(accountName, remotePath)
-                    val boundListener = FileUploadHelper.mBoundListeners[key]
-                    val filename = currentUploadFileOperation?.fileName ?: ""
-
-                    boundListener?.onTransferProgress(
-                        progressRate,
-                        totalTransferredSoFar,
-                        totalToTransfer,
-                        filename
-                    )
-                }
+    /**
+     * Forwards the progress of one upload; lanes share the notification, so updates are throttled across them.
+     */
+    private inner class UploadProgressListener(private val operation: UploadFileOperation) :
+        OnDatatransferProgressListener {
 
-                dismissOldErrorNotification(currentUploadFileOperation)
+        private var lastPercent = 0
+
+        override fun onTransferProgress(
+            progressRate: Long,
+            totalTransferredSoFar: Long,
+            totalToTransfer: Long,
+            fileAbsoluteName: String
+        ) {
+            val percent = getPercent(totalTransferredSoFar, totalToTransfer)
+            val currentTime = System.currentTimeMillis()
+
+            synchronized(notificationManager) {
+                if (percent != lastPercent && (currentTime - lastUpdateTime) >= minProgressUpdateInterval) {
+                    notificationManager.run {
+                        val accountName = operation.user?.accountName
+                        val remotePath = operation.remotePath
+
+                        updateUploadProgress(percent, operation)
+
+                        if (accountName != null && remotePath != null) {
+                            val key: String = FileUploadHelper.buildRemoteName(accountName, remotePath)
+                            val boundListener = FileUploadHelper.mBoundListeners[key]
+                            val filename = operation.fileName ?: ""
+
+                            boundListener?.onTransferProgress(
+                                progressRate,
+                                totalTransferredSoFar,
+                                totalToTransfer,
+                                filename
+                            )
+                        }
+
+                        dismissOldErrorNotification(operation)
+                    }
+                    lastUpdateTime = currentTime
+                }
             }
-            lastUpdateTime = currentTime
-        }
 
-        lastPercent = percent
+            lastPercent = percent
+        }
     }
 }
@@ -0,0 +1,118 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.nextcloud.client.jobs.upload
+
+import java.util.concurrent.Callable
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * Runs the uploads of a single worker on a bounded number of lanes.
+ *
+ * Files up to [chunkThreshold] bytes are uploaded in a single request and share [smallFileLanes] parallel lanes.
+ * Bigger files are uploaded chunk by chunk and get one dedicated lane, so a multi-GB video cannot hold back
+ * hundreds of photos queued behind it. Once the large lane is drained it helps out with the small files.
+ *
+ * Items with the same non-null [serialKeyOf] key, e.g. end-to-end encrypted files sharing a folder lock and its
+ * metadata, are uploaded one after another on the same lane. Such a group only goes to the large file lane if all
+ * its files are large.
+ *
+ * Order inside each lane follows the order of the given items.
+ */
+class UploadLaneScheduler<T>(
+    smallFileLanes: Int,
+    private val chunkThreshold: Long,
+    private val serialKeyOf: (T) -> Any? = { null },
+    private val sizeOf: (T) -> Long
+) {
+
+    companion object {
+        const val MIN_LANES = 1
+        const val MAX_LANES = 4
+    }
+
+    private val smallFileLanes = smallFileLanes.coerceIn(MIN_LANES, MAX_LANES)
+
+    fun isLarge(item: T): Boolean = sizeOf(item) > chunkThreshold
+
+    /**
+     * Uploads all [items], calling [task] concurrently from the lane threads.
+     *
+     * [shouldStop] is evaluated before every item is started; once it returns true no lane starts a new item,
+     * running items are left to [task] to finish or cancel.
+     *
+     * @return true if every item was handed to [task], false if the run was stopped early
+     */
+    fun run(items: List<T>, shouldStop: () -> Boolean, task: (T) -> Unit): Boolean {
+        if (items.isEmpty()) {
+            return true
+        }
+
+        val (large, small) = groupSerialItems(items).partition { unit -> unit.all { isLarge(it) } }
+        val smallQueue = ConcurrentLinkedQueue(small)
+        val largeQueue = ConcurrentLinkedQueue(large)
+        val stopped = AtomicBoolean(false)
+
+        fun drain(queue: ConcurrentLinkedQueue<List<T>>) {
+            while (!stopped.get()) {
+                val unit = queue.poll() ?: return
+                for (item in unit) {
+                    if (shouldStop()) {
+                        stopped.set(true)
+                        return
+                    }
+                    task(item)
+                }
+            }
+        }
+
+        val lanes = mutableListOf<Callable<Unit>>()
+        repeat(smallFileLanes.coerceAtMost(small.size)) {
+            lanes.add(Callable { drain(smallQueue) })
+        }
+        if (large.isNotEmpty()) {
+            lanes.add(
+                Callable {
+                    drain(largeQueue)
+                    drain(smallQueue)
+                }
+            )
+        }
+
+        if (lanes.size == 1) {
+            lanes.first().call()
+            return !stopped.get()
+        }
+
+        val executor = Executors.newFixedThreadPool(lanes.size)
+        try {
+            executor.invokeAll(lanes).forEach { it.get() }
+        } finally {
+            executor.shutdownNow()
+        }
+
+        return !stopped.get()
+    }
+
+    /**
+     * @return units of work in the order of their first item: a single item, or all items sharing a serial key
+     */
+    private fun groupSerialItems(items: List<T>): List<List<T>> {
+        val units = ArrayList<List<T>>()
+        val groups = HashMap<Any, MutableList<T>>()
+        for (item in items) {
+            val key = serialKeyOf(item)
+            if (key == null) {
+                units.add(listOf(item))
+            } else {
+                groups.getOrPut(key) { ArrayList<T>().also { units.add(it) } }.add(item)
+            }
+        }
+        return units
+    }
+}
@@ -6,11 +6,14 @@
  */
 package com.nextcloud.client.logger
 
+import java.io.BufferedOutputStream
 import java.io.File
 import java.io.FileNotFoundException
 import java.io.FileOutputStream
-import java.io.IOException
-import java.nio.charset.Charset
+import java.io.OutputStream
+import java.nio.ByteBuffer
+import java.nio.CharBuffer
+import java.nio.charset.CodingErrorAction
 
 /**
  * Very simple log writer with file rotations.
@@ -18,16 +21,25 @@ import java.nio.charset.Charset
  * Files are rotated when writing entry causes log file to exceed it's maximum size.
  * Last entry is not truncated and final log file can exceed max file size, but
  * no further entries will be written to it.
+ *
+ * Writes are buffered and entries are encoded into reused buffers, so the handler can be kept
+ * open for the lifetime of the logger; [flush] makes written entries visible to readers.
  */
 internal class FileLogHandler(private val logDir: File, private val logFilename: String, private val maxSize: Long) {
 
-    data class RawLogs(val lines: List<String>, val logSize: Long)
-
     companion object {
         const val ROTATED_LOGS_COUNT = 3
+        private const val WRITE_BUFFER_SIZE = 16 * 1024
+        private const val ENCODE_BUFFER_SIZE = 4 * 1024
     }
 
-    private var writer: FileOutputStream? = null
+    private var writer: OutputStream? = null
+    private val encoder = Charsets.UTF_8.newEncoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE)
+    private var chars = CharArray(ENCODE_BUFFER_SIZE)
+    private var charBuffer = CharBuffer.wrap(chars)
+    private var byteBuffer = ByteBuffer.allocate(ENCODE_BUFFER_SIZE)
     private var size: Long = 0
     private val rotationList = listOf(
         "$logFilename.2",
@@ -48,26 +60,71 @@ internal class FileLogHandler(private val logDir: File, private val logFilename:
 
     val maxLogFilesCount get() = rotationList.size
 
+    /**
+     * Log files from the oldest to the current one, including files that do not exist.
+     */
+    val logFiles: List<File>
+        get() = rotationList.map { File(logDir, it) }
+
+    /**
+     * Changes whenever the content of the log files is moved or deleted; between changes logs are only appended to
+     * the current log file.
+     */
+    var generation = 0L
+        private set
+
     fun open() {
-        try {
-            writer = FileOutputStream(logFile, true)
-            size = logFile.length()
+        val stream = try {
+            FileOutputStream(logFile, true)
         } catch (ex: FileNotFoundException) {
             logFile.parentFile.mkdirs()
-            writer = FileOutputStream(logFile, true)
-            size = logFile.length()
+            FileOutputStream(logFile, true)
         }
+        writer = BufferedOutputStream(stream, WRITE_BUFFER_SIZE)
+        size = logFile.length()
     }
 
-    fun write(logEntry: String) {
-        val rawLogEntry = logEntry.toByteArray(Charset.forName("UTF-8"))
-        writer?.write(rawLogEntry)
-        size += rawLogEntry.size
+    fun write(logEntry: CharSequence) {
+        val length = encode(logEntry)
+        writer?.write(byteBuffer.array(), 0, length)
+        size += length
         if (size > maxSize) {
             rotateLogs()
         }
     }
 
+    fun flush() {
+        writer?.flush()
+    }
+
+    /**
+     * Encodes [text] as UTF-8 into [byteBuffer], growing the buffers if needed.
+     *
+     * @return number of encoded bytes
+     */
+    private fun encode(text: CharSequence): Int {
+        if (chars.size < text.length) {
+            chars = CharArray(text.length)
+            charBuffer = CharBuffer.wrap(chars)
+        }
+        for (i in text.indices) {
+            chars[i] = text[i]
+        }
+        charBuffer.clear()
+        charBuffer.limit(text.length)
+
+        val maxBytes = (text.length * encoder.maxBytesPerChar()).toInt()
+        if (byteBuffer.capacity() < maxBytes) {
+            byteBuffer = ByteBuffer.allocate(maxBytes)
+        }
+        byteBuffer.clear()
+
+        encoder.reset()
+        encoder.encode(charBuffer, byteBuffer, true)
+        encoder.flush(byteBuffer)
+        return byteBuffer.position()
+    }
+
     fun close() {
         writer?.close()
         writer = null
@@ -75,6 +132,7 @@ internal class FileLogHandler(private val logDir: File, private val logFilename:
     }
 
     fun deleteAll() {
+        generation++
         rotationList
             .map { File(logDir, it) }
             .forEach { it.delete() }
@@ -86,6 +144,7 @@ internal class FileLogHandler(private val logDir: File, private val logFilename:
             close()
         }
 
+        generation++
         val existingLogFiles = logDir.listFiles().associate { it.name to it }
         existingLogFiles[rotationList.first()]?.delete()
 
@@ -99,24 +158,4 @@ internal class FileLogHandler(private val logDir: File, private val logFilename:
             open()
         }
     }
-
-    fun loadLogFiles(rotated: Int = ROTATED_LOGS_COUNT): RawLogs {
-        if (rotated < 0) {
-            throw IllegalArgumentException("Negative index")
-        }
-        val allLines = mutableListOf<String>()
-        var size = 0L
-        for (i in 0..Math.min(rotated, rotationList.size - 1)) {
-            val file = File(logDir, rotationList[i])
-            if (!file.exists()) continue
-            try {
-                val lines = file.readLines(Charsets.UTF_8)
-                allLines.addAll(lines)
-                size += file.length()
-            } catch (ex: IOException) {
-                // ignore failing file
-            }
-        }
-        return RawLogs(lines = allLines, logSize = size)
-    }
 }
@@ -0,0 +1,332 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.nextcloud.client.logger
+
+import java.io.Closeable
+import java.io.File
+import java.io.IOException
+import java.io.RandomAccessFile
+import java.time.DateTimeException
+import java.time.LocalDate
+import java.util.concurrent.TimeUnit
+
+/**
+ * Index of the lines of the log files, holding file position, timestamp, level and tag of every entry in primitive
+ * arrays. Entries are numbered from the oldest to the newest one; their messages stay in the files until [Reader]
+ * reads them.
+ *
+ * As long as logs are only appended to, [update] indexes the new lines only and positions stay valid. When logs are
+ * rotated or deleted the index is rebuilt and [buildId] changes.
+ *
+ * Not thread safe, to be used on the logger thread.
+ */
+@Suppress("TooManyFunctions")
+internal class LogIndex {
+
+    private companion object {
+        const val INITIAL_CAPACITY = 1024
+        const val BLOCK_SIZE = 64 * 1024
+        const val MAX_TAG_LENGTH = 1024
+
+        /** 1970-01-01T00:00:00.000Z */
+        const val DATE_LENGTH = 24
+        const val LEVEL_POSITION = DATE_LENGTH + 1
+        const val TAG_POSITION = LEVEL_POSITION + 2
+        const val MAX_HEAD_LENGTH = TAG_POSITION + MAX_TAG_LENGTH + 1
+
+        const val YEAR_POSITION = 0
+        const val MONTH_POSITION = 5
+        const val DAY_POSITION = 8
+        const val HOUR_POSITION = 11
+        const val MINUTE_POSITION = 14
+        const val SECOND_POSITION = 17
+        const val MILLIS_POSITION = 20
+        const val YEAR_DIGITS = 4
+        const val MILLIS_DIGITS = 3
+        const val DECIMAL = 10
+
+        val DATE_SEPARATOR_POSITIONS = intArrayOf(4, 7, 10, 13, 16, 19, 23)
+        val DATE_SEPARATORS = "--T::.Z"
+        val LEVELS = Level.values().filter { it != Level.UNKNOWN }
+        val NEWLINE = '\n'.code.toByte()
+        val SEPARATOR = ';'.code.toByte()
+    }
+
+    private var files: List<File> = emptyList()
+    private var scannedLengths = LongArray(0)
+
+    /** End of the last complete line of the current log file */
+    private var resumeOffset = 0L
+
+    private var segments = ByteArray(INITIAL_CAPACITY)
+    private var offsets = LongArray(INITIAL_CAPACITY)
+    private var lengths = IntArray(INITIAL_CAPACITY)
+    private var timestamps = LongArray(INITIAL_CAPACITY)
+    private var levels = arrayOfNulls<Level>(INITIAL_CAPACITY)
+    private var tagIds = IntArray(INITIAL_CAPACITY)
+    private val tags = ArrayList<String>()
+    private val tagIdsByName = HashMap<String, Int>()
+
+    private val head = ByteArray(MAX_HEAD_LENGTH)
+    private val scanBuffer = ByteArray(BLOCK_SIZE)
+    private var handlerGeneration = -1L
+    private var cachedDay = Long.MIN_VALUE
+    private var cachedDayStart = 0L
+
+    var buildId = 0
+        private set
+
+    var size = 0
+        private set
+
+    fun timestamp(position: Int): Long = timestamps[position]
+
+    fun level(position: Int): Level = levels[position]!!
+
+    fun tag(position: Int): String = tags[tagIds[position]]
+
+    /**
+     * Brings the index up to date with the log files of [handler].
+     */
+    fun update(handler: FileLogHandler) {
+        val current = handler.logFiles
+        if (handler.generation == handlerGeneration && current == files && isAppendedOnly()) {
+            scan(files.lastIndex, resumeOffset)
+        } else {
+            rebuild(current, handler.generation)
+        }
+    }
+
+    private fun isAppendedOnly(): Boolean {
+        for (i in 0 until files.lastIndex) {
+            if (files[i].length() != scannedLengths[i]) {
+                return false
+            }
+        }
+        return files.last().length() >= resumeOffset
+    }
+
+    private fun rebuild(files: List<File>, generation: Long) {
+        this.files = files
+        handlerGeneration = generation
+        scannedLengths = LongArray(files.size)
+        resumeOffset = 0
+        size = 0
+        tags.clear()
+        tagIdsByName.clear()
+        buildId++
+
+        for (segment in files.indices) {
+            scan(segment, 0)
+        }
+    }
+
+    private fun scan(segment: Int, from: Long) {
+        val file = files[segment]
+        var lineStart = from
+        var position = from
+
+        try {
+            if (file.exists()) {
+                RandomAccessFile(file, "r").use { input ->
+                    input.seek(from)
+                    var headLength = 0
+                    while (true) {
+                        val read = input.read(scanBuffer)
+                        if (read <= 0) {
+                            break
+                        }
+                        for (i in 0 until read) {
+                            val b = scanBuffer[i]
+                            if (b == NEWLINE) {
+                                val lineEnd = position + i
+                                addLine(segment, lineStart, (lineEnd - lineStart).toInt(), headLength)
+                                lineStart = lineEnd + 1
+                                headLength = 0
+                            } else if (headLength < head.size) {
+                                head[headLength++] = b
+                            }
+                        }
+                        position += read
+                    }
+                }
+            }
+        } catch (ex: IOException) {
+            // index what was read so far
+        }
+
+        scannedLengths[segment] = position
+        if (segment == files.lastIndex) {
+            resumeOffset = lineStart
+        }
+    }
+
+    @Suppress("ReturnCount")
+    private fun addLine(segment: Int, offset: Long, length: Int, headLength: Int) {
+        if (headLength < TAG_POSITION + 2 || head[DATE_LENGTH] != SEPARATOR || head[LEVEL_POSITION + 1] != SEPARATOR) {
+            return
+        }
+        val timestamp = parseTimestamp()
+        val levelTag = head[LEVEL_POSITION].toInt().toChar()
+        val level = LEVELS.firstOrNull { it.tag[0] == levelTag }
+        var tagEnd = TAG_POSITION
+        while (tagEnd < headLength && head[tagEnd] != SEPARATOR) {
+            tagEnd++
+        }
+        if (timestamp < 0 || level == null || tagEnd == TAG_POSITION || tagEnd == headLength) {
+            return
+        }
+
+        val tag = String(head, TAG_POSITION, tagEnd - TAG_POSITION, Charsets.UTF_8)
+        val tagId = tagIdsByName.getOrPut(tag) {
+            tags.add(tag)
+            tags.lastIndex
+        }
+
+        ensureCapacity(size + 1)
+        segments[size] = segment.toByte()
+        offsets[size] = offset
+        lengths[size] = length
+        timestamps[size] = timestamp
+        levels[size] = level
+        tagIds[size] = tagId
+        size++
+    }
+
+    /**
+     * Parses the date at the start of [head] without allocations as long as the day does not change.
+     *
+     * @return timestamp or -1 if [head] does not start with a date
+     */
+    @Suppress("ReturnCount")
+    private fun parseTimestamp(): Long {
+        for (i in DATE_SEPARATOR_POSITIONS.indices) {
+            if (head[DATE_SEPARATOR_POSITIONS[i]].toInt().toChar() != DATE_SEPARATORS[i]) {
+                return -1
+            }
+        }
+
+        val year = digits(YEAR_POSITION, YEAR_DIGITS)
+        val month = digits(MONTH_POSITION, 2)
+        val day = digits(DAY_POSITION, 2)
+        val hour = digits(HOUR_POSITION, 2)
+        val minute = digits(MINUTE_POSITION, 2)
+        val second = digits(SECOND_POSITION, 2)
+        val millis = digits(MILLIS_POSITION, MILLIS_DIGITS)
+        @Suppress("ComplexCondition")
+        if (year < 0 || month < 0 || day < 0 || millis < 0 ||
+            hour !in 0 until TimeUnit.DAYS.toHours(1) ||
+            minute !in 0 until TimeUnit.HOURS.toMinutes(1) ||
+            second !in 0 until TimeUnit.MINUTES.toSeconds(1)
+        ) {
+            return -1
+        }
+
+        val dayKey = (year.toLong() * DECIMAL * DECIMAL + month) * DECIMAL * DECIMAL + day
+        if (dayKey != cachedDay) {
+            cachedDayStart = try {
+                TimeUnit.DAYS.toMillis(LocalDate.of(year, month, day).toEpochDay())
+            } catch (ex: DateTimeException) {
+                return -1
+            }
+            cachedDay = dayKey
+        }
+
+        return cachedDayStart +
+            TimeUnit.HOURS.toMillis(hour.toLong()) +
+            TimeUnit.MINUTES.toMillis(minute.toLong()) +
+            TimeUnit.SECONDS.toMillis(second.toLong()) +
+            millis
+    }
+
+    private fun digits(from: Int, count: Int): Int {
+        var value = 0
+        for (i in from until from + count) {
+            val digit = head[i] - '0'.code.toByte()
+            if (digit !in 0 until DECIMAL) {
+                return -1
+            }
+            value = value * DECIMAL + digit
+        }
+        return value
+    }
+
+    private fun ensureCapacity(capacity: Int) {
+        if (capacity <= offsets.size) {
+            return
+        }
+        val newCapacity = maxOf(capacity, offsets.size * 2)
+        segments = segments.copyOf(newCapacity)
+        offsets = offsets.copyOf(newCapacity)
+        lengths = lengths.copyOf(newCapacity)
+        timestamps = timestamps.copyOf(newCapacity)
+        levels = levels.copyOf(newCapacity)
+        tagIds = tagIds.copyOf(newCapacity)
+    }
+
+    /**
+     * Reads indexed entries. The files are read block by block in the direction of the reads, so reading
+     * consecutive entries costs about one read per block.
+     */
+    inner class Reader : Closeable {
+
+        private val inputs = arrayOfNulls<RandomAccessFile>(files.size)
+        private val block = ByteArray(BLOCK_SIZE)
+        private var blockSegment = -1
+        private var blockStart = 0L
+        private var blockLength = 0
+
+        /**
+         * @return entry at [position] or null if it cannot be read or parsed
+         */
+        fun read(position: Int): LogEntry? = try {
+            val segment = segments[position].toInt()
+            val offset = offsets[position]
+            val length = lengths[position]
+
+            val line = if (length > block.size) {
+                val bytes = ByteArray(length)
+                input(segment).apply {
+                    seek(offset)
+                    readFully(bytes)
+                }
+                String(bytes, Charsets.UTF_8)
+            } else {
+                if (segment != blockSegment || offset < blockStart || offset + length > blockStart + blockLength) {
+                    loadBlock(segment, offset, length)
+                }
+                String(block, (offset - blockStart).toInt(), length, Charsets.UTF_8)
+            }
+            LogEntry.parse(line)
+        } catch (ex: IOException) {
+            null
+        }
+
+        private fun loadBlock(segment: Int, offset: Long, length: Int) {
+            val input = input(segment)
+            val forward = segment > blockSegment || (segment == blockSegment && offset >= blockStart)
+            val start = if (forward) offset else maxOf(0L, offset + length - block.size)
+            val end = minOf(input.length(), start + block.size)
+            if (end < offset + length) {
+                throw IOException("Log file was truncated")
+            }
+
+            input.seek(start)
+            input.readFully(block, 0, (end - start).toInt())
+            blockSegment = segment
+            blockStart = start
+            blockLength = (end - start).toInt()
+        }
+
+        private fun input(segment: Int): RandomAccessFile =
+            inputs[segment] ?: RandomAccessFile(files[segment], "r").also { inputs[segment] = it }
+
+        override fun close() {
+            inputs.forEach { it?.close() }
+        }
+    }
+}
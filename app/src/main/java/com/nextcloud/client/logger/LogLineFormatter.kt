@@ -0,0 +1,78 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.nextcloud.client.logger
+
+import java.util.Date
+
+/**
+ * Formats log lines in the format of [LogEntry.toString] into a reused buffer.
+ *
+ * The date up to the second is only formatted when the second changes, the milliseconds are appended by hand, so
+ * formatting a line does not allocate as long as the buffer is large enough.
+ */
+internal class LogLineFormatter {
+
+    private companion object {
+        const val MILLIS_PER_SECOND = 1000L
+        const val MILLIS_DIGITS = 3
+        const val TWO_DIGIT_MILLIS = 10
+        const val THREE_DIGIT_MILLIS = 100
+    }
+
+    private val dateFormat = LogEntry.buildDateFormat()
+    private val date = Date()
+    private var second = Long.MIN_VALUE
+    private var secondPrefix = ""
+
+    val line = StringBuilder()
+
+    /**
+     * Formats the entry into [line], replacing its previous content.
+     */
+    fun format(timestamp: Long, level: Level, tag: String, message: String): StringBuilder {
+        line.setLength(0)
+        appendDate(timestamp)
+        line.append(';')
+        line.append(level.tag)
+        line.append(';')
+        for (c in tag) {
+            line.append(if (c == ';') ' ' else c)
+        }
+        line.append(';')
+        for (c in message) {
+            if (c == '\n') {
+                line.append("\\n")
+            } else {
+                line.append(c)
+            }
+        }
+        line.append('\n')
+        return line
+    }
+
+    private fun appendDate(timestamp: Long) {
+        val timestampSecond = Math.floorDiv(timestamp, MILLIS_PER_SECOND)
+        if (timestampSecond != second) {
+            date.time = timestampSecond * MILLIS_PER_SECOND
+            val formatted = dateFormat.format(date)
+            // yyyy-MM-dd'T'HH:mm:ss.SSS'Z' - keep everything before the milliseconds
+            secondPrefix = formatted.substring(0, formatted.length - MILLIS_DIGITS - 1)
+            second = timestampSecond
+        }
+
+        val millis = Math.floorMod(timestamp, MILLIS_PER_SECOND).toInt()
+        line.append(secondPrefix)
+        if (millis < THREE_DIGIT_MILLIS) {
+            line.append('0')
+        }
+        if (millis < TWO_DIGIT_MILLIS) {
+            line.append('0')
+        }
+        line.append(millis)
+        line.append('Z')
+    }
+}
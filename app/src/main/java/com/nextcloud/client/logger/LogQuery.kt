@@ -0,0 +1,26 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.nextcloud.client.logger
+
+/**
+ * Filter of log entries. Level and tag are checked against the log index, only entries passing them are read to
+ * match the text.
+ *
+ * @param text matched case-insensitively against tag and message, empty matches all entries
+ * @param minLevel lowest level of matching entries
+ * @param tag tag of matching entries, null matches all entries
+ */
+data class LogQuery(val text: String = "", val minLevel: Level = Level.UNKNOWN, val tag: String? = null) {
+
+    val isEmpty: Boolean
+        get() = text.isEmpty() && minLevel == Level.UNKNOWN && tag == null
+
+    fun matches(level: Level, tag: String): Boolean = level >= minLevel && (this.tag == null || this.tag == tag)
+
+    fun matches(entry: LogEntry): Boolean = matches(entry.level, entry.tag) &&
+        (text.isEmpty() || entry.tag.contains(text, true) || entry.message.contains(text, true))
+}
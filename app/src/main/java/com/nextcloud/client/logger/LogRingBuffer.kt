@@ -0,0 +1,93 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.nextcloud.client.logger
+
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicLongArray
+
+/**
+ * Bounded queue of log entries with many producers and a single consumer.
+ *
+ * Entries are stored field by field in preallocated slots, so [offer] neither allocates nor locks: a producer claims
+ * a slot by advancing the tail and publishes it by bumping the slot's sequence number. When all slots are taken
+ * [offer] fails at once instead of waiting for the consumer.
+ */
+internal class LogRingBuffer(private val capacity: Int) {
+
+    fun interface Consumer {
+        fun accept(timestamp: Long, level: Level, tag: String, message: String)
+    }
+
+    private val sequences = AtomicLongArray(capacity)
+    private val timestamps = LongArray(capacity)
+    private val levels = arrayOfNulls<Level>(capacity)
+    private val tags = arrayOfNulls<String>(capacity)
+    private val messages = arrayOfNulls<String>(capacity)
+
+    private val tail = AtomicLong()
+
+    /** Only touched by the consumer */
+    private var head = 0L
+
+    init {
+        require(capacity > 0) { "Capacity must be positive" }
+        for (i in 0 until capacity) {
+            sequences.set(i, i.toLong())
+        }
+    }
+
+    val isEmpty: Boolean
+        get() = sequences.get(index(head)) != head + 1
+
+    /**
+     * @return false if the buffer is full and the entry was dropped
+     */
+    fun offer(timestamp: Long, level: Level, tag: String, message: String): Boolean {
+        while (true) {
+            val position = tail.get()
+            val index = index(position)
+            val sequence = sequences.get(index)
+            when {
+                sequence == position -> if (tail.compareAndSet(position, position + 1)) {
+                    timestamps[index] = timestamp
+                    levels[index] = level
+                    tags[index] = tag
+                    messages[index] = message
+                    sequences.set(index, position + 1)
+                    return true
+                }
+                sequence < position -> return false
+                // else another producer claimed the slot meanwhile, try the next one
+            }
+        }
+    }
+
+    /**
+     * Hands all published entries to [consumer] in the order they were claimed. Must only be called by the consumer
+     * thread.
+     *
+     * @return number of consumed entries
+     */
+    fun drain(consumer: Consumer): Int {
+        var count = 0
+        while (true) {
+            val index = index(head)
+            if (sequences.get(index) != head + 1) {
+                return count
+            }
+
+            consumer.accept(timestamps[index], levels[index]!!, tags[index]!!, messages[index]!!)
+            tags[index] = null
+            messages[index] = null
+            sequences.set(index, head + capacity)
+            head++
+            count++
+        }
+    }
+
+    private fun index(position: Long): Int = (position % capacity).toInt()
+}
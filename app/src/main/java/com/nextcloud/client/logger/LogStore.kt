@@ -0,0 +1,79 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.nextcloud.client.logger
+
+import java.io.File
+import java.util.TimeZone
+
+/**
+ * Reads the logs written by [handler] page by page, newest entries first.
+ *
+ * Entries are selected by level and tag through a [LogIndex]; only candidates are read from the files, so memory use
+ * depends on the page size, not on the size of the logs.
+ *
+ * Not thread safe, to be used on the logger thread.
+ */
+internal class LogStore(private val handler: FileLogHandler) {
+
+    private val index = LogIndex()
+
+    private val totalLogSize: Long
+        get() = handler.logFiles.sumOf { it.length() }
+
+    /**
+     * Loads up to [pageSize] entries matching [query], continuing after the page [after] if given.
+     */
+    fun page(query: LogQuery, after: LogsPage?, pageSize: Int): LogsPage {
+        index.update(handler)
+
+        val isContinuation = after != null && after.indexBuildId == index.buildId && after.query == query
+        var position = if (isContinuation) after!!.nextPosition else index.size - 1
+        val entries = ArrayList<LogEntry>(pageSize)
+        index.Reader().use { reader ->
+            while (position >= 0 && entries.size < pageSize) {
+                read(reader, position, query)?.let { entries.add(it) }
+                position--
+            }
+        }
+
+        return LogsPage(
+            query = query,
+            entries = entries,
+            isContinuation = isContinuation,
+            totalEntries = index.size,
+            totalLogSize = totalLogSize,
+            indexBuildId = index.buildId,
+            nextPosition = position
+        )
+    }
+
+    /**
+     * Writes all entries matching [query] to [target], oldest first, with dates in [tz].
+     */
+    fun export(query: LogQuery, target: File, tz: TimeZone) {
+        index.update(handler)
+
+        target.parentFile?.mkdirs()
+        target.bufferedWriter().use { output ->
+            index.Reader().use { reader ->
+                for (position in 0 until index.size) {
+                    read(reader, position, query)?.let {
+                        output.write(it.toString(tz))
+                        output.write("\n")
+                    }
+                }
+            }
+        }
+    }
+
+    private fun read(reader: LogIndex.Reader, position: Int, query: LogQuery): LogEntry? {
+        if (!query.matches(index.level(position), index.tag(position))) {
+            return null
+        }
+        return reader.read(position)?.takeIf { query.text.isEmpty() || query.matches(it) }
+    }
+}
@@ -9,30 +9,54 @@ package com.nextcloud.client.logger
 import android.os.Handler
 import android.util.Log
 import com.nextcloud.client.core.Clock
-import java.util.Date
-import java.util.concurrent.BlockingQueue
-import java.util.concurrent.LinkedBlockingQueue
-import java.util.concurrent.TimeUnit
+import java.io.File
+import java.io.IOException
+import java.util.TimeZone
+import java.util.concurrent.ConcurrentLinkedQueue
 import java.util.concurrent.atomic.AtomicBoolean
 import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.locks.LockSupport
 
+/**
+ * Logger writing entries to log files on a background thread.
+ *
+ * Logging threads only store the entry in a [LogRingBuffer]; formatting, encoding and writing happens on the writer
+ * thread, which keeps the log file open. Entries below [minLevel] are only passed to logcat. When the buffer is full,
+ * entries are dropped and a warning with their count is logged later.
+ */
 @Suppress("TooManyFunctions")
-internal class LoggerImpl(
+internal class LoggerImpl @JvmOverloads constructor(
     private val clock: Clock,
     private val handler: FileLogHandler,
     private val mainThreadHandler: Handler,
-    queueCapacity: Int
+    queueCapacity: Int,
+    private val minLevel: Level = Level.VERBOSE
 ) : Logger,
     LogsRepository {
 
-    data class Load(val onResult: (List<LogEntry>, Long) -> Unit)
+    private companion object {
+        const val TAG = "Logger"
+    }
+
+    data class Load(val query: LogQuery, val after: LogsPage?, val pageSize: Int, val onResult: OnLogsLoaded)
+    data class Export(val query: LogQuery, val target: File, val tz: TimeZone, val onResult: (Boolean) -> Unit)
     class Delete
 
     private val looper = ThreadLoop()
-    private val eventQueue: BlockingQueue<Any> = LinkedBlockingQueue(queueCapacity)
+    private val entries = LogRingBuffer(queueCapacity)
+    private val otherEvents = ConcurrentLinkedQueue<Any>()
+    private val formatter = LogLineFormatter()
+    private val store = LogStore(handler)
+    private val writeEntry = LogRingBuffer.Consumer { timestamp, level, tag, message ->
+        handler.write(formatter.format(timestamp, level, tag, message))
+    }
+
+    @Volatile
+    private var writerThread: Thread? = null
+
+    @Volatile
+    private var writerWaiting = false
 
-    private val processedEvents = mutableListOf<Any>()
-    private val otherEvents = mutableListOf<Any>()
     private val missedLogs = AtomicBoolean()
     private val missedLogsCount = AtomicLong()
 
@@ -45,6 +69,13 @@ internal class LoggerImpl(
         looper.start(this::eventLoop)
     }
 
+    /**
+     * Stops the writer thread, which closes the log file. Entries not written yet are dropped.
+     */
+    fun stop() {
+        looper.stop()
+    }
+
     override fun v(tag: String, message: String) {
         Log.v(tag, message)
         enqueue(Level.VERBOSE, tag, message)
@@ -80,83 +111,116 @@ internal class LoggerImpl(
         enqueue(Level.ERROR, tag, message)
     }
 
-    override fun load(onLoaded: (entries: List<LogEntry>, totalLogSize: Long) -> Unit) {
-        eventQueue.put(Load(onLoaded))
+    override fun load(query: LogQuery, after: LogsPage?, pageSize: Int, onLoaded: OnLogsLoaded) {
+        otherEvents.add(Load(query, after, pageSize, onLoaded))
+        wakeUpWriter()
+    }
+
+    override fun export(query: LogQuery, target: File, tz: TimeZone, onExported: (Boolean) -> Unit) {
+        otherEvents.add(Export(query, target, tz, onExported))
+        wakeUpWriter()
     }
 
     override fun deleteAll() {
-        eventQueue.put(Delete())
+        otherEvents.add(Delete())
+        wakeUpWriter()
     }
 
     private fun enqueue(level: Level, tag: String, message: String) {
-        try {
-            val entry = LogEntry(timestamp = clock.currentDate, level = level, tag = tag, message = message)
-            val enqueued = eventQueue.offer(entry, 1, TimeUnit.SECONDS)
-            if (!enqueued) {
-                missedLogs.set(true)
-                missedLogsCount.incrementAndGet()
+        if (level < minLevel) {
+            return
+        }
+
+        if (entries.offer(clock.currentTime, level, tag, message)) {
+            if (writerWaiting) {
+                wakeUpWriter()
             }
-        } catch (ex: InterruptedException) {
-            // since interrupted flag is consumed now, we need to re-set the flag so
-            // the caller can continue handling the thread interruption in it's own way
-            Thread.currentThread().interrupt()
+        } else {
+            missedLogs.set(true)
+            missedLogsCount.incrementAndGet()
         }
     }
 
+    private fun wakeUpWriter() {
+        writerThread?.let { LockSupport.unpark(it) }
+    }
+
     private fun eventLoop() {
         try {
-            processedEvents.clear()
-            otherEvents.clear()
-
-            processedEvents.add(eventQueue.take())
-            eventQueue.drainTo(processedEvents)
-
-            // process all writes in bulk - this is most frequest use case and we can
-            // assume handler must be opened 99.999% of time; anything that is not a log
-            // write should be deferred
-            handler.open()
-            for (event in processedEvents) {
-                if (event is LogEntry) {
-                    handler.write(event.toString() + "\n")
-                } else {
-                    otherEvents.add(event)
+            writerThread = Thread.currentThread()
+            awaitEvents()
+
+            // log writes are the most frequent events; the file stays open between them
+            if (!entries.isEmpty) {
+                if (!handler.isOpened) {
+                    handler.open()
                 }
+                entries.drain(writeEntry)
+                checkAndLogLostMessages()
+                handler.flush()
             }
-            handler.close()
 
             // Those events are very sporadic and we don't have to be clever here
-            for (event in otherEvents) {
-                when (event) {
+            while (true) {
+                when (val event = otherEvents.poll() ?: break) {
                     is Load -> {
-                        val loaded = handler.loadLogFiles()
-                        val entries = loaded.lines.mapNotNull { LogEntry.parse(it) }
+                        val page = store.page(event.query, event.after, event.pageSize)
+                        mainThreadHandler.post {
+                            event.onResult(page)
+                        }
+                    }
+                    is Export -> {
+                        val exported = try {
+                            store.export(event.query, event.target, event.tz)
+                            true
+                        } catch (ex: IOException) {
+                            Log.e(TAG, "Exporting logs failed", ex)
+                            false
+                        }
                         mainThreadHandler.post {
-                            event.onResult(entries, loaded.logSize)
+                            event.onResult(exported)
                         }
                     }
-                    is Delete -> handler.deleteAll()
+                    is Delete -> {
+                        // writing on to a deleted file would lose the entries; it is reopened by the next write
+                        handler.close()
+                        handler.deleteAll()
+                    }
                 }
             }
-
-            checkAndLogLostMessages()
         } catch (ex: InterruptedException) {
             handler.close()
             throw ex
         }
     }
 
+    /**
+     * Parks the writer thread until an event arrives. Producers only unpark it while it is waiting; an entry added
+     * between the checks sees [writerWaiting] and unparks, which makes the park return right away.
+     */
+    private fun awaitEvents() {
+        if (entries.isEmpty && otherEvents.isEmpty()) {
+            writerWaiting = true
+            if (entries.isEmpty && otherEvents.isEmpty()) {
+                LockSupport.park(this)
+            }
+            writerWaiting = false
+        }
+        if (Thread.interrupted()) {
+            throw InterruptedException()
+        }
+    }
+
     private fun checkAndLogLostMessages() {
         val lastMissedLogsCount = missedLogsCount.getAndSet(0)
         if (lastMissedLogsCount > 0) {
-            handler.open()
-            val warning = LogEntry(
-                timestamp = Date(),
-                level = Level.WARNING,
-                tag = "Logger",
-                message = "Logger queue overflow. Approx $lastMissedLogsCount entries lost. You write too much."
-            ).toString()
+            val warning = formatter.format(
+                clock.currentTime,
+                Level.WARNING,
+                TAG,
+                "Logger queue overflow. Approx $lastMissedLogsCount entries lost. You write too much."
+            )
             handler.write(warning)
-            handler.close()
         }
     }
 }
@@ -0,0 +1,32 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.nextcloud.client.logger
+
+/**
+ * Page of log entries matching [query].
+ *
+ * @param entries matching entries, newest first
+ * @param isContinuation true if the page continues the page it was requested after, false if it starts with the
+ * newest entry - also when logs were rotated or deleted since the previous page
+ * @param totalEntries number of all entries in the logs
+ * @param totalLogSize size of all log files in bytes
+ */
+data class LogsPage(
+    val query: LogQuery,
+    val entries: List<LogEntry>,
+    val isContinuation: Boolean,
+    val totalEntries: Int,
+    val totalLogSize: Long,
+    internal val indexBuildId: Int,
+    internal val nextPosition: Int
+) {
+    /**
+     * Whether older entries may match the query.
+     */
+    val hasMore: Boolean
+        get() = nextPosition >= 0
+}
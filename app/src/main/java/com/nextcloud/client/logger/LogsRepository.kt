@@ -6,7 +6,10 @@
  */
 package com.nextcloud.client.logger
 
-typealias OnLogsLoaded = (entries: List<LogEntry>, totalLogSize: Long) -> Unit
+import java.io.File
+import java.util.TimeZone
+
+typealias OnLogsLoaded = (page: LogsPage) -> Unit
 
 /**
  * This interface provides safe, read only access to application
@@ -23,12 +26,23 @@ interface LogsRepository {
     val lostEntries: Boolean
 
     /**
-     * Asynchronously load available logs. Load can be scheduled on any thread,
+     * Asynchronously load a page of logs, newest entries first. Load can be scheduled on any thread,
      * but the listener will be called on main thread.
      *
-     * @param onLoaded: Callback with loaded logs; called on main thread
+     * @param query: filter of loaded entries
+     * @param after: previously loaded page to continue, null to load the newest entries
+     * @param pageSize: maximum number of loaded entries
+     * @param onLoaded: Callback with loaded page; called on main thread
+     */
+    fun load(query: LogQuery, after: LogsPage?, pageSize: Int, onLoaded: OnLogsLoaded)
+
+    /**
+     * Asynchronously write all log entries matching [query] to [target], oldest entries first.
+     *
+     * @param tz: time zone of the written dates
+     * @param onExported: Callback with success of the export; called on main thread
      */
-    fun load(onLoaded: OnLogsLoaded)
+    fun export(query: LogQuery, target: File, tz: TimeZone, onExported: (Boolean) -> Unit)
 
     /**
      * Asynchronously delete logs.
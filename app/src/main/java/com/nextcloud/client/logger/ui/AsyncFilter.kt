@@ -7,7 +7,6 @@
 package com.nextcloud.client.logger.ui
 
 import com.nextcloud.client.core.AsyncRunner
-import com.nextcloud.client.core.Cancellable
 
 /**
  * This utility class allows implementation of as-you-type filtering of large collections.
@@ -22,9 +21,8 @@ import com.nextcloud.client.core.Cancellable
  */
 class AsyncFilter(private val asyncRunner: AsyncRunner, private val time: () -> Long = System::currentTimeMillis) {
 
-    private var filterTask: Cancellable? = null
+    private var isRunning = false
     private var pendingRequest: (() -> Unit)? = null
-    private val isRunning get() = filterTask != null
     private var startTime = 0L
 
     /**
@@ -39,29 +37,46 @@ class AsyncFilter(private val asyncRunner: AsyncRunner, private val time: () ->
         predicate: (T) -> Boolean,
         onResult: (filtered: List<T>, durationMs: Long) -> Unit
     ) {
+        filter(
+            source = { onFiltered: (List<T>) -> Unit ->
+                asyncRunner.postQuickTask(
+                    task = { collection.filter { predicate.invoke(it) } },
+                    onResult = onFiltered
+                )
+            },
+            onResult = onResult
+        )
+    }
+
+    /**
+     * Schedule filtering request answered asynchronously by [source], ex. a query running on another thread.
+     * Requests are coalesced the same way as collection filtering requests.
+     *
+     * @param source starts the request and calls its argument with the result on the main thread
+     * @param onResult result callback called on the main thread
+     */
+    fun <T> filter(source: (onFiltered: (T) -> Unit) -> Unit, onResult: (filtered: T, durationMs: Long) -> Unit) {
         pendingRequest = {
-            filterAsync(collection, predicate, onResult)
+            filterAsync(source, onResult)
         }
         if (!isRunning) {
             pendingRequest?.invoke()
         }
     }
 
-    private fun <T> filterAsync(collection: Iterable<T>, predicate: (T) -> Boolean, onResult: (List<T>, Long) -> Unit) {
+    private fun <T> filterAsync(source: ((T) -> Unit) -> Unit, onResult: (T, Long) -> Unit) {
         startTime = time.invoke()
-        filterTask = asyncRunner.postQuickTask(
-            task = { collection.filter { predicate.invoke(it) } },
-            onResult = { filtered: List<T> ->
-                onFilterCompleted(filtered, onResult)
-            }
-        )
+        isRunning = true
         pendingRequest = null
+        source.invoke { filtered: T ->
+            onFilterCompleted(filtered, onResult)
+        }
     }
 
-    private fun <T> onFilterCompleted(filtered: List<T>, callback: (List<T>, Long) -> Unit) {
+    private fun <T> onFilterCompleted(filtered: T, callback: (T, Long) -> Unit) {
         val dt = time.invoke() - startTime
         callback.invoke(filtered, dt)
-        filterTask = null
+        isRunning = false
         startTime = 0L
         pendingRequest?.invoke()
     }
@@ -24,6 +24,10 @@ import javax.inject.Inject
 
 class LogsActivity : ToolbarActivity() {
 
+    private companion object {
+        const val LOAD_MORE_THRESHOLD = 50
+    }
+
     @Inject
     lateinit var viewModelFactory: ViewModelFactory
 
@@ -53,9 +57,18 @@ class LogsActivity : ToolbarActivity() {
         }
 
         logsAdapter = LogsAdapter(this)
+        val logsLayoutManager = LinearLayoutManager(this)
         findViewById<RecyclerView>(R.id.logsList).apply {
-            layoutManager = LinearLayoutManager(this@LogsActivity)
+            layoutManager = logsLayoutManager
             adapter = logsAdapter
+            addOnScrollListener(object : RecyclerView.OnScrollListener() {
+                override fun onScrolled(recyclerView: RecyclerView, dx: Int, dy: Int) {
+                    val lastVisible = logsLayoutManager.findLastVisibleItemPosition()
+                    if (dy > 0 && lastVisible >= logsAdapter.itemCount - LOAD_MORE_THRESHOLD) {
+                        vm.loadMore()
+                    }
+                }
+            })
         }
 
         vm.entries.observe(this, Observer { logsAdapter.entries = it })
@@ -29,6 +29,9 @@ class LogsAdapter(private val context: Context) : RecyclerView.Adapter<LogsAdapt
     private val timestampFormat = SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US)
     private val inflater = LayoutInflater.from(context)
 
+    /**
+     * Entries to show, newest first.
+     */
     var entries: List<LogEntry> = listOf()
         @SuppressLint("NotifyDataSetChanged")
         set(value) {
@@ -42,8 +45,7 @@ class LogsAdapter(private val context: Context) : RecyclerView.Adapter<LogsAdapt
     override fun getItemCount() = entries.size
 
     override fun onBindViewHolder(holder: ViewHolder, position: Int) {
-        val reversedPosition = entries.size - position - 1
-        val entry = entries[reversedPosition]
+        val entry = entries[position]
         val header = "${timestampFormat.format(entry.timestamp)} ${entry.level.tag} ${entry.tag}"
         val entryColor = ContextCompat.getColor(context, entry.level.getColor())
 
@@ -13,61 +13,47 @@ import android.net.Uri
 import android.os.Build
 import android.widget.Toast
 import androidx.core.content.FileProvider
-import com.nextcloud.client.core.AsyncRunner
-import com.nextcloud.client.core.Cancellable
 import com.nextcloud.client.core.Clock
-import com.nextcloud.client.logger.LogEntry
+import com.nextcloud.client.logger.LogQuery
+import com.nextcloud.client.logger.LogsRepository
 import com.owncloud.android.R
 import java.io.File
-import java.io.FileWriter
-import java.util.TimeZone
 
-class LogsEmailSender(private val context: Context, private val clock: Clock, private val runner: AsyncRunner) {
+class LogsEmailSender(
+    private val context: Context,
+    private val clock: Clock,
+    private val logsRepository: LogsRepository
+) {
 
     private companion object {
         const val LOGS_MIME_TYPE = "text/plain"
     }
 
-    private class Task(
-        private val context: Context,
-        private val logs: List<LogEntry>,
-        private val file: File,
-        private val tz: TimeZone
-    ) : Function0<Uri?> {
+    private var isExporting = false
+    private var isStopped = false
 
-        override fun invoke(): Uri? {
-            file.parentFile.mkdirs()
-            val fo = FileWriter(file, false)
-            logs.forEach {
-                fo.write(it.toString(tz))
-                fo.write("\n")
-            }
-            fo.close()
-            return FileProvider.getUriForFile(context, context.getString(R.string.file_provider_authority), file)
-        }
-    }
-
-    private var task: Cancellable? = null
-
-    fun send(logs: List<LogEntry>) {
-        if (task == null) {
+    /**
+     * Exports all entries matching [query] and sends them.
+     */
+    fun send(query: LogQuery) {
+        if (!isExporting) {
+            isExporting = true
             val outFile = File(context.cacheDir, "attachments/logs.txt")
-            task = runner.postQuickTask(Task(context, logs, outFile, clock.tz), onResult = {
-                task = null
-                send(it)
-            })
+            logsRepository.export(query, outFile, clock.tz) { exported ->
+                isExporting = false
+                if (exported && !isStopped) {
+                    val authority = context.getString(R.string.file_provider_authority)
+                    send(FileProvider.getUriForFile(context, authority, outFile))
+                }
+            }
         }
     }
 
     fun stop() {
-        if (task != null) {
-            task?.cancel()
-            task = null
-        }
+        isStopped = true
     }
 
     private fun send(uri: Uri?) {
-        task = null
         val intent = Intent(Intent.ACTION_SEND_MULTIPLE)
         intent.putExtra(Intent.EXTRA_EMAIL, context.getString(R.string.mail_logger))
 
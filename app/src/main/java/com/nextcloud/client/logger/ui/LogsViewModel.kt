@@ -13,10 +13,17 @@ import androidx.lifecycle.ViewModel
 import com.nextcloud.client.core.AsyncRunner
 import com.nextcloud.client.core.Clock
 import com.nextcloud.client.logger.LogEntry
+import com.nextcloud.client.logger.LogQuery
+import com.nextcloud.client.logger.LogsPage
 import com.nextcloud.client.logger.LogsRepository
+import com.nextcloud.client.logger.OnLogsLoaded
 import com.owncloud.android.R
 import javax.inject.Inject
 
+/**
+ * Shows logs page by page, newest entries first. Entries are read from [LogsRepository] on demand, so
+ * only loaded pages are kept in memory.
+ */
 class LogsViewModel @Inject constructor(
     private val context: Context,
     clock: Clock,
@@ -26,14 +33,14 @@ class LogsViewModel @Inject constructor(
 
     private companion object {
         const val KILOBYTE = 1024L
+        const val PAGE_SIZE = 500
     }
 
     private val asyncFilter = AsyncFilter(asyncRunner)
-    private val sender = LogsEmailSender(context, clock, asyncRunner)
-    private var allEntries = emptyList<LogEntry>()
-    private var logsSize = -1L
+    private val sender = LogsEmailSender(context, clock, logsRepository)
+    private var query = LogQuery()
+    private var lastPage: LogsPage? = null
     private var filterDurationMs = 0L
-    private var isFiltered = false
 
     val isLoading: LiveData<Boolean> = MutableLiveData<Boolean>().apply { value = false }
     val size: LiveData<Long> = MutableLiveData<Long>().apply { value = 0 }
@@ -41,45 +48,46 @@ class LogsViewModel @Inject constructor(
     val status: LiveData<String> = MutableLiveData<String>().apply { value = "" }
 
     fun send() {
-        entries.value?.let {
-            sender.send(it)
-        }
+        sender.send(query)
     }
 
     fun load() {
         if (isLoading.value != true) {
-            logsRepository.load(this::onLoaded)
+            logsRepository.load(query, null, PAGE_SIZE, this::onLoaded)
             (isLoading as MutableLiveData).value = true
         }
     }
 
-    private fun onLoaded(entries: List<LogEntry>, logsSize: Long) {
-        this.entries as MutableLiveData
-        this.isLoading as MutableLiveData
-        this.status as MutableLiveData
+    /**
+     * Loads the next page of older entries, if there are any.
+     */
+    fun loadMore() {
+        val page = lastPage ?: return
+        if (isLoading.value != true && page.hasMore) {
+            logsRepository.load(query, page, PAGE_SIZE, this::onLoaded)
+            (isLoading as MutableLiveData).value = true
+        }
+    }
 
-        this.entries.value = entries
-        this.allEntries = entries
-        this.logsSize = logsSize
-        isLoading.value = false
-        this.status.value = formatStatus()
+    private fun onLoaded(page: LogsPage) {
+        (isLoading as MutableLiveData).value = false
+        showPage(page)
     }
 
     fun deleteAll() {
         logsRepository.deleteAll()
+        lastPage = null
         (entries as MutableLiveData).value = emptyList()
     }
 
     fun filter(pattern: String) {
         if (isLoading.value == false) {
-            isFiltered = pattern.isNotEmpty()
-            val predicate = when (isFiltered) {
-                true -> { it: LogEntry -> it.tag.contains(pattern, true) || it.message.contains(pattern, true) }
-                false -> { _ -> true }
-            }
+            val filterQuery = LogQuery(text = pattern)
+            query = filterQuery
             asyncFilter.filter(
-                collection = allEntries,
-                predicate = predicate,
+                source = { onFiltered: OnLogsLoaded ->
+                    logsRepository.load(filterQuery, null, PAGE_SIZE, onFiltered)
+                },
                 onResult = this::onFiltered
             )
         }
@@ -90,26 +98,36 @@ class LogsViewModel @Inject constructor(
         sender.stop()
     }
 
-    private fun onFiltered(filtered: List<LogEntry>, filterDurationMs: Long) {
-        (entries as MutableLiveData).value = filtered
+    private fun onFiltered(page: LogsPage, filterDurationMs: Long) {
         this.filterDurationMs = filterDurationMs
+        showPage(page)
+    }
+
+    private fun showPage(page: LogsPage) {
+        val shownEntries = if (page.isContinuation) {
+            entries.value.orEmpty() + page.entries
+        } else {
+            page.entries
+        }
+        lastPage = page
+        (entries as MutableLiveData).value = shownEntries
         (status as MutableLiveData).value = formatStatus()
     }
 
     private fun formatStatus(): String {
-        val displayedEntries = entries.value?.size ?: allEntries.size
-        val sizeKb = logsSize / KILOBYTE
+        val displayedEntries = entries.value?.size ?: 0
+        val sizeKb = (lastPage?.totalLogSize ?: 0L) / KILOBYTE
+        val isFiltered = !query.isEmpty
         return when {
             isLoading.value == true -> context.getString(R.string.logs_status_loading)
             isFiltered -> context.getString(
                 R.string.logs_status_filtered,
                 sizeKb,
                 displayedEntries,
-                allEntries.size,
+                lastPage?.totalEntries ?: 0,
                 filterDurationMs
             )
-            !isFiltered -> context.getString(R.string.logs_status_not_filtered, sizeKb)
-            else -> ""
+            else -> context.getString(R.string.logs_status_not_filtered, sizeKb)
         }
     }
 }
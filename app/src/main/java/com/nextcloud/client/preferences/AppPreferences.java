@@ -390,6 +390,12 @@ public interface AppPreferences {
     void setTwoWaySyncInterval(Long value);
     Long getTwoWaySyncInterval();
 
+    /**
+     * Start of the two-way sync run that was stopped before it synchronized all folders, 0 if none.
+     */
+    void setTwoWaySyncRunStart(long timestamp);
+    long getTwoWaySyncRunStart();
+
     boolean shouldStopDownloadJobsOnStart();
     void setStopDownloadJobsOnStart(boolean value);
 
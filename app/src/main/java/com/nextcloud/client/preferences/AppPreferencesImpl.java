@@ -105,6 +105,7 @@ public final class AppPreferencesImpl implements AppPreferences {
 
     private static final String PREF__TWO_WAY_STATUS = "two_way_sync_status";
     private static final String PREF__TWO_WAY_SYNC_INTERVAL = "two_way_sync_interval";
+    private static final String PREF__TWO_WAY_SYNC_RUN_START = "two_way_sync_run_start";
 
     private static final String PREF__STOP_DOWNLOAD_JOBS_ON_START = "stop_download_jobs_on_start";
     
@@ -813,6 +814,16 @@ public final class AppPreferencesImpl implements AppPreferences {
         return preferences.getLong(PREF__TWO_WAY_SYNC_INTERVAL, 15L);
     }
 
+    @Override
+    public void setTwoWaySyncRunStart(long timestamp) {
+        preferences.edit().putLong(PREF__TWO_WAY_SYNC_RUN_START, timestamp).apply();
+    }
+
+    @Override
+    public long getTwoWaySyncRunStart() {
+        return preferences.getLong(PREF__TWO_WAY_SYNC_RUN_START, 0L);
+    }
+
     @Override
     public boolean shouldStopDownloadJobsOnStart() {
         return preferences.getBoolean(PREF__STOP_DOWNLOAD_JOBS_ON_START, true);
@@ -0,0 +1,249 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.owncloud.android.datamodel
+
+import android.system.ErrnoException
+import android.system.Os
+import java.io.File
+import java.io.IOException
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+import java.util.zip.CRC32
+
+/**
+ * Decides whether a local file changed since it was indexed in the filesystem table, reading as little of it as
+ * possible:
+ *
+ * 1. a different size or inode means the file changed, nothing else is read
+ * 2. otherwise a CRC32 over the size and the head, middle and tail segments of the file is compared
+ * 3. if the segments match too, an edit outside of them is only ruled out by the CRC32 of the whole file stored in
+ *    its own column when the row was inserted; it is computed from memory mapped blocks (in parallel for big files)
+ *    and dropped when steps 1 or 2 detect a change, as it no longer describes the file. Without one the file
+ *    counts as unchanged.
+ * 4. rows indexed before [HASH_STRATEGY_SAMPLED_CRC32] existed carry a CRC32 of the whole file, it is compared and
+ *    the row is migrated to the sampled fingerprint, keeping the whole file CRC32
+ */
+class FileChangeDetector @JvmOverloads constructor(
+    private val inodeOf: (File) -> Long? = ::statInode
+) {
+
+    /**
+     * [hash] is the CRC32 described by [strategy], [fullHash] the CRC32 of the whole file if it is known.
+     */
+    data class Fingerprint(
+        val hash: String,
+        val strategy: Int,
+        val size: Long,
+        val inode: Long?,
+        val fullHash: String? = null
+    )
+
+    data class Result(val isChanged: Boolean, val fingerprint: Fingerprint)
+
+    companion object {
+        const val HASH_STRATEGY_FULL_CRC32 = 0
+        const val HASH_STRATEGY_SAMPLED_CRC32 = 1
+
+        const val SAMPLE_SIZE = 64 * 1024
+        private const val SAMPLE_COUNT = 3
+        private const val BLOCK_SIZE = 16L * 1024 * 1024
+        private const val PARALLEL_THRESHOLD = 4 * BLOCK_SIZE
+        private const val CRC32_POLYNOMIAL = 0xedb88320L
+        private const val GF2_DIM = 32
+
+        @JvmStatic
+        fun statInode(file: File): Long? = try {
+            Os.stat(file.absolutePath).st_ino
+        } catch (e: ErrnoException) {
+            null
+        }
+
+        /**
+         * CRC32 of the whole file, identical to feeding it through [CRC32] in one go. Files bigger than
+         * [PARALLEL_THRESHOLD] are split into blocks hashed on all cores and combined with [crc32Combine].
+         */
+        @JvmStatic
+        @Throws(IOException::class)
+        fun fullCrc32(file: File): Long = RandomAccessFile(file, "r").use { raf ->
+            val channel = raf.channel
+            val size = channel.size()
+            val blocks = (0 until size step BLOCK_SIZE).map { it to minOf(BLOCK_SIZE, size - it) }
+            val cores = Runtime.getRuntime().availableProcessors()
+
+            if (size < PARALLEL_THRESHOLD || cores < 2) {
+                val crc = CRC32()
+                blocks.forEach { (position, length) -> crc.update(channel.map(position, length)) }
+                return@use crc.value
+            }
+
+            val executor = Executors.newFixedThreadPool(minOf(cores, blocks.size))
+            try {
+                val tasks = blocks.map { (position, length) ->
+                    Callable {
+                        CRC32().apply { update(channel.map(position, length)) }.value
+                    }
+                }
+                executor.invokeAll(tasks)
+                    .map { it.get() }
+                    .foldIndexed(0L) { index, crc, blockCrc -> crc32Combine(crc, blockCrc, blocks[index].second) }
+            } finally {
+                executor.shutdownNow()
+            }
+        }
+
+        private fun FileChannel.map(position: Long, length: Long): ByteBuffer =
+            map(FileChannel.MapMode.READ_ONLY, position, length)
+
+        /**
+         * CRC32 of the concatenation of two byte sequences, given their CRCs and the length of the second one.
+         * Port of zlib's crc32_combine().
+         */
+        @JvmStatic
+        @Suppress("MagicNumber")
+        fun crc32Combine(crc1: Long, crc2: Long, length2: Long): Long {
+            if (length2 <= 0) {
+                return crc1
+            }
+
+            val even = LongArray(GF2_DIM)
+            val odd = LongArray(GF2_DIM)
+
+            // operator for one zero bit
+            odd[0] = CRC32_POLYNOMIAL
+            var row = 1L
+            for (n in 1 until GF2_DIM) {
+                odd[n] = row
+                row = row shl 1
+            }
+
+            gf2MatrixSquare(even, odd) // two zero bits
+            gf2MatrixSquare(odd, even) // four zero bits
+
+            var crc = crc1
+            var length = length2
+            do {
+                gf2MatrixSquare(even, odd)
+                if ((length and 1L) != 0L) {
+                    crc = gf2MatrixTimes(even, crc)
+                }
+                length = length shr 1
+                if (length == 0L) {
+                    break
+                }
+
+                gf2MatrixSquare(odd, even)
+                if ((length and 1L) != 0L) {
+                    crc = gf2MatrixTimes(odd, crc)
+                }
+                length = length shr 1
+            } while (length != 0L)
+
+            return crc xor crc2
+        }
+
+        private fun gf2MatrixTimes(matrix: LongArray, vector: Long): Long {
+            var sum = 0L
+            var v = vector
+            var i = 0
+            while (v != 0L) {
+                if ((v and 1L) != 0L) {
+                    sum = sum xor matrix[i]
+                }
+                v = v ushr 1
+                i++
+            }
+            return sum
+        }
+
+        private fun gf2MatrixSquare(square: LongArray, matrix: LongArray) {
+            for (n in 0 until GF2_DIM) {
+                square[n] = gf2MatrixTimes(matrix, matrix[n])
+            }
+        }
+    }
+
+    /**
+     * Sampled fingerprint of the file, null if it is not a readable regular file.
+     */
+    fun fingerprint(file: File): Fingerprint? = try {
+        if (file.isFile) {
+            Fingerprint(sampledCrc32(file).toString(), HASH_STRATEGY_SAMPLED_CRC32, file.length(), inodeOf(file))
+        } else {
+            null
+        }
+    } catch (e: IOException) {
+        null
+    }
+
+    /**
+     * Fingerprint of a file seen for the first time, including the CRC32 of the whole file so that [detect] can
+     * later tell a touched file from one edited outside of the sampled segments.
+     */
+    fun initialFingerprint(file: File): Fingerprint? {
+        val fingerprint = fingerprint(file) ?: return null
+        return withFullHash(file, fingerprint) ?: fingerprint
+    }
+
+    /**
+     * Compares [file], whose modification time changed, against its stored row. Returns null if the file cannot be
+     * read, in which case the row is left untouched.
+     */
+    @Suppress("ReturnCount")
+    fun detect(file: File, stored: FileSystemDataSet): Result? {
+        val fingerprint = fingerprint(file) ?: return null
+        val storedHash = stored.crc32 ?: return Result(true, fingerprint)
+
+        if (stored.hashStrategy != HASH_STRATEGY_SAMPLED_CRC32) {
+            // legacy row, the stored hash is the CRC32 of the whole file
+            val migrated = withFullHash(file, fingerprint) ?: return null
+            return Result(migrated.fullHash != storedHash, migrated)
+        }
+
+        val sizeChanged = stored.fileSize != null && stored.fileSize != fingerprint.size
+        val inodeChanged = stored.inode != null && fingerprint.inode != null && stored.inode != fingerprint.inode
+        if (sizeChanged || inodeChanged || fingerprint.hash != storedHash) {
+            return Result(true, fingerprint)
+        }
+
+        val storedFullHash = stored.fullCrc32 ?: return Result(false, fingerprint)
+        val withFullHash = withFullHash(file, fingerprint) ?: return null
+        return Result(withFullHash.fullHash != storedFullHash, withFullHash)
+    }
+
+    private fun withFullHash(file: File, fingerprint: Fingerprint): Fingerprint? = try {
+        fingerprint.copy(fullHash = fullCrc32(file).toString())
+    } catch (e: IOException) {
+        null
+    }
+
+    @Throws(IOException::class)
+    private fun sampledCrc32(file: File): Long = RandomAccessFile(file, "r").use { raf ->
+        val size = raf.length()
+        val crc = CRC32()
+        crc.update(ByteBuffer.allocate(Long.SIZE_BYTES).putLong(0, size))
+
+        val buffer = ByteArray(SAMPLE_SIZE)
+        val offsets = if (size <= SAMPLE_SIZE.toLong() * SAMPLE_COUNT) {
+            (0 until size step SAMPLE_SIZE.toLong()).toList()
+        } else {
+            listOf(0L, size / 2 - SAMPLE_SIZE / 2, size - SAMPLE_SIZE)
+        }
+
+        offsets.forEach { offset ->
+            raf.seek(offset)
+            val read = raf.read(buffer, 0, minOf(SAMPLE_SIZE.toLong(), size - offset).toInt())
+            if (read > 0) {
+                crc.update(buffer, 0, read)
+            }
+        }
+
+        crc.value
+    }
+}
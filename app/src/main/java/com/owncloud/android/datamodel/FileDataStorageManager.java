@@ -24,6 +24,8 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.OperationApplicationException;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
 import android.net.Uri;
 import android.os.Build;
 import android.os.RemoteException;
@@ -36,14 +38,19 @@ import com.nextcloud.android.lib.resources.files.FileDownloadLimit;
 import com.nextcloud.client.account.User;
 import com.nextcloud.client.database.NextcloudDatabase;
 import com.nextcloud.client.database.dao.FileDao;
+import com.nextcloud.client.database.dao.LocalUsageDao;
 import com.nextcloud.client.database.dao.OfflineOperationDao;
 import com.nextcloud.client.database.entity.FileEntity;
+import com.nextcloud.client.database.entity.FileListRow;
+import com.nextcloud.client.database.entity.FileNameSearchEntity;
+import com.nextcloud.client.database.entity.LocalUsageEntity;
 import com.nextcloud.client.database.entity.OfflineOperationEntity;
 import com.nextcloud.client.jobs.offlineOperations.repository.OfflineOperationsRepository;
 import com.nextcloud.client.jobs.offlineOperations.repository.OfflineOperationsRepositoryType;
 import com.nextcloud.model.OCFileFilterType;
 import com.nextcloud.model.OfflineOperationRawType;
 import com.nextcloud.model.OfflineOperationType;
+import com.nextcloud.utils.BuildHelper;
 import com.nextcloud.utils.date.DateFormatPattern;
 import com.nextcloud.utils.extensions.DateExtensionsKt;
 import com.owncloud.android.MainApp;
@@ -65,6 +72,7 @@ import com.owncloud.android.lib.resources.status.E2EVersion;
 import com.owncloud.android.lib.resources.status.OCCapability;
 import com.owncloud.android.lib.resources.tags.Tag;
 import com.owncloud.android.operations.RemoteOperationFailedException;
+import com.owncloud.android.utils.FileSortOrder;
 import com.owncloud.android.utils.FileStorageUtils;
 import com.owncloud.android.utils.MimeType;
 import com.owncloud.android.utils.MimeTypeUtil;
@@ -78,15 +86,21 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import kotlin.Pair;
 
@@ -98,6 +112,12 @@ public class FileDataStorageManager {
     private static final String FAILED_TO_INSERT_MSG = "Fail to insert insert file to database ";
     private static final String SENDING_TO_FILECONTENTPROVIDER_MSG = "Sending %d operations to FileContentProvider";
     private static final String EXCEPTION_MSG = "Exception in batch of operations ";
+    private static final int SAVE_FOLDER_LOOKUP_CHUNK_SIZE = 400;
+    private static final int SUBTREE_PAGE_SIZE = 500;
+    /** Also bounds the number of paths looked up per query */
+    private static final int GALLERY_BATCH_SIZE = 400;
+    private static final String IMAGE_MIME_TYPE_PREFIX = "image/";
+    private static final long LOCAL_USAGE_RECONCILE_INTERVAL = TimeUnit.DAYS.toMillis(1);
 
     public static final int ROOT_PARENT_ID = 0;
     private static final String JSON_NULL_STRING = "null";
@@ -109,6 +129,7 @@ public class FileDataStorageManager {
 
     public final OfflineOperationDao offlineOperationDao = NextcloudDatabase.getInstance(MainApp.getAppContext()).offlineOperationDao();
     public final FileDao fileDao = NextcloudDatabase.getInstance(MainApp.getAppContext()).fileDao();
+    private final LocalUsageDao localUsageDao = NextcloudDatabase.getInstance(MainApp.getAppContext()).localUsageDao();
     private final Gson gson = new Gson();
     public final OfflineOperationsRepositoryType offlineOperationsRepository;
 
@@ -425,28 +446,63 @@ public class FileDataStorageManager {
 
     public List<OCFile> getAllFilesRecursivelyInsideFolder(OCFile file) {
         ArrayList<OCFile> result = new ArrayList<>();
+        for (OCFile item : iterateAllFilesRecursivelyInsideFolder(file, null)) {
+            result.add(item);
+        }
+        return result;
+    }
 
+    /**
+     * Lazily iterates over all files below the given folder, or the file itself if it is no folder. Folders and, in
+     * the gplay flavour, APK/AAB files are skipped. The subtree is read in pages of
+     * {@link #SUBTREE_PAGE_SIZE} rows by one path range query each, so it is never held in memory as a whole.
+     *
+     * @param mimeTypePattern optional LIKE pattern the mime type must match, e.g. "image/%"
+     */
+    public Iterable<OCFile> iterateAllFilesRecursivelyInsideFolder(OCFile file, @Nullable String mimeTypePattern) {
         if (file == null || !file.fileExists()) {
-            return result;
+            return Collections.emptyList();
         }
 
         if (!file.isFolder()) {
-            if (!file.isAPKorAAB()) {
-                result.add(file);
+            return file.isAPKorAAB() ? Collections.emptyList() : Collections.singletonList(file);
+        }
+
+        String pathPrefix = file.getRemotePath().endsWith(OCFile.PATH_SEPARATOR) ?
+            file.getRemotePath() : file.getRemotePath() + OCFile.PATH_SEPARATOR;
+        String pathPrefixEnd = pathPrefix.substring(0, pathPrefix.length() - 1) + '0';
+        boolean includeApk = !BuildHelper.INSTANCE.isFlavourGPlay();
+
+        return () -> new Iterator<>() {
+            private Iterator<FileEntity> page = Collections.emptyIterator();
+            private String lastPath = pathPrefix;
+            private boolean lastPage;
+
+            @Override
+            public boolean hasNext() {
+                if (!page.hasNext() && !lastPage) {
+                    List<FileEntity> entities = fileDao.getFilesInsideFolderPage(lastPath,
+                                                                                 pathPrefixEnd,
+                                                                                 user.getAccountName(),
+                                                                                 includeApk,
+                                                                                 mimeTypePattern,
+                                                                                 SUBTREE_PAGE_SIZE);
+                    lastPage = entities.size() < SUBTREE_PAGE_SIZE;
+                    page = entities.iterator();
+                }
+                return page.hasNext();
             }
-            return result;
-        }
 
-        List<OCFile> filesInsideFolder = getFolderContent(file.getFileId(), false);
-        for (OCFile item: filesInsideFolder) {
-            if (!item.isFolder() && !item.isAPKorAAB()) {
-                result.add(item);
-            } else {
-                result.addAll(getAllFilesRecursivelyInsideFolder(item));
+            @Override
+            public OCFile next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                FileEntity entity = page.next();
+                lastPath = entity.getPath();
+                return createFileInstance(entity);
             }
-        }
-
-        return result;
+        };
     }
 
     public List<OCFile> getFolderContent(OCFile ocFile, boolean onlyOnDevice) {
@@ -477,12 +533,13 @@ public class FileDataStorageManager {
     public List<OCFile> getFolderImages(OCFile folder, boolean onlyOnDevice) {
         List<OCFile> imageList = new ArrayList<>();
 
-        if (folder != null) {
-            // TODO better implementation, filtering in the access to database instead of here
-            List<OCFile> folderContent = getFolderContent(folder, onlyOnDevice);
+        if (folder != null && folder.isFolder() && folder.fileExists()) {
+            List<FileEntity> files = fileDao.getFolderFilesByMimeTypePrefix(folder.getFileId(), IMAGE_MIME_TYPE_PREFIX);
 
-            for (OCFile ocFile : folderContent) {
-                if (MimeTypeUtil.isImage(ocFile)) {
+            for (FileEntity fileEntity : files) {
+                OCFile ocFile = createFileInstance(fileEntity);
+                // also checks the extension of files the server reported no specific mime type for
+                if (MimeTypeUtil.isImage(ocFile) && (!onlyOnDevice || ocFile.existsOnDevice())) {
                     imageList.add(ocFile);
                 }
             }
@@ -491,6 +548,88 @@ public class FileDataStorageManager {
         return imageList;
     }
 
+    /**
+     * Content of the folder, filtered and sorted by the database. Only for sorting by name the result is passed
+     * through {@link FileSortOrder#sortCloudFiles(List)} as well, for the natural order of numbers in names; the rows
+     * come pre-sorted case-insensitively, so that pass is close to linear.
+     *
+     * @param mimeTypePrefix if not empty, only folders and files whose mime type starts with it are returned
+     */
+    public List<OCFile> getSortedFolderContent(OCFile folder,
+                                               boolean onlyOnDevice,
+                                               FileSortOrder sortOrder,
+                                               @Nullable String mimeTypePrefix) {
+        List<OCFile> folderContent = new ArrayList<>();
+        if (folder == null || !folder.isFolder() || !folder.fileExists()) {
+            return folderContent;
+        }
+
+        long parentId = folder.getFileId();
+        String prefix = TextUtils.isEmpty(mimeTypePrefix) ? null : mimeTypePrefix;
+        boolean ascending = sortOrder.isAscending();
+        List<FileEntity> files = switch (sortOrder.getType()) {
+            case DATE -> ascending ? fileDao.getFolderContentByDateAscending(parentId, prefix) :
+                fileDao.getFolderContentByDateDescending(parentId, prefix);
+            case SIZE -> ascending ? fileDao.getFolderContentBySizeAscending(parentId, prefix) :
+                fileDao.getFolderContentBySizeDescending(parentId, prefix);
+            case ALPHABET -> ascending ? fileDao.getFolderContentByNameAscending(parentId, prefix) :
+                fileDao.getFolderContentByNameDescending(parentId, prefix);
+        };
+
+        for (FileEntity fileEntity : files) {
+            OCFile child = createFileInstance(fileEntity);
+            if (!onlyOnDevice || child.existsOnDevice()) {
+                folderContent.add(child);
+            }
+        }
+
+        if (sortOrder.getType() == FileSortOrder.SortType.ALPHABET) {
+            return sortOrder.sortCloudFiles(folderContent);
+        }
+
+        return folderContent;
+    }
+
+    /**
+     * Content of the folder as a {@link FolderContentWindow}: only a projection of the rows needed for filtering and
+     * sorting is read up front, full files are loaded page by page when the list gets accessed.
+     *
+     * @param mimeTypePrefix if not empty, only folders and files whose mime type starts with it are listed
+     */
+    public FolderContentWindow getFolderContentWindow(OCFile folder,
+                                                      FileSortOrder sortOrder,
+                                                      @Nullable String mimeTypePrefix,
+                                                      boolean showHiddenFiles) {
+        long parentId = folder.getFileId();
+        String prefix = TextUtils.isEmpty(mimeTypePrefix) ? null : mimeTypePrefix;
+        boolean ascending = sortOrder.isAscending();
+        List<FileListRow> rows = switch (sortOrder.getType()) {
+            case DATE -> ascending ? fileDao.getFolderContentRowsByDateAscending(parentId, prefix) :
+                fileDao.getFolderContentRowsByDateDescending(parentId, prefix);
+            case SIZE -> ascending ? fileDao.getFolderContentRowsBySizeAscending(parentId, prefix) :
+                fileDao.getFolderContentRowsBySizeDescending(parentId, prefix);
+            case ALPHABET -> ascending ? fileDao.getFolderContentRowsByNameAscending(parentId, prefix) :
+                fileDao.getFolderContentRowsByNameDescending(parentId, prefix);
+        };
+
+        return FolderContentWindow.create(folder,
+                                          rows,
+                                          sortOrder,
+                                          showHiddenFiles,
+                                          FileStorageUtils.getAppTempDirectoryPath(MainApp.getAppContext()),
+                                          ids -> {
+                                              List<OCFile> files = new ArrayList<>(ids.size());
+                                              for (FileEntity fileEntity : fileDao.getFilesByIds(ids)) {
+                                                  files.add(createFileInstance(fileEntity));
+                                              }
+                                              return files;
+                                          });
+    }
+
+    public int getFolderContentCount(OCFile folder) {
+        return fileDao.getFolderContentCount(folder.getFileId());
+    }
+
     public boolean saveFile(OCFile ocFile) {
         boolean overridden = false;
         final ContentValues cv = createContentValuesForFile(ocFile);
@@ -647,19 +786,37 @@ public class FileDataStorageManager {
             + " children and " + filesToRemove.size() + " files to remove");
 
         ArrayList<ContentProviderOperation> operations = new ArrayList<>(updatedFiles.size());
+        // file of each operation, to set the id of inserted rows afterwards
+        List<OCFile> operationFiles = new ArrayList<>(updatedFiles.size());
+
+        // stored rows are looked up once, instead of querying the database for every child
+        StoredRows storedRows = loadStoredRows(folder, updatedFiles);
+        int unchanged = 0;
+        // unchanged children whose sync date still has to be written, for most refreshes the same for all children
+        List<OCFile> syncDateOnly = new ArrayList<>();
+        boolean sameSyncDate = true;
+        long firstSyncDate = updatedFiles.isEmpty() ? 0 : updatedFiles.get(0).getLastSyncDateForProperties();
 
         // prepare operations to insert or update files to save in the given folder
         for (OCFile ocFile : updatedFiles) {
             ContentValues contentValues = createContentValuesForFile(ocFile);
             contentValues.put(ProviderTableMeta.FILE_PARENT, folder.getFileId());
-
-            if (fileExists(ocFile.getFileId()) || fileExists(ocFile.getRemotePath())) {
-                long fileId;
-                if (ocFile.getFileId() != -1) {
-                    fileId = ocFile.getFileId();
-                } else {
-                    fileId = getFileByPath(ocFile.getRemotePath()).getFileId();
+            sameSyncDate &= ocFile.getLastSyncDateForProperties() == firstSyncDate;
+
+            ContentValues storedRow = storedRows.find(ocFile);
+            if (storedRow != null) {
+                long fileId = storedRow.getAsLong(ProviderTableMeta._ID);
+                ocFile.setFileId(fileId);
+
+                if (isStoredRowUnchanged(storedRow, contentValues)) {
+                    unchanged++;
+                    if (!Objects.equals(storedRow.getAsLong(ProviderTableMeta.FILE_LAST_SYNC_DATE),
+                                        ocFile.getLastSyncDateForProperties())) {
+                        syncDateOnly.add(ocFile);
+                    }
+                    continue;
                 }
+
                 // updating an existing file
                 operations.add(ContentProviderOperation.newUpdate(ProviderTableMeta.CONTENT_URI)
                                    .withValues(contentValues)
@@ -671,8 +828,11 @@ public class FileDataStorageManager {
                                    .withValues(contentValues)
                                    .build());
             }
+            operationFiles.add(ocFile);
         }
 
+        Log_OC.d(TAG, "Skipping " + unchanged + " unchanged children of " + folder.getRemotePath());
+
         // prepare operations to remove files in the given folder
         String where = ProviderTableMeta.FILE_ACCOUNT_OWNER + AND + ProviderTableMeta.FILE_PATH + " = ?";
         String[] whereArgs = new String[2];
@@ -704,6 +864,8 @@ public class FileDataStorageManager {
             }
         }
 
+        addSyncDateOperations(folder, syncDateOnly, sameSyncDate, operations);
+
         // update metadata of folder
         ContentValues contentValues = createContentValuesForFolder(folder);
 
@@ -731,7 +893,7 @@ public class FileDataStorageManager {
         // update new id in file objects for insertions
         if (results != null) {
             long newId;
-            Iterator<OCFile> fileIterator = updatedFiles.iterator();
+            Iterator<OCFile> fileIterator = operationFiles.iterator();
             OCFile ocFile;
             for (ContentProviderResult result : results) {
                 if (fileIterator.hasNext()) {
@@ -749,6 +911,155 @@ public class FileDataStorageManager {
         }
     }
 
+    /**
+     * Stored rows of files about to be saved into a folder, by id and by remote path.
+     */
+    private static final class StoredRows {
+        private final Map<Long, ContentValues> byId = new HashMap<>();
+        private final Map<String, ContentValues> byPath = new HashMap<>();
+
+        void add(ContentValues row) {
+            byId.put(row.getAsLong(ProviderTableMeta._ID), row);
+            byPath.put(row.getAsString(ProviderTableMeta.FILE_PATH), row);
+        }
+
+        boolean contains(OCFile file) {
+            return byId.containsKey(file.getFileId()) || byPath.containsKey(file.getRemotePath());
+        }
+
+        @Nullable
+        ContentValues find(OCFile file) {
+            ContentValues row = byId.get(file.getFileId());
+            return row != null ? row : byPath.get(file.getRemotePath());
+        }
+    }
+
+    /**
+     * Loads the current children of the folder in one query. Files not found among them, e.g. moved in from
+     * another folder, are looked up by id or path in chunks.
+     */
+    private StoredRows loadStoredRows(OCFile folder, List<OCFile> files) {
+        StoredRows storedRows = new StoredRows();
+
+        try (Cursor cursor = queryFolderContentRows(folder.getFileId())) {
+            if (cursor != null) {
+                while (cursor.moveToNext()) {
+                    ContentValues row = new ContentValues();
+                    DatabaseUtils.cursorRowToContentValues(cursor, row);
+                    storedRows.add(row);
+                }
+            }
+        } catch (RemoteException e) {
+            Log_OC.e(TAG, "Could not load content of " + folder.getRemotePath(), e);
+        }
+
+        List<OCFile> unknownFiles = new ArrayList<>();
+        for (OCFile file : files) {
+            if (!storedRows.contains(file)) {
+                unknownFiles.add(file);
+            }
+        }
+
+        for (int start = 0; start < unknownFiles.size(); start += SAVE_FOLDER_LOOKUP_CHUNK_SIZE) {
+            List<OCFile> chunk = unknownFiles.subList(start,
+                                                      Math.min(start + SAVE_FOLDER_LOOKUP_CHUNK_SIZE,
+                                                               unknownFiles.size()));
+            List<Long> ids = new ArrayList<>(chunk.size());
+            List<String> paths = new ArrayList<>(chunk.size());
+            for (OCFile file : chunk) {
+                if (file.getFileId() != -1) {
+                    ids.add(file.getFileId());
+                }
+                paths.add(file.getRemotePath());
+            }
+
+            for (FileEntity entity : fileDao.getFilesByIdsOrEncryptedRemotePaths(ids, paths, user.getAccountName())) {
+                // these rows get updated in any case, id and path are enough to find them
+                ContentValues row = new ContentValues();
+                row.put(ProviderTableMeta._ID, entity.getId());
+                row.put(ProviderTableMeta.FILE_PATH, entity.getPath());
+                storedRows.add(row);
+            }
+        }
+
+        return storedRows;
+    }
+
+    @Nullable
+    private Cursor queryFolderContentRows(long folderId) throws RemoteException {
+        String selection = ProviderTableMeta.FILE_PARENT + " = ?";
+        String[] selectionArgs = new String[]{String.valueOf(folderId)};
+
+        if (getContentResolver() != null) {
+            return getContentResolver().query(ProviderTableMeta.CONTENT_URI, null, selection, selectionArgs, null);
+        } else {
+            return getContentProviderClient().query(ProviderTableMeta.CONTENT_URI, null, selection, selectionArgs, null);
+        }
+    }
+
+    /**
+     * Writes the sync date of unchanged children. If all saved children share one sync date, as on every folder
+     * refresh, it is set with a single update of the folder's children instead of one update per child.
+     */
+    private void addSyncDateOperations(OCFile folder,
+                                       List<OCFile> files,
+                                       boolean sameSyncDate,
+                                       List<ContentProviderOperation> operations) {
+        if (files.isEmpty()) {
+            return;
+        }
+
+        if (sameSyncDate) {
+            operations.add(ContentProviderOperation.newUpdate(ProviderTableMeta.CONTENT_URI)
+                               .withValue(ProviderTableMeta.FILE_LAST_SYNC_DATE,
+                                          files.get(0).getLastSyncDateForProperties())
+                               .withSelection(ProviderTableMeta.FILE_PARENT + AND +
+                                                  ProviderTableMeta.FILE_ACCOUNT_OWNER + " = ?",
+                                              new String[]{String.valueOf(folder.getFileId()), user.getAccountName()})
+                               .build());
+            return;
+        }
+
+        for (OCFile file : files) {
+            operations.add(ContentProviderOperation.newUpdate(ProviderTableMeta.CONTENT_URI)
+                               .withValue(ProviderTableMeta.FILE_LAST_SYNC_DATE, file.getLastSyncDateForProperties())
+                               .withSelection(ProviderTableMeta._ID + " = ?",
+                                              new String[]{String.valueOf(file.getFileId())})
+                               .build());
+        }
+    }
+
+    /**
+     * True if writing the values would not change the stored row, i.e. etag and all other metadata are the same.
+     * The sync date of the properties is left out, it changes on every refresh and is written separately.
+     */
+    private static boolean isStoredRowUnchanged(ContentValues storedRow, ContentValues values) {
+        if (!storedRow.containsKey(ProviderTableMeta.FILE_ETAG)) {
+            return false;
+        }
+
+        for (String column : values.keySet()) {
+            if (ProviderTableMeta.FILE_LAST_SYNC_DATE.equals(column)) {
+                continue;
+            }
+            Object value = values.get(column);
+            String expected;
+            if (value == null) {
+                expected = null;
+            } else if (value instanceof Boolean) {
+                expected = (Boolean) value ? "1" : "0";
+            } else {
+                expected = String.valueOf(value);
+            }
+
+            if (!Objects.equals(expected, storedRow.getAsString(column))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     /**
      * Returns a {@link ContentValues} filled with values that are common to both files and folders
      *
@@ -2563,6 +2874,104 @@ public class FileDataStorageManager {
         return files;
     }
 
+    /**
+     * Applies the result of a gallery search: saves new and changed files and removes files that are gone from the
+     * server. Rows are written in transactions of at most {@link #GALLERY_BATCH_SIZE} files with one change
+     * notification each, instead of one provider call, transaction and notification per file.
+     *
+     * @param filesToSave   files to insert, or to update if a file with the same remote path is stored
+     * @param filesToRemove stored files to remove together with their local copies
+     */
+    public void saveGalleryItems(List<OCFile> filesToSave, Collection<OCFile> filesToRemove) {
+        SupportSQLiteDatabase database = NextcloudDatabase.getInstance(MainApp.getAppContext())
+            .getOpenHelper()
+            .getWritableDatabase();
+
+        for (int start = 0; start < filesToSave.size(); start += GALLERY_BATCH_SIZE) {
+            List<OCFile> batch = filesToSave.subList(start, Math.min(start + GALLERY_BATCH_SIZE, filesToSave.size()));
+            Map<String, Long> storedIds = getStoredIdsByPath(batch);
+
+            database.beginTransaction();
+            try {
+                for (OCFile file : batch) {
+                    ContentValues cv = createContentValuesForFile(file);
+                    Long storedId = storedIds.get(file.getRemotePath());
+                    if (storedId != null) {
+                        file.setFileId(storedId);
+                        database.update(ProviderTableMeta.FILE_TABLE_NAME,
+                                        SQLiteDatabase.CONFLICT_REPLACE,
+                                        cv,
+                                        ProviderTableMeta._ID + " = ?",
+                                        new String[]{String.valueOf(storedId)});
+                    } else {
+                        file.setFileId(database.insert(ProviderTableMeta.FILE_TABLE_NAME,
+                                                       SQLiteDatabase.CONFLICT_REPLACE,
+                                                       cv));
+                    }
+                }
+                database.setTransactionSuccessful();
+            } finally {
+                database.endTransaction();
+            }
+            notifyFilesChanged();
+        }
+
+        List<OCFile> removals = new ArrayList<>(filesToRemove);
+        String where = ProviderTableMeta._ID + " = ? AND " + ProviderTableMeta.FILE_ACCOUNT_OWNER + AND +
+            ProviderTableMeta.FILE_PATH + " = ?";
+        for (int start = 0; start < removals.size(); start += GALLERY_BATCH_SIZE) {
+            List<OCFile> batch = removals.subList(start, Math.min(start + GALLERY_BATCH_SIZE, removals.size()));
+            List<OCFile> removed = new ArrayList<>(batch.size());
+
+            database.beginTransaction();
+            try {
+                for (OCFile file : batch) {
+                    String[] whereArgs = new String[]{
+                        String.valueOf(file.getFileId()),
+                        user.getAccountName(),
+                        file.getRemotePath()
+                    };
+                    if (database.delete(ProviderTableMeta.FILE_TABLE_NAME, where, whereArgs) > 0) {
+                        removed.add(file);
+                    }
+                }
+                database.setTransactionSuccessful();
+            } finally {
+                database.endTransaction();
+            }
+            notifyFilesChanged();
+
+            for (OCFile file : removed) {
+                String localPath = file.getStoragePath();
+                if (file.isDown() && localPath != null && new File(localPath).delete()) {
+                    deleteFileInMediaScan(localPath);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return ids of the stored files with the remote paths of the given files, by remote path
+     */
+    private Map<String, Long> getStoredIdsByPath(List<OCFile> files) {
+        List<String> paths = new ArrayList<>(files.size());
+        for (OCFile file : files) {
+            paths.add(file.getRemotePath());
+        }
+
+        Map<String, Long> storedIds = new HashMap<>(files.size());
+        for (FileEntity entity : fileDao.getFilesByIdsOrEncryptedRemotePaths(Collections.emptyList(),
+                                                                             paths,
+                                                                             user.getAccountName())) {
+            storedIds.put(entity.getPath(), entity.getId());
+        }
+        return storedIds;
+    }
+
+    private void notifyFilesChanged() {
+        MainApp.getAppContext().getContentResolver().notifyChange(ProviderTableMeta.CONTENT_URI, null);
+    }
+
     public List<OCFile> getVirtualFolderContent(VirtualFolderType type, boolean onlyImages) {
         List<OCFile> ocFiles = new ArrayList<>();
         Uri req_uri = ProviderTableMeta.CONTENT_URI_VIRTUAL;
@@ -2699,6 +3108,67 @@ public class FileDataStorageManager {
         FileStorageUtils.deleteRecursively(saveDir, storageManager);
     }
 
+    /**
+     * Files of the user whose name contains the query. Names with words starting with the words of the query are
+     * served by the name index in the database; only if the index finds none, or the query has no word it can
+     * match, the names are scanned for the query anywhere in them, e.g. "0101" in "IMG20230101.jpg". Names equal to
+     * the query come first, then names starting with it, then shorter names.
+     *
+     * @param limit maximum number of files returned
+     */
+    public List<OCFile> searchFilesByName(String query, int limit) {
+        String name = query.trim();
+        if (name.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        String match = FileNameSearchEntity.matchExpression(name);
+        List<FileEntity> fileEntities = new ArrayList<>();
+        if (match != null) {
+            fileEntities = fileDao.searchFilesByName(match, name, user.getAccountName(), limit);
+        }
+        if (fileEntities.isEmpty()) {
+            // a full scan of the names, only worth it if the index has nothing to offer
+            fileEntities = fileDao.searchFilesByNameSubstring(name, user.getAccountName(), limit);
+        }
+
+        List<OCFile> files = new ArrayList<>(fileEntities.size());
+        for (FileEntity fileEntity : fileEntities) {
+            files.add(createFileInstance(fileEntity));
+        }
+        return files;
+    }
+
+    /**
+     * Bytes of the downloaded files below a folder, read from a ledger the database updates on every download,
+     * upload, move and removal. The ledger of a folder is created on its first query and recomputed from the file
+     * table at most once per {@link #LOCAL_USAGE_RECONCILE_INTERVAL}.
+     */
+    public long getLocalUsage(OCFile folder) {
+        String pathPrefix = folder.getRemotePath().endsWith(OCFile.PATH_SEPARATOR) ?
+            folder.getRemotePath() : folder.getRemotePath() + OCFile.PATH_SEPARATOR;
+        long now = System.currentTimeMillis();
+
+        LocalUsageEntity usage = localUsageDao.get(user.getAccountName(), pathPrefix);
+        if (usage == null || now - usage.getReconciled() > LOCAL_USAGE_RECONCILE_INTERVAL) {
+            String pathPrefixEnd = pathPrefix.substring(0, pathPrefix.length() - 1) + '0';
+            usage = localUsageDao.reconcile(user.getAccountName(), pathPrefix, pathPrefixEnd, now);
+        }
+        return usage.getBytes();
+    }
+
+    /**
+     * Drops the usage ledgers of all folders but the given ones, each ledger costs a little on every file change.
+     */
+    public void retainLocalUsage(List<OCFile> folders) {
+        List<String> paths = new ArrayList<>(folders.size());
+        for (OCFile folder : folders) {
+            String path = folder.getRemotePath();
+            paths.add(path.endsWith(OCFile.PATH_SEPARATOR) ? path : path + OCFile.PATH_SEPARATOR);
+        }
+        localUsageDao.deleteAllExcept(user.getAccountName(), paths);
+    }
+
     public List<OCFile> getAllFiles() {
         // TODO - Apparently this method is used only by tests
         List<FileEntity> fileEntities = fileDao.getAllFiles(user.getAccountName());
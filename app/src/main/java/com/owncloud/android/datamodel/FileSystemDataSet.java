@@ -25,6 +25,10 @@ public class FileSystemDataSet {
     private long foundAt;
     private long syncedFolderId;
     @Nullable private String crc32;
+    @Nullable private Long fileSize;
+    @Nullable private Long inode;
+    @Nullable private Integer hashStrategy;
+    @Nullable private String fullCrc32;
 
     public FileSystemDataSet(int id, String localPath, long modifiedAt, boolean folder, boolean sentForUpload, long foundAt, long syncedFolderId, String crc32) {
         this.id = id;
@@ -74,6 +78,32 @@ public class FileSystemDataSet {
         return this.crc32;
     }
 
+    @Nullable
+    public Long getFileSize() {
+        return this.fileSize;
+    }
+
+    @Nullable
+    public Long getInode() {
+        return this.inode;
+    }
+
+    /**
+     * @return one of the FileChangeDetector.HASH_STRATEGY_* values, null for rows indexed with a full CRC32
+     */
+    @Nullable
+    public Integer getHashStrategy() {
+        return this.hashStrategy;
+    }
+
+    /**
+     * @return CRC32 of the whole file for rows indexed with a sampled CRC32, null if it is not known
+     */
+    @Nullable
+    public String getFullCrc32() {
+        return this.fullCrc32;
+    }
+
     public void setId(int id) {
         this.id = id;
     }
@@ -105,4 +135,20 @@ public class FileSystemDataSet {
     public void setCrc32(@Nullable String crc32) {
         this.crc32 = crc32;
     }
+
+    public void setFileSize(@Nullable Long fileSize) {
+        this.fileSize = fileSize;
+    }
+
+    public void setInode(@Nullable Long inode) {
+        this.inode = inode;
+    }
+
+    public void setHashStrategy(@Nullable Integer hashStrategy) {
+        this.hashStrategy = hashStrategy;
+    }
+
+    public void setFullCrc32(@Nullable String fullCrc32) {
+        this.fullCrc32 = fullCrc32;
+    }
 }
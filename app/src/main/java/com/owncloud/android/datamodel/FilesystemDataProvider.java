@@ -7,23 +7,27 @@
  */
 package com.owncloud.android.datamodel;
 
+import android.content.ContentProviderOperation;
 import android.content.ContentResolver;
 import android.content.ContentValues;
+import android.content.OperationApplicationException;
 import android.database.Cursor;
 import android.net.Uri;
+import android.os.RemoteException;
 
+import com.owncloud.android.MainApp;
 import com.owncloud.android.db.ProviderMeta;
 import com.owncloud.android.lib.common.utils.Log_OC;
 import com.owncloud.android.utils.SyncedFolderUtils;
 
-import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
-import java.util.zip.CRC32;
+
+import androidx.annotation.Nullable;
 
 /**
  * Provider for stored filesystem data.
@@ -32,7 +36,13 @@ public class FilesystemDataProvider {
 
     static private final String TAG = FilesystemDataProvider.class.getSimpleName();
 
+    /**
+     * Number of rows written per transaction by {@link BulkIndexer}.
+     */
+    private static final int BULK_INDEX_CHUNK_SIZE = 500;
+
     private ContentResolver contentResolver;
+    private final FileChangeDetector changeDetector = new FileChangeDetector();
 
     public FilesystemDataProvider(ContentResolver contentResolver) {
         if (contentResolver == null) {
@@ -66,43 +76,19 @@ public class FilesystemDataProvider {
 
         // takes multiple milliseconds to query data from database (around 75% of execution time) (6ms)
         FileSystemDataSet data = getFilesystemDataSet(localPath, syncedFolder);
-
-        int isFolderValue = 0;
-        if (isFolder) {
-            isFolderValue = 1;
+        if (isUnchanged(data, modifiedAt)) {
+            return;
         }
 
-        ContentValues cv = new ContentValues();
-        cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_FOUND_RECENTLY, System.currentTimeMillis());
-        cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_MODIFIED, modifiedAt);
+        ContentValues cv = getContentValues(localPath, modifiedAt, isFolder, syncedFolder, data);
 
         if (data == null) {
-
-            cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_LOCAL_PATH, localPath);
-            cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_IS_FOLDER, isFolderValue);
-            cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_SENT_FOR_UPLOAD, Boolean.FALSE);
-            cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_SYNCED_FOLDER_ID, syncedFolder.getId());
-
-            long newCrc32 = getFileChecksum(localPath);
-            if (newCrc32 != -1) {
-                cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_CRC32, Long.toString(newCrc32));
-            }
-
             Uri result = contentResolver.insert(ProviderMeta.ProviderTableMeta.CONTENT_URI_FILESYSTEM, cv);
 
             if (result == null) {
                 Log_OC.v(TAG, "Failed to insert filesystem data with local path: " + localPath);
             }
         } else {
-
-            if (data.getModifiedAt() != modifiedAt) {
-                long newCrc32 = getFileChecksum(localPath);
-                if (data.getCrc32() == null || (newCrc32 != -1 && !data.getCrc32().equals(Long.toString(newCrc32)))) {
-                    cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_CRC32, Long.toString(newCrc32));
-                    cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_SENT_FOR_UPLOAD, 0);
-                }
-            }
-
             // updating data takes multiple milliseconds (around 25% of exec time) (2 ms)
             int result = contentResolver.update(
                 ProviderMeta.ProviderTableMeta.CONTENT_URI_FILESYSTEM,
@@ -117,6 +103,65 @@ public class FilesystemDataProvider {
         }
     }
 
+    /**
+     * Starts indexing many files of one synced folder at once. All existing rows of the folder are loaded once,
+     * changes are written in chunks of {@link #BULK_INDEX_CHUNK_SIZE} rows, each chunk in a single transaction.
+     * <p>
+     * {@link BulkIndexer#finish()} has to be called to write the last chunk.
+     */
+    public BulkIndexer startBulkIndexing(SyncedFolder syncedFolder) {
+        return new BulkIndexer(syncedFolder, getFilesystemDataSets(syncedFolder));
+    }
+
+    /**
+     * Rows of files whose modification time did not change are not written at all, found_at then stays the time
+     * the row was last written.
+     */
+    private static boolean isUnchanged(@Nullable FileSystemDataSet data, long modifiedAt) {
+        return data != null && data.getModifiedAt() == modifiedAt;
+    }
+
+    private ContentValues getContentValues(String localPath,
+                                           long modifiedAt,
+                                           boolean isFolder,
+                                           SyncedFolder syncedFolder,
+                                           FileSystemDataSet data) {
+        ContentValues cv = new ContentValues();
+        cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_FOUND_RECENTLY, System.currentTimeMillis());
+        cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_MODIFIED, modifiedAt);
+
+        if (data == null) {
+            cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_LOCAL_PATH, localPath);
+            cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_IS_FOLDER, isFolder ? 1 : 0);
+            cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_SENT_FOR_UPLOAD, Boolean.FALSE);
+            cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_SYNCED_FOLDER_ID, syncedFolder.getId());
+
+            FileChangeDetector.Fingerprint fingerprint = changeDetector.initialFingerprint(new File(localPath));
+            if (fingerprint != null) {
+                putFingerprint(cv, fingerprint);
+            }
+        } else {
+            // size and inode first, then sampled CRC32; full CRC32 only if all of them match
+            FileChangeDetector.Result result = changeDetector.detect(new File(localPath), data);
+            if (result != null) {
+                putFingerprint(cv, result.getFingerprint());
+                if (result.isChanged()) {
+                    cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_SENT_FOR_UPLOAD, 0);
+                }
+            }
+        }
+
+        return cv;
+    }
+
+    private void putFingerprint(ContentValues cv, FileChangeDetector.Fingerprint fingerprint) {
+        cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_CRC32, fingerprint.getHash());
+        cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_HASH_STRATEGY, fingerprint.getStrategy());
+        cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_SIZE, fingerprint.getSize());
+        cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_INODE, fingerprint.getInode());
+        cv.put(ProviderMeta.ProviderTableMeta.FILESYSTEM_FULL_CRC32, fingerprint.getFullHash());
+    }
+
     public Set<String> getFilesForUpload(String localPath, String syncedFolderId) {
         Set<String> localPathsToUpload = new HashSet<>();
 
@@ -160,50 +205,34 @@ public class FilesystemDataProvider {
         return localPathsToUpload;
     }
 
-    private FileSystemDataSet getFilesystemDataSet(String localPathParam, SyncedFolder syncedFolder) {
-        String[] projection = {
-            ProviderMeta.ProviderTableMeta._ID,
-            ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_LOCAL_PATH,
-            ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_MODIFIED,
-            ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_IS_FOLDER,
-            ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_FOUND_RECENTLY,
-            ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_SENT_FOR_UPLOAD,
-            ProviderMeta.ProviderTableMeta.FILESYSTEM_CRC32
-        };
+    private static final String[] FILESYSTEM_DATA_SET_PROJECTION = {
+        ProviderMeta.ProviderTableMeta._ID,
+        ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_LOCAL_PATH,
+        ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_MODIFIED,
+        ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_IS_FOLDER,
+        ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_FOUND_RECENTLY,
+        ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_SENT_FOR_UPLOAD,
+        ProviderMeta.ProviderTableMeta.FILESYSTEM_CRC32,
+        ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_SIZE,
+        ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_INODE,
+        ProviderMeta.ProviderTableMeta.FILESYSTEM_HASH_STRATEGY,
+        ProviderMeta.ProviderTableMeta.FILESYSTEM_FULL_CRC32
+    };
 
+    private FileSystemDataSet getFilesystemDataSet(String localPathParam, SyncedFolder syncedFolder) {
         String selection = ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_LOCAL_PATH + " = ? AND " +
             ProviderMeta.ProviderTableMeta.FILESYSTEM_SYNCED_FOLDER_ID + " = ?";
         String[] selectionArgs = { localPathParam, String.valueOf(syncedFolder.getId()) };
 
         try (Cursor cursor = contentResolver.query(
             ProviderMeta.ProviderTableMeta.CONTENT_URI_FILESYSTEM,
-            projection,
+            FILESYSTEM_DATA_SET_PROJECTION,
             selection,
             selectionArgs,
             null
                                                   )) {
             if (cursor != null && cursor.moveToFirst()) {
-                int id = cursor.getInt(cursor.getColumnIndexOrThrow(ProviderMeta.ProviderTableMeta._ID));
-                if (id == -1) {
-                    Log_OC.e(TAG, "Arbitrary value could not be created from cursor");
-                    return null;
-                }
-
-                String localPath = cursor.getString(cursor.getColumnIndexOrThrow(
-                    ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_LOCAL_PATH));
-                long modifiedAt = cursor.getLong(cursor.getColumnIndexOrThrow(
-                    ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_MODIFIED));
-                boolean isFolder = cursor.getInt(cursor.getColumnIndexOrThrow(
-                    ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_IS_FOLDER)) != 0;
-                long foundAt = cursor.getLong(cursor.getColumnIndexOrThrow(
-                    ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_FOUND_RECENTLY));
-                boolean isSentForUpload = cursor.getInt(cursor.getColumnIndexOrThrow(
-                    ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_SENT_FOR_UPLOAD)) != 0;
-                String crc32 = cursor.getString(cursor.getColumnIndexOrThrow(
-                    ProviderMeta.ProviderTableMeta.FILESYSTEM_CRC32));
-
-                return new FileSystemDataSet(id, localPath, modifiedAt, isFolder, isSentForUpload, foundAt,
-                                             syncedFolder.getId(), crc32);
+                return createFilesystemDataSet(cursor, syncedFolder);
             }
         } catch (Exception e) {
             Log_OC.e(TAG, "DB error restoring arbitrary values.", e);
@@ -212,21 +241,145 @@ public class FilesystemDataProvider {
         return null;
     }
 
-    private long getFileChecksum(String filepath) {
+    /**
+     * Loads all rows of the given synced folder with one query, keyed by local path.
+     */
+    private Map<String, FileSystemDataSet> getFilesystemDataSets(SyncedFolder syncedFolder) {
+        Map<String, FileSystemDataSet> dataSets = new HashMap<>();
+
+        try (Cursor cursor = contentResolver.query(
+            ProviderMeta.ProviderTableMeta.CONTENT_URI_FILESYSTEM,
+            FILESYSTEM_DATA_SET_PROJECTION,
+            ProviderMeta.ProviderTableMeta.FILESYSTEM_SYNCED_FOLDER_ID + " = ?",
+            new String[]{String.valueOf(syncedFolder.getId())},
+            null
+                                                  )) {
+            if (cursor != null && cursor.moveToFirst()) {
+                do {
+                    FileSystemDataSet data = createFilesystemDataSet(cursor, syncedFolder);
+                    if (data != null && data.getLocalPath() != null) {
+                        dataSets.put(data.getLocalPath(), data);
+                    }
+                } while (cursor.moveToNext());
+            }
+        } catch (Exception e) {
+            Log_OC.e(TAG, "DB error loading filesystem data of synced folder " + syncedFolder.getId(), e);
+        }
+
+        return dataSets;
+    }
+
+    private FileSystemDataSet createFilesystemDataSet(Cursor cursor, SyncedFolder syncedFolder) {
+        int id = cursor.getInt(cursor.getColumnIndexOrThrow(ProviderMeta.ProviderTableMeta._ID));
+        if (id == -1) {
+            Log_OC.e(TAG, "Arbitrary value could not be created from cursor");
+            return null;
+        }
+
+        String localPath = cursor.getString(cursor.getColumnIndexOrThrow(
+            ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_LOCAL_PATH));
+        long modifiedAt = cursor.getLong(cursor.getColumnIndexOrThrow(
+            ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_MODIFIED));
+        boolean isFolder = cursor.getInt(cursor.getColumnIndexOrThrow(
+            ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_IS_FOLDER)) != 0;
+        long foundAt = cursor.getLong(cursor.getColumnIndexOrThrow(
+            ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_FOUND_RECENTLY));
+        boolean isSentForUpload = cursor.getInt(cursor.getColumnIndexOrThrow(
+            ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_SENT_FOR_UPLOAD)) != 0;
+        String crc32 = cursor.getString(cursor.getColumnIndexOrThrow(
+            ProviderMeta.ProviderTableMeta.FILESYSTEM_CRC32));
+
+        FileSystemDataSet data = new FileSystemDataSet(id, localPath, modifiedAt, isFolder, isSentForUpload, foundAt,
+                                                       syncedFolder.getId(), crc32);
+        data.setFileSize(getNullableLong(cursor, ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_SIZE));
+        data.setInode(getNullableLong(cursor, ProviderMeta.ProviderTableMeta.FILESYSTEM_FILE_INODE));
+        Long hashStrategy = getNullableLong(cursor, ProviderMeta.ProviderTableMeta.FILESYSTEM_HASH_STRATEGY);
+        data.setHashStrategy(hashStrategy == null ? null : hashStrategy.intValue());
+        data.setFullCrc32(cursor.getString(cursor.getColumnIndexOrThrow(
+            ProviderMeta.ProviderTableMeta.FILESYSTEM_FULL_CRC32)));
+
+        return data;
+    }
+
+    private Long getNullableLong(Cursor cursor, String column) {
+        int index = cursor.getColumnIndexOrThrow(column);
+        return cursor.isNull(index) ? null : cursor.getLong(index);
+    }
+
+    /**
+     * Indexes the files of one synced folder against rows preloaded by {@link #startBulkIndexing(SyncedFolder)}.
+     * Not thread safe, meant to be fed from a single file walk.
+     */
+    public class BulkIndexer {
+        private final SyncedFolder syncedFolder;
+        private final Map<String, FileSystemDataSet> existingData;
+        private final Set<String> insertedPaths = new HashSet<>();
+        private final ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+        private int writtenRows = 0;
+
+        private BulkIndexer(SyncedFolder syncedFolder, Map<String, FileSystemDataSet> existingData) {
+            this.syncedFolder = syncedFolder;
+            this.existingData = existingData;
+        }
+
+        /**
+         * Same as {@link FilesystemDataProvider#storeOrUpdateFileValue(String, long, boolean, SyncedFolder)},
+         * but the write is queued and flushed together with other rows.
+         */
+        public void storeOrUpdateFileValue(String localPath, long modifiedAt, boolean isFolder) {
+            if (insertedPaths.contains(localPath)) {
+                return;
+            }
+
+            FileSystemDataSet data = existingData.get(localPath);
+            if (isUnchanged(data, modifiedAt)) {
+                return;
+            }
+
+            ContentValues cv = getContentValues(localPath, modifiedAt, isFolder, syncedFolder, data);
+
+            if (data == null) {
+                insertedPaths.add(localPath);
+                operations.add(ContentProviderOperation
+                                   .newInsert(ProviderMeta.ProviderTableMeta.CONTENT_URI_FILESYSTEM)
+                                   .withValues(cv)
+                                   .build());
+            } else {
+                operations.add(ContentProviderOperation
+                                   .newUpdate(ProviderMeta.ProviderTableMeta.CONTENT_URI_FILESYSTEM)
+                                   .withValues(cv)
+                                   .withSelection(ProviderMeta.ProviderTableMeta._ID + "=?",
+                                                  new String[]{String.valueOf(data.getId())})
+                                   .build());
+            }
 
-        try (FileInputStream fileInputStream = new FileInputStream(filepath);
-            InputStream inputStream = new BufferedInputStream(fileInputStream)) {
-            CRC32 crc = new CRC32();
-            byte[] buf = new byte[1024 * 64];
-            int size;
-            while ((size = inputStream.read(buf)) > 0) {
-                crc.update(buf, 0, size);
+            if (operations.size() >= BULK_INDEX_CHUNK_SIZE) {
+                flush();
             }
+        }
 
-            return crc.getValue();
+        /**
+         * Writes pending rows.
+         *
+         * @return number of rows written by this indexer in total
+         */
+        public int finish() {
+            flush();
+            return writtenRows;
+        }
 
-        } catch (IOException e) {
-            return -1;
+        private void flush() {
+            if (operations.isEmpty()) {
+                return;
+            }
+
+            try {
+                contentResolver.applyBatch(MainApp.getAuthority(), operations);
+                writtenRows += operations.size();
+            } catch (OperationApplicationException | RemoteException e) {
+                Log_OC.e(TAG, "Failed to write filesystem data of synced folder " + syncedFolder.getId(), e);
+            }
+            operations.clear();
         }
     }
 }
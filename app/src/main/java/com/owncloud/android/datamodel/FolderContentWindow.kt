@@ -0,0 +1,215 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.owncloud.android.datamodel
+
+import com.nextcloud.client.database.entity.FileListRow
+import com.owncloud.android.utils.FileSortOrder
+import com.owncloud.android.utils.MimeType
+import com.owncloud.android.utils.MimeTypeUtil
+import third_parties.daveKoeller.AlphanumComparator
+import java.util.AbstractList
+import java.util.RandomAccess
+
+/**
+ * Content of a big folder as a list which holds only a lightweight [FileListRow] per child. Full files are loaded by
+ * id in pages of [PAGE_SIZE] when accessed, and the last [MAX_CACHED_PAGES] pages stay cached, so only the part of the
+ * list scrolled into view plus a margin is materialized.
+ *
+ * Lookups needed without materializing files (position of a file, its id, name, date and size at a position, footer
+ * counts, hidden file names) are answered from the rows and an id to position index.
+ *
+ * Files replaced by [set] are kept, the list size is fixed.
+ */
+class FolderContentWindow private constructor(
+    private val folder: OCFile,
+    private val rows: List<FileListRow>,
+    private val livePhotoVideoIds: Map<Long, Long>,
+    private val loader: Loader
+) : AbstractList<OCFile>(),
+    RandomAccess {
+
+    fun interface Loader {
+        fun load(ids: List<Long>): List<OCFile>
+    }
+
+    companion object {
+        const val PAGE_SIZE = 100
+        private const val MAX_CACHED_PAGES = 5
+        private const val LOCAL_ID_LENGTH = 8
+
+        /**
+         * Applies the filters of the regular folder listing to [rows], which must come sorted by the database for
+         * [sortOrder]: hidden files unless [showHiddenFiles], temporary files stored below [tempDirectoryPath],
+         * duplicated names and videos of live photos, which are attached to their image instead.
+         */
+        @JvmStatic
+        fun create(
+            folder: OCFile,
+            rows: List<FileListRow>,
+            sortOrder: FileSortOrder,
+            showHiddenFiles: Boolean,
+            tempDirectoryPath: String,
+            loader: Loader
+        ): FolderContentWindow {
+            val sortedRows = if (sortOrder.getType() == FileSortOrder.SortType.ALPHABET) {
+                // natural order of numbers in names, which SQLite cannot collate
+                rows.sortedWith(
+                    compareByDescending<FileListRow> { it.isFavorite() }
+                        .thenByDescending { it.isFolder() }
+                        .thenComparator { a, b ->
+                            sortOrder.sortMultiplier * AlphanumComparator.compare(a.name.orEmpty(), b.name.orEmpty())
+                        }
+                )
+            } else {
+                rows
+            }
+
+            val filteredRows = sortedRows
+                .filterNot { !showHiddenFiles && it.name?.startsWith(".") == true }
+                .filterNot { it.storagePath?.startsWith(tempDirectoryPath) == true }
+                .distinctBy { it.name }
+
+            val livePhotoVideoIds = HashMap<Long, Long>()
+            val visibleRows = mergeLivePhotos(filteredRows, livePhotoVideoIds)
+
+            return FolderContentWindow(folder, visibleRows, livePhotoVideoIds, loader)
+        }
+
+        /**
+         * Same pairing as the regular listing: a row whose linked live photo id is the local id of an earlier row
+         * gets that row attached if it is a video, or is attached to it if itself is the video.
+         */
+        private fun mergeLivePhotos(rows: List<FileListRow>, videoIds: MutableMap<Long, Long>): List<FileListRow> {
+            val linkedRows = HashMap<String, MutableList<Int>>()
+            rows.forEachIndexed { index, row ->
+                row.livePhoto?.let { linkedRows.getOrPut(it) { ArrayList() }.add(index) }
+            }
+            if (linkedRows.isEmpty()) {
+                return rows
+            }
+
+            val removed = BooleanArray(rows.size)
+            rows.forEachIndexed { index, row ->
+                linkedRows[row.localIdOrFallback().toString()]?.filter { it > index }?.forEach { nextIndex ->
+                    val nextRow = rows[nextIndex]
+                    if (MimeTypeUtil.isVideo(row.contentType)) {
+                        videoIds[nextRow.id] = row.id
+                        removed[index] = true
+                    } else if (MimeTypeUtil.isVideo(nextRow.contentType)) {
+                        videoIds[row.id] = nextRow.id
+                        removed[nextIndex] = true
+                    }
+                }
+            }
+
+            return rows.filterIndexed { index, _ -> !removed[index] }
+        }
+
+        private fun FileListRow.isFavorite(): Boolean = favorite == 1
+
+        private fun FileListRow.isFolder(): Boolean = contentType == MimeType.DIRECTORY || contentType == MimeType.WEBDAV_FOLDER
+
+        private fun FileListRow.localIdOrFallback(): Long = when {
+            localId > 0 -> localId
+            remoteId != null && remoteId.length > LOCAL_ID_LENGTH ->
+                remoteId.substring(0, LOCAL_ID_LENGTH).trimStart('0').toLongOrNull() ?: -1
+            else -> -1
+        }
+    }
+
+    private val positions = HashMap<Long, Int>(rows.size * 2).apply {
+        rows.forEachIndexed { index, row -> put(row.id, index) }
+    }
+
+    private val replaced = HashMap<Long, OCFile>()
+
+    private val pages = object : LinkedHashMap<Int, Array<OCFile>>(MAX_CACHED_PAGES + 1, 1f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<Int, Array<OCFile>>?): Boolean =
+            size > MAX_CACHED_PAGES
+    }
+
+    private var loadedPages = 0
+
+    val foldersCount: Int = rows.count { it.isFolder() }
+
+    val filesCount: Int
+        get() = rows.size - foldersCount
+
+    /**
+     * Names of the files flagged hidden by the server.
+     */
+    val hiddenFileNames: List<String>
+        get() = rows.filter { it.hidden == 1 }.mapNotNull { it.name }
+
+    override val size: Int
+        get() = rows.size
+
+    @Synchronized
+    override fun get(index: Int): OCFile {
+        val pageIndex = index / PAGE_SIZE
+        val page = pages[pageIndex] ?: loadPage(pageIndex).also { pages[pageIndex] = it }
+        return page[index % PAGE_SIZE]
+    }
+
+    @Synchronized
+    override fun set(index: Int, element: OCFile): OCFile {
+        val previous = get(index)
+        replaced[rows[index].id] = element
+        pages[index / PAGE_SIZE]?.set(index % PAGE_SIZE, element)
+        return previous
+    }
+
+    private fun loadPage(pageIndex: Int): Array<OCFile> {
+        val pageRows = rows.subList(pageIndex * PAGE_SIZE, minOf((pageIndex + 1) * PAGE_SIZE, rows.size))
+        val ids = pageRows.map { it.id } + pageRows.mapNotNull { livePhotoVideoIds[it.id] }
+        val files = loader.load(ids).associateBy { it.fileId }
+        loadedPages++
+
+        return Array(pageRows.size) { i ->
+            val row = pageRows[i]
+            val file = replaced[row.id] ?: files[row.id] ?: placeholderOf(row)
+            livePhotoVideoIds[row.id]?.let { files[it] }?.let { file.livePhotoVideo = it }
+            file
+        }
+    }
+
+    /**
+     * Row deleted since the listing was read, shown as it was listed until the folder gets refreshed.
+     */
+    private fun placeholderOf(row: FileListRow): OCFile {
+        val name = row.name.orEmpty() + if (row.isFolder()) OCFile.PATH_SEPARATOR else ""
+        return OCFile(folder.remotePath + name).apply {
+            decryptedRemotePath = folder.decryptedRemotePath + name
+            fileId = row.id
+            parentId = folder.fileId
+            mimeType = row.contentType
+            modificationTimestamp = row.modified ?: 0
+            fileLength = row.contentLength ?: 0
+        }
+    }
+
+    override fun indexOf(element: OCFile): Int {
+        if (element.parentId != folder.fileId) {
+            return -1
+        }
+        return positions[element.fileId] ?: -1
+    }
+
+    override fun lastIndexOf(element: OCFile): Int = indexOf(element)
+
+    override fun contains(element: OCFile): Boolean = indexOf(element) >= 0
+
+    fun getFileId(index: Int): Long = rows[index].id
+
+    fun getFileName(index: Int): String = rows[index].name.orEmpty()
+
+    fun getModificationTimestamp(index: Int): Long = rows[index].modified ?: 0
+
+    fun getFileLength(index: Int): Long = rows[index].contentLength ?: 0
+
+    fun getStatistics(): String = "rows=${rows.size}, loaded pages=$loadedPages, cached pages=${pages.size}"
+}
@@ -0,0 +1,212 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.owncloud.android.datamodel
+
+import androidx.recyclerview.widget.ListUpdateCallback
+import java.util.Calendar
+
+/**
+ * Gallery files grouped by month, newest month first, every month split into rows of [columns] files.
+ *
+ * [update] compares the new files month by month and only sorts and splits months whose files changed. Changes are
+ * reported as positions of a list with one header per month followed by its rows, so the gallery can animate them
+ * instead of rebinding everything. Ids of headers and rows are derived from month and row index and stay the same
+ * while files are added to or removed from other months.
+ *
+ * Not thread safe, to be used on the main thread.
+ */
+class GalleryIndex(columns: Int, private val thumbnailSize: Int) {
+
+    private companion object {
+        const val MONTHS_PER_YEAR = 12
+        const val ROW_BITS = 24
+    }
+
+    private class Month(
+        val key: Int,
+        val date: Long,
+        val columns: Int,
+        val files: List<OCFile>,
+        val item: GalleryItems
+    ) {
+        val size: Int
+            get() = 1 + item.rows.size
+    }
+
+    private var months: List<Month> = emptyList()
+    private val calendar = Calendar.getInstance()
+    private var cachedMonthStart = 0L
+    private var cachedMonthEnd = Long.MIN_VALUE
+
+    /**
+     * Files per row; changing it splits all months anew on the next [update].
+     */
+    var columns: Int = columns
+
+    /**
+     * Months with their rows, newest month first
+     */
+    var items: List<GalleryItems> = emptyList()
+        private set
+
+    fun isEmpty(): Boolean = months.isEmpty()
+
+    fun headerId(section: Int): Long = months[section].key.toLong() shl ROW_BITS
+
+    fun rowId(section: Int, row: Int): Long = headerId(section) or (row + 1L)
+
+    /**
+     * Replaces the files of the index and reports the changed positions to [callback].
+     *
+     * @param files gallery files, in the same order on every call so unchanged months are recognized cheaply
+     */
+    fun update(files: List<OCFile>, callback: ListUpdateCallback) {
+        val filesByMonth = HashMap<Long, MutableList<OCFile>>()
+        for (file in files) {
+            filesByMonth.getOrPut(firstOfMonth(file.modificationTimestamp)) { ArrayList() }.add(file)
+        }
+
+        val oldMonths = months
+        val oldMonthsByDate = oldMonths.associateBy { it.date }
+        val newMonths = filesByMonth.entries
+            .sortedByDescending { it.key }
+            .map { (date, monthFiles) ->
+                val oldMonth = oldMonthsByDate[date]
+                if (oldMonth != null && oldMonth.columns == columns && isSameContent(oldMonth.files, monthFiles)) {
+                    oldMonth
+                } else {
+                    createMonth(date, monthFiles)
+                }
+            }
+
+        setMonths(newMonths)
+        dispatchChanges(oldMonths, newMonths, callback)
+    }
+
+    /**
+     * Replaces the content with already grouped [items] without reporting changes.
+     */
+    fun replace(items: List<GalleryItems>) {
+        setMonths(
+            items.map { item ->
+                Month(monthKey(item.date), item.date, columns, item.rows.flatMap { it.files }, item)
+            }
+        )
+    }
+
+    private fun setMonths(newMonths: List<Month>) {
+        months = newMonths
+        items = newMonths.map { it.item }
+    }
+
+    private fun createMonth(date: Long, files: List<OCFile>): Month {
+        val rows = files
+            .sortedWith(compareByDescending<OCFile> { it.modificationTimestamp }.thenByDescending { it.remotePath })
+            .chunked(columns)
+            .map { GalleryRow(it, thumbnailSize, thumbnailSize) }
+        return Month(monthKey(date), date, columns, files, GalleryItems(date, rows))
+    }
+
+    private fun dispatchChanges(oldMonths: List<Month>, newMonths: List<Month>, callback: ListUpdateCallback) {
+        var position = 0
+        var oldIndex = 0
+        var newIndex = 0
+
+        while (oldIndex < oldMonths.size || newIndex < newMonths.size) {
+            val oldMonth = oldMonths.getOrNull(oldIndex)
+            val newMonth = newMonths.getOrNull(newIndex)
+
+            if (oldMonth != null && (newMonth == null || oldMonth.date > newMonth.date)) {
+                callback.onRemoved(position, oldMonth.size)
+                oldIndex++
+            } else if (newMonth != null && (oldMonth == null || newMonth.date > oldMonth.date)) {
+                callback.onInserted(position, newMonth.size)
+                position += newMonth.size
+                newIndex++
+            } else if (oldMonth != null && newMonth != null) {
+                if (oldMonth !== newMonth) {
+                    dispatchRowChanges(position + 1, oldMonth.item.rows, newMonth.item.rows, callback)
+                }
+                position += newMonth.size
+                oldIndex++
+                newIndex++
+            }
+        }
+    }
+
+    private fun dispatchRowChanges(
+        start: Int,
+        oldRows: List<GalleryRow>,
+        newRows: List<GalleryRow>,
+        callback: ListUpdateCallback
+    ) {
+        val common = minOf(oldRows.size, newRows.size)
+        var row = 0
+        while (row < common) {
+            val changedFrom = row
+            while (row < common && !isSameContent(oldRows[row].files, newRows[row].files)) {
+                row++
+            }
+            if (row > changedFrom) {
+                callback.onChanged(start + changedFrom, row - changedFrom, null)
+            } else {
+                row++
+            }
+        }
+
+        if (newRows.size > common) {
+            callback.onInserted(start + common, newRows.size - common)
+        } else if (oldRows.size > common) {
+            callback.onRemoved(start + common, oldRows.size - common)
+        }
+    }
+
+    private fun isSameContent(oldFiles: List<OCFile>, newFiles: List<OCFile>): Boolean {
+        if (oldFiles.size != newFiles.size) {
+            return false
+        }
+        for (i in oldFiles.indices) {
+            val oldFile = oldFiles[i]
+            val newFile = newFiles[i]
+            if (oldFile.fileId != newFile.fileId ||
+                oldFile.remotePath != newFile.remotePath ||
+                oldFile.etag != newFile.etag ||
+                oldFile.modificationTimestamp != newFile.modificationTimestamp ||
+                oldFile.isFavorite != newFile.isFavorite
+            ) {
+                return false
+            }
+        }
+        return true
+    }
+
+    /**
+     * Start of the month of [timestamp] in the default time zone; the month of the previous call is cached, as
+     * gallery files mostly come sorted by date.
+     */
+    private fun firstOfMonth(timestamp: Long): Long {
+        if (timestamp in cachedMonthStart until cachedMonthEnd) {
+            return cachedMonthStart
+        }
+
+        calendar.timeInMillis = timestamp
+        calendar.set(Calendar.DAY_OF_MONTH, 1)
+        calendar.set(Calendar.HOUR_OF_DAY, 0)
+        calendar.set(Calendar.MINUTE, 0)
+        calendar.set(Calendar.SECOND, 0)
+        calendar.set(Calendar.MILLISECOND, 0)
+        cachedMonthStart = calendar.timeInMillis
+        calendar.add(Calendar.MONTH, 1)
+        cachedMonthEnd = calendar.timeInMillis
+        return cachedMonthStart
+    }
+
+    private fun monthKey(date: Long): Int {
+        calendar.timeInMillis = date
+        return calendar.get(Calendar.YEAR) * MONTHS_PER_YEAR + calendar.get(Calendar.MONTH)
+    }
+}
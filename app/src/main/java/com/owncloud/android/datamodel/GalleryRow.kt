@@ -10,6 +10,4 @@ package com.owncloud.android.datamodel
 
 data class GalleryRow(val files: List<OCFile>, val defaultHeight: Int, val defaultWidth: Int) {
     fun getMaxHeight(): Float = files.map { it.imageDimension?.height ?: defaultHeight.toFloat() }.maxOrNull() ?: 0f
-
-    fun calculateHashCode(): Long = files.sumOf { it.hashCode() }.toLong()
 }
@@ -8,8 +8,10 @@
 package com.owncloud.android.datamodel;
 
 import android.content.ContentResolver;
+import android.content.Context;
 import android.database.Cursor;
 import android.net.Uri;
+import android.os.Build;
 import android.provider.MediaStore;
 
 import com.owncloud.android.MainApp;
@@ -20,6 +22,7 @@ import com.owncloud.android.utils.theme.ViewThemeUtils;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -35,15 +38,17 @@ public final class MediaProvider {
 
     // fixed query parameters
     private static final Uri IMAGES_MEDIA_URI = android.provider.MediaStore.Images.Media.EXTERNAL_CONTENT_URI;
-    private static final String[] FILE_PROJECTION = new String[]{MediaStore.MediaColumns.DATA};
-    private static final String IMAGES_FILE_SELECTION = MediaStore.Images.Media.BUCKET_ID + "=";
-    private static final String[] IMAGES_FOLDER_PROJECTION = {MediaStore.Images.Media.BUCKET_ID,
-        MediaStore.Images.Media.BUCKET_DISPLAY_NAME};
-    private static final String IMAGES_FOLDER_SORT_COLUMN = MediaStore.Images.Media.BUCKET_DISPLAY_NAME;
-    private static final String IMAGES_SORT_DIRECTION = ContentResolverHelper.SORT_DIRECTION_ASCENDING;
+    private static final String[] IMAGES_PROJECTION = {MediaStore.Images.Media.BUCKET_ID,
+        MediaStore.Images.Media.BUCKET_DISPLAY_NAME, MediaStore.MediaColumns.DATA};
 
-    private static final String[] VIDEOS_FOLDER_PROJECTION = {MediaStore.Video.Media.BUCKET_ID,
-        MediaStore.Video.Media.BUCKET_DISPLAY_NAME};
+    private static final Uri VIDEOS_MEDIA_URI = MediaStore.Video.Media.EXTERNAL_CONTENT_URI;
+    private static final String[] VIDEOS_PROJECTION = {MediaStore.Video.Media.BUCKET_ID,
+        MediaStore.Video.Media.BUCKET_DISPLAY_NAME, MediaStore.MediaColumns.DATA};
+
+    /**
+     * Folders found by the last scans, by media type and item limit. Guarded by itself.
+     */
+    private static final Map<String, FolderSnapshot> snapshots = new HashMap<>();
 
     private MediaProvider() {
         // utility class -> private constructor
@@ -64,97 +69,168 @@ public final class MediaProvider {
         // check permissions
         checkPermissions(activity, viewThemeUtils);
 
-        // query media/image folders
-        Cursor cursorFolders = null;
         if (activity != null && PermissionUtil.checkExternalStoragePermission(activity.getApplicationContext())
             || getWithoutActivity) {
-            cursorFolders = ContentResolverHelper.queryResolver(contentResolver, IMAGES_MEDIA_URI,
-                                                                IMAGES_FOLDER_PROJECTION, null, null,
-                                                                IMAGES_FOLDER_SORT_COLUMN, IMAGES_SORT_DIRECTION, null);
+            return getMediaFolders(contentResolver,
+                                   MediaFolderType.IMAGE,
+                                   IMAGES_MEDIA_URI,
+                                   IMAGES_PROJECTION,
+                                   MediaStore.Images.Media.DATE_TAKEN,
+                                   itemLimit);
         }
 
-        List<MediaFolder> mediaFolders = new ArrayList<>();
-        String dataPath = MainApp.getStoragePath() + File.separator + MainApp.getDataFolder();
+        return new ArrayList<>();
+    }
 
-        if (cursorFolders != null) {
-            Cursor cursorImages;
+    public static List<MediaFolder> getVideoFolders(ContentResolver contentResolver,
+                                                    int itemLimit,
+                                                    @Nullable final AppCompatActivity activity,
+                                                    boolean getWithoutActivity,
+                                                    final ViewThemeUtils viewThemeUtils) {
+        // check permissions
+        checkPermissions(activity, viewThemeUtils);
 
-            Map<String, String> uniqueFolders = new HashMap<>();
+        if ((activity != null && PermissionUtil.checkExternalStoragePermission(activity.getApplicationContext()))
+            || getWithoutActivity) {
+            return getMediaFolders(contentResolver,
+                                   MediaFolderType.VIDEO,
+                                   VIDEOS_MEDIA_URI,
+                                   VIDEOS_PROJECTION,
+                                   MediaStore.Video.Media.DATE_TAKEN,
+                                   itemLimit);
+        }
 
-            // since sdk 29 we have to manually distinct on bucket id
-            while (cursorFolders.moveToNext()) {
-                uniqueFolders.put(cursorFolders.getString(
-                    cursorFolders.getColumnIndexOrThrow(MediaStore.Images.Media.BUCKET_ID)),
-                                  cursorFolders.getString(
-                                      cursorFolders.getColumnIndexOrThrow(MediaStore.Images.Media.BUCKET_DISPLAY_NAME))
-                );
+        return new ArrayList<>();
+    }
+
+    /**
+     * Returns the media folders of the given type, from the last scan as long as the MediaStore did not change since.
+     */
+    private static List<MediaFolder> getMediaFolders(ContentResolver contentResolver,
+                                                     MediaFolderType type,
+                                                     Uri uri,
+                                                     String[] projection,
+                                                     String dateColumn,
+                                                     int itemLimit) {
+        final String snapshotKey = type.name() + ':' + itemLimit;
+        final String generation = getMediaStoreGeneration();
+
+        if (generation != null) {
+            synchronized (snapshots) {
+                FolderSnapshot snapshot = snapshots.get(snapshotKey);
+                if (snapshot != null && snapshot.generation.equals(generation)) {
+                    Log_OC.d(TAG, "MediaStore unchanged, reusing " + snapshot.folders.size() + " " + type + " folders");
+                    return new ArrayList<>(snapshot.folders);
+                }
             }
-            cursorFolders.close();
-
-            for (Map.Entry<String, String> folder : uniqueFolders.entrySet()) {
-                MediaFolder mediaFolder = new MediaFolder();
-
-                mediaFolder.type = MediaFolderType.IMAGE;
-                mediaFolder.folderName = folder.getValue();
-                mediaFolder.filePaths = new ArrayList<>();
-
-                // query images
-                cursorImages = ContentResolverHelper.queryResolver(contentResolver,
-                                                                   IMAGES_MEDIA_URI,
-                                                                   FILE_PROJECTION,
-                                                                   IMAGES_FILE_SELECTION + folder.getKey(),
-                                                                   null,
-                                                                   MediaStore.Images.Media.DATE_TAKEN,
-                                                                   ContentResolverHelper.SORT_DIRECTION_DESCENDING,
-                                                                   itemLimit);
-                Log_OC.d(TAG, "Reading images for " + mediaFolder.folderName);
-
-                if (cursorImages != null) {
-                    String filePath;
-                    int imageCount = 0;
-                    while (cursorImages.moveToNext() && imageCount < itemLimit) {
-                        filePath = cursorImages.getString(cursorImages.getColumnIndexOrThrow(
-                            MediaStore.MediaColumns.DATA));
-
-                        // check if valid path and file exists
-                        if (isValidAndExistingFilePath(filePath)) {
+        }
+
+        final List<MediaFolder> mediaFolders = scanMediaFolders(contentResolver, type, uri, projection, dateColumn,
+                                                                itemLimit);
+
+        if (generation != null) {
+            synchronized (snapshots) {
+                snapshots.put(snapshotKey, new FolderSnapshot(generation, new ArrayList<>(mediaFolders)));
+            }
+        }
+        return mediaFolders;
+    }
+
+    /**
+     * Builds all media folders of the given type in one pass over the media, newest first: the first
+     * {@code itemLimit} items of every folder become its samples, all items are counted.
+     */
+    private static List<MediaFolder> scanMediaFolders(ContentResolver contentResolver,
+                                                      MediaFolderType type,
+                                                      Uri uri,
+                                                      String[] projection,
+                                                      String dateColumn,
+                                                      int itemLimit) {
+        final long start = System.currentTimeMillis();
+        final Map<String, MediaFolder> foldersByBucket = new LinkedHashMap<>();
+        long itemCount = 0;
+
+        try (Cursor cursor = ContentResolverHelper.queryResolver(contentResolver,
+                                                                 uri,
+                                                                 projection,
+                                                                 null,
+                                                                 null,
+                                                                 dateColumn,
+                                                                 ContentResolverHelper.SORT_DIRECTION_DESCENDING,
+                                                                 null)) {
+            if (cursor != null) {
+                final int bucketIdColumn = cursor.getColumnIndexOrThrow(projection[0]);
+                final int bucketNameColumn = cursor.getColumnIndexOrThrow(projection[1]);
+                final int dataColumn = cursor.getColumnIndexOrThrow(MediaStore.MediaColumns.DATA);
+
+                while (cursor.moveToNext()) {
+                    itemCount++;
+                    final String bucketId = cursor.getString(bucketIdColumn);
+                    MediaFolder mediaFolder = foldersByBucket.get(bucketId);
+                    if (mediaFolder == null) {
+                        mediaFolder = new MediaFolder();
+                        mediaFolder.type = type;
+                        mediaFolder.folderName = cursor.getString(bucketNameColumn);
+                        mediaFolder.filePaths = new ArrayList<>();
+                        foldersByBucket.put(bucketId, mediaFolder);
+                    }
+
+                    // the first items of a folder are its newest ones
+                    if (mediaFolder.numberOfFiles < itemLimit) {
+                        final String filePath = cursor.getString(dataColumn);
+                        if (isValidFilePath(type, filePath)) {
                             mediaFolder.filePaths.add(filePath);
                             mediaFolder.absolutePath = filePath.substring(0, filePath.lastIndexOf('/'));
                         }
-                        // ensure we don't go over the limit due to faulty android implementations
-                        imageCount++;
-                    }
-                    cursorImages.close();
-
-                    // only do further work if folder is not within the Nextcloud app itself
-                    if (isFolderOutsideOfAppPath(dataPath, mediaFolder)) {
-
-                        // count images
-                        Cursor count = contentResolver.query(
-                            IMAGES_MEDIA_URI,
-                            FILE_PROJECTION,
-                            IMAGES_FILE_SELECTION + folder.getKey(),
-                            null,
-                            null);
-
-                        if (count != null) {
-                            mediaFolder.numberOfFiles = count.getCount();
-                            count.close();
-                        }
-
-                        mediaFolders.add(mediaFolder);
                     }
+                    mediaFolder.numberOfFiles++;
                 }
             }
         }
 
+        // only folders outside of the Nextcloud app itself
+        final String dataPath = MainApp.getStoragePath() + File.separator + MainApp.getDataFolder();
+        final List<MediaFolder> mediaFolders = new ArrayList<>(foldersByBucket.size());
+        for (MediaFolder mediaFolder : foldersByBucket.values()) {
+            if (isFolderOutsideOfAppPath(dataPath, mediaFolder)) {
+                mediaFolders.add(mediaFolder);
+            }
+        }
+
+        Log_OC.d(TAG, "Read " + itemCount + " " + type + " items of " + mediaFolders.size() + " folders in " +
+            (System.currentTimeMillis() - start) + " ms");
         return mediaFolders;
     }
 
+    /**
+     * @return MediaStore version and generations of all external volumes, changing whenever media are added,
+     * changed or removed; null if not available
+     */
+    @Nullable
+    private static String getMediaStoreGeneration() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.R) {
+            return null;
+        }
+
+        final Context context = MainApp.getAppContext();
+        final StringBuilder generation = new StringBuilder(MediaStore.getVersion(context));
+        for (String volumeName : MediaStore.getExternalVolumeNames(context)) {
+            generation.append(';').append(volumeName).append('=').append(MediaStore.getGeneration(context, volumeName));
+        }
+        return generation.toString();
+    }
+
     private static boolean isFolderOutsideOfAppPath(String dataPath, MediaFolder mediaFolder) {
         return mediaFolder.absolutePath != null && !mediaFolder.absolutePath.startsWith(dataPath);
     }
 
+    private static boolean isValidFilePath(MediaFolderType type, @Nullable String filePath) {
+        if (type == MediaFolderType.VIDEO) {
+            return filePath != null && filePath.lastIndexOf('/') >= 0;
+        }
+        return isValidAndExistingFilePath(filePath);
+    }
+
     private static boolean isValidAndExistingFilePath(String filePath) {
         return filePath != null && filePath.lastIndexOf('/') > 0 && new File(filePath).exists();
     }
@@ -167,97 +243,13 @@ public final class MediaProvider {
         }
     }
 
-    public static List<MediaFolder> getVideoFolders(ContentResolver contentResolver,
-                                                    int itemLimit,
-                                                    @Nullable final AppCompatActivity activity,
-                                                    boolean getWithoutActivity,
-                                                    final ViewThemeUtils viewThemeUtils) {
-        // check permissions
-        checkPermissions(activity, viewThemeUtils);
-
-        // query media/image folders
-        Cursor cursorFolders = null;
-        if ((activity != null && PermissionUtil.checkExternalStoragePermission(activity.getApplicationContext()))
-            || getWithoutActivity) {
-            cursorFolders = contentResolver.query(MediaStore.Video.Media.EXTERNAL_CONTENT_URI, VIDEOS_FOLDER_PROJECTION,
-                                                  null, null, null);
-        }
-
-        List<MediaFolder> mediaFolders = new ArrayList<>();
-        String dataPath = MainApp.getStoragePath() + File.separator + MainApp.getDataFolder();
-
-        if (cursorFolders != null) {
-            Cursor cursorVideos;
-
-            Map<String, String> uniqueFolders = new HashMap<>();
-
-            // since sdk 29 we have to manually distinct on bucket id
-            while (cursorFolders.moveToNext()) {
-                uniqueFolders.put(cursorFolders.getString(
-                    cursorFolders.getColumnIndexOrThrow(MediaStore.Video.Media.BUCKET_ID)),
-                                  cursorFolders.getString(
-                                      cursorFolders.getColumnIndexOrThrow(MediaStore.Video.Media.BUCKET_DISPLAY_NAME))
-                );
-            }
-            cursorFolders.close();
-
-            for (Map.Entry<String, String> folder : uniqueFolders.entrySet()) {
-                MediaFolder mediaFolder = new MediaFolder();
-                mediaFolder.type = MediaFolderType.VIDEO;
-                mediaFolder.folderName = folder.getValue();
-                mediaFolder.filePaths = new ArrayList<>();
-
-                // query videos
-                cursorVideos = ContentResolverHelper.queryResolver(contentResolver,
-                                                                   MediaStore.Video.Media.EXTERNAL_CONTENT_URI,
-                                                                   FILE_PROJECTION,
-                                                                   MediaStore.Video.Media.BUCKET_ID + "=" + folder.getKey(),
-                                                                   null,
-                                                                   MediaStore.Video.Media.DATE_TAKEN,
-                                                                   ContentResolverHelper.SORT_DIRECTION_DESCENDING,
-                                                                   itemLimit);
-
-                Log_OC.d(TAG, "Reading videos for " + mediaFolder.folderName);
-
-                if (cursorVideos != null) {
-                    String filePath;
-                    int videoCount = 0;
-                    while (cursorVideos.moveToNext() && videoCount < itemLimit) {
-                        filePath = cursorVideos.getString(cursorVideos.getColumnIndexOrThrow(
-                            MediaStore.MediaColumns.DATA));
-
-                        if (filePath != null) {
-                            mediaFolder.filePaths.add(filePath);
-                            mediaFolder.absolutePath = filePath.substring(0, filePath.lastIndexOf('/'));
-                        }
-                        // ensure we don't go over the limit due to faulty android implementations
-                        videoCount++;
-                    }
-                    cursorVideos.close();
-
-                    // only do further work if folder is not within the Nextcloud app itself
-                    if (isFolderOutsideOfAppPath(dataPath, mediaFolder)) {
-
-                        // count images
-                        Cursor count = contentResolver.query(
-                            MediaStore.Video.Media.EXTERNAL_CONTENT_URI,
-                            FILE_PROJECTION,
-                            MediaStore.Video.Media.BUCKET_ID + "=" + folder.getKey(),
-                            null,
-                            null);
-
-                        if (count != null) {
-                            mediaFolder.numberOfFiles = count.getCount();
-                            count.close();
-                        }
+    private static final class FolderSnapshot {
+        final String generation;
+        final List<MediaFolder> folders;
 
-                        mediaFolders.add(mediaFolder);
-                    }
-                }
-            }
-            cursorFolders.close();
+        FolderSnapshot(String generation, List<MediaFolder> folders) {
+            this.generation = generation;
+            this.folders = folders;
         }
-
-        return mediaFolders;
     }
 }
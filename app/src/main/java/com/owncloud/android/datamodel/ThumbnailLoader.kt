@@ -0,0 +1,108 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.owncloud.android.datamodel
+
+import androidx.annotation.VisibleForTesting
+import com.owncloud.android.lib.common.utils.Log_OC
+import java.util.concurrent.Callable
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executor
+import java.util.concurrent.Future
+import java.util.concurrent.FutureTask
+import java.util.concurrent.PriorityBlockingQueue
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Single engine running all thumbnail generation tasks of [ThumbnailsCacheManager].
+ *
+ * - tasks run on a bounded pool, the most recently requested one first, so rows currently scrolled into view win
+ *   over rows that were bound a moment ago
+ * - tasks cancelled because their view got recycled stay queued, they are dropped when a pool thread picks them up
+ * - concurrent loads of the same image key are merged by [loadShared], all callers get the result of one fetch
+ */
+object ThumbnailLoader {
+    private val TAG = ThumbnailLoader::class.java.simpleName
+
+    private const val KEEP_ALIVE_SECONDS = 30L
+    private const val MAX_POOL_SIZE = 4
+
+    @VisibleForTesting
+    internal val poolSize = Runtime.getRuntime().availableProcessors().coerceIn(2, MAX_POOL_SIZE)
+    private val sequence = AtomicLong()
+    private val sharedLoads = AtomicLong()
+    private val droppedTasks = AtomicLong()
+    private val inFlight = ConcurrentHashMap<String, FutureTask<Any?>>()
+
+    private val queue = PriorityBlockingQueue<Runnable>()
+    private val pool = ThreadPoolExecutor(poolSize, poolSize, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, queue).apply {
+        allowCoreThreadTimeOut(true)
+    }
+
+    /**
+     * Executor to pass to `AsyncTask.executeOnExecutor()` of thumbnail tasks.
+     */
+    @JvmField
+    val executor = Executor { command -> pool.execute(LifoTask(command, sequence.incrementAndGet())) }
+
+    private class LifoTask(private val command: Runnable, private val sequence: Long) :
+        Runnable,
+        Comparable<LifoTask> {
+
+        val isCancelled: Boolean
+            get() = (command as? Future<*>)?.isCancelled == true
+
+        override fun run() {
+            if (isCancelled) {
+                droppedTasks.incrementAndGet()
+            } else {
+                command.run()
+            }
+        }
+
+        override fun compareTo(other: LifoTask): Int = other.sequence.compareTo(sequence)
+    }
+
+    /**
+     * Runs [load] unless a load for [key] is already running, in which case its result is awaited and returned.
+     */
+    @JvmStatic
+    @Suppress("UNCHECKED_CAST")
+    fun <T> loadShared(key: String, load: Callable<T?>): T? {
+        val task = FutureTask(load as Callable<Any?>)
+        val running = inFlight.putIfAbsent(key, task)
+
+        return try {
+            if (running != null) {
+                sharedLoads.incrementAndGet()
+                running.get() as T?
+            } else {
+                task.run()
+                task.get() as T?
+            }
+        } catch (e: ExecutionException) {
+            Log_OC.e(TAG, "Loading $key failed", e.cause)
+            null
+        } catch (e: InterruptedException) {
+            Thread.currentThread().interrupt()
+            null
+        } finally {
+            if (running == null) {
+                inFlight.remove(key, task)
+            }
+        }
+    }
+
+    @JvmStatic
+    fun getQueueDepth(): Int = queue.size
+
+    @JvmStatic
+    fun getStatistics(): String = "queued=${queue.size}, running=${pool.activeCount}, " +
+        "completed=${pool.completedTaskCount}, shared loads=${sharedLoads.get()}, dropped=${droppedTasks.get()}"
+}
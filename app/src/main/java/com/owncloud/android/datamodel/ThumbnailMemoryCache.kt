@@ -0,0 +1,40 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.owncloud.android.datamodel
+
+import android.graphics.Bitmap
+import android.util.LruCache
+
+/**
+ * In-memory tier in front of the thumbnail disk cache, bounded by the bytes allocated by its bitmaps.
+ *
+ * Cached bitmaps are shared with every view that shows them, so they are neither recycled nor reused for decoding
+ * when evicted; callers must not recycle them either.
+ */
+class ThumbnailMemoryCache(maxBytes: Int) : LruCache<String, Bitmap>(maxBytes) {
+
+    companion object {
+        private const val MAX_CACHE_SHARE_OF_HEAP = 8
+
+        /**
+         * Default budget: an eighth of the heap available to the app.
+         */
+        @JvmStatic
+        fun defaultMaxBytes(): Int = (Runtime.getRuntime().maxMemory() / MAX_CACHE_SHARE_OF_HEAP)
+            .coerceAtMost(Int.MAX_VALUE.toLong())
+            .toInt()
+    }
+
+    override fun sizeOf(key: String, value: Bitmap): Int = value.allocationByteCount
+
+    fun clear() {
+        evictAll()
+    }
+
+    fun getStatistics(): String =
+        "size=${size()}/${maxSize()} bytes, hits=${hitCount()}, misses=${missCount()}, evictions=${evictionCount()}"
+}
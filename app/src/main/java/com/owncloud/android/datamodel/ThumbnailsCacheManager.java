@@ -69,6 +69,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -98,6 +99,12 @@ public final class ThumbnailsCacheManager {
     private static DiskLruImageCache mThumbnailCache;
     private static boolean mThumbnailCacheStarting = true;
 
+    /**
+     * First cache tier, thread safe on its own; the disk tier below is guarded by {@link #mThumbnailsDiskCacheLock}.
+     */
+    private static final ThumbnailMemoryCache mMemoryCache =
+        new ThumbnailMemoryCache(ThumbnailMemoryCache.defaultMaxBytes());
+
     private static final int DISK_CACHE_SIZE = 1024 * 1024 * 200; // 200MB
     private static final CompressFormat mCompressFormat = CompressFormat.JPEG;
     private static final int mCompressQuality = 70;
@@ -212,6 +219,10 @@ public final class ThumbnailsCacheManager {
 
         final var keys = new String[] { PREFIX_RESIZED_IMAGE + file.getRemoteId(), PREFIX_THUMBNAIL + file.getRemoteId() };
 
+        for (String key: keys) {
+            mMemoryCache.remove(key);
+        }
+
         synchronized (mThumbnailsDiskCacheLock) {
             if (mThumbnailCache == null) {
                 return;
@@ -254,11 +265,12 @@ public final class ThumbnailsCacheManager {
             }
 
             mThumbnailCache.put(key, bitmap);
+            mMemoryCache.put(key, bitmap);
         }
     }
 
     public static boolean containsBitmap(String key) {
-        return mThumbnailCache.containsKey(key);
+        return mMemoryCache.get(key) != null || mThumbnailCache.containsKey(key);
     }
 
     public static Bitmap getScaledBitmapFromDiskCache(String key, int width, int height) {
@@ -278,7 +290,15 @@ public final class ThumbnailsCacheManager {
         return null;
     }
 
+    /**
+     * Returns the cached bitmap, looking into the memory tier first. Bitmaps read from disk are kept in memory.
+     */
     public static Bitmap getBitmapFromDiskCache(String key) {
+        Bitmap bitmap = mMemoryCache.get(key);
+        if (bitmap != null) {
+            return bitmap;
+        }
+
         synchronized (mThumbnailsDiskCacheLock) {
             // Wait while disk cache is started from background thread
             while (mThumbnailCacheStarting) {
@@ -289,10 +309,18 @@ public final class ThumbnailsCacheManager {
                 }
             }
             if (mThumbnailCache != null) {
-                return mThumbnailCache.getBitmap(key);
+                bitmap = mThumbnailCache.getBitmap(key);
             }
         }
-        return null;
+
+        if (bitmap != null) {
+            mMemoryCache.put(key, bitmap);
+        }
+        return bitmap;
+    }
+
+    public static String getMemoryCacheStatistics() {
+        return mMemoryCache.getStatistics();
     }
 
     public static class GalleryImageGenerationTask extends AsyncTask<Object, Void, Bitmap> {
@@ -354,10 +382,10 @@ public final class ThumbnailsCacheManager {
         @Nullable
         private Bitmap getThumbnailFromServerAndAddToCache(Bitmap thumbnail) {
             try {
-                mClient = OwnCloudClientManagerFactory.getDefaultSingleton().getClientFor(user.toOwnCloudAccount(),
-                                                                                          MainApp.getAppContext());
+                OwnCloudClient client = OwnCloudClientManagerFactory.getDefaultSingleton()
+                    .getClientFor(user.toOwnCloudAccount(), MainApp.getAppContext());
 
-                thumbnail = doResizedImageInBackground(file, storageManager);
+                thumbnail = loadResizedImageShared(client, file, storageManager);
                 newImage = true;
 
                 if (MimeTypeUtil.isVideo(file) && thumbnail != null) {
@@ -489,10 +517,10 @@ public final class ThumbnailsCacheManager {
             file = (OCFile) params[0];
 
             try {
-                mClient = OwnCloudClientManagerFactory.getDefaultSingleton().getClientFor(user.toOwnCloudAccount(),
-                                                                                          MainApp.getAppContext());
+                OwnCloudClient client = OwnCloudClientManagerFactory.getDefaultSingleton()
+                    .getClientFor(user.toOwnCloudAccount(), MainApp.getAppContext());
 
-                thumbnail = doResizedImageInBackground(file, storageManager);
+                thumbnail = loadResizedImageShared(client, file, storageManager);
 
                 if (MimeTypeUtil.isVideo(file) && thumbnail != null) {
                     thumbnail = addVideoOverlay(thumbnail, MainApp.getAppContext());
@@ -643,8 +671,10 @@ public final class ThumbnailsCacheManager {
                 mFile = object.getFile();
                 mImageKey = object.getImageKey();
 
-                if (mFile instanceof ServerFileInterface) {
-                    thumbnail = doThumbnailFromOCFileInBackground();
+                if (mFile instanceof ServerFileInterface serverFile) {
+                    // views showing the same file share one fetch
+                    thumbnail = ThumbnailLoader.loadShared(PREFIX_THUMBNAIL + serverFile.getRemoteId(),
+                                                           this::doThumbnailFromOCFileInBackground);
 
                     if (MimeTypeUtil.isVideo((ServerFileInterface) mFile) && thumbnail != null) {
                         thumbnail = addVideoOverlay(thumbnail, MainApp.getAppContext());
@@ -772,47 +802,7 @@ public final class ThumbnailsCacheManager {
                     } else {
                         // Download thumbnail from server
                         if (mClient != null) {
-                            getMethod = null;
-                            try {
-                                // thumbnail
-                                String uri;
-                                if (file instanceof OCFile) {
-                                    uri = mClient.getBaseUri() + "/index.php/core/preview?fileId="
-                                        + file.getLocalId()
-                                        + "&x=" + pxW + "&y=" + pxH + "&a=1&mode=cover&forceIcon=0";
-                                } else {
-                                    uri = mClient.getBaseUri() + "/index.php/apps/files_trashbin/preview?fileId=" +
-                                        file.getLocalId() + "&x=" + pxW + "&y=" + pxH;
-                                }
-
-                                Log_OC.d(TAG, "generate thumbnail: " + file.getFileName() + " URI: " + uri);
-                                getMethod = new GetMethod(uri);
-                                getMethod.setRequestHeader("Cookie",
-                                                           "nc_sameSiteCookielax=true;nc_sameSiteCookiestrict=true");
-
-                                getMethod.setRequestHeader(RemoteOperation.OCS_API_HEADER,
-                                                           RemoteOperation.OCS_API_HEADER_VALUE);
-
-                                int status = mClient.executeMethod(getMethod, READ_TIMEOUT, CONNECTION_TIMEOUT);
-                                if (status == HttpStatus.SC_OK) {
-                                    InputStream inputStream = getMethod.getResponseBodyAsStream();
-                                    Bitmap bitmap = BitmapFactory.decodeStream(inputStream);
-                                    thumbnail = ThumbnailUtils.extractThumbnail(bitmap, pxW, pxH);
-                                } else {
-                                    mClient.exhaustResponse(getMethod.getResponseBodyAsStream());
-                                }
-
-                                // Handle PNG
-                                if (PNG_MIMETYPE.equalsIgnoreCase(file.getMimeType())) {
-                                    thumbnail = handlePNG(thumbnail, pxW, pxH);
-                                }
-                            } catch (Exception e) {
-                                Log_OC.d(TAG, e.getMessage(), e);
-                            } finally {
-                                if (getMethod != null) {
-                                    getMethod.releaseConnection();
-                                }
-                            }
+                            thumbnail = downloadThumbnail(mClient, file, pxW, pxH, method -> getMethod = method);
                         }
                     }
 
@@ -833,10 +823,7 @@ public final class ThumbnailsCacheManager {
          * @return int
          */
         private int getThumbnailDimension() {
-            // Converts dp to pixel
-            Resources r = MainApp.getAppContext().getResources();
-            double d = Math.pow(2, Math.floor(Math.log(r.getDimension(R.dimen.file_icon_size_grid)) / Math.log(2)));
-            return (int) d;
+            return getServerThumbnailDimension();
         }
 
         private Bitmap doFileInBackground() {
@@ -1162,21 +1149,31 @@ public final class ThumbnailsCacheManager {
 
     public static boolean cancelPotentialThumbnailWork(Object file, ImageView imageView) {
         final ThumbnailGenerationTask bitmapWorkerTask = getBitmapWorkerTask(imageView);
+        final GalleryImageGenerationTask galleryImageTask = getGalleryImageGenerationTask(imageView);
 
+        final AsyncTask<?, ?, ?> task;
+        final Object bitmapData;
         if (bitmapWorkerTask != null) {
-            final Object bitmapData = bitmapWorkerTask.mFile;
-            // If bitmapData is not yet set or it differs from the new data
-            if (bitmapData == null || !bitmapData.equals(file)) {
-                // Cancel previous task
-                bitmapWorkerTask.cancel(true);
-                Log_OC.v(TAG, "Cancelled generation of thumbnail for a reused imageView");
-            } else {
-                // The same work is already in progress
-                return false;
-            }
+            task = bitmapWorkerTask;
+            bitmapData = bitmapWorkerTask.mFile;
+        } else if (galleryImageTask != null) {
+            task = galleryImageTask;
+            bitmapData = galleryImageTask.file;
+        } else {
+            // No task associated with the ImageView
+            return true;
+        }
+
+        // If bitmapData is not yet set or it differs from the new data
+        if (bitmapData == null || !bitmapData.equals(file)) {
+            // Cancel previous task, ThumbnailLoader drops it if it did not start yet
+            task.cancel(true);
+            Log_OC.v(TAG, "Cancelled generation of thumbnail for a reused imageView");
+            return true;
         }
-        // No task associated with the ImageView, or an existing task was cancelled
-        return true;
+
+        // The same work is already in progress
+        return false;
     }
 
     public static ThumbnailGenerationTask getBitmapWorkerTask(ImageView imageView) {
@@ -1319,6 +1316,116 @@ public final class ThumbnailsCacheManager {
         return dest;
     }
 
+    /**
+     * Size of thumbnails requested from the server, the icon size in pixel rounded down to a power of two
+     */
+    private static int getServerThumbnailDimension() {
+        Resources r = MainApp.getAppContext().getResources();
+        double d = Math.pow(2, Math.floor(Math.log(r.getDimension(R.dimen.file_icon_size_grid)) / Math.log(2)));
+        return (int) d;
+    }
+
+    /**
+     * Downloads the preview of a server file, scaled to the given size
+     *
+     * @param requestListener notified of the request before it is executed, e.g. to allow aborting it
+     * @return thumbnail or null if the server has none
+     */
+    @Nullable
+    private static Bitmap downloadThumbnail(OwnCloudClient client,
+                                            ServerFileInterface file,
+                                            int pxW,
+                                            int pxH,
+                                            @Nullable Consumer<GetMethod> requestListener) {
+        Bitmap thumbnail = null;
+        GetMethod getMethod = null;
+        try {
+            String uri;
+            if (file instanceof OCFile) {
+                uri = client.getBaseUri() + "/index.php/core/preview?fileId="
+                    + file.getLocalId()
+                    + "&x=" + pxW + "&y=" + pxH + "&a=1&mode=cover&forceIcon=0";
+            } else {
+                uri = client.getBaseUri() + "/index.php/apps/files_trashbin/preview?fileId=" +
+                    file.getLocalId() + "&x=" + pxW + "&y=" + pxH;
+            }
+
+            Log_OC.d(TAG, "generate thumbnail: " + file.getFileName() + " URI: " + uri);
+            getMethod = new GetMethod(uri);
+            getMethod.setRequestHeader("Cookie", "nc_sameSiteCookielax=true;nc_sameSiteCookiestrict=true");
+            getMethod.setRequestHeader(RemoteOperation.OCS_API_HEADER, RemoteOperation.OCS_API_HEADER_VALUE);
+
+            if (requestListener != null) {
+                requestListener.accept(getMethod);
+            }
+
+            int status = client.executeMethod(getMethod, READ_TIMEOUT, CONNECTION_TIMEOUT);
+            if (status == HttpStatus.SC_OK) {
+                InputStream inputStream = getMethod.getResponseBodyAsStream();
+                Bitmap bitmap = BitmapFactory.decodeStream(inputStream);
+                thumbnail = ThumbnailUtils.extractThumbnail(bitmap, pxW, pxH);
+            } else {
+                client.exhaustResponse(getMethod.getResponseBodyAsStream());
+            }
+
+            // Handle PNG
+            if (thumbnail != null && PNG_MIMETYPE.equalsIgnoreCase(file.getMimeType())) {
+                thumbnail = handlePNG(thumbnail, pxW, pxH);
+            }
+        } catch (Exception e) {
+            Log_OC.d(TAG, e.getMessage(), e);
+        } finally {
+            if (getMethod != null) {
+                getMethod.releaseConnection();
+            }
+        }
+
+        return thumbnail;
+    }
+
+    /**
+     * Loads the thumbnail of a file into the cache before a view asks for it, used by
+     * {@link com.owncloud.android.ui.adapter.ThumbnailPrefetcher}. Merged with a concurrent
+     * {@link ThumbnailGenerationTask} for the same file, so the image is fetched only once.
+     *
+     * @param client client of the file's account, shared by the prefetch threads
+     * @return true if the thumbnail is cached afterwards
+     */
+    public static boolean prefetchThumbnail(OCFile file, OwnCloudClient client) {
+        String imageKey = PREFIX_THUMBNAIL + file.getRemoteId();
+
+        Bitmap thumbnail = ThumbnailLoader.loadShared(imageKey, () -> {
+            if (containsBitmap(imageKey)) {
+                return getBitmapFromDiskCache(imageKey);
+            }
+
+            int px = getServerThumbnailDimension();
+            Bitmap bitmap = downloadThumbnail(client, file, px, px, null);
+            if (bitmap != null) {
+                addBitmapToCache(imageKey, bitmap);
+            }
+            return bitmap;
+        });
+
+        return thumbnail != null;
+    }
+
+    /**
+     * Loads the resized image shown in the gallery into the cache before a view asks for it, see
+     * {@link #prefetchThumbnail(OCFile, OwnCloudClient)}.
+     *
+     * @return true if the image is cached afterwards
+     */
+    public static boolean prefetchResizedImage(OCFile file,
+                                               OwnCloudClient client,
+                                               FileDataStorageManager storageManager) {
+        if (containsBitmap(PREFIX_RESIZED_IMAGE + file.getRemoteId())) {
+            return true;
+        }
+
+        return loadResizedImageShared(client, file, storageManager) != null;
+    }
+
     public static void generateResizedImage(OCFile file) {
         Point p = getScreenDimension();
         int pxW = p.x;
@@ -1394,11 +1501,22 @@ public final class ThumbnailsCacheManager {
 
     @VisibleForTesting
     public static void clearCache() {
+        Log_OC.d(TAG, "Clearing thumbnail cache, memory tier: " + mMemoryCache.getStatistics());
+        mMemoryCache.clear();
         mThumbnailCache.clearCache();
         mThumbnailCache = null;
     }
 
-    private static Bitmap doResizedImageInBackground(OCFile file, FileDataStorageManager storageManager) {
+    private static Bitmap loadResizedImageShared(OwnCloudClient client,
+                                                 OCFile file,
+                                                 FileDataStorageManager storageManager) {
+        return ThumbnailLoader.loadShared(PREFIX_RESIZED_IMAGE + file.getRemoteId(),
+                                          () -> doResizedImageInBackground(client, file, storageManager));
+    }
+
+    private static Bitmap doResizedImageInBackground(OwnCloudClient client,
+                                                     OCFile file,
+                                                     FileDataStorageManager storageManager) {
         Bitmap thumbnail;
 
         String imageKey = PREFIX_RESIZED_IMAGE + file.getRemoteId();
@@ -1428,21 +1546,21 @@ public final class ThumbnailsCacheManager {
 
             } else {
                 // Download thumbnail from server
-                if (mClient != null) {
+                if (client != null) {
                     GetMethod getMethod = null;
                     try {
-                        String uri = mClient.getBaseUri() + "/index.php/core/preview?fileId="
+                        String uri = client.getBaseUri() + "/index.php/core/preview?fileId="
                             + file.getLocalId()
                             + "&x=" + (pxW / 2) + "&y=" + (pxH / 2) + "&a=1&mode=cover&forceIcon=0";
                         Log_OC.d(TAG, "generate resized image: " + file.getFileName() + " URI: " + uri);
                         getMethod = new GetMethod(uri);
 
-                        int status = mClient.executeMethod(getMethod);
+                        int status = client.executeMethod(getMethod);
                         if (status == HttpStatus.SC_OK) {
                             InputStream inputStream = getMethod.getResponseBodyAsStream();
                             thumbnail = BitmapFactory.decodeStream(inputStream);
                         } else {
-                            mClient.exhaustResponse(getMethod.getResponseBodyAsStream());
+                            client.exhaustResponse(getMethod.getResponseBodyAsStream());
                         }
 
                         // Handle PNG
@@ -14,19 +14,17 @@
  */
 package com.owncloud.android.datamodel;
 
-import android.content.ContentProviderOperation;
-import android.content.ContentProviderResult;
 import android.content.ContentResolver;
 import android.content.ContentValues;
-import android.content.OperationApplicationException;
 import android.database.Cursor;
 import android.net.Uri;
-import android.os.RemoteException;
 
 import com.nextcloud.client.account.CurrentAccountProvider;
 import com.nextcloud.client.account.User;
 import com.nextcloud.client.database.NextcloudDatabase;
 import com.nextcloud.client.database.dao.UploadDao;
+import com.nextcloud.client.database.entity.UploadEntity;
+import com.nextcloud.client.database.entity.UploadPathsRow;
 import com.nextcloud.client.jobs.upload.FileUploadHelper;
 import com.nextcloud.client.jobs.upload.FileUploadWorker;
 import com.nextcloud.utils.autoRename.AutoRename;
@@ -39,14 +37,18 @@ import com.owncloud.android.lib.common.operations.RemoteOperationResult;
 import com.owncloud.android.lib.common.utils.Log_OC;
 import com.owncloud.android.lib.resources.status.OCCapability;
 import com.owncloud.android.operations.UploadFileOperation;
+import com.owncloud.android.operations.e2e.E2EUploadState;
 import com.owncloud.android.utils.theme.CapabilityUtils;
 
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Observable;
 
 import androidx.annotation.NonNull;
@@ -68,10 +70,16 @@ public class UploadsStorageManager extends Observable {
 
     private static final long QUERY_PAGE_SIZE = 100;
 
+    /** Stays below the limit of SQLite host parameters per statement */
+    private static final int MAX_IDS_PER_QUERY = 500;
+
     private final ContentResolver contentResolver;
     private final CurrentAccountProvider currentAccountProvider;
     private OCCapability capability;
-    public final UploadDao uploadDao = NextcloudDatabase.getInstance(MainApp.getAppContext()).uploadDao();
+    private final NextcloudDatabase database = NextcloudDatabase.getInstance(MainApp.getAppContext());
+    public final UploadDao uploadDao = database.uploadDao();
+    private final ArbitraryDataProvider arbitraryDataProvider =
+        new ArbitraryDataProviderImpl(database.arbitraryDataDao());
 
     public UploadsStorageManager(
         CurrentAccountProvider currentAccountProvider,
@@ -129,43 +137,105 @@ public class UploadsStorageManager extends Observable {
 
     }
 
+    /**
+     * Stores upload objects in DB within a single transaction and notifies observers once.
+     *
+     * Uploads already existing as pending, current or failed upload are updated instead, like in
+     * {@link #storeUpload(OCUpload)}. Null entries are skipped.
+     *
+     * @param ocUploads Upload objects to store, their ids are set
+     * @return upload ids in the order of the given uploads, -1 for skipped entries
+     */
     public long[] storeUploads(final List<OCUpload> ocUploads) {
-        Log_OC.v(TAG, "Inserting " + ocUploads.size() + " uploads");
-        ArrayList<ContentProviderOperation> operations = new ArrayList<>(ocUploads.size());
-        for (OCUpload ocUpload : ocUploads) {
-
-            OCUpload existingUpload = getPendingCurrentOrFailedUpload(ocUpload);
-            if (existingUpload != null) {
-                Log_OC.v(TAG, "Will update upload in db since " + ocUpload.getLocalPath() + " already exists as" +
-                    " pending, current or failed upload");
-                ocUpload.setUploadId(existingUpload.getUploadId());
-                updateUpload(ocUpload);
-                continue;
-            }
+        final long start = System.currentTimeMillis();
+        final long[] ids = new long[ocUploads.size()];
+        Arrays.fill(ids, -1);
+
+        database.runInTransaction(() -> {
+            final Map<String, Map<String, Long>> storedUploadsByAccount = new HashMap<>();
+            final List<UploadEntity> newUploads = new ArrayList<>();
+            final List<Integer> newUploadIndexes = new ArrayList<>();
+
+            for (int i = 0; i < ocUploads.size(); i++) {
+                final OCUpload ocUpload = ocUploads.get(i);
+                if (ocUpload == null) {
+                    continue;
+                }
 
-            final ContentProviderOperation operation = ContentProviderOperation
-                .newInsert(ProviderTableMeta.CONTENT_URI_UPLOADS)
-                .withValues(getContentValues(ocUpload))
-                .build();
-            operations.add(operation);
-        }
+                Map<String, Long> storedUploads = storedUploadsByAccount.get(ocUpload.getAccountName());
+                if (storedUploads == null) {
+                    storedUploads = getStoredUploadIds(ocUpload.getAccountName());
+                    storedUploadsByAccount.put(ocUpload.getAccountName(), storedUploads);
+                }
 
-        try {
-            final ContentProviderResult[] contentProviderResults = getDB().applyBatch(MainApp.getAuthority(), operations);
-            final long[] newIds = new long[ocUploads.size()];
-            for (int i = 0; i < contentProviderResults.length; i++) {
-                final ContentProviderResult result = contentProviderResults[i];
-                final long new_id = Long.parseLong(result.uri.getPathSegments().get(1));
-                ocUploads.get(i).setUploadId(new_id);
-                newIds[i] = new_id;
+                final String key = getUploadKey(ocUpload.getLocalPath(), ocUpload.getRemotePath());
+                final Long existingId = storedUploads.get(key);
+                if (existingId != null) {
+                    ocUpload.setUploadId(existingId);
+                    uploadDao.updateState(existingId,
+                                          ocUpload.getUploadStatus().value,
+                                          ocUpload.getLastResult().getValue(),
+                                          ocUpload.getUploadEndTimestamp(),
+                                          ocUpload.getFileSize(),
+                                          ocUpload.getFolderUnlockToken());
+                    ids[i] = existingId;
+                } else {
+                    newUploads.add(toUploadEntity(ocUpload));
+                    newUploadIndexes.add(i);
+                }
             }
-            notifyObserversNow();
-            return newIds;
-        } catch (OperationApplicationException | RemoteException e) {
-            Log_OC.e(TAG, "Error inserting uploads", e);
+
+            final List<Long> newIds = uploadDao.insertAll(newUploads);
+            for (int i = 0; i < newIds.size(); i++) {
+                final int index = newUploadIndexes.get(i);
+                ocUploads.get(index).setUploadId(newIds.get(i));
+                ids[index] = newIds.get(i);
+            }
+        });
+        notifyObserversNow();
+
+        final long duration = System.currentTimeMillis() - start;
+        Log_OC.d(TAG, "Stored " + ocUploads.size() + " uploads in " + duration + " ms (" +
+            ocUploads.size() * 1000L / Math.max(duration, 1) + " uploads/s)");
+        return ids;
+    }
+
+    /**
+     * @return ids of the pending, current or failed uploads of the account by {@link #getUploadKey(String, String)}
+     */
+    private Map<String, Long> getStoredUploadIds(String accountName) {
+        final List<UploadPathsRow> rows = uploadDao.getUploadPaths(
+            accountName,
+            Arrays.asList(UploadStatus.UPLOAD_IN_PROGRESS.value, UploadStatus.UPLOAD_FAILED.value));
+        final Map<String, Long> ids = new HashMap<>(rows.size());
+        for (UploadPathsRow row : rows) {
+            ids.put(getUploadKey(row.getLocalPath(), row.getRemotePath()), row.getId());
         }
+        return ids;
+    }
 
-        return null;
+    private static String getUploadKey(String localPath, String remotePath) {
+        return localPath + '\n' + remotePath;
+    }
+
+    private static UploadEntity toUploadEntity(OCUpload ocUpload) {
+        return new UploadEntity(
+            null,
+            ocUpload.getLocalPath(),
+            ocUpload.getRemotePath(),
+            ocUpload.getAccountName(),
+            ocUpload.getFileSize(),
+            ocUpload.getUploadStatus().value,
+            ocUpload.getLocalAction(),
+            null,
+            ocUpload.getNameCollisionPolicy().serialize(),
+            ocUpload.isCreateRemoteFolder() ? 1 : 0,
+            null,
+            ocUpload.getLastResult().getValue(),
+            ocUpload.isWhileChargingOnly() ? 1 : 0,
+            ocUpload.isUseWifiOnly() ? 1 : 0,
+            ocUpload.getCreatedBy(),
+            ocUpload.getFolderUnlockToken());
     }
 
     @NonNull
@@ -322,10 +392,13 @@ public class UploadsStorageManager extends Observable {
      * @return true when the upload was stored and could be removed.
      */
     public int removeUpload(long id) {
+        String selection = ProviderTableMeta._ID + "=?";
+        String[] selectionArgs = new String[]{Long.toString(id)};
+        discardEncryptedCopies(selection, selectionArgs);
         int result = getDB().delete(
             ProviderTableMeta.CONTENT_URI_UPLOADS,
-            ProviderTableMeta._ID + "=?",
-            new String[]{Long.toString(id)}
+            selection,
+            selectionArgs
                                    );
         Log_OC.d(TAG, "delete returns " + result + " for upload with id " + id);
         if (result > 0) {
@@ -342,10 +415,14 @@ public class UploadsStorageManager extends Observable {
      * @return true when one or more upload entries were removed
      */
     public int removeUpload(String accountName, String remotePath) {
+        String selection = ProviderTableMeta.UPLOADS_ACCOUNT_NAME + "=? AND " +
+            ProviderTableMeta.UPLOADS_REMOTE_PATH + "=?";
+        String[] selectionArgs = new String[]{accountName, remotePath};
+        discardEncryptedCopies(selection, selectionArgs);
         int result = getDB().delete(
             ProviderTableMeta.CONTENT_URI_UPLOADS,
-            ProviderTableMeta.UPLOADS_ACCOUNT_NAME + "=? AND " + ProviderTableMeta.UPLOADS_REMOTE_PATH + "=?",
-            new String[]{accountName, remotePath}
+            selection,
+            selectionArgs
                                    );
         Log_OC.d(TAG, "delete returns " + result + " for file " + remotePath + " in " + accountName);
         if (result > 0) {
@@ -361,10 +438,13 @@ public class UploadsStorageManager extends Observable {
      * @return true when one or more upload entries were removed
      */
     public int removeUploads(String accountName) {
+        String selection = ProviderTableMeta.UPLOADS_ACCOUNT_NAME + "=?";
+        String[] selectionArgs = new String[]{accountName};
+        discardEncryptedCopies(selection, selectionArgs);
         int result = getDB().delete(
             ProviderTableMeta.CONTENT_URI_UPLOADS,
-            ProviderTableMeta.UPLOADS_ACCOUNT_NAME + "=?",
-            new String[]{accountName}
+            selection,
+            selectionArgs
                                    );
         Log_OC.d(TAG, "delete returns " + result + " for uploads in " + accountName);
         if (result > 0) {
@@ -442,6 +522,37 @@ public class UploadsStorageManager extends Observable {
         return result;
     }
 
+    /**
+     * Loads the uploads with the given ids, querying up to {@link #MAX_IDS_PER_QUERY} ids at once.
+     *
+     * @return stored uploads in the order of the given ids
+     */
+    public List<OCUpload> getUploadsByIds(long[] ids) {
+        final Map<Long, OCUpload> uploads = new HashMap<>(ids.length);
+        for (int from = 0; from < ids.length; from += MAX_IDS_PER_QUERY) {
+            final int to = Math.min(ids.length, from + MAX_IDS_PER_QUERY);
+            final String[] selectionArgs = new String[to - from];
+            for (int i = from; i < to; i++) {
+                selectionArgs[i - from] = String.valueOf(ids[i]);
+            }
+            final String selection = ProviderTableMeta._ID + " IN (" +
+                String.join(",", Collections.nCopies(selectionArgs.length, "?")) + ")";
+
+            for (OCUpload upload : getUploadPage(0, -1, false, selection, selectionArgs)) {
+                uploads.put(upload.getUploadId(), upload);
+            }
+        }
+
+        final List<OCUpload> result = new ArrayList<>(uploads.size());
+        for (long id : ids) {
+            final OCUpload upload = uploads.get(id);
+            if (upload != null) {
+                result.add(upload);
+            }
+        }
+        return result;
+    }
+
     private OCUpload[] getUploads(@Nullable String selection, @Nullable String... selectionArgs) {
         final List<OCUpload> uploads = new ArrayList<>();
         long page = 0;
@@ -707,21 +818,55 @@ public class UploadsStorageManager extends Observable {
         return contentResolver;
     }
 
+    /**
+     * Drops the encrypted copies kept for retries of the end-to-end encrypted uploads matching the selection, together
+     * with their stored state.
+     */
+    private void discardEncryptedCopies(@Nullable String selection, @Nullable String[] selectionArgs) {
+        try (Cursor cursor = getDB().query(ProviderTableMeta.CONTENT_URI_UPLOADS,
+                                           new String[]{ProviderTableMeta._ID, ProviderTableMeta.UPLOADS_ACCOUNT_NAME},
+                                           selection,
+                                           selectionArgs,
+                                           null)) {
+            if (cursor == null) {
+                return;
+            }
+
+            while (cursor.moveToNext()) {
+                discardEncryptedCopy(cursor.getString(1), cursor.getLong(0));
+            }
+        }
+    }
+
+    /**
+     * Drops the encrypted copy kept for retries of the given end-to-end encrypted upload, e.g. when it is cancelled.
+     */
+    public void discardEncryptedCopy(OCUpload upload) {
+        discardEncryptedCopy(upload.getAccountName(), upload.getUploadId());
+    }
+
+    private void discardEncryptedCopy(String accountName, long uploadId) {
+        E2EUploadState.delete(arbitraryDataProvider, accountName, uploadId);
+    }
+
     public void clearFailedButNotDelayedUploads() {
         User user = currentAccountProvider.getUser();
+        String selection = ProviderTableMeta.UPLOADS_STATUS + EQUAL + UploadStatus.UPLOAD_FAILED.value +
+            AND + ProviderTableMeta.UPLOADS_LAST_RESULT +
+            ANGLE_BRACKETS + UploadResult.LOCK_FAILED.getValue() +
+            AND + ProviderTableMeta.UPLOADS_LAST_RESULT +
+            ANGLE_BRACKETS + UploadResult.DELAYED_FOR_WIFI.getValue() +
+            AND + ProviderTableMeta.UPLOADS_LAST_RESULT +
+            ANGLE_BRACKETS + UploadResult.DELAYED_FOR_CHARGING.getValue() +
+            AND + ProviderTableMeta.UPLOADS_LAST_RESULT +
+            ANGLE_BRACKETS + UploadResult.DELAYED_IN_POWER_SAVE_MODE.getValue() +
+            AND + ProviderTableMeta.UPLOADS_ACCOUNT_NAME + IS_EQUAL;
+        String[] selectionArgs = new String[]{user.getAccountName()};
+        discardEncryptedCopies(selection, selectionArgs);
         final long deleted = getDB().delete(
             ProviderTableMeta.CONTENT_URI_UPLOADS,
-            ProviderTableMeta.UPLOADS_STATUS + EQUAL + UploadStatus.UPLOAD_FAILED.value +
-                AND + ProviderTableMeta.UPLOADS_LAST_RESULT +
-                ANGLE_BRACKETS + UploadResult.LOCK_FAILED.getValue() +
-                AND + ProviderTableMeta.UPLOADS_LAST_RESULT +
-                ANGLE_BRACKETS + UploadResult.DELAYED_FOR_WIFI.getValue() +
-                AND + ProviderTableMeta.UPLOADS_LAST_RESULT +
-                ANGLE_BRACKETS + UploadResult.DELAYED_FOR_CHARGING.getValue() +
-                AND + ProviderTableMeta.UPLOADS_LAST_RESULT +
-                ANGLE_BRACKETS + UploadResult.DELAYED_IN_POWER_SAVE_MODE.getValue() +
-                AND + ProviderTableMeta.UPLOADS_ACCOUNT_NAME + IS_EQUAL,
-            new String[]{user.getAccountName()}
+            selection,
+            selectionArgs
                                            );
         Log_OC.d(TAG, "delete all failed uploads but those delayed for Wifi");
         if (deleted > 0) {
@@ -731,10 +876,14 @@ public class UploadsStorageManager extends Observable {
 
     public void clearCancelledUploadsForCurrentAccount() {
         User user = currentAccountProvider.getUser();
+        String selection = ProviderTableMeta.UPLOADS_STATUS + EQUAL + UploadStatus.UPLOAD_CANCELLED.value + AND +
+            ProviderTableMeta.UPLOADS_ACCOUNT_NAME + IS_EQUAL;
+        String[] selectionArgs = new String[]{user.getAccountName()};
+        discardEncryptedCopies(selection, selectionArgs);
         final long deleted = getDB().delete(
             ProviderTableMeta.CONTENT_URI_UPLOADS,
-            ProviderTableMeta.UPLOADS_STATUS + EQUAL + UploadStatus.UPLOAD_CANCELLED.value + AND +
-                ProviderTableMeta.UPLOADS_ACCOUNT_NAME + IS_EQUAL, new String[]{user.getAccountName()}
+            selection,
+            selectionArgs
                                            );
 
         Log_OC.d(TAG, "delete all cancelled uploads");
@@ -864,6 +1013,7 @@ public class UploadsStorageManager extends Observable {
     @VisibleForTesting
     public void removeAllUploads() {
         Log_OC.v(TAG, "Delete all uploads!");
+        discardEncryptedCopies(null, null);
         getDB().delete(
             ProviderTableMeta.CONTENT_URI_UPLOADS,
             "",
@@ -872,6 +1022,7 @@ public class UploadsStorageManager extends Observable {
 
     public int removeUserUploads(User user) {
         Log_OC.v(TAG, "Delete all uploads for account " + user.getAccountName());
+        discardEncryptedCopies(ProviderTableMeta.UPLOADS_ACCOUNT_NAME + "=?", new String[]{user.getAccountName()});
         return getDB().delete(
             ProviderTableMeta.CONTENT_URI_UPLOADS,
             ProviderTableMeta.UPLOADS_ACCOUNT_NAME + "=?",
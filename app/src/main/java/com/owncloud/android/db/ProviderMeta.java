@@ -25,7 +25,7 @@ import java.util.List;
  */
 public class ProviderMeta {
     public static final String DB_NAME = "filelist";
-    public static final int DB_VERSION = 90;
+    public static final int DB_VERSION = 95;
 
     private ProviderMeta() {
         // No instance
@@ -34,6 +34,8 @@ public class ProviderMeta {
     static public class ProviderTableMeta implements BaseColumns {
         public static final String OFFLINE_OPERATION_TABLE_NAME = "offline_operations";
         public static final String FILE_TABLE_NAME = "filelist";
+        public static final String FILE_NAME_SEARCH_TABLE_NAME = "filelist_fts";
+        public static final String LOCAL_USAGE_TABLE_NAME = "local_usage";
         public static final String OCSHARES_TABLE_NAME = "ocshares";
         public static final String CAPABILITIES_TABLE_NAME = "capabilities";
         public static final String UPLOADS_TABLE_NAME = "list_of_uploads";
@@ -304,6 +306,12 @@ public class ProviderMeta {
         public static final String OFFLINE_OPERATION_CREATED_AT = "offline_operations_created_at";
         public static final String OFFLINE_OPERATION_FILE_NAME = "offline_operations_file_name";
 
+        // Columns of local_usage table
+        public static final String LOCAL_USAGE_ACCOUNT = "local_usage_account";
+        public static final String LOCAL_USAGE_PATH = "local_usage_path";
+        public static final String LOCAL_USAGE_BYTES = "local_usage_bytes";
+        public static final String LOCAL_USAGE_RECONCILED = "local_usage_reconciled";
+
 
         // Columns of synced folder table
         public static final String SYNCED_FOLDER_LOCAL_PATH = "local_path";
@@ -349,6 +357,10 @@ public class ProviderMeta {
         public static final String FILESYSTEM_FILE_SENT_FOR_UPLOAD = "upload_triggered";
         public static final String FILESYSTEM_SYNCED_FOLDER_ID = "syncedfolder_id";
         public static final String FILESYSTEM_CRC32 = "crc32";
+        public static final String FILESYSTEM_FILE_SIZE = "file_size";
+        public static final String FILESYSTEM_FILE_INODE = "inode";
+        public static final String FILESYSTEM_HASH_STRATEGY = "hash_strategy";
+        public static final String FILESYSTEM_FULL_CRC32 = "full_crc32";
 
         public static final String CAPABILITIES_RECOMMENDATION = "recommendation";
 
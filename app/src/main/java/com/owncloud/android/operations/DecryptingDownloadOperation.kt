@@ -0,0 +1,133 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.owncloud.android.operations
+
+import com.owncloud.android.lib.common.OwnCloudClient
+import com.owncloud.android.lib.common.network.OnDatatransferProgressListener
+import com.owncloud.android.lib.common.operations.OperationCancelledException
+import com.owncloud.android.lib.common.operations.RemoteOperation
+import com.owncloud.android.lib.common.operations.RemoteOperationResult
+import com.owncloud.android.lib.common.utils.Log_OC
+import com.owncloud.android.operations.e2e.DecryptingFileSink
+import org.apache.commons.httpclient.HttpStatus
+import org.apache.commons.httpclient.methods.GetMethod
+import org.apache.commons.httpclient.util.DateParseException
+import org.apache.commons.httpclient.util.DateUtil
+import java.io.File
+import java.io.IOException
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * Downloads an end-to-end encrypted file and decrypts it on the fly into [targetFile], see [DecryptingFileSink].
+ * No encrypted copy is stored, opening a big encrypted file costs one pass over it and its size in storage once.
+ */
+class DecryptingDownloadOperation(
+    private val remotePath: String,
+    private val targetFile: File,
+    private val key: ByteArray,
+    private val iv: ByteArray,
+    private val cancellationRequested: AtomicBoolean
+) : RemoteOperation<Void>() {
+
+    companion object {
+        private val TAG = DecryptingDownloadOperation::class.java.simpleName
+    }
+
+    private val dataTransferListeners = mutableSetOf<OnDatatransferProgressListener>()
+
+    var modificationTimestamp = 0L
+        private set
+
+    var etag = ""
+        private set
+
+    fun addDatatransferProgressListener(listener: OnDatatransferProgressListener) {
+        synchronized(dataTransferListeners) {
+            dataTransferListeners.add(listener)
+        }
+    }
+
+    @Deprecated("Deprecated in Java")
+    @Suppress("TooGenericExceptionCaught")
+    override fun run(client: OwnCloudClient): RemoteOperationResult<Void> {
+        var get: GetMethod? = null
+
+        return try {
+            get = GetMethod(client.getFilesDavUri(remotePath))
+            val status = client.executeMethod(get)
+
+            if (status == HttpStatus.SC_OK) {
+                readHeaders(get)
+                download(get)
+                RemoteOperationResult(true, get)
+            } else {
+                client.exhaustResponse(get.responseBodyAsStream)
+                RemoteOperationResult(false, get)
+            }
+        } catch (e: Exception) {
+            Log_OC.e(TAG, "Download of $remotePath failed: " + e.message)
+            RemoteOperationResult(e)
+        } finally {
+            get?.releaseConnection()
+        }
+    }
+
+    private fun readHeaders(get: GetMethod) {
+        etag = get.getResponseHeader("ETag")?.value?.trim('"') ?: ""
+
+        get.getResponseHeader("Last-Modified")?.value?.let {
+            try {
+                modificationTimestamp = DateUtil.parseDate(it).time
+            } catch (e: DateParseException) {
+                Log_OC.d(TAG, "Unparsable modification date of $remotePath: $it")
+            }
+        }
+    }
+
+    private fun download(get: GetMethod) {
+        val totalToTransfer = get.getResponseHeader("Content-Length")?.value?.toLongOrNull() ?: -1
+        val buffer = DecryptingFileSink.acquireBuffer()
+        var transferred = 0L
+
+        try {
+            DecryptingFileSink(key, iv, targetFile).use { sink ->
+                get.responseBodyAsStream.use { input ->
+                    while (true) {
+                        if (cancellationRequested.get()) {
+                            get.abort()
+                            throw OperationCancelledException()
+                        }
+
+                        val read = input.read(buffer)
+                        if (read == -1) {
+                            break
+                        }
+
+                        sink.write(buffer, 0, read)
+                        transferred += read
+                        notifyProgress(read.toLong(), transferred, totalToTransfer)
+                    }
+                }
+
+                if (totalToTransfer >= 0 && transferred != totalToTransfer) {
+                    throw IOException("Received $transferred of $totalToTransfer bytes of $remotePath")
+                }
+                sink.finish()
+            }
+        } finally {
+            DecryptingFileSink.releaseBuffer(buffer)
+        }
+    }
+
+    private fun notifyProgress(progressRate: Long, transferred: Long, totalToTransfer: Long) {
+        synchronized(dataTransferListeners) {
+            dataTransferListeners.forEach {
+                it.onTransferProgress(progressRate, transferred, totalToTransfer, targetFile.name)
+            }
+        }
+    }
+}
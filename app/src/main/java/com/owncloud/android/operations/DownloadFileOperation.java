@@ -44,6 +44,8 @@ import java.util.Iterator;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import androidx.annotation.Nullable;
+
 import javax.crypto.Cipher;
 
 import static com.owncloud.android.utils.EncryptionUtils.decodeStringToBase64Bytes;
@@ -184,6 +186,10 @@ public class DownloadFileOperation extends RemoteOperation {
             return new RemoteOperationResult<>(RemoteOperationResult.ResultCode.UNKNOWN_ERROR);
         }
 
+        if (file.isEncrypted() && downloadType == DownloadType.DOWNLOAD) {
+            return downloadAndDecrypt(client, operationContext);
+        }
+
         RemoteOperationResult result;
         File newFile = null;
         boolean moved;
@@ -220,56 +226,14 @@ public class DownloadFileOperation extends RemoteOperation {
 
             // decrypt file
             if (file.isEncrypted()) {
-                FileDataStorageManager fileDataStorageManager = new FileDataStorageManager(user, operationContext.getContentResolver());
-
-                OCFile parent = fileDataStorageManager.getFileByEncryptedRemotePath(file.getParentRemotePath());
-
-                Object object = EncryptionUtils.downloadFolderMetadata(parent,
-                                                                       client,
-                                                                       operationContext,
-                                                                       user);
-
-                if (object == null) {
+                FileEncryption encryption = getFileEncryption(client, operationContext);
+                if (encryption == null) {
                     return new RemoteOperationResult(RemoteOperationResult.ResultCode.METADATA_NOT_FOUND);
                 }
 
-                String keyString;
-                String nonceString;
-                String authenticationTagString;
-                if (object instanceof DecryptedFolderMetadataFile) {
-                    DecryptedFile decryptedFile = ((DecryptedFolderMetadataFile) object)
-                        .getMetadata()
-                        .getFiles()
-                        .get(file.getEncryptedFileName());
-
-                    if (decryptedFile == null) {
-                        return new RemoteOperationResult(RemoteOperationResult.ResultCode.METADATA_NOT_FOUND);
-                    }
-
-                    keyString = decryptedFile.getKey();
-                    nonceString = decryptedFile.getNonce();
-                    authenticationTagString = decryptedFile.getAuthenticationTag();
-                } else {
-                    com.owncloud.android.datamodel.e2e.v1.decrypted.DecryptedFile decryptedFile =
-                        ((DecryptedFolderMetadataFileV1) object)
-                            .getFiles()
-                            .get(file.getEncryptedFileName());
-
-                    if (decryptedFile == null) {
-                        return new RemoteOperationResult(RemoteOperationResult.ResultCode.METADATA_NOT_FOUND);
-                    }
-
-                    keyString = decryptedFile.getEncrypted().getKey();
-                    nonceString = decryptedFile.getInitializationVector();
-                    authenticationTagString = decryptedFile.getAuthenticationTag();
-                }
-
-                byte[] key = decodeStringToBase64Bytes(keyString);
-                byte[] iv = decodeStringToBase64Bytes(nonceString);
-
                 try {
-                    Cipher cipher = EncryptionUtils.getCipher(Cipher.DECRYPT_MODE, key, iv);
-                    EncryptionUtils.decryptFile(cipher, tmpFile, newFile, authenticationTagString, new ArbitraryDataProviderImpl(operationContext), user);
+                    Cipher cipher = EncryptionUtils.getCipher(Cipher.DECRYPT_MODE, encryption.key, encryption.iv);
+                    EncryptionUtils.decryptFile(cipher, tmpFile, newFile, encryption.authenticationTag, new ArbitraryDataProviderImpl(operationContext), user);
                 } catch (Exception e) {
                     return new RemoteOperationResult(e);
                 }
@@ -300,6 +264,104 @@ public class DownloadFileOperation extends RemoteOperation {
         return result;
     }
 
+    /**
+     * Downloads an encrypted file straight to its save path, decrypting it while it arrives.
+     */
+    private RemoteOperationResult downloadAndDecrypt(OwnCloudClient client, Context operationContext) {
+        FileEncryption encryption = getFileEncryption(client, operationContext);
+        if (encryption == null) {
+            return new RemoteOperationResult(RemoteOperationResult.ResultCode.METADATA_NOT_FOUND);
+        }
+
+        try {
+            Cipher cipher = EncryptionUtils.getCipher(Cipher.DECRYPT_MODE, encryption.key, encryption.iv);
+            if (!EncryptionUtils.getAuthenticationTag(cipher).equals(encryption.authenticationTag)) {
+                Log_OC.e(TAG, "Authentication tag of " + file.getRemotePath() + " differs from metadata");
+                EncryptionUtils.reportE2eError(new ArbitraryDataProviderImpl(operationContext), user);
+            }
+        } catch (Exception e) {
+            return new RemoteOperationResult(e);
+        }
+
+        File newFile = new File(getSavePath());
+        if (!newFile.getParentFile().exists() && !newFile.getParentFile().mkdirs()) {
+            Log_OC.e(TAG, "Unable to create parent folder " + newFile.getParentFile().getAbsolutePath());
+        }
+
+        DecryptingDownloadOperation decryptingDownload = new DecryptingDownloadOperation(file.getRemotePath(),
+                                                                                         newFile,
+                                                                                         encryption.key,
+                                                                                         encryption.iv,
+                                                                                         cancellationRequested);
+        synchronized (dataTransferListeners) {
+            for (OnDatatransferProgressListener listener : dataTransferListeners) {
+                decryptingDownload.addDatatransferProgressListener(listener);
+            }
+        }
+
+        RemoteOperationResult result = decryptingDownload.execute(client);
+        if (result.isSuccess()) {
+            modificationTimestamp = decryptingDownload.getModificationTimestamp();
+            etag = decryptingDownload.getEtag();
+            boolean isLastModifiedSet = newFile.setLastModified(file.getModificationTimestamp());
+            Log_OC.d(TAG, "Last modified set: " + isLastModifiedSet);
+        } else if (result.getException() instanceof SecurityException) {
+            // the decrypted content failed authentication and was deleted
+            EncryptionUtils.reportE2eError(new ArbitraryDataProviderImpl(operationContext), user);
+        }
+
+        Log_OC.i(TAG, "Download of " + file.getRemotePath() + " to " + newFile.getAbsolutePath() + ": " +
+            result.getLogMessage());
+
+        return result;
+    }
+
+    /**
+     * Key, IV and tag of the file from the metadata of its parent folder, null if not listed there.
+     */
+    @Nullable
+    private FileEncryption getFileEncryption(OwnCloudClient client, Context operationContext) {
+        FileDataStorageManager fileDataStorageManager = new FileDataStorageManager(user, operationContext.getContentResolver());
+        OCFile parent = fileDataStorageManager.getFileByEncryptedRemotePath(file.getParentRemotePath());
+
+        Object object = EncryptionUtils.downloadFolderMetadata(parent, client, operationContext, user);
+
+        if (object instanceof DecryptedFolderMetadataFile metadataFile) {
+            DecryptedFile decryptedFile = metadataFile.getMetadata().getFiles().get(file.getEncryptedFileName());
+            if (decryptedFile == null) {
+                return null;
+            }
+
+            return new FileEncryption(decryptedFile.getKey(),
+                                      decryptedFile.getNonce(),
+                                      decryptedFile.getAuthenticationTag());
+        } else if (object instanceof DecryptedFolderMetadataFileV1 metadataFile) {
+            com.owncloud.android.datamodel.e2e.v1.decrypted.DecryptedFile decryptedFile =
+                metadataFile.getFiles().get(file.getEncryptedFileName());
+            if (decryptedFile == null) {
+                return null;
+            }
+
+            return new FileEncryption(decryptedFile.getEncrypted().getKey(),
+                                      decryptedFile.getInitializationVector(),
+                                      decryptedFile.getAuthenticationTag());
+        }
+
+        return null;
+    }
+
+    private static final class FileEncryption {
+        final byte[] key;
+        final byte[] iv;
+        final String authenticationTag;
+
+        FileEncryption(String key, String iv, String authenticationTag) {
+            this.key = decodeStringToBase64Bytes(key);
+            this.iv = decodeStringToBase64Bytes(iv);
+            this.authenticationTag = authenticationTag;
+        }
+    }
+
     public void cancel() {
         cancellationRequested.set(true);   // atomic set; there is no need of synchronizing it
         if (downloadOperation != null) {
@@ -28,6 +28,7 @@ import com.owncloud.android.datamodel.ArbitraryDataProvider;
 import com.owncloud.android.datamodel.ArbitraryDataProviderImpl;
 import com.owncloud.android.datamodel.FileDataStorageManager;
 import com.owncloud.android.datamodel.OCFile;
+import com.owncloud.android.datamodel.ThumbnailLoader;
 import com.owncloud.android.datamodel.ThumbnailsCacheManager;
 import com.owncloud.android.datamodel.UploadsStorageManager;
 import com.owncloud.android.datamodel.e2e.v1.decrypted.Data;
@@ -58,6 +59,7 @@ import com.owncloud.android.operations.common.SyncOperation;
 import com.owncloud.android.operations.e2e.E2EClientData;
 import com.owncloud.android.operations.e2e.E2EData;
 import com.owncloud.android.operations.e2e.E2EFiles;
+import com.owncloud.android.operations.e2e.E2EUploadState;
 import com.owncloud.android.utils.EncryptionUtils;
 import com.owncloud.android.utils.EncryptionUtilsV2;
 import com.owncloud.android.utils.FileStorageUtils;
@@ -517,7 +519,7 @@ public class UploadFileOperation extends SyncOperation {
                 throw new NullPointerException("creationTimestamp cannot be null");
             }
 
-            E2EData e2eData = getE2EData(object);
+            E2EData e2eData = getE2EData(object, arbitraryDataProvider);
             e2eFiles.setEncryptedTempFile(e2eData.getEncryptedFile().getEncryptedFile());
             if (e2eFiles.getEncryptedTempFile() == null) {
                 Log_OC.e(TAG, "UploadFileOperation encryptedTempFile cannot be null");
@@ -548,7 +550,7 @@ public class UploadFileOperation extends SyncOperation {
             Log_OC.e(TAG, "UploadFileOperation exception: " + e.getLocalizedMessage());
             result = new RemoteOperationResult(e);
         } finally {
-            result = cleanupE2EUpload(fileLock, e2eFiles, result, object, client, token);
+            result = cleanupE2EUpload(fileLock, e2eFiles, result, object, client, token, arbitraryDataProvider);
         }
 
         completeE2EUpload(result, e2eFiles, client);
@@ -738,18 +740,56 @@ public class UploadFileOperation extends SyncOperation {
         return result;
     }
 
-    private E2EData getE2EData(Object object) throws InvalidAlgorithmParameterException, NoSuchPaddingException, NoSuchAlgorithmException, InvalidKeyException, InvalidParameterSpecException, IOException {
+    /**
+     * Encrypts the file to upload, unless a previous attempt of this upload left a complete encrypted copy of the
+     * unchanged file: then that copy is sent again with its key to the same encrypted file name, so a chunked upload
+     * can skip the chunks the server already received.
+     */
+    private E2EData getE2EData(Object object, ArbitraryDataProvider arbitraryDataProvider) throws InvalidAlgorithmParameterException, NoSuchPaddingException, NoSuchAlgorithmException, InvalidKeyException, InvalidParameterSpecException, IOException {
+        File file = new File(mFile.getStoragePath());
+        long uploadId = mUpload.getUploadId();
+        String accountName = user.getAccountName();
+
+        E2EUploadState state = E2EUploadState.load(arbitraryDataProvider, accountName, uploadId);
+        byte[] reusedKey = null;
+        if (state != null && state.isReusableFor(file)) {
+            reusedKey = state.unwrapKey(arbitraryDataProvider.getValue(accountName, EncryptionUtils.PRIVATE_KEY));
+        }
+        if (reusedKey != null) {
+            Log_OC.d(TAG, "Reusing encrypted copy of " + file.getName() + " from previous attempt");
+            EncryptedFile encryptedFile = new EncryptedFile(state.getEncryptedFile(), state.getAuthenticationTag());
+            return new E2EData(reusedKey,
+                               EncryptionUtils.decodeStringToBase64Bytes(state.getIv()),
+                               encryptedFile,
+                               state.getEncryptedFileName());
+        }
+        E2EUploadState.delete(arbitraryDataProvider, accountName, uploadId);
+
         byte[] key = EncryptionUtils.generateKey();
         byte[] iv = EncryptionUtils.randomBytes(EncryptionUtils.ivLength);
         Cipher cipher = EncryptionUtils.getCipher(Cipher.ENCRYPT_MODE, key, iv);
-        File file = new File(mFile.getStoragePath());
-        EncryptedFile encryptedFile = EncryptionUtils.encryptFile(user.getAccountName(), file, cipher);
+        long sourceLength = file.length();
+        long sourceLastModified = file.lastModified();
+        EncryptedFile encryptedFile = EncryptionUtils.encryptFile(accountName, file, cipher);
         String encryptedFileName = getEncryptedFileName(object);
 
         if (key == null) {
             throw new NullPointerException("key cannot be null");
         }
 
+        String wrappedKey = E2EUploadState.wrapKey(key,
+                                                   arbitraryDataProvider.getValue(accountName,
+                                                                                  EncryptionUtils.PUBLIC_KEY));
+        if (wrappedKey != null) {
+            new E2EUploadState(encryptedFileName,
+                               encryptedFile.getEncryptedFile().getAbsolutePath(),
+                               wrappedKey,
+                               EncryptionUtils.encodeBytesToBase64String(iv),
+                               encryptedFile.getAuthenticationTag(),
+                               sourceLength,
+                               sourceLastModified).save(arbitraryDataProvider, accountName, uploadId);
+        }
+
         return new E2EData(key, iv, encryptedFile, encryptedFileName);
     }
 
@@ -864,7 +904,7 @@ public class UploadFileOperation extends SyncOperation {
         });
     }
 
-    private RemoteOperationResult cleanupE2EUpload(FileLock fileLock, E2EFiles e2eFiles, RemoteOperationResult result, Object object, OwnCloudClient client, String token) {
+    private RemoteOperationResult cleanupE2EUpload(FileLock fileLock, E2EFiles e2eFiles, RemoteOperationResult result, Object object, OwnCloudClient client, String token, ArbitraryDataProvider arbitraryDataProvider) {
         mUploadStarted.set(false);
 
         if (fileLock != null) {
@@ -905,10 +945,22 @@ public class UploadFileOperation extends SyncOperation {
             }
         }
 
-        e2eFiles.deleteEncryptedTempFile();
+        // the encrypted copy is kept for the retry of an interrupted upload
+        if (result.isSuccess() || !isResumableE2EUploadFailure(result)) {
+            E2EUploadState.delete(arbitraryDataProvider, user.getAccountName(), mUpload.getUploadId());
+            e2eFiles.deleteEncryptedTempFile();
+        }
 
         return result;
     }
+
+    private boolean isResumableE2EUploadFailure(RemoteOperationResult result) {
+        return switch (result.getCode()) {
+            case WRONG_CONNECTION, TIMEOUT, HOST_NOT_AVAILABLE, NO_NETWORK_CONNECTION, MAINTENANCE_MODE,
+                 DELAYED_FOR_WIFI, DELAYED_FOR_CHARGING, DELAYED_IN_POWER_SAVE_MODE -> true;
+            default -> false;
+        };
+    }
     // endregion
 
     private void sendRefreshFolderEventBroadcast() {
@@ -1629,7 +1681,8 @@ public class UploadFileOperation extends SyncOperation {
         // generate new Thumbnail
         final ThumbnailsCacheManager.ThumbnailGenerationTask task =
             new ThumbnailsCacheManager.ThumbnailGenerationTask(getStorageManager(), user);
-        task.execute(new ThumbnailsCacheManager.ThumbnailGenerationTaskObject(file, file.getRemoteId()));
+        task.executeOnExecutor(ThumbnailLoader.executor,
+                              new ThumbnailsCacheManager.ThumbnailGenerationTaskObject(file, file.getRemoteId()));
     }
 
     private void updateOCFile(OCFile file, RemoteFile remoteFile) {
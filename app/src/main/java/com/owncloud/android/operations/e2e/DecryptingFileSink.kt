@@ -0,0 +1,131 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.owncloud.android.operations.e2e
+
+import com.owncloud.android.lib.common.utils.Log_OC
+import org.bouncycastle.crypto.InvalidCipherTextException
+import org.bouncycastle.crypto.engines.AESEngine
+import org.bouncycastle.crypto.modes.GCMBlockCipher
+import org.bouncycastle.crypto.params.AEADParameters
+import org.bouncycastle.crypto.params.KeyParameter
+import java.io.Closeable
+import java.io.File
+import java.io.FileOutputStream
+import java.io.IOException
+import java.util.concurrent.ArrayBlockingQueue
+
+/**
+ * Decrypts an AES-GCM encrypted file while its bytes arrive and writes the plaintext next to [target].
+ *
+ * Plaintext is only moved to [target] by [finish] after the authentication tag at the end of the stream was
+ * verified. The plaintext of a file failing the check is deleted, unauthenticated content is never kept.
+ *
+ * Unlike the platform cipher, which holds the whole ciphertext in memory until the tag is checked, the GCM
+ * implementation used here only keeps back the last tag length of bytes.
+ */
+class DecryptingFileSink(
+    key: ByteArray,
+    iv: ByteArray,
+    private val target: File
+) : Closeable {
+
+    companion object {
+        private val TAG = DecryptingFileSink::class.java.simpleName
+
+        const val BUFFER_SIZE = 256 * 1024
+        private const val TAG_LENGTH_BITS = 128
+        private const val TAG_LENGTH = TAG_LENGTH_BITS / 8
+        private const val MAX_POOLED_BUFFERS = 4
+        private const val PART_SUFFIX = ".part"
+
+        private val bufferPool = ArrayBlockingQueue<ByteArray>(MAX_POOLED_BUFFERS)
+
+        /**
+         * Buffer of [BUFFER_SIZE] bytes, to be handed back by [releaseBuffer].
+         */
+        @JvmStatic
+        fun acquireBuffer(): ByteArray = bufferPool.poll() ?: ByteArray(BUFFER_SIZE)
+
+        @JvmStatic
+        fun releaseBuffer(buffer: ByteArray) {
+            if (buffer.size == BUFFER_SIZE) {
+                bufferPool.offer(buffer)
+            }
+        }
+    }
+
+    private val cipher = GCMBlockCipher.newInstance(AESEngine.newInstance()).apply {
+        init(false, AEADParameters(KeyParameter(key), TAG_LENGTH_BITS, iv))
+    }
+
+    private val partFile = File(target.parentFile, target.name + PART_SUFFIX)
+    private val output = FileOutputStream(partFile)
+    private val outputBuffer = ByteArray(BUFFER_SIZE + TAG_LENGTH)
+    private var finished = false
+
+    var plaintextLength = 0L
+        private set
+
+    @Throws(IOException::class)
+    fun write(buffer: ByteArray, offset: Int, length: Int) {
+        var position = offset
+        val end = offset + length
+        while (position < end) {
+            val count = minOf(BUFFER_SIZE, end - position)
+            val decrypted = cipher.processBytes(buffer, position, count, outputBuffer, 0)
+            output.write(outputBuffer, 0, decrypted)
+            plaintextLength += decrypted
+            position += count
+        }
+    }
+
+    /**
+     * Verifies the authentication tag and moves the plaintext to the target file.
+     *
+     * @throws SecurityException if the tag does not match, the plaintext is deleted then
+     */
+    @Throws(IOException::class)
+    fun finish() {
+        try {
+            val decrypted = cipher.doFinal(outputBuffer, 0)
+            output.write(outputBuffer, 0, decrypted)
+            plaintextLength += decrypted
+            output.close()
+        } catch (e: InvalidCipherTextException) {
+            output.close()
+            partFile.delete()
+            throw SecurityException("Authentication tag of ${target.name} does not match", e)
+        }
+
+        if (target.exists() && !target.delete()) {
+            Log_OC.w(TAG, "Could not delete previous " + target.absolutePath)
+        }
+        if (!partFile.renameTo(target)) {
+            partFile.delete()
+            throw IOException("Could not move decrypted file to " + target.absolutePath)
+        }
+        finished = true
+    }
+
+    /**
+     * Closes the sink; unless [finish] succeeded the partial plaintext is deleted.
+     */
+    override fun close() {
+        if (finished) {
+            return
+        }
+
+        try {
+            output.close()
+        } catch (e: IOException) {
+            Log_OC.d(TAG, "Closing " + partFile.absolutePath + " failed: " + e.message)
+        }
+        if (partFile.exists()) {
+            partFile.delete()
+        }
+    }
+}
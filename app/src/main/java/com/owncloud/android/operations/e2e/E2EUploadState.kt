@@ -0,0 +1,108 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.owncloud.android.operations.e2e
+
+import com.google.gson.Gson
+import com.google.gson.JsonSyntaxException
+import com.owncloud.android.datamodel.ArbitraryDataProvider
+import com.owncloud.android.lib.common.utils.Log_OC
+import com.owncloud.android.utils.EncryptionUtils
+import java.io.File
+import java.security.GeneralSecurityException
+
+/**
+ * Encrypted copy of an end-to-end encrypted upload, kept for retries of the upload.
+ *
+ * A retry reuses the copy with its key, IV, tag and encrypted file name instead of encrypting the source again with
+ * new ones. The content and the target path are identical then, so a chunked upload continues with the chunks the
+ * server does not hold yet. The key is only ever reused together with its ciphertext; if the source changed, a new
+ * key and IV are generated.
+ *
+ * Like the metadata keys of encrypted folders, the key is stored wrapped with the public key of the account and can
+ * only be unwrapped with its private key; once the key pair of the account is replaced the state is no longer used.
+ *
+ * The state and the copy are dropped when the upload succeeds, fails for good, is cancelled or removed.
+ */
+data class E2EUploadState(
+    val encryptedFileName: String,
+    val encryptedFilePath: String,
+    val wrappedKey: String,
+    val iv: String,
+    val authenticationTag: String,
+    val sourceLength: Long,
+    val sourceLastModified: Long
+) {
+    companion object {
+        private val TAG = E2EUploadState::class.java.simpleName
+        private const val KEY_PREFIX = "e2e_upload_state_"
+
+        /** GCM appends its 128 bit tag to the ciphertext */
+        private const val GCM_TAG_LENGTH = 16
+
+        /**
+         * Wraps [key] with the public key certificate of the account, null if that fails.
+         */
+        @JvmStatic
+        fun wrapKey(key: ByteArray, publicKey: String): String? = try {
+            EncryptionUtils.encryptStringAsymmetric(EncryptionUtils.encodeBytesToBase64String(key), publicKey)
+        } catch (e: GeneralSecurityException) {
+            Log_OC.e(TAG, "Cannot wrap upload key", e)
+            null
+        }
+
+        @JvmStatic
+        fun load(provider: ArbitraryDataProvider, accountName: String, uploadId: Long): E2EUploadState? {
+            val json = provider.getValue(accountName, KEY_PREFIX + uploadId)
+            if (json.isEmpty()) {
+                return null
+            }
+
+            return try {
+                Gson().fromJson(json, E2EUploadState::class.java)
+            } catch (e: JsonSyntaxException) {
+                Log_OC.e(TAG, "Dropping unreadable upload state of $uploadId", e)
+                null
+            }
+        }
+
+        /**
+         * Drops the state of the upload and deletes its encrypted copy.
+         */
+        @JvmStatic
+        fun delete(provider: ArbitraryDataProvider, accountName: String, uploadId: Long) {
+            load(provider, accountName, uploadId)?.encryptedFile?.delete()
+            provider.deleteKeyForAccount(accountName, KEY_PREFIX + uploadId)
+        }
+    }
+
+    val encryptedFile: File
+        get() = File(encryptedFilePath)
+
+    /**
+     * Whether the encrypted copy is complete and was made from [source] as it is now.
+     */
+    fun isReusableFor(source: File): Boolean = source.length() == sourceLength &&
+        source.lastModified() == sourceLastModified &&
+        encryptedFile.length() == sourceLength + GCM_TAG_LENGTH
+
+    /**
+     * Key of the encrypted copy, unwrapped with the private key of the account; null if it cannot be unwrapped.
+     */
+    fun unwrapKey(privateKey: String): ByteArray? = try {
+        EncryptionUtils.decodeStringToBase64Bytes(EncryptionUtils.decryptStringAsymmetric(wrappedKey, privateKey))
+    } catch (e: GeneralSecurityException) {
+        Log_OC.e(TAG, "Cannot unwrap upload key", e)
+        null
+    } catch (e: IllegalArgumentException) {
+        Log_OC.e(TAG, "Cannot unwrap upload key", e)
+        null
+    }
+
+    fun save(provider: ArbitraryDataProvider, accountName: String, uploadId: Long) {
+        provider.storeOrUpdateKeyValue(accountName, KEY_PREFIX + uploadId, Gson().toJson(this))
+    }
+}
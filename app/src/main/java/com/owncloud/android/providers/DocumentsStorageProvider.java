@@ -23,6 +23,7 @@ import android.os.CancellationSignal;
 import android.os.Handler;
 import android.os.Looper;
 import android.os.ParcelFileDescriptor;
+import android.os.storage.StorageManager;
 import android.provider.DocumentsContract;
 import android.provider.DocumentsProvider;
 import android.widget.Toast;
@@ -70,11 +71,10 @@ import org.nextcloud.providers.cursors.RootCursor;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -96,6 +96,9 @@ public class DocumentsStorageProvider extends DocumentsProvider {
     private static final String TAG = DocumentsStorageProvider.class.getSimpleName();
 
     private static final long CACHE_EXPIRATION = TimeUnit.MILLISECONDS.convert(1, TimeUnit.MINUTES);
+    private static final int SEARCH_RESULT_LIMIT = 200;
+    private static final String STREAM_CACHE_PREFIX = "stream";
+    private static final String STREAM_CACHE_SUFFIX = ".tmp";
 
     @Inject UserAccountManager accountManager;
 
@@ -107,6 +110,7 @@ public class DocumentsStorageProvider extends DocumentsProvider {
     private final Map<String, FileDataStorageManager> rootIdToStorageManager = new HashMap<>();
 
     private final Executor executor = Executors.newCachedThreadPool();
+    private final Map<Long, RangeStreamingFile> streamingFiles = new ConcurrentHashMap<>();
 
     @Override
     public Cursor queryRoots(String[] projection) {
@@ -211,38 +215,14 @@ public class DocumentsStorageProvider extends DocumentsProvider {
             if (ocFile.getLocalModificationTimestamp() > ocFile.getLastSyncDateForData()) {
                 // TODO show a conflict notification with a pending intent that shows a ConflictResolveDialog
                 Log_OC.w(TAG, "Conflict found!");
-            } else {
-                // dirty threading workaround for client apps which call openDocument on the main thread, thus causing
-                // a NetworkOnMainThreadException
-                final AtomicBoolean downloadResult = new AtomicBoolean(false);
-                final Thread downloadThread = new Thread(() -> {
-                    DownloadFileOperation downloadFileOperation = new DownloadFileOperation(user, ocFile, context);
-                    RemoteOperationResult result = downloadFileOperation.execute(document.getClient());
-                    if (!result.isSuccess()) {
-                        if (ocFile.isDown()) {
-                            Handler handler = new Handler(Looper.getMainLooper());
-                            handler.post(() -> Toast.makeText(MainApp.getAppContext(),
-                                                              R.string.file_not_synced,
-                                                              Toast.LENGTH_SHORT).show());
-                            downloadResult.set(true);
-                        } else {
-                            Log_OC.e(TAG, result.toString());
-                        }
-                    } else {
-                        saveDownloadedFile(document.getStorageManager(), downloadFileOperation, ocFile);
-                        downloadResult.set(true);
-                    }
-                });
-                downloadThread.start();
-
-                try {
-                    downloadThread.join();
-                    if (!downloadResult.get()) {
-                        throw new FileNotFoundException("Error downloading file: " + ocFile.getFileName());
-                    }
-                } catch (InterruptedException e) {
-                    throw new FileNotFoundException("Error downloading file: " + ocFile.getFileName());
+            } else if (accessMode == MODE_READ_ONLY && canStream(ocFile)) {
+                ParcelFileDescriptor descriptor = openStreamingDocument(document, context);
+                if (descriptor != null) {
+                    return descriptor;
                 }
+                downloadDocument(document, context);
+            } else {
+                downloadDocument(document, context);
             }
         }
 
@@ -281,6 +261,135 @@ public class DocumentsStorageProvider extends DocumentsProvider {
         }
     }
 
+    /**
+     * Downloads the document before it is opened.
+     */
+    private void downloadDocument(Document document, Context context) throws FileNotFoundException {
+        OCFile ocFile = document.getFile();
+        User user = document.getUser();
+
+        // dirty threading workaround for client apps which call openDocument on the main thread, thus causing
+        // a NetworkOnMainThreadException
+        final AtomicBoolean downloadResult = new AtomicBoolean(false);
+        final Thread downloadThread = new Thread(() -> {
+            DownloadFileOperation downloadFileOperation = new DownloadFileOperation(user, ocFile, context);
+            RemoteOperationResult result = downloadFileOperation.execute(document.getClient());
+            if (!result.isSuccess()) {
+                if (ocFile.isDown()) {
+                    Handler handler = new Handler(Looper.getMainLooper());
+                    handler.post(() -> Toast.makeText(MainApp.getAppContext(),
+                                                      R.string.file_not_synced,
+                                                      Toast.LENGTH_SHORT).show());
+                    downloadResult.set(true);
+                } else {
+                    Log_OC.e(TAG, result.toString());
+                }
+            } else {
+                saveDownloadedFile(document.getStorageManager(), downloadFileOperation, ocFile);
+                downloadResult.set(true);
+            }
+        });
+        downloadThread.start();
+
+        try {
+            downloadThread.join();
+            if (!downloadResult.get()) {
+                throw new FileNotFoundException("Error downloading file: " + ocFile.getFileName());
+            }
+        } catch (InterruptedException e) {
+            throw new FileNotFoundException("Error downloading file: " + ocFile.getFileName());
+        }
+    }
+
+    /**
+     * Encrypted files can only be decrypted as a whole and small ones are quicker downloaded than streamed.
+     */
+    private boolean canStream(OCFile ocFile) {
+        return !ocFile.isEncrypted() && ocFile.getFileLength() > RangeStreamingFile.BLOCK_SIZE;
+    }
+
+    /**
+     * Opens a read-only descriptor serving the document through range requests while it is downloaded in the
+     * background, see {@link RangeStreamingFile}. Opens of a document that is still streamed share its cache.
+     *
+     * @return the descriptor, or null if the document cannot be streamed and has to be downloaded
+     */
+    private ParcelFileDescriptor openStreamingDocument(Document document, Context context) {
+        OCFile ocFile = document.getFile();
+        StorageManager storageManager = context.getSystemService(StorageManager.class);
+
+        RangeStreamingFile streamingFile = streamingFiles.get(ocFile.getFileId());
+        if (streamingFile != null && streamingFile.isStreaming()) {
+            try {
+                return streamingFile.openDescriptor(storageManager);
+            } catch (IOException e) {
+                Log_OC.d(TAG, "Streaming of " + ocFile.getRemotePath() + " is over: " + e.getMessage());
+            }
+        }
+
+        OwnCloudClient client = document.getClient();
+        if (client == null) {
+            return null;
+        }
+
+        DownloadFileOperation dfo = new DownloadFileOperation(document.getUser(), ocFile, context);
+        File tmpFolder = new File(dfo.getTmpFolder());
+        File cacheFile;
+        try {
+            if (!tmpFolder.exists() && !tmpFolder.mkdirs()) {
+                Log_OC.e(TAG, "Unable to create temporary folder " + tmpFolder.getAbsolutePath());
+                return null;
+            }
+            cacheFile = File.createTempFile(STREAM_CACHE_PREFIX, STREAM_CACHE_SUFFIX, tmpFolder);
+        } catch (IOException e) {
+            Log_OC.e(TAG, "Unable to create stream cache for " + ocFile.getRemotePath(), e);
+            return null;
+        }
+
+        RangeStreamingFile.Listener listener = new RangeStreamingFile.Listener() {
+            @Override
+            public void onFilled(@NonNull RangeStreamingFile file) {
+                streamingFiles.remove(ocFile.getFileId(), file);
+                // the row may have been synchronized while streaming
+                FileDataStorageManager storageManager = document.getStorageManager();
+                OCFile currentFile = storageManager.getFileById(ocFile.getFileId());
+                if (currentFile == null) {
+                    Log_OC.d(TAG, ocFile.getRemotePath() + " was removed while streaming it");
+                    return;
+                }
+                saveDownloadedFile(storageManager,
+                                   currentFile,
+                                   dfo.getSavePath(),
+                                   dfo.getMimeType(),
+                                   file.getModificationTimestamp(),
+                                   file.getEtag());
+            }
+
+            @Override
+            public void onFailed(@NonNull RangeStreamingFile file, @NonNull IOException error) {
+                streamingFiles.remove(ocFile.getFileId(), file);
+            }
+        };
+
+        streamingFile = RangeStreamingFile.start(client,
+                                                 ocFile.getRemotePath(),
+                                                 cacheFile,
+                                                 new File(dfo.getSavePath()),
+                                                 executor,
+                                                 listener);
+        if (streamingFile == null) {
+            return null;
+        }
+        streamingFiles.put(ocFile.getFileId(), streamingFile);
+
+        try {
+            return streamingFile.openDescriptor(storageManager);
+        } catch (IOException e) {
+            Log_OC.e(TAG, "Unable to open stream of " + ocFile.getRemotePath(), e);
+            return null;
+        }
+    }
+
     private boolean hasServerChange(Document document) throws FileNotFoundException {
         Context context = getNonNullContext();
         OCFile ocFile = document.getFile();
@@ -301,20 +410,33 @@ public class DocumentsStorageProvider extends DocumentsProvider {
      *
      */
     private void saveDownloadedFile(FileDataStorageManager storageManager, DownloadFileOperation dfo, OCFile file) {
+        file.setRemoteId(dfo.getFile().getRemoteId());
+        saveDownloadedFile(storageManager,
+                           file,
+                           dfo.getSavePath(),
+                           dfo.getMimeType(),
+                           dfo.getModificationTimestamp(),
+                           dfo.getEtag());
+    }
+
+    private void saveDownloadedFile(FileDataStorageManager storageManager,
+                                    OCFile file,
+                                    String savePath,
+                                    String mimeType,
+                                    long modificationTimestamp,
+                                    String etag) {
         long syncDate = System.currentTimeMillis();
         file.setLastSyncDateForProperties(syncDate);
         file.setLastSyncDateForData(syncDate);
         file.setUpdateThumbnailNeeded(true);
-        file.setModificationTimestamp(dfo.getModificationTimestamp());
-        file.setModificationTimestampAtLastSyncForData(dfo.getModificationTimestamp());
-        file.setEtag(dfo.getEtag());
-        file.setMimeType(dfo.getMimeType());
-        String savePath = dfo.getSavePath();
+        file.setModificationTimestamp(modificationTimestamp);
+        file.setModificationTimestampAtLastSyncForData(modificationTimestamp);
+        file.setEtag(etag);
+        file.setMimeType(mimeType);
         file.setStoragePath(savePath);
         file.setFileLength(new File(savePath).length());
-        file.setRemoteId(dfo.getFile().getRemoteId());
         storageManager.saveFile(file);
-        if (MimeTypeUtil.isMedia(dfo.getMimeType())) {
+        if (MimeTypeUtil.isMedia(mimeType)) {
             FileDataStorageManager.triggerMediaScan(file.getStoragePath(), file);
         }
         storageManager.saveConflict(file, null);
@@ -327,6 +449,7 @@ public class DocumentsStorageProvider extends DocumentsProvider {
         // initiate storage manager collection, because we need to serve document(tree)s
         // with persist permissions
         initiateStorageMap();
+        deleteStreamCaches();
 
         return true;
     }
@@ -483,8 +606,8 @@ public class DocumentsStorageProvider extends DocumentsProvider {
             return result;
         }
 
-        for (Document d : findFiles(new Document(storageManager, ROOT_PATH), query)) {
-            result.addFile(d);
+        for (OCFile file : storageManager.searchFilesByName(query, SEARCH_RESULT_LIMIT)) {
+            result.addFile(new Document(storageManager, file));
         }
 
         return result;
@@ -734,17 +857,23 @@ public class DocumentsStorageProvider extends DocumentsProvider {
         }
     }
 
-    private List<Document> findFiles(Document root, String query) {
-        FileDataStorageManager storageManager = root.getStorageManager();
-        List<Document> result = new ArrayList<>();
-        for (OCFile f : storageManager.getFolderContent(root.getFile(), false)) {
-            if (f.isFolder()) {
-                result.addAll(findFiles(new Document(storageManager, f), query));
-            } else if (f.getFileName().contains(query)) {
-                result.add(new Document(storageManager, f));
+    /**
+     * Deletes the caches of documents that were streamed when the process ended, see
+     * {@link #openStreamingDocument(Document, Context)}. Runs before any document can be opened.
+     */
+    private void deleteStreamCaches() {
+        for (User user : accountManager.getAllUsers()) {
+            File[] caches = new File(FileStorageUtils.getTemporalPath(user.getAccountName())).listFiles(
+                (dir, name) -> name.startsWith(STREAM_CACHE_PREFIX) && name.endsWith(STREAM_CACHE_SUFFIX));
+            if (caches == null) {
+                continue;
+            }
+            for (File cache : caches) {
+                if (!cache.delete()) {
+                    Log_OC.w(TAG, "Unable to delete stream cache " + cache.getAbsolutePath());
+                }
             }
         }
-        return result;
     }
 
     private Uri toNotifyUri(Document document) {
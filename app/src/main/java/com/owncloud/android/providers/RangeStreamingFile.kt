@@ -0,0 +1,488 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.owncloud.android.providers
+
+import android.os.Handler
+import android.os.HandlerThread
+import android.os.ParcelFileDescriptor
+import android.os.ProxyFileDescriptorCallback
+import android.os.storage.StorageManager
+import android.system.ErrnoException
+import android.system.OsConstants
+import androidx.annotation.VisibleForTesting
+import com.owncloud.android.lib.common.OwnCloudClient
+import com.owncloud.android.lib.common.utils.Log_OC
+import org.apache.commons.httpclient.HttpStatus
+import org.apache.commons.httpclient.methods.GetMethod
+import org.apache.commons.httpclient.util.DateParseException
+import org.apache.commons.httpclient.util.DateUtil
+import java.io.File
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.StandardOpenOption
+import java.util.BitSet
+import java.util.concurrent.Executor
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.FutureTask
+import java.util.concurrent.locks.ReentrantLock
+import kotlin.concurrent.withLock
+
+/**
+ * Remote file served to readers while it is being downloaded.
+ *
+ * The file is cached block by block in [cacheFile]. A read waits only for the blocks it covers, missing ones are
+ * fetched with HTTP range requests. Meanwhile the remaining blocks are filled in the background, continuing after the
+ * last read position, and once complete the cache file is moved to [target] and [Listener.onFilled] is called, so
+ * the next open is served locally. The fill is cancelled when the last descriptor is released before, and it is not
+ * moved if [target] changed in the meantime; [Listener.onFailed] is called in both cases.
+ *
+ * The ETag of every response is compared with the first one; if the file changes on the server while it is streamed
+ * the reads fail instead of mixing two versions.
+ */
+class RangeStreamingFile private constructor(
+    private val client: OwnCloudClient,
+    private val remotePath: String,
+    private val cacheFile: File,
+    private val target: File,
+    private val listener: Listener,
+    private val newGet: (String) -> GetMethod
+) {
+
+    interface Listener {
+        fun onFilled(file: RangeStreamingFile)
+
+        fun onFailed(file: RangeStreamingFile, error: IOException)
+    }
+
+    companion object {
+        private val TAG = RangeStreamingFile::class.java.simpleName
+
+        const val BLOCK_SIZE = 1024 * 1024
+        private const val FILL_RUN_BLOCKS = 8
+        private const val TRANSFER_BUFFER_SIZE = 64 * 1024
+
+        /**
+         * Fetches the first block of [remotePath] and starts filling the rest of it in the background.
+         *
+         * Waits for a single round trip only, on a thread of [executor] as callers may be on the main thread.
+         *
+         * @return the streaming file, or null if the server does not answer range requests for it
+         */
+        @JvmStatic
+        fun start(
+            client: OwnCloudClient,
+            remotePath: String,
+            cacheFile: File,
+            target: File,
+            executor: Executor,
+            listener: Listener
+        ): RangeStreamingFile? = start(client, remotePath, cacheFile, target, executor, listener) { GetMethod(it) }
+
+        @VisibleForTesting
+        @Suppress("LongParameterList")
+        internal fun start(
+            client: OwnCloudClient,
+            remotePath: String,
+            cacheFile: File,
+            target: File,
+            executor: Executor,
+            listener: Listener,
+            newGet: (String) -> GetMethod
+        ): RangeStreamingFile? {
+            val file = RangeStreamingFile(client, remotePath, cacheFile, target, listener, newGet)
+            val firstBlock = FutureTask { file.fetchFirstBlock() }
+            executor.execute(firstBlock)
+
+            val started = try {
+                firstBlock.get()
+            } catch (e: ExecutionException) {
+                Log_OC.e(TAG, "Streaming $remotePath failed: " + e.cause?.message)
+                false
+            } catch (e: InterruptedException) {
+                Thread.currentThread().interrupt()
+                false
+            }
+
+            if (!started) {
+                file.discard()
+                return null
+            }
+
+            executor.execute { file.fill() }
+            return file
+        }
+
+        private fun blockOf(position: Long): Int = (position / BLOCK_SIZE).toInt()
+    }
+
+    private val channel = FileChannel.open(
+        cacheFile.toPath(),
+        StandardOpenOption.CREATE,
+        StandardOpenOption.READ,
+        StandardOpenOption.WRITE
+    )
+    private val lock = ReentrantLock()
+    private val blockLoaded = lock.newCondition()
+    private val filled = BitSet()
+    private val loading = BitSet()
+    private var openDescriptors = 0
+    private var closed = false
+    private var blockCount = 0
+    private var nextFillBlock = 0
+    private var error: IOException? = null
+    private var complete = false
+
+    /** Set once the last descriptor is released before the fill is complete, checked by running fetches */
+    @Volatile
+    private var cancelled = false
+
+    /** Last modification and length of [target] when streaming started, null if it did not exist */
+    private val targetState = stateOf(target)
+
+    /** Length of the remote file as reported by the server */
+    var length = -1L
+        private set
+
+    var etag = ""
+        private set
+
+    var modificationTimestamp = 0L
+        private set
+
+    /**
+     * Opens a read-only, seekable descriptor on the file. Reads are served on a thread of their own.
+     */
+    @Throws(IOException::class)
+    fun openDescriptor(storageManager: StorageManager): ParcelFileDescriptor {
+        lock.withLock {
+            if (closed || cancelled) {
+                throw IOException("Streaming of $remotePath is over")
+            }
+            openDescriptors++
+        }
+        val thread = HandlerThread("$TAG:${cacheFile.name}").apply { start() }
+
+        val callback = object : ProxyFileDescriptorCallback() {
+            override fun onGetSize(): Long = length
+
+            override fun onRead(offset: Long, size: Int, data: ByteArray): Int = try {
+                read(offset, size, data)
+            } catch (e: IOException) {
+                Log_OC.e(TAG, "Reading $remotePath at $offset failed: " + e.message)
+                throw ErrnoException("onRead", OsConstants.EIO)
+            }
+
+            override fun onRelease() {
+                thread.quitSafely()
+                lock.withLock {
+                    openDescriptors--
+                    if (openDescriptors == 0 && !complete) {
+                        // nobody reads anymore, the rest is left to a regular download honouring the user's settings
+                        cancelled = true
+                        blockLoaded.signalAll()
+                    }
+                }
+                closeIfDone()
+            }
+        }
+
+        return try {
+            storageManager.openProxyFileDescriptor(
+                ParcelFileDescriptor.MODE_READ_ONLY,
+                callback,
+                Handler(thread.looper)
+            )
+        } catch (e: IOException) {
+            thread.quitSafely()
+            lock.withLock { openDescriptors-- }
+            closeIfDone()
+            throw e
+        }
+    }
+
+    /**
+     * Whether the file can still serve reads, that is it did not fail and was not moved to the target yet.
+     */
+    val isStreaming: Boolean
+        get() = lock.withLock { error == null && !complete && !cancelled }
+
+    @Throws(IOException::class)
+    private fun read(offset: Long, size: Int, data: ByteArray): Int {
+        if (offset >= length || size == 0) {
+            return 0
+        }
+
+        val count = minOf(size.toLong(), length - offset).toInt()
+        val lastBlock = blockOf(offset + count - 1)
+        for (block in blockOf(offset)..lastBlock) {
+            awaitBlock(block)
+        }
+        lock.withLock { nextFillBlock = lastBlock + 1 }
+
+        var read = 0
+        val buffer = ByteBuffer.wrap(data, 0, count)
+        while (buffer.hasRemaining()) {
+            val n = channel.read(buffer, offset + read)
+            if (n < 0) {
+                break
+            }
+            read += n
+        }
+        return read
+    }
+
+    /**
+     * Waits until [block] is cached. If nobody is fetching it, it is fetched on the calling thread.
+     */
+    @Throws(IOException::class)
+    private fun awaitBlock(block: Int) {
+        lock.withLock {
+            while (true) {
+                error?.let { throw IOException("Streaming $remotePath failed", it) }
+                if (filled[block]) {
+                    return
+                }
+                if (!loading[block]) {
+                    loading.set(block)
+                    break
+                }
+                blockLoaded.await()
+            }
+        }
+
+        fetch(block, block)
+    }
+
+    private fun fetchFirstBlock(): Boolean {
+        lock.withLock { loading.set(0) }
+        return try {
+            fetch(0, 0)
+            true
+        } catch (e: IOException) {
+            Log_OC.w(TAG, "Range request for $remotePath failed: " + e.message)
+            false
+        }
+    }
+
+    private fun fill() {
+        try {
+            while (true) {
+                val run = nextFillRun() ?: break
+                fetch(run.first, run.last)
+            }
+        } catch (e: IOException) {
+            fail(e)
+            return
+        }
+
+        if (stateOf(target) != targetState) {
+            fail(IOException(target.absolutePath + " changed while streaming $remotePath"))
+            return
+        }
+        if (target.exists() && !target.delete()) {
+            Log_OC.w(TAG, "Could not delete previous " + target.absolutePath)
+        }
+        target.parentFile?.mkdirs()
+        if (!cacheFile.renameTo(target)) {
+            fail(IOException("Could not move " + cacheFile.absolutePath + " to " + target.absolutePath))
+            return
+        }
+
+        lock.withLock { complete = true }
+        listener.onFilled(this)
+        closeIfDone()
+    }
+
+    /**
+     * Claims the next blocks for the background fill, starting at the last read position.
+     *
+     * @return the claimed blocks, or null once all blocks are cached
+     */
+    @Throws(IOException::class)
+    private fun nextFillRun(): IntRange? = lock.withLock {
+        var run: IntRange? = null
+        while (run == null && filled.cardinality() < blockCount) {
+            error?.let { throw IOException("Streaming $remotePath failed", it) }
+            if (cancelled) {
+                throw IOException("Streaming $remotePath was cancelled")
+            }
+
+            val start = if (nextFillBlock < blockCount) nextFillBlock else 0
+            var first = firstFree(start, blockCount)
+            if (first < 0) {
+                first = firstFree(0, start)
+            }
+            if (first < 0) {
+                // all missing blocks are being fetched by readers
+                blockLoaded.await()
+                continue
+            }
+
+            var last = first
+            while (last + 1 < blockCount && last + 1 - first < FILL_RUN_BLOCKS && isFree(last + 1)) {
+                last++
+            }
+            for (block in first..last) {
+                loading.set(block)
+            }
+            nextFillBlock = last + 1
+            run = first..last
+        }
+        run
+    }
+
+    private fun stateOf(file: File): Pair<Long, Long>? =
+        if (file.exists()) file.lastModified() to file.length() else null
+
+    private fun isFree(block: Int): Boolean = !filled[block] && !loading[block]
+
+    private fun firstFree(from: Int, to: Int): Int = (from until to).firstOrNull { isFree(it) } ?: -1
+
+    /**
+     * Fetches blocks [first] to [last], which the caller claimed as loading, and caches them. Blocks are marked as
+     * cached one by one while the response arrives, so waiting readers continue early.
+     */
+    @Throws(IOException::class)
+    private fun fetch(first: Int, last: Int) {
+        val start = first.toLong() * BLOCK_SIZE
+        val end = (last + 1L) * BLOCK_SIZE - 1
+        var get: GetMethod? = null
+
+        try {
+            get = newGet(client.getFilesDavUri(remotePath))
+            get.setRequestHeader("Range", "bytes=$start-" + (if (length < 0) end else minOf(end, length - 1)))
+            val status = client.executeMethod(get)
+
+            if (status != HttpStatus.SC_PARTIAL_CONTENT) {
+                client.exhaustResponse(get.responseBodyAsStream)
+                throw IOException("Range request for $remotePath answered with $status")
+            }
+            readHeaders(get)
+
+            val expectedEnd = minOf(end, length - 1)
+            var position = start
+            val buffer = ByteBuffer.allocate(TRANSFER_BUFFER_SIZE)
+            get.responseBodyAsStream.use { input ->
+                while (position <= expectedEnd) {
+                    if (cancelled) {
+                        throw IOException("Streaming $remotePath was cancelled")
+                    }
+                    val wanted = minOf(TRANSFER_BUFFER_SIZE.toLong(), expectedEnd - position + 1).toInt()
+                    val read = input.read(buffer.array(), 0, wanted)
+                    if (read < 0) {
+                        break
+                    }
+
+                    buffer.position(0).limit(read)
+                    while (buffer.hasRemaining()) {
+                        position += channel.write(buffer, position)
+                    }
+                    markFilled(first, position)
+                }
+            }
+
+            if (position <= expectedEnd) {
+                throw IOException("Received ${position - start} of ${expectedEnd - start + 1} bytes of $remotePath")
+            }
+        } finally {
+            get?.releaseConnection()
+            lock.withLock {
+                for (block in first..last) {
+                    if (!filled[block]) {
+                        loading.clear(block)
+                    }
+                }
+                blockLoaded.signalAll()
+            }
+        }
+    }
+
+    /**
+     * Checks the response belongs to the same version of the file as the first one, which also tells the length.
+     */
+    @Throws(IOException::class)
+    private fun readHeaders(get: GetMethod) {
+        val responseEtag = get.getResponseHeader("ETag")?.value?.trim('"') ?: ""
+
+        lock.withLock {
+            if (length < 0) {
+                val total = get.getResponseHeader("Content-Range")?.value?.substringAfterLast('/')?.toLongOrNull()
+                    ?: throw IOException("Range response for $remotePath without length")
+                length = total
+                blockCount = ((total + BLOCK_SIZE - 1) / BLOCK_SIZE).toInt()
+                etag = responseEtag
+                get.getResponseHeader("Last-Modified")?.value?.let {
+                    try {
+                        modificationTimestamp = DateUtil.parseDate(it).time
+                    } catch (e: DateParseException) {
+                        Log_OC.d(TAG, "Unparsable modification date of $remotePath: $it")
+                    }
+                }
+            } else if (responseEtag != etag) {
+                throw IOException("$remotePath changed on the server while streaming it")
+            }
+        }
+    }
+
+    /**
+     * Marks all blocks from [first] that are complete up to [position] as cached.
+     */
+    private fun markFilled(first: Int, position: Long) {
+        val completeBlocks = if (position >= length) blockCount else blockOf(position)
+        lock.withLock {
+            var changed = false
+            for (block in first until completeBlocks) {
+                if (!filled[block]) {
+                    filled.set(block)
+                    loading.clear(block)
+                    changed = true
+                }
+            }
+            if (changed) {
+                blockLoaded.signalAll()
+            }
+        }
+    }
+
+    private fun fail(e: IOException) {
+        Log_OC.e(TAG, "Streaming $remotePath failed: " + e.message)
+        lock.withLock {
+            error = e
+            blockLoaded.signalAll()
+        }
+        listener.onFailed(this, e)
+        closeIfDone()
+    }
+
+    /**
+     * Closes the cache once no descriptor reads from it and the fill is over; a partial cache is deleted then.
+     */
+    private fun closeIfDone() {
+        val close = lock.withLock {
+            val done = !closed && (complete || error != null) && openDescriptors == 0
+            if (done) {
+                closed = true
+            }
+            done
+        }
+        if (close) {
+            discard()
+        }
+    }
+
+    private fun discard() {
+        try {
+            channel.close()
+        } catch (e: IOException) {
+            Log_OC.d(TAG, "Closing " + cacheFile.absolutePath + " failed: " + e.message)
+        }
+        if (!complete && cacheFile.exists()) {
+            cacheFile.delete()
+        }
+    }
+}
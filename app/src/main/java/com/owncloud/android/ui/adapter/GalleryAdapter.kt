@@ -21,6 +21,7 @@ import android.view.LayoutInflater
 import android.view.View
 import android.view.ViewGroup
 import androidx.annotation.VisibleForTesting
+import androidx.recyclerview.widget.AdapterListUpdateCallback
 import com.afollestad.sectionedrecyclerview.SectionedRecyclerViewAdapter
 import com.afollestad.sectionedrecyclerview.SectionedViewHolder
 import com.nextcloud.client.account.User
@@ -28,8 +29,8 @@ import com.nextcloud.client.preferences.AppPreferences
 import com.owncloud.android.databinding.GalleryHeaderBinding
 import com.owncloud.android.databinding.GalleryRowBinding
 import com.owncloud.android.datamodel.FileDataStorageManager
+import com.owncloud.android.datamodel.GalleryIndex
 import com.owncloud.android.datamodel.GalleryItems
-import com.owncloud.android.datamodel.GalleryRow
 import com.owncloud.android.datamodel.OCFile
 import com.owncloud.android.ui.activity.ComponentsGetter
 import com.owncloud.android.ui.fragment.GalleryFragment
@@ -41,8 +42,6 @@ import com.owncloud.android.utils.FileSortOrder
 import com.owncloud.android.utils.MimeTypeUtil
 import com.owncloud.android.utils.theme.ViewThemeUtils
 import me.zhanghai.android.fastscroll.PopupTextProvider
-import java.util.Calendar
-import java.util.Date
 
 @Suppress("LongParameterList")
 class GalleryAdapter(
@@ -52,12 +51,13 @@ class GalleryAdapter(
     preferences: AppPreferences,
     transferServiceGetter: ComponentsGetter,
     private val viewThemeUtils: ViewThemeUtils,
-    var columns: Int,
+    columns: Int,
     private val defaultThumbnailSize: Int
 ) : SectionedRecyclerViewAdapter<SectionedViewHolder>(),
     CommonOCFileListAdapterInterface,
     PopupTextProvider {
-    var files: List<GalleryItems> = mutableListOf()
+    private val index = GalleryIndex(columns, defaultThumbnailSize)
+    private val updateCallback = AdapterListUpdateCallback(this)
     private val ocFileListDelegate: OCFileListDelegate
     private var storageManager: FileDataStorageManager = transferServiceGetter.storageManager
 
@@ -78,7 +78,15 @@ class GalleryAdapter(
         )
     }
 
-    override fun getItemId(section: Int, position: Int): Long = files[section].rows[position].calculateHashCode()
+    val files: List<GalleryItems>
+        get() = index.items
+
+    val columns: Int
+        get() = index.columns
+
+    override fun getHeaderId(section: Int): Long = index.headerId(section)
+
+    override fun getItemId(section: Int, position: Int): Long = index.rowId(section, position)
 
     override fun selectAll(value: Boolean) {
         if (value) {
@@ -154,7 +162,6 @@ class GalleryAdapter(
         TODO("Not yet implemented")
     }
 
-    @SuppressLint("NotifyDataSetChanged")
     fun showAllGalleryItems(
         remotePath: String,
         mediaState: GalleryFragmentBottomSheetDialog.MediaState,
@@ -172,7 +179,6 @@ class GalleryAdapter(
     }
 
     // Set Image/Video List According to Selection of Hide/Show Image/Video
-    @SuppressLint("NotifyDataSetChanged")
     private fun setMediaFilter(
         items: List<OCFile>,
         mediaState: GalleryFragmentBottomSheetDialog.MediaState,
@@ -194,34 +200,14 @@ class GalleryAdapter(
             photoFragment.setEmptyListMessage(SearchType.GALLERY_SEARCH)
         }
 
-        files = finalSortedList.toGalleryItems()
-        Handler(Looper.getMainLooper()).post { notifyDataSetChanged() }
+        Handler(Looper.getMainLooper()).post { index.update(finalSortedList, updateCallback) }
     }
 
-    private fun transformToRows(list: List<OCFile>): List<GalleryRow> = list
-        .sortedBy { it.modificationTimestamp }
-        .reversed()
-        .chunked(columns)
-        .map { entry -> GalleryRow(entry, defaultThumbnailSize, defaultThumbnailSize) }
-
-    @SuppressLint("NotifyDataSetChanged")
     fun clear() {
-        files = emptyList()
-        Handler(Looper.getMainLooper()).post { notifyDataSetChanged() }
-    }
-
-    private fun firstOfMonth(timestamp: Long): Long {
-        val cal = Calendar.getInstance()
-        cal.time = Date(timestamp)
-        cal.set(Calendar.DAY_OF_MONTH, cal.getActualMinimum(Calendar.DAY_OF_MONTH))
-        cal.set(Calendar.HOUR_OF_DAY, 0)
-        cal.set(Calendar.MINUTE, 0)
-        cal.set(Calendar.SECOND, 0)
-
-        return cal.timeInMillis
+        Handler(Looper.getMainLooper()).post { index.update(emptyList(), updateCallback) }
     }
 
-    fun isEmpty(): Boolean = files.isEmpty()
+    fun isEmpty(): Boolean = index.isEmpty()
 
     fun getItem(position: Int): OCFile? {
         val itemCoordinates = getRelativePosition(position)
@@ -234,6 +220,20 @@ class GalleryAdapter(
             ?.getOrNull(0)
     }
 
+    /**
+     * All files of the row at [position], empty for headers.
+     */
+    fun getFilesAt(position: Int): List<OCFile> {
+        val itemCoordinates = getRelativePosition(position)
+
+        return files
+            .getOrNull(itemCoordinates.section())
+            ?.rows
+            ?.getOrNull(itemCoordinates.relativePos())
+            ?.files
+            ?: emptyList()
+    }
+
     override fun isMultiSelect(): Boolean = ocFileListDelegate.isMultiSelect
 
     override fun cancelAllPendingTasks() {
@@ -312,29 +312,20 @@ class GalleryAdapter(
 
     @VisibleForTesting
     fun addFiles(items: List<GalleryItems>) {
-        files = items
+        index.replace(items)
     }
 
+    /**
+     * Rows are split by the new column count on the next [showAllGalleryItems].
+     */
     fun changeColumn(newColumn: Int) {
-        columns = newColumn
+        index.columns = newColumn
     }
 
-    @SuppressLint("NotifyDataSetChanged")
     fun markAsFavorite(remotePath: String, favorite: Boolean) {
-        val allFiles = getAllFiles()
-        for (file in allFiles) {
-            if (file.remotePath == remotePath) {
-                file.isFavorite = favorite
-                break
-            }
-        }
+        val file = getAllFiles().firstOrNull { it.remotePath == remotePath } ?: return
+        file.isFavorite = favorite
 
-        files = allFiles.toGalleryItems()
-        Handler(Looper.getMainLooper()).post { notifyDataSetChanged() }
+        Handler(Looper.getMainLooper()).post { notifyItemChanged(getItemPosition(file)) }
     }
-
-    private fun List<OCFile>.toGalleryItems(): List<GalleryItems> = this
-        .groupBy { firstOfMonth(it.modificationTimestamp) }
-        .map { GalleryItems(it.key, transformToRows(it.value)) }
-        .sortedBy { it.date }.reversed()
 }
@@ -24,6 +24,7 @@ import android.widget.TextView;
 import com.nextcloud.android.common.ui.theme.utils.ColorRole;
 import com.nextcloud.client.preferences.AppPreferences;
 import com.owncloud.android.R;
+import com.owncloud.android.datamodel.ThumbnailLoader;
 import com.owncloud.android.datamodel.ThumbnailsCacheManager;
 import com.owncloud.android.lib.common.utils.Log_OC;
 import com.owncloud.android.ui.interfaces.LocalFileListFragmentInterface;
@@ -267,7 +268,8 @@ public class LocalFileListAdapter extends RecyclerView.Adapter<RecyclerView.View
                                     task
                                 );
                         thumbnailView.setImageDrawable(asyncDrawable);
-                        task.execute(new ThumbnailsCacheManager.ThumbnailGenerationTaskObject(file, null));
+                        task.executeOnExecutor(ThumbnailLoader.executor,
+                                             new ThumbnailsCacheManager.ThumbnailGenerationTaskObject(file, null));
                         Log_OC.v(TAG, "Executing task to generate a new thumbnail");
 
                     } // else, already being generated, don't restart it
@@ -51,6 +51,7 @@ import com.owncloud.android.databinding.ListFooterBinding;
 import com.owncloud.android.databinding.ListHeaderBinding;
 import com.owncloud.android.databinding.ListItemBinding;
 import com.owncloud.android.datamodel.FileDataStorageManager;
+import com.owncloud.android.datamodel.FolderContentWindow;
 import com.owncloud.android.datamodel.OCFile;
 import com.owncloud.android.datamodel.SyncedFolderProvider;
 import com.owncloud.android.datamodel.ThumbnailsCacheManager;
@@ -113,6 +114,7 @@ public class OCFileListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
     CommonOCFileListAdapterInterface, PopupTextProvider, RecommendedFilesAdapter.OnItemClickListener {
 
     private static final int showFilenameColumnThreshold = 4;
+    private static final int WINDOWED_LISTING_MIN_FILES = 1000;
     private final String userId;
     private final Activity activity;
     private final AppPreferences preferences;
@@ -234,6 +236,7 @@ public class OCFileListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
 
     @SuppressLint("NotifyDataSetChanged")
     public void setFavoriteAttributeForItemID(String remotePath, boolean favorite, boolean removeFromList) {
+        materializeFiles();
         List<OCFile> filesToDelete = new ArrayList<>();
         for (OCFile file : mFiles) {
             if (file.getRemotePath().equals(remotePath)) {
@@ -277,6 +280,7 @@ public class OCFileListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
     }
 
     public void refreshCommentsCount(String fileId) {
+        materializeFiles();
         for (OCFile file : mFiles) {
             if (file.getRemoteId().equals(fileId)) {
                 file.setUnreadCommentsCount(0);
@@ -295,6 +299,7 @@ public class OCFileListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
     }
 
     public void setEncryptionAttributeForItemID(String fileId, boolean encrypted) {
+        materializeFiles();
         for (OCFile file : mFiles) {
             if (file.getRemoteId().equals(fileId)) {
                 file.setEncrypted(encrypted);
@@ -330,6 +335,9 @@ public class OCFileListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
         if (position == mFiles.size()) {
             return footerId;
         } if (position < mFiles.size()) {
+            if (mFiles instanceof FolderContentWindow window) {
+                return window.getFileId(position);
+            }
             return mFiles.get(position).getFileId();
         }
 
@@ -765,6 +773,10 @@ public class OCFileListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
     }
 
     private String getFooterText() {
+        if (mFiles instanceof FolderContentWindow window) {
+            return generateFooterText(window.getFilesCount(), window.getFoldersCount());
+        }
+
         int filesCount = 0;
         int foldersCount = 0;
         int count = mFiles.size();
@@ -850,13 +862,19 @@ public class OCFileListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
 
         if (mStorageManager != null) {
             // TODO refactor filtering mechanism for mFiles
-            mFiles = mStorageManager.getFolderContent(directory, onlyOnDevice);
+            // folder content comes filtered by mime type and sorted from the database
+            sortOrder = preferences.getSortOrderByFolder(directory);
+            if (shouldUseWindowedListing(directory, onlyOnDevice)) {
+                swapToWindowedDirectory(directory, limitToMimeType);
+                return;
+            }
+
+            mFiles = mStorageManager.getSortedFolderContent(directory, onlyOnDevice, sortOrder, limitToMimeType);
+            boolean sorted = true;
+
             if (!preferences.isShowHiddenFilesEnabled()) {
                 mFiles = OCFileExtensionsKt.filterHiddenFiles(mFiles);
             }
-            if (!limitToMimeType.isEmpty()) {
-                mFiles = OCFileExtensionsKt.filterByMimeType(mFiles, limitToMimeType);
-            }
             if (OCFile.ROOT_PATH.equals(directory.getRemotePath()) && MainApp.isOnlyPersonFiles()) {
                 mFiles = OCFileExtensionsKt.limitToPersonalFiles(mFiles, userId);
             }
@@ -864,9 +882,11 @@ public class OCFileListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
             // TODO refactor add DrawerState instead of using static menuItemId
             if (DrawerActivity.menuItemId == R.id.nav_shared && currentDirectory != null) {
                 mFiles = updatedStorageManager.filter(currentDirectory, OCFileFilterType.Shared);
+                sorted = false;
             }
             if (DrawerActivity.menuItemId == R.id.nav_favorites && currentDirectory != null) {
                 mFiles = updatedStorageManager.filter(currentDirectory, OCFileFilterType.Favorite);
+                sorted = false;
             }
 
             // Filter out temp files from the list to prevent duplication
@@ -874,8 +894,9 @@ public class OCFileListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
 
             mFiles = OCFileExtensionsKt.filterFilenames(mFiles);
 
-            sortOrder = preferences.getSortOrderByFolder(directory);
-            mFiles = sortOrder.sortCloudFiles(mFiles);
+            if (!sorted) {
+                mFiles = sortOrder.sortCloudFiles(mFiles);
+            }
             prepareListOfHiddenFiles();
             mergeOCFilesForLivePhoto();
             mFilesAll.clear();
@@ -884,7 +905,7 @@ public class OCFileListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
             mFilesAll.addAll(mFiles);
             currentDirectory = directory;
         } else {
-            mFiles.clear();
+            mFiles = new ArrayList<>();
             mFilesAll.clear();
         }
 
@@ -892,6 +913,58 @@ public class OCFileListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
         activity.runOnUiThread(this::notifyDataSetChanged);
     }
 
+    /**
+     * Big folders of the regular file list are shown through a {@link FolderContentWindow}, so that only the files
+     * scrolled into view are loaded from the database. Filters which need the full files (personal files, shared,
+     * favorites, files on device) and folders with pending offline operations, which are merged into the listing,
+     * keep the regular listing.
+     */
+    private boolean shouldUseWindowedListing(OCFile directory, boolean onlyOnDevice) {
+        if (onlyOnDevice ||
+            DrawerActivity.menuItemId == R.id.nav_shared ||
+            DrawerActivity.menuItemId == R.id.nav_favorites ||
+            (OCFile.ROOT_PATH.equals(directory.getRemotePath()) && MainApp.isOnlyPersonFiles())) {
+            return false;
+        }
+
+        if (mStorageManager.getFolderContentCount(directory) < WINDOWED_LISTING_MIN_FILES) {
+            return false;
+        }
+
+        return mStorageManager.offlineOperationsRepository.convertToOCFiles(directory.getFileId()).isEmpty();
+    }
+
+    /**
+     * Shows the directory through a window. {@link #mFilesAll} stays empty meanwhile; everything reading it calls
+     * {@link #materializeFiles()} first, which fills it with all files of the window.
+     */
+    @SuppressLint("NotifyDataSetChanged")
+    private void swapToWindowedDirectory(OCFile directory, String limitToMimeType) {
+        FolderContentWindow window = mStorageManager.getFolderContentWindow(directory,
+                                                                            sortOrder,
+                                                                            limitToMimeType,
+                                                                            preferences.isShowHiddenFilesEnabled());
+        mFiles = window;
+        listOfHiddenFiles.clear();
+        listOfHiddenFiles.addAll(window.getHiddenFileNames());
+        mFilesAll.clear();
+        currentDirectory = directory;
+
+        searchType = null;
+        activity.runOnUiThread(this::notifyDataSetChanged);
+    }
+
+    /**
+     * Replaces a {@link FolderContentWindow} by a list of all its files, for changes to the list itself.
+     */
+    private void materializeFiles() {
+        if (mFiles instanceof FolderContentWindow) {
+            mFiles = new ArrayList<>(mFiles);
+            mFilesAll.clear();
+            mFilesAll.addAll(mFiles);
+        }
+    }
+
     /**
      * Converts Offline Operations to OCFiles and adds them to the adapter for visual feedback.
      * This function creates pending OCFiles, but they may not consistently appear in the UI.
@@ -938,7 +1011,7 @@ public class OCFileListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
         }
 
         if (clear) {
-            mFiles.clear();
+            mFiles = new ArrayList<>();
             preferences.setPhotoSearchTimestamp(0);
 
             VirtualFolderType type = switch (searchType) {
@@ -951,6 +1024,7 @@ public class OCFileListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
                 mStorageManager.deleteVirtuals(type);
             }
         }
+        materializeFiles();
 
         // early exit
         if (!objects.isEmpty() && mStorageManager != null) {
@@ -1100,6 +1174,7 @@ public class OCFileListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
 
     public void setSortOrder(@Nullable OCFile folder, FileSortOrder sortOrder) {
         preferences.setSortOrder(folder, sortOrder);
+        materializeFiles();
         mFiles = sortOrder.sortCloudFiles(mFiles);
         notifyDataSetChanged();
 
@@ -1182,6 +1257,10 @@ public class OCFileListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
     @NonNull
     @Override
     public String getPopupText(View view, int position) {
+        if (mFiles instanceof FolderContentWindow window) {
+            return getPopupText(window, position);
+        }
+
         OCFile file = getItem(position);
 
         if (file == null || sortOrder == null) {
@@ -1203,6 +1282,25 @@ public class OCFileListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHol
         }
     }
 
+    /**
+     * Popup text from the rows of the window, fast scrolling through a big folder does not load the files passed.
+     */
+    private String getPopupText(FolderContentWindow window, int position) {
+        int index = shouldShowHeader() && position > 0 ? position - 1 : position;
+        if (sortOrder == null || index >= window.size()) {
+            return "";
+        }
+
+        return switch (sortOrder.getType()) {
+            case ALPHABET -> {
+                String fileName = window.getFileName(index);
+                yield fileName.isEmpty() ? "" : String.valueOf(fileName.charAt(0)).toUpperCase(Locale.getDefault());
+            }
+            case DATE -> dateFormat.format(new Date(window.getModificationTimestamp(index)));
+            case SIZE -> DisplayUtils.bytesToHumanReadable(window.getFileLength(index));
+        };
+    }
+
     @VisibleForTesting
     public void setShowShareAvatar(boolean bool) {
         ocFileListDelegate.setShowShareAvatar(bool);
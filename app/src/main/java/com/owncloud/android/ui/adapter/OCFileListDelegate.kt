@@ -9,7 +9,6 @@ package com.owncloud.android.ui.adapter
 
 import android.content.Context
 import android.graphics.Color
-import android.os.AsyncTask
 import android.view.View
 import android.widget.ImageView
 import androidx.core.content.ContextCompat
@@ -28,6 +27,7 @@ import com.owncloud.android.R
 import com.owncloud.android.datamodel.FileDataStorageManager
 import com.owncloud.android.datamodel.OCFile
 import com.owncloud.android.datamodel.SyncedFolderProvider
+import com.owncloud.android.datamodel.ThumbnailLoader
 import com.owncloud.android.datamodel.ThumbnailsCacheManager
 import com.owncloud.android.datamodel.ThumbnailsCacheManager.GalleryImageGenerationTask.GalleryListener
 import com.owncloud.android.lib.common.utils.Log_OC
@@ -200,7 +200,7 @@ class OCFileListDelegate(
             thumbnailView.setImageDrawable(asyncDrawable)
 
             asyncGalleryTasks.add(task)
-            task.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR, file)
+            task.executeOnExecutor(ThumbnailLoader.executor, file)
         } catch (e: IllegalArgumentException) {
             Log_OC.d(tag, "ThumbnailGenerationTask : " + e.message)
         }
@@ -19,6 +19,7 @@ import com.owncloud.android.databinding.UploaderListItemLayoutBinding
 import com.owncloud.android.datamodel.FileDataStorageManager
 import com.owncloud.android.datamodel.OCFile
 import com.owncloud.android.datamodel.SyncedFolderProvider
+import com.owncloud.android.datamodel.ThumbnailLoader
 import com.owncloud.android.datamodel.ThumbnailsCacheManager
 import com.owncloud.android.datamodel.ThumbnailsCacheManager.AsyncThumbnailDrawable
 import com.owncloud.android.datamodel.ThumbnailsCacheManager.ThumbnailGenerationTask
@@ -143,7 +144,7 @@ class ReceiveExternalFilesAdapter(
                 thumbnailImageView.setImageDrawable(asyncDrawable)
 
                 @Suppress("DEPRECATION")
-                task.execute(ThumbnailGenerationTaskObject(file, file.remoteId))
+                task.executeOnExecutor(ThumbnailLoader.executor, ThumbnailGenerationTaskObject(file, file.remoteId))
             }
         }
     }
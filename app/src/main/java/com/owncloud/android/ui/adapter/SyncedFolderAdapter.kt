@@ -31,14 +31,13 @@ import com.owncloud.android.databinding.SyncedFoldersFooterBinding
 import com.owncloud.android.databinding.SyncedFoldersItemHeaderBinding
 import com.owncloud.android.datamodel.MediaFolderType
 import com.owncloud.android.datamodel.SyncedFolderDisplayItem
+import com.owncloud.android.datamodel.ThumbnailLoader
 import com.owncloud.android.datamodel.ThumbnailsCacheManager
 import com.owncloud.android.datamodel.ThumbnailsCacheManager.AsyncMediaThumbnailDrawable
 import com.owncloud.android.datamodel.ThumbnailsCacheManager.MediaThumbnailGenerationTask
 import com.owncloud.android.utils.theme.ViewThemeUtils
 import java.io.File
 import java.util.Locale
-import java.util.concurrent.Executor
-import java.util.concurrent.Executors
 
 /**
  * Adapter to display all auto-synced folders and/or instant upload media folders.
@@ -57,7 +56,6 @@ class SyncedFolderAdapter(
     private val syncFolderItems: MutableList<SyncedFolderDisplayItem> = ArrayList()
     private val filteredSyncFolderItems: MutableList<SyncedFolderDisplayItem> = ArrayList()
     private var hideItems = true
-    private val thumbnailThreadPool: Executor = Executors.newCachedThreadPool()
 
     init {
         shouldShowHeadersForEmptySections(true)
@@ -356,7 +354,7 @@ class SyncedFolderAdapter(
                 )
             holder.binding.thumbnail.setImageDrawable(asyncDrawable)
 
-            task.executeOnExecutor(thumbnailThreadPool, file)
+            task.executeOnExecutor(ThumbnailLoader.executor, file)
 
             // set proper tag
             holder.binding.thumbnail.tag = file.hashCode()
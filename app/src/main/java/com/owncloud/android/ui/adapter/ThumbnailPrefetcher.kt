@@ -0,0 +1,244 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.owncloud.android.ui.adapter
+
+import androidx.annotation.VisibleForTesting
+import androidx.recyclerview.widget.LinearLayoutManager
+import androidx.recyclerview.widget.RecyclerView
+import com.nextcloud.client.account.User
+import com.owncloud.android.MainApp
+import com.owncloud.android.datamodel.FileDataStorageManager
+import com.owncloud.android.datamodel.OCFile
+import com.owncloud.android.datamodel.ThumbnailsCacheManager
+import com.owncloud.android.lib.common.OwnCloudClient
+import com.owncloud.android.lib.common.OwnCloudClientManagerFactory
+import com.owncloud.android.lib.common.utils.Log_OC
+import com.owncloud.android.utils.MimeTypeUtil
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Loads thumbnails of the next [lookAhead] list positions in scroll direction into the thumbnail cache, so rows are
+ * bound with a cache hit instead of starting a request each.
+ *
+ * Requests run on [MAX_CONNECTIONS] threads sharing the account's client, which keeps its connections alive between
+ * requests. When the user scrolls on, requests for positions that are no longer ahead are dropped before they start.
+ *
+ * Hit rate: share of prefetchable files scrolled into view whose thumbnail had been prefetched by then. It is logged
+ * every [STATISTICS_INTERVAL] files shown and when prefetching is closed.
+ */
+class ThumbnailPrefetcher @JvmOverloads constructor(
+    user: User,
+    storageManager: FileDataStorageManager,
+    private val target: Target,
+    private val fileSource: FileSource,
+    private val lookAhead: Int = DEFAULT_LOOK_AHEAD,
+    private val loader: Loader = CacheManagerLoader(user, storageManager, target)
+) : RecyclerView.OnScrollListener() {
+
+    enum class Target {
+        /** thumbnails of the file list */
+        THUMBNAIL,
+
+        /** resized images of the gallery */
+        RESIZED_IMAGE
+    }
+
+    fun interface FileSource {
+        fun getFilesAt(position: Int): List<OCFile>
+    }
+
+    /**
+     * Puts the image of [Target] for a file into the cache, called on the prefetch threads.
+     */
+    fun interface Loader {
+        /**
+         * @return true if the image is cached afterwards
+         */
+        fun load(file: OCFile): Boolean
+    }
+
+    /**
+     * Loads through [ThumbnailsCacheManager] with one client of the user, created on first use and shared by all
+     * prefetch threads.
+     */
+    private class CacheManagerLoader(
+        private val user: User,
+        private val storageManager: FileDataStorageManager,
+        private val target: Target
+    ) : Loader {
+        @Volatile
+        private var client: OwnCloudClient? = null
+
+        override fun load(file: OCFile): Boolean {
+            val client = client ?: createClient() ?: return false
+            return when (target) {
+                Target.THUMBNAIL -> ThumbnailsCacheManager.prefetchThumbnail(file, client)
+                Target.RESIZED_IMAGE -> ThumbnailsCacheManager.prefetchResizedImage(file, client, storageManager)
+            }
+        }
+
+        @Suppress("TooGenericExceptionCaught")
+        private fun createClient(): OwnCloudClient? = try {
+            OwnCloudClientManagerFactory.getDefaultSingleton()
+                .getClientFor(user.toOwnCloudAccount(), MainApp.getAppContext())
+                .also { client = it }
+        } catch (e: Exception) {
+            Log_OC.d(TAG, "Exception caught creating client for prefetching: $e")
+            null
+        }
+    }
+
+    companion object {
+        private val TAG = ThumbnailPrefetcher::class.java.simpleName
+
+        const val DEFAULT_LOOK_AHEAD = 24
+        private const val MAX_CONNECTIONS = 2
+        private const val MAX_TRACKED_KEYS = 2000
+        private const val KEEP_ALIVE_SECONDS = 30L
+        private const val PERCENT = 100
+        private const val STATISTICS_INTERVAL = 100
+    }
+
+    private val queue = LinkedBlockingQueue<Runnable>()
+    private val executor = ThreadPoolExecutor(
+        MAX_CONNECTIONS,
+        MAX_CONNECTIONS,
+        KEEP_ALIVE_SECONDS,
+        TimeUnit.SECONDS,
+        queue
+    ).apply {
+        allowCoreThreadTimeOut(true)
+    }
+
+    private val pending = ConcurrentHashMap.newKeySet<String>()
+    private val prefetched = ConcurrentHashMap.newKeySet<String>()
+    private val seen = HashSet<String>()
+
+    private val fetched = AtomicInteger()
+    private val failed = AtomicInteger()
+    private var hits = 0
+    private var shown = 0
+
+    private var lastWindow: IntProgression? = null
+    private var closed = false
+
+    private inner class PrefetchTask(val file: OCFile, val key: String) : Runnable {
+        override fun run() {
+            try {
+                if (loader.load(file)) {
+                    if (prefetched.size > MAX_TRACKED_KEYS) {
+                        prefetched.clear()
+                    }
+                    prefetched.add(key)
+                    fetched.incrementAndGet()
+                } else {
+                    failed.incrementAndGet()
+                }
+            } finally {
+                pending.remove(key)
+            }
+        }
+    }
+
+    override fun onScrolled(recyclerView: RecyclerView, dx: Int, dy: Int) {
+        val layoutManager = recyclerView.layoutManager as? LinearLayoutManager
+        if (dy == 0 || closed || layoutManager == null) {
+            return
+        }
+
+        val first = layoutManager.findFirstVisibleItemPosition()
+        val last = layoutManager.findLastVisibleItemPosition()
+        if (first == RecyclerView.NO_POSITION || last == RecyclerView.NO_POSITION) {
+            return
+        }
+
+        countShown(first..last, lastWindow != null)
+
+        val window = if (dy > 0) {
+            (last + 1)..minOf(last + lookAhead, layoutManager.itemCount - 1)
+        } else {
+            (first - 1) downTo maxOf(first - lookAhead, 0)
+        }
+
+        if (window != lastWindow) {
+            lastWindow = window
+            schedule(window)
+        }
+    }
+
+    private fun countShown(visible: IntRange, count: Boolean) {
+        visible.forEach { position ->
+            prefetchableFilesAt(position).forEach { file ->
+                val key = keyOf(file)
+                if (seen.add(key) && count) {
+                    shown++
+                    if (prefetched.contains(key)) {
+                        hits++
+                    }
+                    if (shown % STATISTICS_INTERVAL == 0) {
+                        Log_OC.d(TAG, "Prefetching: " + getStatistics())
+                    }
+                }
+            }
+        }
+
+        if (seen.size > MAX_TRACKED_KEYS) {
+            seen.clear()
+        }
+    }
+
+    private fun schedule(window: IntProgression) {
+        // positions that were ahead before but are not anymore are not worth a request
+        val dropped = ArrayList<Runnable>()
+        queue.drainTo(dropped)
+        dropped.forEach { pending.remove((it as PrefetchTask).key) }
+
+        window.forEach { position ->
+            prefetchableFilesAt(position).forEach { file ->
+                val key = keyOf(file)
+                if (!prefetched.contains(key) && pending.add(key)) {
+                    executor.execute(PrefetchTask(file, key))
+                }
+            }
+        }
+    }
+
+    private fun prefetchableFilesAt(position: Int): List<OCFile> = fileSource.getFilesAt(position).filter {
+        !it.isFolder && !it.isDown && it.remoteId != null && (it.isPreviewAvailable || MimeTypeUtil.isImageOrVideo(it))
+    }
+
+    private fun keyOf(file: OCFile): String = when (target) {
+        Target.THUMBNAIL -> ThumbnailsCacheManager.PREFIX_THUMBNAIL + file.remoteId
+        Target.RESIZED_IMAGE -> ThumbnailsCacheManager.PREFIX_RESIZED_IMAGE + file.remoteId
+    }
+
+    @VisibleForTesting
+    internal val fetchedCount: Int
+        get() = fetched.get()
+
+    fun getHitRate(): Int = if (shown == 0) 0 else hits * PERCENT / shown
+
+    fun getStatistics(): String = "target=$target, hit rate=${getHitRate()}% ($hits/$shown), " +
+        "fetched=${fetched.get()}, failed=${failed.get()}, queued=${queue.size}"
+
+    /**
+     * Stops prefetching, requests already running are finished.
+     */
+    fun close() {
+        if (closed) {
+            return
+        }
+        closed = true
+        queue.clear()
+        executor.shutdown()
+        Log_OC.d(TAG, "Prefetching finished: " + getStatistics())
+    }
+}
@@ -26,6 +26,7 @@ import com.owncloud.android.databinding.ListFooterBinding;
 import com.owncloud.android.databinding.TrashbinItemBinding;
 import com.owncloud.android.datamodel.FileDataStorageManager;
 import com.owncloud.android.datamodel.SyncedFolderProvider;
+import com.owncloud.android.datamodel.ThumbnailLoader;
 import com.owncloud.android.datamodel.ThumbnailsCacheManager;
 import com.owncloud.android.lib.common.utils.Log_OC;
 import com.owncloud.android.lib.resources.trashbin.model.TrashbinFile;
@@ -285,7 +286,8 @@ public class TrashbinListAdapter extends RecyclerView.Adapter<RecyclerView.ViewH
                                             thumbnail, task);
                             thumbnailView.setImageDrawable(asyncDrawable);
                             asyncTasks.add(task);
-                            task.execute(new ThumbnailsCacheManager.ThumbnailGenerationTaskObject(file,
+                            task.executeOnExecutor(ThumbnailLoader.executor,
+                                                 new ThumbnailsCacheManager.ThumbnailGenerationTaskObject(file,
                                     file.getRemoteId()));
                         } catch (IllegalArgumentException e) {
                             Log_OC.d(TAG, "ThumbnailGenerationTask : " + e.getMessage());
@@ -36,6 +36,7 @@ import com.owncloud.android.databinding.UploadListHeaderBinding;
 import com.owncloud.android.databinding.UploadListItemBinding;
 import com.owncloud.android.datamodel.FileDataStorageManager;
 import com.owncloud.android.datamodel.OCFile;
+import com.owncloud.android.datamodel.ThumbnailLoader;
 import com.owncloud.android.datamodel.ThumbnailsCacheManager;
 import com.owncloud.android.datamodel.UploadsStorageManager;
 import com.owncloud.android.datamodel.UploadsStorageManager.UploadStatus;
@@ -530,8 +531,9 @@ public class UploadListAdapter extends SectionedRecyclerViewAdapter<SectionedVie
                             task
                         );
                     itemViewHolder.binding.thumbnail.setImageDrawable(asyncDrawable);
-                    task.execute(new ThumbnailsCacheManager.ThumbnailGenerationTaskObject(
-                        fakeFileToCheatThumbnailsCacheManagerInterface, null));
+                    task.executeOnExecutor(ThumbnailLoader.executor,
+                                           new ThumbnailsCacheManager.ThumbnailGenerationTaskObject(
+                                               fakeFileToCheatThumbnailsCacheManagerInterface, null));
                 }
             }
 
@@ -560,7 +562,8 @@ public class UploadListAdapter extends SectionedRecyclerViewAdapter<SectionedVie
                     new ThumbnailsCacheManager.AsyncThumbnailDrawable(parentActivity.getResources(), thumbnail,
                                                                       task);
 
-                task.execute(new ThumbnailsCacheManager.ThumbnailGenerationTaskObject(file, null));
+                task.executeOnExecutor(ThumbnailLoader.executor,
+                                      new ThumbnailsCacheManager.ThumbnailGenerationTaskObject(file, null));
                 task.setListener(new ThumbnailsCacheManager.ThumbnailGenerationTask.Listener() {
                     @Override
                     public void onSuccess() {
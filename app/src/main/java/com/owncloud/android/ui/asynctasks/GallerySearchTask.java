@@ -139,7 +139,9 @@ public class GallerySearchTask extends AsyncTask<Void, Void, GallerySearchTask.R
 
         Map<String, OCFile> localFilesMap = RefreshFolderOperation.prefillLocalFilesMap(null, localFiles);
 
+        long start = System.currentTimeMillis();
         long filesAdded = 0, filesUpdated = 0, unchangedFiles = 0;
+        List<OCFile> filesToSave = new ArrayList<>();
 
         for (Object file : remoteFiles) {
             OCFile ocFile = FileStorageUtils.fillOCFile((RemoteFile) file);
@@ -157,12 +159,12 @@ public class GallerySearchTask extends AsyncTask<Void, Void, GallerySearchTask.R
 
             if (localFile == null) {
                 // add new file
-                storageManager.saveFile(ocFile);
+                filesToSave.add(ocFile);
                 filesAdded++;
             } else if (!localFile.getEtag().equals(ocFile.getEtag())) {
                 // update file
                 ocFile.setLastSyncDateForData(System.currentTimeMillis());
-                storageManager.saveFile(ocFile);
+                filesToSave.add(ocFile);
                 filesUpdated++;
             } else {
                 unchangedFiles++;
@@ -172,21 +174,22 @@ public class GallerySearchTask extends AsyncTask<Void, Void, GallerySearchTask.R
         // existing files to remove
         long filesDeleted = localFilesMap.size();
 
-        for (OCFile file : localFilesMap.values()) {
-            if (BuildConfig.DEBUG) {
+        if (BuildConfig.DEBUG) {
+            for (OCFile file : localFilesMap.values()) {
                 Log_OC.d(this, "Gallery Sync: File deleted " + file.getRemotePath());
             }
-
-            storageManager.removeFile(file, true, true);
         }
 
-        if (BuildConfig.DEBUG) {
-            Log_OC.d(this, "Gallery search result:" +
-                " new: " + filesAdded +
-                " updated: " + filesUpdated +
-                " deleted: " + filesDeleted +
-                " unchanged: " + unchangedFiles);
-        }
+        storageManager.saveGalleryItems(filesToSave, localFilesMap.values());
+
+        long duration = System.currentTimeMillis() - start;
+        Log_OC.d(this, "Gallery search result:" +
+            " new: " + filesAdded +
+            " updated: " + filesUpdated +
+            " deleted: " + filesDeleted +
+            " unchanged: " + unchangedFiles +
+            " - reconciled " + remoteFiles.size() + " files in " + duration + " ms" +
+            " (" + remoteFiles.size() * 1000L / Math.max(duration, 1) + " files/s)");
 
         return filesAdded <= 0 && filesUpdated <= 0 && filesDeleted <= 0;
     }
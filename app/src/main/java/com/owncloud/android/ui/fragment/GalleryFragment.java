@@ -35,6 +35,7 @@ import com.owncloud.android.ui.activity.FolderPickerActivity;
 import com.owncloud.android.ui.activity.ToolbarActivity;
 import com.owncloud.android.ui.adapter.CommonOCFileListAdapterInterface;
 import com.owncloud.android.ui.adapter.GalleryAdapter;
+import com.owncloud.android.ui.adapter.ThumbnailPrefetcher;
 import com.owncloud.android.ui.asynctasks.GallerySearchTask;
 import com.owncloud.android.ui.events.ChangeMenuEvent;
 
@@ -179,6 +180,10 @@ public class GalleryFragment extends OCFileListFragment implements GalleryFragme
                                       ThumbnailsCacheManager.getThumbnailDimension());
         mAdapter.setHasStableIds(true);
         setRecyclerViewAdapter(mAdapter);
+        setThumbnailPrefetcher(new ThumbnailPrefetcher(accountManager.getUser(),
+                                                       mContainerActivity.getStorageManager(),
+                                                       ThumbnailPrefetcher.Target.RESIZED_IMAGE,
+                                                       mAdapter::getFilesAt));
 
         //update the footer as there is no footer shown in media view
         if (getRecyclerView() instanceof EmptyRecyclerView) {
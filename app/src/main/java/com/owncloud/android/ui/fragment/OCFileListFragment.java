@@ -87,6 +87,7 @@ import com.owncloud.android.ui.activity.OnEnforceableRefreshListener;
 import com.owncloud.android.ui.activity.UploadFilesActivity;
 import com.owncloud.android.ui.adapter.CommonOCFileListAdapterInterface;
 import com.owncloud.android.ui.adapter.OCFileListAdapter;
+import com.owncloud.android.ui.adapter.ThumbnailPrefetcher;
 import com.owncloud.android.ui.dialog.ChooseRichDocumentsTemplateDialogFragment;
 import com.owncloud.android.ui.dialog.ChooseTemplateDialogFragment;
 import com.owncloud.android.ui.dialog.ConfirmationDialogFragment;
@@ -122,6 +123,7 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -214,6 +216,7 @@ public class OCFileListFragment extends ExtendedListFragment implements
 
     protected OCFile mFile;
     private OCFileListAdapter mAdapter;
+    private ThumbnailPrefetcher thumbnailPrefetcher;
     protected boolean mOnlyFoldersClickable;
     protected boolean mFileSelectable;
 
@@ -348,6 +351,12 @@ public class OCFileListFragment extends ExtendedListFragment implements
         super.onDetach();
     }
 
+    @Override
+    public void onDestroyView() {
+        setThumbnailPrefetcher(null);
+        super.onDestroyView();
+    }
+
     @Override
     public void onPause() {
         super.onPause();
@@ -457,12 +466,39 @@ public class OCFileListFragment extends ExtendedListFragment implements
         );
 
         setRecyclerViewAdapter(mAdapter);
+        setThumbnailPrefetcher(new ThumbnailPrefetcher(accountManager.getUser(),
+                                                       mContainerActivity.getStorageManager(),
+                                                       ThumbnailPrefetcher.Target.THUMBNAIL,
+                                                       this::getFilesAt));
 
         if (getRecyclerView() != null) {
             fastScrollUtils.applyFastScroll(getRecyclerView());
         }
     }
 
+    private List<OCFile> getFilesAt(int position) {
+        OCFile file = mAdapter.getItem(position);
+        return file == null ? Collections.emptyList() : Collections.singletonList(file);
+    }
+
+    /**
+     * Replaces the prefetcher loading thumbnails ahead of scrolling, the previous one is stopped.
+     */
+    protected void setThumbnailPrefetcher(@Nullable ThumbnailPrefetcher prefetcher) {
+        if (thumbnailPrefetcher != null) {
+            if (getRecyclerView() != null) {
+                getRecyclerView().removeOnScrollListener(thumbnailPrefetcher);
+            }
+            thumbnailPrefetcher.close();
+        }
+
+        thumbnailPrefetcher = prefetcher;
+
+        if (thumbnailPrefetcher != null && getRecyclerView() != null) {
+            getRecyclerView().addOnScrollListener(thumbnailPrefetcher);
+        }
+    }
+
     protected void prepareCurrentSearch(SearchEvent event) {
         if (isSearchEventSet(event)) {
 
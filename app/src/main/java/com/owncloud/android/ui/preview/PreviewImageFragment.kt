@@ -54,6 +54,7 @@ import com.owncloud.android.MainApp
 import com.owncloud.android.R
 import com.owncloud.android.databinding.PreviewImageFragmentBinding
 import com.owncloud.android.datamodel.OCFile
+import com.owncloud.android.datamodel.ThumbnailLoader
 import com.owncloud.android.datamodel.ThumbnailsCacheManager
 import com.owncloud.android.datamodel.ThumbnailsCacheManager.AsyncResizedImageDrawable
 import com.owncloud.android.datamodel.ThumbnailsCacheManager.ResizedImageGenerationTask
@@ -98,6 +99,10 @@ class PreviewImageFragment :
     FileFragment(),
     Injectable {
     private var showResizedImage: Boolean? = null
+
+    /**
+     * Bitmap decoded by this fragment; bitmaps of the thumbnail cache are shared and must not be kept here.
+     */
     private var bitmap: Bitmap? = null
 
     private var ignoreFirstSavedState = false
@@ -249,7 +254,6 @@ class PreviewImageFragment :
             binding.shimmer.visibility = View.VISIBLE
             binding.shimmerThumbnail.setImageBitmap(thumbnail)
             binding.image.visibility = View.GONE
-            bitmap = thumbnail
         } else {
             thumbnail = ThumbnailsCacheManager.mDefaultImg
         }
@@ -274,8 +278,6 @@ class PreviewImageFragment :
             binding.emptyListView.visibility = View.GONE
             binding.emptyListProgress.visibility = View.GONE
             binding.image.setBackgroundColor(resources.getColor(R.color.background_color_inverse))
-
-            bitmap = resizedImage
         } else {
             // generate new resized image
             if (ThumbnailsCacheManager.cancelPotentialThumbnailWork(file, binding.image) &&
@@ -301,7 +303,7 @@ class PreviewImageFragment :
                         task
                     )
                 binding.image.setImageDrawable(asyncDrawable)
-                task.execute(file)
+                task.executeOnExecutor(ThumbnailLoader.executor, file)
             }
         }
     }
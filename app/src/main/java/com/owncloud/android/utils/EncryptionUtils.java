@@ -64,7 +64,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.Key;
@@ -95,7 +98,6 @@ import java.util.UUID;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
-import javax.crypto.CipherOutputStream;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.KeyGenerator;
 import javax.crypto.NoSuchPaddingException;
@@ -120,6 +122,7 @@ public final class EncryptionUtils {
     public static final String PRIVATE_KEY = "PRIVATE_KEY";
     public static final String MNEMONIC = "MNEMONIC";
     public static final int ivLength = 16;
+    private static final int CIPHER_BUFFER_SIZE = 64 * 1024;
     public static final int saltLength = 40;
     public static final String ivDelimiter = "|"; // not base64 encoded
     public static final String ivDelimiterOld = "fA=="; // "|" base64 encoded
@@ -554,9 +557,23 @@ public final class EncryptionUtils {
     public static EncryptedFile encryptFile(String accountName, File file, Cipher cipher) throws InvalidParameterSpecException, IOException {
         File tempEncryptedFolder = FileDataStorageManager.createTempEncryptedFolder(accountName);
         File tempEncryptedFile = File.createTempFile(file.getName(), null, tempEncryptedFolder);
-        encryptFileWithGivenCipher(file, tempEncryptedFile, cipher);
-        String authenticationTagString = getAuthenticationTag(cipher);
-        return new EncryptedFile(tempEncryptedFile, authenticationTagString);
+        return encryptFile(file, tempEncryptedFile, cipher);
+    }
+
+    /**
+     * Encrypts the file into the given target in one streaming pass.
+     *
+     * @throws IOException if the file could not be read or the target not be written completely
+     */
+    public static EncryptedFile encryptFile(File file, File encryptedFile, Cipher cipher)
+        throws InvalidParameterSpecException, IOException {
+        try {
+            streamCipher(file, encryptedFile, cipher);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Encrypting " + file.getName() + " failed", e);
+        }
+
+        return new EncryptedFile(encryptedFile, getAuthenticationTag(cipher));
     }
 
     public static String getAuthenticationTag(Cipher cipher) throws InvalidParameterSpecException {
@@ -573,22 +590,42 @@ public final class EncryptionUtils {
     }
 
     public static void encryptFileWithGivenCipher(File inputFile, File encryptedFile, Cipher cipher) {
-        try (FileInputStream inputStream = new FileInputStream(inputFile);
-             FileOutputStream fileOutputStream = new FileOutputStream(encryptedFile);
-             CipherOutputStream outputStream = new CipherOutputStream(fileOutputStream, cipher)) {
-            byte[] buffer = new byte[4096];
-            int bytesRead;
+        try {
+            streamCipher(inputFile, encryptedFile, cipher);
+            Log_OC.d(TAG, encryptedFile.getName() + "encrypted successfully");
+        } catch (IOException | GeneralSecurityException exception) {
+            Log_OC.d(TAG, "Error caught at encryptFileWithGivenCipher(): " + exception.getLocalizedMessage());
+        }
+    }
 
-            while ((bytesRead = inputStream.read(buffer)) != -1) {
-                outputStream.write(buffer, 0, bytesRead);
+    /**
+     * Runs the input file through the cipher into the output file, reading and writing through channels with one
+     * reused pair of buffers instead of a cipher stream copying small blocks.
+     */
+    private static void streamCipher(File inputFile, File outputFile, Cipher cipher)
+        throws IOException, GeneralSecurityException {
+        try (FileChannel input = new FileInputStream(inputFile).getChannel();
+             FileChannel output = new FileOutputStream(outputFile).getChannel()) {
+            ByteBuffer inputBuffer = ByteBuffer.allocate(CIPHER_BUFFER_SIZE);
+            ByteBuffer outputBuffer = ByteBuffer.allocate(cipher.getOutputSize(CIPHER_BUFFER_SIZE));
+
+            while (input.read(inputBuffer) != -1) {
+                inputBuffer.flip();
+                outputBuffer.clear();
+                cipher.update(inputBuffer, outputBuffer);
+                outputBuffer.flip();
+                writeFully(output, outputBuffer);
+                inputBuffer.clear();
             }
 
-            outputStream.close();
-            inputStream.close();
+            byte[] last = cipher.doFinal();
+            writeFully(output, ByteBuffer.wrap(last));
+        }
+    }
 
-            Log_OC.d(TAG, encryptedFile.getName() + "encrypted successfully");
-        } catch (IOException exception) {
-            Log_OC.d(TAG, "Error caught at encryptFileWithGivenCipher(): " + exception.getLocalizedMessage());
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
         }
     }
 
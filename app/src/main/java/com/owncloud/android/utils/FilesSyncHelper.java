@@ -98,6 +98,7 @@ public final class FilesSyncHelper {
                                                  long lastCheck) {
 
         final long enabledTimestampMs = syncedFolder.getEnabledTimestampMs();
+        final FilesystemDataProvider.BulkIndexer indexer = filesystemDataProvider.startBulkIndexing(syncedFolder);
 
         try {
 
@@ -116,11 +117,10 @@ public final class FilesSyncHelper {
                     }
 
                     if (syncedFolder.isExisting() || attrs.lastModifiedTime().toMillis() >= enabledTimestampMs) {
-                        // storeOrUpdateFileValue takes a few ms
-                        // -> Rest of this file check takes not even 1 ms.
-                        filesystemDataProvider.storeOrUpdateFileValue(path.toAbsolutePath().toString(),
-                                                                      attrs.lastModifiedTime().toMillis(),
-                                                                      file.isDirectory(), syncedFolder);
+                        // existing rows are preloaded, writes are batched
+                        indexer.storeOrUpdateFileValue(path.toAbsolutePath().toString(),
+                                                       attrs.lastModifiedTime().toMillis(),
+                                                       file.isDirectory());
                     }
 
                     return FileVisitResult.CONTINUE;
@@ -141,6 +141,8 @@ public final class FilesSyncHelper {
             });
         } catch (IOException e) {
             Log_OC.e(TAG, "Something went wrong while indexing files for auto upload", e);
+        } finally {
+            indexer.finish();
         }
     }
 
@@ -243,6 +245,7 @@ public final class FilesSyncHelper {
                                                     new String[]{path}, null);
 
         if (cursor != null) {
+            final FilesystemDataProvider.BulkIndexer indexer = filesystemDataProvider.startBulkIndexing(syncedFolder);
             column_index_data = cursor.getColumnIndexOrThrow(MediaStore.MediaColumns.DATA);
             column_index_date_modified = cursor.getColumnIndexOrThrow(MediaStore.MediaColumns.DATE_MODIFIED);
             while (cursor.moveToNext()) {
@@ -255,14 +258,12 @@ public final class FilesSyncHelper {
                 }
 
                 if (syncedFolder.isExisting() || cursor.getLong(column_index_date_modified) >= enabledTimestampMs / 1000) {
-                    // storeOrUpdateFileValue takes a few ms
-                    // -> Rest of this file check takes not even 1 ms.
-                    filesystemDataProvider.storeOrUpdateFileValue(contentPath,
-                                                                  cursor.getLong(column_index_date_modified), isFolder,
-                                                                  syncedFolder);
+                    // existing rows are preloaded, writes are batched
+                    indexer.storeOrUpdateFileValue(contentPath, cursor.getLong(column_index_date_modified), isFolder);
                 }
             }
             cursor.close();
+            indexer.finish();
         }
     }
 
@@ -52,10 +52,16 @@ import static android.text.TextUtils.isEmpty;
  * @author Michael Angstadt
  */
 public class ContactOperations {
-    private static final int rawContactID = 0;
+    /**
+     * Operations per transaction of queued contacts, below the limit of the contacts provider
+     */
+    public static final int MAX_BATCH_OPERATIONS = 400;
 
     private final Context context;
     private final NonEmptyContentValues account;
+    private final ArrayList<ContentProviderOperation> pendingOperations = new ArrayList<>();
+    private final List<PendingContact> pendingContacts = new ArrayList<>();
+    private int writtenContactsCount;
     private final String tag = "ContactOperations";
 
     public ContactOperations(Context context) {
@@ -71,59 +77,98 @@ public class ContactOperations {
     }
 
     public void insertContact(VCard vcard) throws RemoteException, OperationApplicationException {
-        // TODO handle Raw properties - Raw properties include various extension which start with "X-" like X-ASSISTANT, X-AIM, X-SPOUSE
-
-        List<NonEmptyContentValues> contentValues = new ArrayList<>();
-        convertName(contentValues, vcard);
-        convertNickname(contentValues, vcard);
-        convertPhones(contentValues, vcard);
-        convertEmails(contentValues, vcard);
-        convertAddresses(contentValues, vcard);
-        convertIms(contentValues, vcard);
+        // Executing all the insert operations as a single database transaction
+        context.getContentResolver()
+            .applyBatch(ContactsContract.AUTHORITY, createInsertOperations(convert(vcard), 0));
+    }
 
-        // handle Android Custom fields..This is only valid for Android generated Vcards. As the Android would
-        // generate NickName, ContactEvents other than Birthday and RelationShip with this "X-ANDROID-CUSTOM" name
-        convertCustomFields(contentValues, vcard);
+    public void updateContact(VCard vcard, Long key) throws RemoteException, OperationApplicationException {
+        // Executing all the update operations as a single database transaction
+        context.getContentResolver()
+            .applyBatch(ContactsContract.AUTHORITY, createUpdateOperations(convert(vcard), key));
+    }
 
-        // handle Iphone kinda of group properties. which are grouped together.
-        convertGroupedProperties(contentValues, vcard);
+    /**
+     * Queues the insertion of a contact. Queued contacts are written together in transactions of at most
+     * {@link #MAX_BATCH_OPERATIONS} operations; call {@link #flush()} to write the remaining ones.
+     */
+    public void queueInsertContact(VCard vcard) {
+        queue(vcard, null);
+    }
 
-        convertBirthdays(contentValues, vcard);
+    /**
+     * Queues replacing the data of the raw contact {@code key} by the vCard, see {@link #queueInsertContact(VCard)}.
+     * The raw contact must belong to the account of these operations.
+     */
+    public void queueUpdateContact(VCard vcard, long key) {
+        queue(vcard, key);
+    }
 
-        convertWebsites(contentValues, vcard);
-        convertNotes(contentValues, vcard);
-        convertPhotos(contentValues, vcard);
-        convertOrganization(contentValues, vcard);
+    /**
+     * Writes all queued contacts. If the transaction fails, the contacts are written one by one and those that still
+     * fail are skipped. Batches have no yield points, so a failed batch has written nothing that would be duplicated.
+     */
+    public void flush() {
+        if (pendingContacts.isEmpty()) {
+            return;
+        }
 
-        ArrayList<ContentProviderOperation> operations = new ArrayList<>(contentValues.size());
-        ContentValues cv = account.getContentValues();
-        //ContactsContract.RawContact.CONTENT_URI needed to add account, backReference is also not needed
-        ContentProviderOperation operation =
-                ContentProviderOperation.newInsert(ContactsContract.RawContacts.CONTENT_URI)
-                        .withValues(cv)
-                        .build();
-        operations.add(operation);
-        for (NonEmptyContentValues values : contentValues) {
-            cv = values.getContentValues();
-            if (cv.size() == 0) {
-                continue;
+        try {
+            context.getContentResolver().applyBatch(ContactsContract.AUTHORITY, pendingOperations);
+            writtenContactsCount += pendingContacts.size();
+        } catch (Exception batchException) {
+            Log_OC.w(tag, "Writing " + pendingContacts.size() + " contacts at once failed, writing them one by one: "
+                + batchException);
+            for (PendingContact contact : pendingContacts) {
+                try {
+                    if (contact.key == null) {
+                        insertContact(contact.vcard);
+                    } else {
+                        updateContact(contact.vcard, contact.key);
+                    }
+                    writtenContactsCount++;
+                } catch (Exception e) {
+                    Log_OC.e(tag, "Skipping contact due to: " + e);
+                }
             }
+        } finally {
+            pendingOperations.clear();
+            pendingContacts.clear();
+        }
+    }
 
-            //@formatter:off
-            operation =
-                    ContentProviderOperation.newInsert(ContactsContract.Data.CONTENT_URI)
-                            .withValueBackReference(ContactsContract.Data.RAW_CONTACT_ID, rawContactID)
-                            .withValues(cv)
-                            .build();
-            //@formatter:on
-            operations.add(operation);
+    /**
+     * @return number of queued contacts written so far
+     */
+    public int getWrittenContactsCount() {
+        return writtenContactsCount;
+    }
+
+    private void queue(VCard vcard, Long key) {
+        List<ContentValues> contentValues = convert(vcard);
+        // raw contact insertion or deletion of the previous data rows, then one insertion per data row
+        int operationCount = contentValues.size() + 1;
+        if (!pendingOperations.isEmpty() && pendingOperations.size() + operationCount > MAX_BATCH_OPERATIONS) {
+            flush();
         }
 
-        // Executing all the insert operations as a single database transaction
-        context.getContentResolver().applyBatch(ContactsContract.AUTHORITY, operations);
+        if (key == null) {
+            // back references are positions within the batch
+            pendingOperations.addAll(createInsertOperations(contentValues, pendingOperations.size()));
+        } else {
+            pendingOperations.addAll(createUpdateOperations(contentValues, key));
+        }
+        pendingContacts.add(new PendingContact(vcard, key));
+        if (pendingOperations.size() >= MAX_BATCH_OPERATIONS) {
+            flush();
+        }
     }
 
-    public void updateContact(VCard vcard, Long key) throws RemoteException, OperationApplicationException {
+    /**
+     * @return the non-empty data rows of {@code vcard}
+     */
+    private List<ContentValues> convert(VCard vcard) {
+        // TODO handle Raw properties - Raw properties include various extension which start with "X-" like X-ASSISTANT, X-AIM, X-SPOUSE
 
         List<NonEmptyContentValues> contentValues = new ArrayList<>();
         convertName(contentValues, vcard);
@@ -147,32 +192,65 @@ public class ContactOperations {
         convertPhotos(contentValues, vcard);
         convertOrganization(contentValues, vcard);
 
-        ArrayList<ContentProviderOperation> operations = new ArrayList<>(contentValues.size());
-        //ContactsContract.RawContact.CONTENT_URI needed to add account, backReference is also not needed
-        long contactID = key;
-        ContentProviderOperation operation;
-
+        List<ContentValues> result = new ArrayList<>(contentValues.size());
         for (NonEmptyContentValues values : contentValues) {
             ContentValues cv = values.getContentValues();
-            if (cv.size() == 0) {
-                continue;
+            if (cv.size() > 0) {
+                result.add(cv);
             }
+        }
+        return result;
+    }
 
-            String mimeType = cv.getAsString("mimetype");
-            cv.remove("mimetype");
+    /**
+     * @param rawContactIndex position of the raw contact insertion within the batch, referenced by its data rows
+     */
+    private ArrayList<ContentProviderOperation> createInsertOperations(List<ContentValues> contentValues,
+                                                                       int rawContactIndex) {
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>(contentValues.size() + 1);
+        ContentValues cv = account.getContentValues();
+        //ContactsContract.RawContact.CONTENT_URI needed to add account, backReference is also not needed
+        ContentProviderOperation operation =
+                ContentProviderOperation.newInsert(ContactsContract.RawContacts.CONTENT_URI)
+                        .withValues(cv)
+                        .build();
+        operations.add(operation);
+        for (ContentValues values : contentValues) {
             //@formatter:off
             operation =
-                    ContentProviderOperation.newUpdate(ContactsContract.Data.CONTENT_URI)
-                            .withSelection(ContactsContract.Data.RAW_CONTACT_ID + " = ? AND " + ContactsContract.Data.MIMETYPE + " = ? ", new String[]{"" + contactID, "" + mimeType})
-                            .withValues(cv)
+                    ContentProviderOperation.newInsert(ContactsContract.Data.CONTENT_URI)
+                            .withValueBackReference(ContactsContract.Data.RAW_CONTACT_ID, rawContactIndex)
+                            .withValues(values)
                             .build();
             //@formatter:on
             operations.add(operation);
         }
+        return operations;
+    }
 
-        // Executing all the insert operations as a single database transaction
-        context.getContentResolver().applyBatch(ContactsContract.AUTHORITY, operations);
-
+    /**
+     * Replaces all data rows of the raw contact {@code rawContactId}, so that data kinds with several rows or
+     * missing on the device are written as in the vCard.
+     */
+    private ArrayList<ContentProviderOperation> createUpdateOperations(List<ContentValues> contentValues,
+                                                                       long rawContactId) {
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>(contentValues.size() + 1);
+        String[] selectionArgs = new String[]{String.valueOf(rawContactId)};
+        operations.add(ContentProviderOperation.newDelete(ContactsContract.Data.CONTENT_URI)
+                           .withSelection(ContactsContract.Data.RAW_CONTACT_ID + " = ?", selectionArgs)
+                           .build());
+
+        for (ContentValues values : contentValues) {
+            //@formatter:off
+            ContentProviderOperation operation =
+                    ContentProviderOperation.newInsert(ContactsContract.Data.CONTENT_URI)
+                            .withValue(ContactsContract.Data.RAW_CONTACT_ID, rawContactId)
+                            .withValues(values)
+                            .build();
+            //@formatter:on
+            operations.add(operation);
+        }
+        return operations;
     }
 
     private void convertName(List<NonEmptyContentValues> contentValues, VCard vcard) {
@@ -581,6 +659,16 @@ public class ContactOperations {
         return groupedProperties;
     }
 
+    private static class PendingContact {
+        private final VCard vcard;
+        private final Long key;
+
+        PendingContact(VCard vcard, Long key) {
+            this.vcard = vcard;
+            this.key = key;
+        }
+    }
+
     /**
      * A wrapper for {@link ContentValues} that only adds values which are
      * non-null and non-empty (in the case of Strings).
@@ -0,0 +1,37 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.nextcloud.client.database.entity
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Test
+
+class FileNameSearchEntityTest {
+
+    @Test
+    fun testWordsAreMatchedAsPrefixes() {
+        assertEquals("\"holiday*\"", FileNameSearchEntity.matchExpression("holiday"))
+        assertEquals("\"hol*\" \"pic*\"", FileNameSearchEntity.matchExpression(" hol  pic "))
+    }
+
+    @Test
+    fun testQueryIsSplitLikeTheTokenizer() {
+        assertEquals("\"IMG*\" \"2023*\"", FileNameSearchEntity.matchExpression("IMG_2023"))
+        assertEquals("\"résumé*\" \"pdf*\"", FileNameSearchEntity.matchExpression("résumé.pdf"))
+    }
+
+    @Test
+    fun testOperatorsAndQuotesAreNoSyntax() {
+        assertEquals("\"a*\" \"OR*\" \"b*\"", FileNameSearchEntity.matchExpression("\"a\" OR -b"))
+    }
+
+    @Test
+    fun testQueryWithoutWords() {
+        assertNull(FileNameSearchEntity.matchExpression("._-"))
+        assertNull(FileNameSearchEntity.matchExpression(""))
+    }
+}
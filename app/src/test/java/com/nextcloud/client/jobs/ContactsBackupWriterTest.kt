@@ -0,0 +1,123 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.nextcloud.client.jobs
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Before
+import org.junit.Test
+import java.io.ByteArrayOutputStream
+import java.io.File
+import java.nio.file.Files
+
+class ContactsBackupWriterTest {
+
+    private lateinit var cacheFile: File
+    private val exported = mutableListOf<String>()
+
+    private fun card(name: String, version: Int = 1) = "BEGIN:VCARD\r\nFN:$name $version\r\nEND:VCARD\r\n"
+
+    private fun backup(contacts: List<Triple<String, Long, Int>>, reuseCached: Boolean = true): String {
+        exported.clear()
+        val output = ByteArrayOutputStream()
+        ContactsBackupWriter(cacheFile, output, reuseCached).use { writer ->
+            for ((key, lastUpdated, version) in contacts) {
+                writer.write(key, lastUpdated) {
+                    exported.add(key)
+                    card(key, version)
+                }
+            }
+            writer.finish()
+        }
+        return output.toString(Charsets.UTF_8.name())
+    }
+
+    @Before
+    fun setUp() {
+        cacheFile = File(Files.createTempDirectory("contacts-backup-test").toFile(), "cache")
+    }
+
+    @Test
+    fun `all contacts are exported on first backup`() {
+        val output = backup(listOf(Triple("a", 1L, 1), Triple("b", 1L, 1)))
+
+        assertEquals(card("a") + card("b"), output)
+        assertEquals(listOf("a", "b"), exported)
+    }
+
+    @Test
+    fun `only updated contacts are exported again`() {
+        backup(listOf(Triple("a", 1L, 1), Triple("b", 1L, 1), Triple("c", 1L, 1)))
+
+        val output = backup(listOf(Triple("a", 1L, 1), Triple("c", 2L, 2), Triple("d", 1L, 1)))
+
+        assertEquals(card("a") + card("c", 2) + card("d"), output)
+        assertEquals(listOf("c", "d"), exported)
+    }
+
+    @Test
+    fun `contacts without update timestamp are always exported`() {
+        backup(listOf(Triple("a", 0L, 1)))
+
+        backup(listOf(Triple("a", 0L, 1)))
+
+        assertEquals(listOf("a"), exported)
+    }
+
+    @Test
+    fun `cache is ignored when not reused`() {
+        backup(listOf(Triple("a", 1L, 1)))
+
+        val output = backup(listOf(Triple("a", 1L, 2)), reuseCached = false)
+
+        assertEquals(card("a", 2), output)
+        assertEquals(listOf("a"), exported)
+    }
+
+    @Test
+    fun `unfinished backup keeps previous cache`() {
+        backup(listOf(Triple("a", 1L, 1)))
+
+        ContactsBackupWriter(cacheFile, ByteArrayOutputStream(), true).use { writer ->
+            writer.write("a", 2L) { card("a", 2) }
+        }
+        val output = backup(listOf(Triple("a", 1L, 1)))
+
+        assertEquals(card("a"), output)
+        assertEquals(emptyList<String>(), exported)
+        assertFalse(File(cacheFile.parentFile, cacheFile.name + ".tmp").exists())
+    }
+
+    @Test
+    fun `damaged cache keeps complete records`() {
+        backup(listOf(Triple("a", 1L, 1), Triple("b", 1L, 1)))
+        val bytes = cacheFile.readBytes()
+        cacheFile.writeBytes(bytes.copyOf(bytes.size - 2))
+
+        val output = backup(listOf(Triple("a", 1L, 1), Triple("b", 1L, 1)))
+
+        assertEquals(card("a") + card("b"), output)
+        assertEquals(listOf("b"), exported)
+    }
+
+    @Test
+    fun `failed exports are skipped and exported again`() {
+        val first = ByteArrayOutputStream()
+        ContactsBackupWriter(cacheFile, first, true).use { writer ->
+            writer.write("a", 1L) { card("a") }
+            writer.write("b", 1L) { null }
+            writer.finish()
+            assertEquals(1, writer.failedCount)
+        }
+        assertEquals(card("a"), first.toString(Charsets.UTF_8.name()))
+
+        val output = backup(listOf(Triple("a", 1L, 1), Triple("b", 1L, 1)))
+
+        assertEquals(card("a") + card("b"), output)
+        assertEquals(listOf("b"), exported)
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.nextcloud.client.jobs
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotEquals
+import org.junit.Assert.assertNull
+import org.junit.Test
+
+class ContactsImportIndexTest {
+
+    private val sut = ContactsImportIndex()
+
+    @Test
+    fun `contacts are found by name phone and email`() {
+        sut.add("Alice", "+49 170 1234", "alice@example.com", 1L)
+        sut.add("Alice", "+49 170 9999", "alice@example.com", 2L)
+        sut.add("Bob", null, null, 3L)
+
+        assertEquals(1L, sut.find(" alice ", "+491701234", "ALICE@example.com"))
+        assertEquals(2L, sut.find("Alice", "+49 (170) 9999", "alice@example.com"))
+        assertEquals(3L, sut.find("Bob", null, null))
+        assertNull(sut.find("Alice", null, "alice@example.com"))
+        assertNull(sut.find("Bob", "1", null))
+    }
+
+    @Test
+    fun `first of equal contacts is kept`() {
+        sut.add("Alice", null, null, 1L)
+        sut.add("alice", null, null, 2L)
+
+        assertEquals(1, sut.size)
+        assertEquals(1L, sut.find("Alice", null, null))
+    }
+
+    @Test
+    fun `values are not mixed up between fields`() {
+        assertNotEquals(
+            ContactsImportIndex.digest("Alice", "1", null),
+            ContactsImportIndex.digest("Alice1", null, null)
+        )
+        assertNotEquals(
+            ContactsImportIndex.digest("Alice", "1", null),
+            ContactsImportIndex.digest("Alice", null, "1")
+        )
+    }
+
+    @Test
+    fun `sorted positions are mapped to file positions`() {
+        val displayNames = listOf("charlie", "Alice", "bob", "alice", "")
+
+        val selected = ContactsImportIndex.filePositions(displayNames, intArrayOf(0, 2, 3, 9))
+
+        // sorted: "" (4), "Alice" (1), "alice" (3), "bob" (2), "charlie" (0)
+        assertEquals(listOf(2, 3, 4), selected.stream().toArray().toList())
+    }
+}
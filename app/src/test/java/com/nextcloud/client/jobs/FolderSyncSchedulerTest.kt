@@ -0,0 +1,76 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.nextcloud.client.jobs
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.Collections
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicInteger
+
+class FolderSyncSchedulerTest {
+    private data class Folder(val account: String, val path: String)
+
+    private val scheduler = FolderSyncScheduler<Folder>(3, 2) { it.account }
+
+    private fun folders(account: String, count: Int) = (1..count).map { Folder(account, "/$it/") }
+
+    @Test
+    fun allFoldersAreSynchronizedExactlyOnce() {
+        val items = folders("a", 10) + folders("b", 10)
+        val synced = Collections.synchronizedList(mutableListOf<Folder>())
+
+        val completed = scheduler.run(items, shouldStop = { false }) { synced.add(it) }
+
+        assertTrue(completed)
+        assertEquals(items.toSet(), synced.toSet())
+        assertEquals(items.size, synced.size)
+    }
+
+    @Test
+    fun limitsAreRespected() {
+        val running = ConcurrentHashMap<String, AtomicInteger>()
+        val runningTotal = AtomicInteger()
+        val maxPerAccount = AtomicInteger()
+        val maxTotal = AtomicInteger()
+
+        scheduler.run(folders("a", 10) + folders("b", 10) + folders("c", 10), shouldStop = { false }) {
+            val perAccount = running.computeIfAbsent(it.account) { AtomicInteger() }.incrementAndGet()
+            maxPerAccount.accumulateAndGet(perAccount, ::maxOf)
+            maxTotal.accumulateAndGet(runningTotal.incrementAndGet(), ::maxOf)
+            Thread.sleep(5)
+            runningTotal.decrementAndGet()
+            running.getValue(it.account).decrementAndGet()
+        }
+
+        assertTrue(maxPerAccount.get() <= 2)
+        assertTrue(maxTotal.get() <= 3)
+    }
+
+    @Test
+    fun stopPreventsNewSynchronizations() {
+        val synced = AtomicInteger(0)
+
+        val completed = scheduler.run(folders("a", 20), shouldStop = { synced.get() >= 4 }) {
+            synced.incrementAndGet()
+        }
+
+        assertFalse(completed)
+        assertTrue(synced.get() < 20)
+    }
+
+    @Test(expected = IllegalStateException::class)
+    fun failureIsRethrown() {
+        scheduler.run(folders("a", 5), shouldStop = { false }) {
+            if (it.path == "/3/") {
+                throw IllegalStateException("sync failed")
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.nextcloud.client.jobs
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Test
+import java.util.concurrent.TimeUnit
+
+class InternalTwoWaySyncWorkTest {
+
+    private val now = TimeUnit.DAYS.toMillis(100)
+
+    @Test
+    fun recentlyStoppedRunIsContinued() {
+        val stoppedRunStart = now - TimeUnit.HOURS.toMillis(3)
+
+        assertEquals(stoppedRunStart, InternalTwoWaySyncWork.resumableRunStart(stoppedRunStart, now))
+    }
+
+    @Test
+    fun runStoppedBeforeResumeWindowIsNotContinued() {
+        val stoppedRunStart = now - TimeUnit.DAYS.toMillis(1)
+
+        assertNull(InternalTwoWaySyncWork.resumableRunStart(stoppedRunStart, now))
+        assertEquals(now - 1, InternalTwoWaySyncWork.resumableRunStart(now - 1, now))
+    }
+
+    @Test
+    fun newRunStartsWithoutStoppedRun() {
+        assertNull(InternalTwoWaySyncWork.resumableRunStart(0, now))
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.nextcloud.client.jobs
+
+import com.owncloud.android.datamodel.OCFile
+import com.owncloud.android.lib.resources.files.model.RemoteFile
+import com.owncloud.android.utils.MimeType
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.mock
+import java.io.File
+import java.nio.file.Files
+
+class OfflineSyncWorkTest {
+
+    private val storageDir = Files.createTempDirectory("offline-sync").toFile()
+
+    @After
+    fun tearDown() {
+        storageDir.deleteRecursively()
+    }
+
+    private fun file(path: String, etag: String?, downloaded: Boolean = true, syncedAfterChange: Boolean = true) =
+        OCFile(path).apply {
+            this.etag = etag
+            modificationTimestampAtLastSyncForData = 1000
+            val localFile = File(storageDir, path)
+            if (downloaded) {
+                localFile.parentFile?.mkdirs()
+                localFile.writeText(path)
+                lastSyncDateForData = localFile.lastModified() + if (syncedAfterChange) 1 else -1
+            }
+            storagePath = localFile.absolutePath
+        }
+
+    private fun folder(path: String, etagOnServer: String) = OCFile(path).apply {
+        mimeType = MimeType.DIRECTORY
+        this.etagOnServer = etagOnServer
+    }
+
+    private fun remoteFile(etag: String, modified: Long = 1000) = mock<RemoteFile> {
+        on { this.etag } doReturn etag
+        on { modifiedTimestamp } doReturn modified
+    }
+
+    @Test
+    fun fileIsChangedIfEtagOnServerChanged() {
+        assertFalse(OfflineSyncWork.isChanged(file("/a.txt", "1"), remoteFile("1")))
+        assertTrue(OfflineSyncWork.isChanged(file("/a.txt", "1"), remoteFile("2")))
+    }
+
+    @Test
+    fun fileWithoutEtagIsComparedByModificationTime() {
+        assertFalse(OfflineSyncWork.isChanged(file("/a.txt", null), remoteFile("1", 1000)))
+        assertTrue(OfflineSyncWork.isChanged(file("/a.txt", null), remoteFile("1", 2000)))
+    }
+
+    @Test
+    fun fileIsChangedIfModifiedLocallySinceLastSync() {
+        assertTrue(OfflineSyncWork.isChanged(file("/a.txt", "1", syncedAfterChange = false), remoteFile("1")))
+    }
+
+    @Test
+    fun onlyChangedChildrenAreSelected() {
+        val unchanged = file("/unchanged.txt", "1")
+        val changed = file("/changed.txt", "1")
+        val gone = file("/gone.txt", "1")
+        val notDownloaded = file("/remote.txt", "1", downloaded = false)
+        val unchangedFolder = folder("/unchanged/", "1")
+        val changedFolder = folder("/changed/", "1")
+        val goneFolder = folder("/gone/", "1")
+        val notLocalFolder = folder("/remote/", "1")
+        val remoteChildren = mapOf(
+            "/unchanged.txt" to remoteFile("1"),
+            "/changed.txt" to remoteFile("2"),
+            "/remote.txt" to remoteFile("2"),
+            "/unchanged/" to remoteFile("1"),
+            "/changed/" to remoteFile("2"),
+            "/remote/" to remoteFile("2")
+        )
+        val children = listOf(
+            unchanged,
+            changed,
+            gone,
+            notDownloaded,
+            unchangedFolder,
+            changedFolder,
+            goneFolder,
+            notLocalFolder
+        )
+
+        val changes = OfflineSyncWork.selectChanges(children, remoteChildren) { it !== notLocalFolder }
+
+        assertEquals(listOf("/gone/"), changes.removedFolders.map { it.remotePath })
+        assertEquals(listOf("/changed/" to "2"), changes.changedFolders.map { it.first.remotePath to it.second })
+        assertEquals(listOf("/changed.txt", "/gone.txt"), changes.changedFiles.map { it.first.remotePath })
+        assertEquals(listOf(remoteChildren["/changed.txt"], null), changes.changedFiles.map { it.second })
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.nextcloud.client.jobs.upload
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.Collections
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class UploadLaneSchedulerTest {
+    companion object {
+        private const val THRESHOLD = 100L
+    }
+
+    private val scheduler = UploadLaneScheduler<Long>(2, THRESHOLD) { it }
+
+    @Test
+    fun allItemsAreUploadedExactlyOnce() {
+        val items = (1L..50L).map { if (it % 10 == 0L) it * THRESHOLD else it }
+        val uploaded = Collections.synchronizedList(mutableListOf<Long>())
+
+        val completed = scheduler.run(items, shouldStop = { false }) { uploaded.add(it) }
+
+        assertTrue(completed)
+        assertEquals(items.sorted(), uploaded.sorted())
+    }
+
+    @Test
+    fun largeFileDoesNotBlockSmallFiles() {
+        val largeStarted = CountDownLatch(1)
+        val smallDone = CountDownLatch(3)
+
+        val completed = scheduler.run(listOf(THRESHOLD * 10, 1L, 2L, 3L), shouldStop = { false }) {
+            if (scheduler.isLarge(it)) {
+                largeStarted.countDown()
+                assertTrue(smallDone.await(5, TimeUnit.SECONDS))
+            } else {
+                assertTrue(largeStarted.await(5, TimeUnit.SECONDS))
+                smallDone.countDown()
+            }
+        }
+
+        assertTrue(completed)
+    }
+
+    @Test
+    fun stopPreventsNewUploads() {
+        val uploaded = AtomicInteger(0)
+
+        val completed = scheduler.run((1L..20L).toList(), shouldStop = { uploaded.get() >= 4 }) {
+            uploaded.incrementAndGet()
+        }
+
+        assertFalse(completed)
+        assertTrue(uploaded.get() < 20)
+    }
+
+    @Test
+    fun concurrencyIsBounded() {
+        val running = AtomicInteger(0)
+        val maxRunning = AtomicInteger(0)
+        val wide = UploadLaneScheduler<Long>(100, THRESHOLD) { it }
+
+        wide.run((1L..40L).toList(), shouldStop = { false }) {
+            maxRunning.accumulateAndGet(running.incrementAndGet()) { a, b -> maxOf(a, b) }
+            Thread.sleep(2)
+            running.decrementAndGet()
+        }
+
+        assertTrue(maxRunning.get() <= UploadLaneScheduler.MAX_LANES)
+    }
+
+    @Test
+    fun itemsWithSameSerialKeyRunOneAfterAnother() {
+        val serial = UploadLaneScheduler<Long>(4, THRESHOLD, serialKeyOf = { if (it % 2 == 0L) "even" else null }) {
+            it
+        }
+        val runningSerial = AtomicInteger(0)
+        val maxRunningSerial = AtomicInteger(0)
+        val serialOrder = Collections.synchronizedList(mutableListOf<Long>())
+
+        val completed = serial.run((1L..30L).toList(), shouldStop = { false }) {
+            if (it % 2 == 0L) {
+                maxRunningSerial.accumulateAndGet(runningSerial.incrementAndGet()) { a, b -> maxOf(a, b) }
+                serialOrder.add(it)
+                Thread.sleep(1)
+                runningSerial.decrementAndGet()
+            }
+        }
+
+        assertTrue(completed)
+        assertEquals(1, maxRunningSerial.get())
+        assertEquals((2L..30L step 2).toList(), serialOrder)
+    }
+}
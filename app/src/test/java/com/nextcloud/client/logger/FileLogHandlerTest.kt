@@ -21,9 +21,6 @@ class FileLogHandlerTest {
     private companion object {
         const val FILE_SIZE = 1024L
         const val MAX_FILE_SIZE = 20L
-        const val THREE_LOG_FILES = 3
-        const val EXPECTED_LINE_COUNT_6 = 6
-        const val EXPECTED_LINE_COUNT_12 = 12
     }
 
     private lateinit var logDir: File
@@ -145,71 +142,6 @@ class FileLogHandlerTest {
         assertEquals("Hello!", lastEntry)
     }
 
-    @Test
-    fun `load log lines from files`() {
-        // GIVEN
-        //      multiple log files exist
-        //      log files have lines
-        var totalLogsSize = 0L
-        totalLogsSize += writeLogFile("log.txt.2", "line1\nline2\nline3")
-        totalLogsSize += writeLogFile("log.txt.1", "line4\nline5\nline6")
-        totalLogsSize += writeLogFile("log.txt.0", "line7\nline8\nline9")
-        totalLogsSize += writeLogFile("log.txt", "line10\nline11\nline12")
-
-        // WHEN
-        //      log file is read including rotated content
-        val writer = FileLogHandler(logDir, "log.txt", FILE_SIZE)
-        val rawLogs = writer.loadLogFiles(THREE_LOG_FILES)
-
-        // THEN
-        //      all files are loaded
-        //      lines are loaded in correct order
-        //      log files size is correctly reported
-        assertEquals(EXPECTED_LINE_COUNT_12, rawLogs.lines.size)
-        assertEquals(
-            listOf(
-                "line1", "line2", "line3",
-                "line4", "line5", "line6",
-                "line7", "line8", "line9",
-                "line10", "line11", "line12"
-            ),
-            rawLogs.lines
-        )
-        assertEquals(totalLogsSize, rawLogs.logSize)
-    }
-
-    @Test
-    fun `load log lines from files with gaps between rotated files`() {
-        // GIVEN
-        //      multiple log files exist
-        //      log files have lines
-        //      some rotated files are deleted
-        writeLogFile("log.txt", "line1\nline2\nline3")
-        writeLogFile("log.txt.2", "line4\nline5\nline6")
-
-        // WHEN
-        //      log file is read including rotated content
-        val writer = FileLogHandler(logDir, "log.txt", FILE_SIZE)
-        val lines = writer.loadLogFiles(THREE_LOG_FILES)
-
-        // THEN
-        //      all files are loaded
-        //      log file size is non-zero
-        assertEquals(EXPECTED_LINE_COUNT_6, lines.lines.size)
-        assertTrue(lines.logSize > 0)
-    }
-
-    @Test(expected = IllegalArgumentException::class)
-    fun `load log lines - negative count is illegal`() {
-        // WHEN
-        //      requesting negative number of rotated files
-        val writer = FileLogHandler(logDir, "log.txt", FILE_SIZE)
-        val lines = writer.loadLogFiles(-1)
-
-        // THEN
-        //      illegal argument exception
-    }
-
     @Test
     fun `all log files are deleted`() {
         // GIVEN
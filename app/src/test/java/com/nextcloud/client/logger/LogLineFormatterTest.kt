@@ -0,0 +1,38 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.nextcloud.client.logger
+
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import java.util.Date
+
+class LogLineFormatterTest {
+
+    private val formatter = LogLineFormatter()
+
+    private fun assertSameAsEntry(timestamp: Long, tag: String, message: String) {
+        val expected = LogEntry(Date(timestamp), Level.INFO, tag, message).toString() + "\n"
+        assertEquals(expected, formatter.format(timestamp, Level.INFO, tag, message).toString())
+    }
+
+    @Test
+    fun `line matches log entry format`() {
+        assertSameAsEntry(0, "tag", "some message")
+        assertSameAsEntry(1_700_000_000_007, "tag;with;separators", "multi\nline\nmessage")
+        assertSameAsEntry(1_700_000_000_070, "tag", "")
+        assertSameAsEntry(1_700_000_001_999, "tag", "next second")
+    }
+
+    @Test
+    fun `formatted line can be parsed`() {
+        val line = formatter.format(1_700_000_000_123, Level.WARNING, "tag", "first\nsecond").toString()
+
+        val entry = LogEntry.parse(line.trimEnd('\n'))
+
+        assertEquals(LogEntry(Date(1_700_000_000_123), Level.WARNING, "tag", "first\nsecond"), entry)
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.nextcloud.client.logger
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.concurrent.CountDownLatch
+
+class LogRingBufferTest {
+
+    private companion object {
+        const val PRODUCERS = 4
+        const val ENTRIES_PER_PRODUCER = 50_000
+    }
+
+    @Test
+    fun `full buffer rejects entries until drained`() {
+        val buffer = LogRingBuffer(3)
+
+        assertTrue(buffer.isEmpty)
+        for (i in 0 until 3) {
+            assertTrue(buffer.offer(i.toLong(), Level.DEBUG, "tag", "message $i"))
+        }
+        assertFalse(buffer.offer(3, Level.DEBUG, "tag", "message 3"))
+
+        val messages = mutableListOf<String>()
+        assertEquals(3, buffer.drain { _, _, _, message -> messages.add(message) })
+        assertEquals(listOf("message 0", "message 1", "message 2"), messages)
+        assertTrue(buffer.isEmpty)
+        assertTrue(buffer.offer(4, Level.DEBUG, "tag", "message 4"))
+    }
+
+    @Test
+    fun `entries of concurrent producers are consumed once in order of each producer`() {
+        val buffer = LogRingBuffer(1024)
+        val start = CountDownLatch(1)
+        val producers = (0 until PRODUCERS).map { producer ->
+            Thread {
+                start.await()
+                for (i in 0 until ENTRIES_PER_PRODUCER) {
+                    while (!buffer.offer(i.toLong(), Level.DEBUG, "$producer", "")) {
+                        Thread.yield()
+                    }
+                }
+            }.apply { start() }
+        }
+
+        val lastSeen = LongArray(PRODUCERS) { -1 }
+        var consumed = 0
+        start.countDown()
+        while (consumed < PRODUCERS * ENTRIES_PER_PRODUCER) {
+            consumed += buffer.drain { timestamp, _, tag, _ ->
+                val producer = tag.toInt()
+                assertEquals(lastSeen[producer] + 1, timestamp)
+                lastSeen[producer] = timestamp
+            }
+        }
+        producers.forEach { it.join() }
+
+        assertTrue(buffer.isEmpty)
+        lastSeen.forEach { assertEquals(ENTRIES_PER_PRODUCER - 1L, it) }
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.nextcloud.client.logger
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+import java.nio.file.Files
+import java.util.TimeZone
+
+class LogStoreTest {
+
+    private companion object {
+        const val MAX_LOG_SIZE = 1024L * 1024L
+        const val ENTRY_COUNT = 100
+        const val PAGE_SIZE = 30
+        const val START_TIME = 1_700_000_000_000L
+    }
+
+    private lateinit var logDir: File
+    private lateinit var handler: FileLogHandler
+    private lateinit var store: LogStore
+    private val formatter = LogLineFormatter()
+
+    private fun log(index: Int, level: Level = Level.DEBUG, tag: String = "tag") {
+        handler.write(formatter.format(START_TIME + index, level, tag, "message $index"))
+    }
+
+    private fun logAll(count: Int = ENTRY_COUNT) {
+        handler.open()
+        for (i in 0 until count) {
+            log(i)
+        }
+        handler.flush()
+    }
+
+    /**
+     * Writes the entries with the given indices to the log file [name] directly, bypassing the handler.
+     *
+     * @return size of the written file in bytes
+     */
+    private fun writeLogFile(name: String, indices: IntRange): Long {
+        val file = File(logDir, name)
+        file.writeText(
+            indices.joinToString("") { formatter.format(START_TIME + it, Level.DEBUG, "tag", "message $it") }
+        )
+        return file.length()
+    }
+
+    private fun loadAll(query: LogQuery): List<LogEntry> {
+        val entries = mutableListOf<LogEntry>()
+        var page = store.page(query, null, PAGE_SIZE)
+        entries.addAll(page.entries)
+        while (page.hasMore) {
+            page = store.page(query, page, PAGE_SIZE)
+            assertTrue(page.isContinuation)
+            entries.addAll(page.entries)
+        }
+        return entries
+    }
+
+    @Before
+    fun setUp() {
+        logDir = Files.createTempDirectory("log-store-test").toFile()
+        handler = FileLogHandler(logDir, "log.txt", MAX_LOG_SIZE)
+        store = LogStore(handler)
+    }
+
+    @Test
+    fun `entries are paged newest first`() {
+        logAll()
+
+        val first = store.page(LogQuery(), null, PAGE_SIZE)
+
+        assertFalse(first.isContinuation)
+        assertEquals(ENTRY_COUNT, first.totalEntries)
+        assertEquals(PAGE_SIZE, first.entries.size)
+        assertEquals("message ${ENTRY_COUNT - 1}", first.entries[0].message)
+        assertEquals(START_TIME + ENTRY_COUNT - 1, first.entries[0].timestamp.time)
+
+        val all = loadAll(LogQuery())
+        assertEquals((ENTRY_COUNT - 1 downTo 0).map { "message $it" }, all.map { it.message })
+    }
+
+    @Test
+    fun `entries are filtered by level tag and text`() {
+        handler.open()
+        log(0, Level.DEBUG, "sync")
+        log(1, Level.ERROR, "sync")
+        log(2, Level.ERROR, "upload")
+        log(3, Level.INFO, "upload")
+        log(13, Level.WARNING, "sync")
+        handler.flush()
+
+        assertEquals(
+            listOf("message 2", "message 1"),
+            loadAll(LogQuery(minLevel = Level.ERROR)).map { it.message }
+        )
+        assertEquals(
+            listOf("message 13", "message 1", "message 0"),
+            loadAll(LogQuery(tag = "sync")).map { it.message }
+        )
+        assertEquals(listOf("message 13", "message 3"), loadAll(LogQuery(text = "3")).map { it.message })
+        assertEquals(
+            listOf("message 13"),
+            loadAll(LogQuery(text = "3", minLevel = Level.WARNING)).map { it.message }
+        )
+        assertEquals(listOf("message 3", "message 2"), loadAll(LogQuery(text = "UPLOAD")).map { it.message })
+    }
+
+    @Test
+    fun `paging continues when logs are appended`() {
+        logAll()
+        val first = store.page(LogQuery(), null, PAGE_SIZE)
+
+        handler.write(formatter.format(START_TIME, Level.DEBUG, "tag", "appended"))
+        handler.flush()
+        val second = store.page(LogQuery(), first, PAGE_SIZE)
+
+        assertTrue(second.isContinuation)
+        assertEquals(ENTRY_COUNT + 1, second.totalEntries)
+        assertEquals("message ${ENTRY_COUNT - 1 - PAGE_SIZE}", second.entries[0].message)
+    }
+
+    @Test
+    fun `paging restarts when logs are rotated`() {
+        logAll()
+        val first = store.page(LogQuery(), null, PAGE_SIZE)
+
+        handler.rotateLogs()
+        log(ENTRY_COUNT)
+        handler.flush()
+        val second = store.page(LogQuery(), first, PAGE_SIZE)
+
+        assertFalse(second.isContinuation)
+        assertEquals(ENTRY_COUNT + 1, second.totalEntries)
+        assertEquals("message $ENTRY_COUNT", second.entries[0].message)
+    }
+
+    @Test
+    fun `entries are loaded from all rotated files in order`() {
+        var totalLogSize = 0L
+        totalLogSize += writeLogFile("log.txt.2", 0..2)
+        totalLogSize += writeLogFile("log.txt.1", 3..5)
+        totalLogSize += writeLogFile("log.txt.0", 6..8)
+        totalLogSize += writeLogFile("log.txt", 9..11)
+
+        val page = store.page(LogQuery(), null, PAGE_SIZE)
+
+        assertEquals((11 downTo 0).map { "message $it" }, page.entries.map { it.message })
+        assertEquals(totalLogSize, page.totalLogSize)
+    }
+
+    @Test
+    fun `entries are loaded with gaps between rotated files`() {
+        writeLogFile("log.txt.2", 0..2)
+        writeLogFile("log.txt", 3..5)
+
+        val page = store.page(LogQuery(), null, PAGE_SIZE)
+
+        assertEquals((5 downTo 0).map { "message $it" }, page.entries.map { it.message })
+        assertTrue(page.totalLogSize > 0)
+    }
+
+    @Test
+    fun `unparsable lines are skipped`() {
+        handler.open()
+        log(0)
+        handler.write("garbage\n")
+        handler.write(";;;\n")
+        log(1)
+        handler.write("incomplete line without newline")
+        handler.flush()
+
+        assertEquals(listOf("message 1", "message 0"), loadAll(LogQuery()).map { it.message })
+    }
+
+    @Test
+    fun `matching entries are exported oldest first`() {
+        logAll()
+        val target = File(logDir, "export/logs.txt")
+
+        store.export(LogQuery(text = "message 9"), target, TimeZone.getTimeZone("UTC"))
+
+        val lines = target.readLines()
+        assertEquals(listOf(9) + (90 until ENTRY_COUNT), lines.map { it.substringAfterLast(' ').toInt() })
+    }
+}
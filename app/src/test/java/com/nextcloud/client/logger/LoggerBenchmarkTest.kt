@@ -0,0 +1,84 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.nextcloud.client.logger
+
+import android.os.Handler
+import com.nextcloud.client.core.ClockImpl
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Assume.assumeTrue
+import org.junit.Test
+import org.mockito.kotlin.mock
+import java.lang.management.ManagementFactory
+import java.nio.file.Files
+import java.util.Locale
+import java.util.concurrent.TimeUnit
+
+/**
+ * Checks that logging does not allocate on the calling thread and that the writer thread keeps up with it, and
+ * prints the entries logged per second and the bytes allocated per entry.
+ */
+class LoggerBenchmarkTest {
+
+    private companion object {
+        const val WARM_UP_ENTRIES = 50_000
+        const val ENTRIES = 200_000
+        const val MAX_ALLOCATED_BYTES_PER_ENTRY = 32
+        const val WRITE_TIMEOUT_SECONDS = 30L
+        const val POLL_INTERVAL_MILLIS = 10L
+        const val NANOS_PER_SECOND = 1e9
+    }
+
+    @Test
+    fun `logging entries does not allocate on calling thread`() {
+        val threadBean = ManagementFactory.getThreadMXBean()
+        assumeTrue(threadBean is com.sun.management.ThreadMXBean)
+        threadBean as com.sun.management.ThreadMXBean
+
+        val logDir = Files.createTempDirectory("log-benchmark").toFile()
+        val handler = FileLogHandler(logDir, "log.txt", Long.MAX_VALUE)
+        val logger = LoggerImpl(ClockImpl(), handler, mock<Handler>(), ENTRIES + WARM_UP_ENTRIES)
+        val message = "Synchronizing /some/remote/folder/file.txt"
+        val lineLength = LogLineFormatter().format(0, Level.DEBUG, "Benchmark", message).length.toLong()
+
+        try {
+            logger.start()
+            repeat(WARM_UP_ENTRIES) { logger.d("Benchmark", message) }
+
+            val threadId = Thread.currentThread().id
+            val allocatedBefore = threadBean.getThreadAllocatedBytes(threadId)
+            val startedAt = System.nanoTime()
+            repeat(ENTRIES) { logger.d("Benchmark", message) }
+            val loggedAt = System.nanoTime()
+            val allocated = threadBean.getThreadAllocatedBytes(threadId) - allocatedBefore
+
+            val expectedSize = (WARM_UP_ENTRIES + ENTRIES) * lineLength
+            val deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(WRITE_TIMEOUT_SECONDS)
+            while (handler.logFile.length() < expectedSize && System.nanoTime() < deadline) {
+                Thread.sleep(POLL_INTERVAL_MILLIS)
+            }
+            val writtenAt = System.nanoTime()
+
+            val bytesPerEntry = allocated.toDouble() / ENTRIES
+            val report = String.format(
+                Locale.ROOT,
+                "logged %.0f entries/s, allocated %.2f bytes/entry, writer caught up after %d ms",
+                ENTRIES * NANOS_PER_SECOND / (loggedAt - startedAt),
+                bytesPerEntry,
+                TimeUnit.NANOSECONDS.toMillis(writtenAt - loggedAt)
+            )
+            println(report)
+
+            assertFalse(report, logger.lostEntries)
+            assertTrue(report, handler.logFile.length() >= expectedSize)
+            assertTrue(report, bytesPerEntry < MAX_ALLOCATED_BYTES_PER_ENTRY)
+        } finally {
+            logger.stop()
+            logDir.deleteRecursively()
+        }
+    }
+}
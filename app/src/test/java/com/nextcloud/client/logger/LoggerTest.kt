@@ -25,6 +25,7 @@ import org.mockito.kotlin.capture
 import org.mockito.kotlin.doAnswer
 import org.mockito.kotlin.inOrder
 import org.mockito.kotlin.mock
+import org.mockito.kotlin.never
 import org.mockito.kotlin.spy
 import org.mockito.kotlin.times
 import org.mockito.kotlin.verify
@@ -44,6 +45,7 @@ class LoggerTest {
         const val EMPTY_LONG = 0L
         const val TIMEOUT = 3000L
         const val MESSAGE_COUNT = 3
+        const val PAGE_SIZE = 1000
     }
 
     private lateinit var clock: Clock
@@ -83,7 +85,7 @@ class LoggerTest {
             writerThreadIds.add(Thread.currentThread().id)
             it.callRealMethod()
             latch.countDown()
-        }.whenever(logHandler).close()
+        }.whenever(logHandler).flush()
 
         // GIVEN
         //      logger event loop is running
@@ -124,7 +126,7 @@ class LoggerTest {
         doAnswer {
             it.callRealMethod()
             latch.countDown()
-        }.whenever(logHandler).close()
+        }.whenever(logHandler).flush()
 
         // GIVEN
         //      logger event loop is running
@@ -137,10 +139,10 @@ class LoggerTest {
         // THEN
         //      log handler opens log file
         //      log handler writes entry
-        //      log handler closes log file
+        //      log handler flushes log file, keeping it open
         //      no lost messages
         val called = latch.await(LATCH_WAIT, TimeUnit.SECONDS)
-        assertTrue("Expected open(), write() and close() calls on bg thread", called)
+        assertTrue("Expected open(), write() and flush() calls on bg thread", called)
         val inOrder = inOrder(logHandler)
         inOrder.verify(logHandler).open()
         inOrder.verify(logHandler).write(
@@ -148,7 +150,8 @@ class LoggerTest {
                 tag in this && message in this
             }
         )
-        inOrder.verify(logHandler).close()
+        inOrder.verify(logHandler).flush()
+        verify(logHandler, never()).close()
         assertFalse(logger.lostEntries)
     }
 
@@ -157,17 +160,11 @@ class LoggerTest {
         val currentThreadId = Thread.currentThread().id
         var loggerThreadId: Long = -1
         val listener: OnLogsLoaded = mock()
-        val latch = CountDownLatch(2)
-
-        // log handler will be called on bg thread
-        doAnswer {
-            loggerThreadId = Thread.currentThread().id
-            latch.countDown()
-            it.callRealMethod()
-        }.whenever(logHandler).loadLogFiles(any())
+        val latch = CountDownLatch(1)
 
         // os handler will be called on bg thread
         whenever(osHandler.post(any())).thenAnswer {
+            loggerThreadId = Thread.currentThread().id
             latch.countDown()
             true
         }
@@ -182,7 +179,7 @@ class LoggerTest {
         logger.d("tag", "message 1")
         logger.d("tag", "message 2")
         logger.d("tag", "message 3")
-        logger.load(listener)
+        logger.load(LogQuery(), null, PAGE_SIZE, listener)
         val called = latch.await(LATCH_WAIT, TimeUnit.SECONDS)
         assertTrue("Response not posted", called)
 
@@ -190,20 +187,20 @@ class LoggerTest {
         //      log contents are loaded on background thread
         //      logs are posted to main thread handler
         //      contents contain logged messages
-        //      messages are in order of writes
+        //      messages are newest first
         assertNotEquals(currentThreadId, loggerThreadId)
 
         val postedCaptor = ArgumentCaptor.forClass(Runnable::class.java)
         verify(osHandler).post(capture(postedCaptor))
         postedCaptor.value.run()
 
-        val logsCaptor = ArgumentCaptor.forClass(List::class.java) as ArgumentCaptor<List<LogEntry>>
-        val sizeCaptor = ArgumentCaptor.forClass(Long::class.java)
-        verify(listener).invoke(capture(logsCaptor), capture(sizeCaptor))
-        assertEquals(MESSAGE_COUNT, logsCaptor.value.size)
-        assertTrue("message 1" in logsCaptor.value[0].message)
-        assertTrue("message 2" in logsCaptor.value[1].message)
-        assertTrue("message 3" in logsCaptor.value[2].message)
+        val pageCaptor = ArgumentCaptor.forClass(LogsPage::class.java)
+        verify(listener).invoke(capture(pageCaptor))
+        val entries = pageCaptor.value.entries
+        assertEquals(MESSAGE_COUNT, entries.size)
+        assertTrue("message 3" in entries[0].message)
+        assertTrue("message 2" in entries[1].message)
+        assertTrue("message 1" in entries[2].message)
     }
 
     @Test
@@ -230,6 +227,24 @@ class LoggerTest {
         assertTrue(logger.lostEntries)
     }
 
+    @Test
+    fun `entries below minimum level are not written`() {
+        // GIVEN
+        //      logger writes entries from info level on
+        //      logger event loop is not running
+        val infoLogger = LoggerImpl(clock, logHandler, osHandler, QUEUE_CAPACITY, Level.INFO)
+
+        // WHEN
+        //      more debug entries than the queue holds are logged
+        for (i in 0 until QUEUE_CAPACITY + 1) {
+            infoLogger.d("tag", "Message $i")
+        }
+
+        // THEN
+        //      debug entries are not queued
+        assertFalse(infoLogger.lostEntries)
+    }
+
     @Test
     fun `queue overflow warning is logged`() {
         // GIVEN
@@ -254,8 +269,8 @@ class LoggerTest {
         var lostMessageWarning: LogEntry? = null
         for (i in 0..10) {
             val loaded = CountDownLatch(1)
-            logger.load { entries, totalLogSize ->
-                lostMessageWarning = entries.find {
+            logger.load(LogQuery(), null, PAGE_SIZE) { page ->
+                lostMessageWarning = page.entries.find {
                     it.message.contains("Logger queue overflow")
                 }
                 loaded.countDown()
@@ -297,9 +312,9 @@ class LoggerTest {
         assertTrue(latch.await(LATCH_WAIT, TimeUnit.SECONDS))
         verify(logHandler, times(MESSAGE_COUNT)).write(any())
         verify(logHandler).deleteAll()
-        val loaded = logHandler.loadLogFiles(logHandler.maxLogFilesCount)
-        assertEquals(EMPTY, loaded.lines.size)
-        assertEquals(EMPTY_LONG, loaded.logSize)
+        val loaded = LogStore(logHandler).page(LogQuery(), null, PAGE_SIZE)
+        assertEquals(EMPTY, loaded.entries.size)
+        assertEquals(EMPTY_LONG, loaded.totalLogSize)
     }
 
     @Test
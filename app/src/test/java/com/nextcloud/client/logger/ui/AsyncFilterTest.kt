@@ -133,6 +133,33 @@ class AsyncFilterTest {
         assertEquals(0, runner.size)
     }
 
+    @Test
+    fun `asynchronous source requests are coalesced`() {
+        val callbacks = mutableListOf<(String) -> Unit>()
+        val results = mutableListOf<String>()
+        val source: ((String) -> Unit) -> Unit = { callbacks.add(it) }
+
+        // GIVEN
+        //      request is answered by an asynchronous source
+        filter.filter(source) { result: String, _ -> results.add(result) }
+        assertEquals(1, callbacks.size)
+
+        // WHEN
+        //      new requests are posted while the first one is running
+        //      first request completes
+        filter.filter(source) { result: String, _ -> results.add("overwritten $result") }
+        filter.filter(source) { result: String, _ -> results.add("last $result") }
+        callbacks[0].invoke("first")
+
+        // THEN
+        //      only the last pending request is started
+        //      results are delivered to their callbacks
+        assertEquals(2, callbacks.size)
+        callbacks[1].invoke("second")
+        assertEquals(listOf("first", "last second"), results)
+        assertEquals(0, runner.size)
+    }
+
     @Test
     fun `filtering is timed`() {
         // GIVEN
@@ -12,6 +12,8 @@ import com.nextcloud.client.core.Clock
 import com.nextcloud.client.core.ManualAsyncRunner
 import com.nextcloud.client.logger.Level
 import com.nextcloud.client.logger.LogEntry
+import com.nextcloud.client.logger.LogQuery
+import com.nextcloud.client.logger.LogsPage
 import com.nextcloud.client.logger.LogsRepository
 import com.nextcloud.client.logger.OnLogsLoaded
 import org.junit.Assert.assertEquals
@@ -29,7 +31,9 @@ import org.mockito.MockitoAnnotations
 import org.mockito.kotlin.any
 import org.mockito.kotlin.mock
 import org.mockito.kotlin.whenever
+import java.io.File
 import java.util.Date
+import java.util.TimeZone
 
 @RunWith(Suite::class)
 @Suite.SuiteClasses(
@@ -48,17 +52,39 @@ class LogsViewModelTest {
         val TEST_LOG_SIZE_BYTES = TEST_LOG_SIZE_KILOBYTES * 1024L
         const val TOTAL_ENTRY_COUNT = 3
         const val QUERY_TIME = 4
+
+        fun page(
+            entries: List<LogEntry>,
+            query: LogQuery = LogQuery(),
+            isContinuation: Boolean = false,
+            nextPosition: Int = -1
+        ) = LogsPage(
+            query = query,
+            entries = entries,
+            isContinuation = isContinuation,
+            totalEntries = TEST_LOG_ENTRIES.size,
+            totalLogSize = TEST_LOG_SIZE_BYTES,
+            indexBuildId = 1,
+            nextPosition = nextPosition
+        )
     }
 
     class TestLogRepository : LogsRepository {
         var loadRequestCount = 0
         var onLoadedCallback: OnLogsLoaded? = null
+        var lastQuery: LogQuery? = null
+        var lastAfter: LogsPage? = null
 
         override val lostEntries: Boolean = false
-        override fun load(onLoaded: OnLogsLoaded) {
+        override fun load(query: LogQuery, after: LogsPage?, pageSize: Int, onLoaded: OnLogsLoaded) {
             this.onLoadedCallback = onLoaded
+            lastQuery = query
+            lastAfter = after
             loadRequestCount++
         }
+        override fun export(query: LogQuery, target: File, tz: TimeZone, onExported: (Boolean) -> Unit) {
+            /* no implementation needed */
+        }
         override fun deleteAll() {
             /* no implementation needed */
         }
@@ -127,7 +153,7 @@ class LogsViewModelTest {
 
             // WHEN
             //      logs loading finishes
-            repository.onLoadedCallback?.invoke(TEST_LOG_ENTRIES, TEST_LOG_SIZE_BYTES)
+            repository.onLoadedCallback?.invoke(page(TEST_LOG_ENTRIES))
 
             // THEN
             //      logs are displayed
@@ -156,6 +182,29 @@ class LogsViewModelTest {
             assertNull(repository.onLoadedCallback)
             assertEquals(1, repository.loadRequestCount)
         }
+
+        @Test
+        fun `next page is appended`() {
+            // GIVEN
+            //      first page is loaded
+            //      more entries are available
+            vm.load()
+            val first = page(TEST_LOG_ENTRIES.subList(0, 2), nextPosition = 0)
+            repository.onLoadedCallback?.invoke(first)
+
+            // WHEN
+            //      next page is loaded
+            vm.loadMore()
+            assertSame(first, repository.lastAfter)
+            repository.onLoadedCallback?.invoke(page(TEST_LOG_ENTRIES.subList(2, 3), isContinuation = true))
+
+            // THEN
+            //      entries of both pages are displayed
+            //      no further page is requested
+            assertEquals(TEST_LOG_ENTRIES, vm.entries.value)
+            vm.loadMore()
+            assertEquals(2, repository.loadRequestCount)
+        }
     }
 
     class Filtering : Fixture() {
@@ -163,7 +212,7 @@ class LogsViewModelTest {
         @Before
         fun setUp() {
             vm.load()
-            repository.onLoadedCallback?.invoke(TEST_LOG_ENTRIES, TEST_LOG_SIZE_BYTES)
+            repository.onLoadedCallback?.invoke(page(TEST_LOG_ENTRIES))
             assertFalse(vm.isLoading.value!!)
             assertEquals(TEST_LOG_ENTRIES.size, vm.entries.value?.size)
         }
@@ -180,8 +229,9 @@ class LogsViewModelTest {
             vm.filter("some pattern")
 
             // THEN
-            //      filtering is not enqueued
-            assertTrue(runner.isEmpty)
+            //      filtering is not requested
+            assertEquals(2, repository.loadRequestCount)
+            assertEquals(LogQuery(), repository.lastQuery)
         }
 
         @Test
@@ -191,14 +241,14 @@ class LogsViewModelTest {
             assertEquals(TEST_LOG_ENTRIES.size, vm.entries.value?.size)
 
             // WHEN
-            //      logs filtering is not running
             //      logs filtering is requested
-            assertTrue(runner.isEmpty)
             vm.filter(TEST_LOG_ENTRIES[0].message)
 
             // THEN
-            //      filter request is enqueued
-            assertEquals(1, runner.size)
+            //      filtered page is requested from repository
+            assertEquals(2, repository.loadRequestCount)
+            assertEquals(LogQuery(text = TEST_LOG_ENTRIES[0].message), repository.lastQuery)
+            assertNull(repository.lastAfter)
         }
 
         @Test
@@ -215,7 +265,8 @@ class LogsViewModelTest {
 
             // WHEN
             //      filtering finishes
-            assertEquals(1, runner.runAll())
+            val filtered = TEST_LOG_ENTRIES.filter { it.message.contains(pattern) }
+            repository.onLoadedCallback?.invoke(page(filtered, LogQuery(text = pattern)))
 
             // THEN
             //      vm displays filtered results
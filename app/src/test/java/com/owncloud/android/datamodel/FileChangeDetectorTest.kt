@@ -0,0 +1,157 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.owncloud.android.datamodel
+
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.io.File
+import java.util.zip.CRC32
+import kotlin.random.Random
+
+class FileChangeDetectorTest {
+    private val detector = FileChangeDetector { 42L }
+    private val file = File.createTempFile("change-detector", ".bin")
+
+    @After
+    fun tearDown() {
+        file.delete()
+    }
+
+    private fun crc32(bytes: ByteArray, from: Int = 0, to: Int = bytes.size): Long =
+        CRC32().apply { update(bytes, from, to - from) }.value
+
+    private fun storedRow(fingerprint: FileChangeDetector.Fingerprint?, legacyHash: String? = null) =
+        FileSystemDataSet().apply {
+            crc32 = legacyHash ?: fingerprint?.hash
+            fileSize = fingerprint?.size
+            inode = fingerprint?.inode
+            hashStrategy = fingerprint?.strategy
+            fullCrc32 = fingerprint?.fullHash
+        }
+
+    @Test
+    fun crc32CombineMatchesSequentialCrc() {
+        val bytes = Random(1).nextBytes(10_000)
+        listOf(0, 1, 4096, 9_999, 10_000).forEach { split ->
+            val combined = FileChangeDetector.crc32Combine(
+                crc32(bytes, 0, split),
+                crc32(bytes, split),
+                (bytes.size - split).toLong()
+            )
+            assertEquals(crc32(bytes), combined)
+        }
+    }
+
+    @Test
+    fun fullCrc32MatchesLegacyChecksum() {
+        val bytes = Random(2).nextBytes(300_000)
+        file.writeBytes(bytes)
+
+        assertEquals(crc32(bytes), FileChangeDetector.fullCrc32(file))
+    }
+
+    @Test
+    fun initialFingerprintKeepsFullCrc32InItsOwnField() {
+        val bytes = Random(3).nextBytes(FileChangeDetector.SAMPLE_SIZE * 5)
+        file.writeBytes(bytes)
+
+        val fingerprint = detector.initialFingerprint(file)!!
+
+        assertEquals(detector.fingerprint(file)!!.hash, fingerprint.hash)
+        assertEquals(crc32(bytes).toString(), fingerprint.fullHash)
+        assertEquals(FileChangeDetector.HASH_STRATEGY_SAMPLED_CRC32, fingerprint.strategy)
+    }
+
+    @Test
+    fun touchedFileIsUnchanged() {
+        file.writeBytes(Random(7).nextBytes(FileChangeDetector.SAMPLE_SIZE * 5))
+        val row = storedRow(detector.initialFingerprint(file))
+
+        val result = detector.detect(file, row)!!
+
+        assertFalse(result.isChanged)
+        assertEquals(row.fullCrc32, result.fingerprint.fullHash)
+    }
+
+    @Test
+    fun matchingSegmentsWithoutStoredFullHashCountAsUnchanged() {
+        file.writeBytes(Random(9).nextBytes(FileChangeDetector.SAMPLE_SIZE * 5))
+        val row = storedRow(detector.fingerprint(file))
+
+        val result = detector.detect(file, row)!!
+
+        assertFalse(result.isChanged)
+        assertNull(result.fingerprint.fullHash)
+    }
+
+    @Test
+    fun sameSizeEditOutsideSampledSegmentsIsDetected() {
+        val bytes = Random(8).nextBytes(FileChangeDetector.SAMPLE_SIZE * 5)
+        file.writeBytes(bytes)
+        val row = storedRow(detector.initialFingerprint(file))
+        val outsideSegments = FileChangeDetector.SAMPLE_SIZE + FileChangeDetector.SAMPLE_SIZE / 2
+        bytes[outsideSegments] = (bytes[outsideSegments] + 1).toByte()
+        file.writeBytes(bytes)
+
+        val result = detector.detect(file, row)!!
+
+        assertEquals(row.crc32, result.fingerprint.hash)
+        assertTrue(result.isChanged)
+        assertEquals(crc32(bytes).toString(), result.fingerprint.fullHash)
+    }
+
+    @Test
+    fun sizeChangeIsDetected() {
+        file.writeBytes(Random(4).nextBytes(1000))
+        val row = storedRow(detector.initialFingerprint(file))
+        file.appendBytes(byteArrayOf(1))
+
+        val result = detector.detect(file, row)!!
+
+        assertTrue(result.isChanged)
+        // the change is proven without reading the whole file
+        assertNull(result.fingerprint.fullHash)
+    }
+
+    @Test
+    fun contentChangeInSampledSegmentIsDetected() {
+        val bytes = Random(5).nextBytes(FileChangeDetector.SAMPLE_SIZE * 5)
+        file.writeBytes(bytes)
+        val row = storedRow(detector.initialFingerprint(file))
+        bytes[bytes.size - 1] = (bytes[bytes.size - 1] + 1).toByte()
+        file.writeBytes(bytes)
+
+        val result = detector.detect(file, row)!!
+
+        assertTrue(result.isChanged)
+        assertNull(result.fingerprint.fullHash)
+    }
+
+    @Test
+    fun legacyRowIsComparedWithFullCrcAndMigrated() {
+        val bytes = Random(6).nextBytes(5000)
+        file.writeBytes(bytes)
+        val row = storedRow(null, crc32(bytes).toString())
+
+        val result = detector.detect(file, row)!!
+
+        assertFalse(result.isChanged)
+        assertEquals(FileChangeDetector.HASH_STRATEGY_SAMPLED_CRC32, result.fingerprint.strategy)
+        assertEquals(crc32(bytes).toString(), result.fingerprint.fullHash)
+    }
+
+    @Test
+    fun missingFileIsNotFingerprinted() {
+        file.delete()
+
+        assertNull(detector.fingerprint(file))
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.owncloud.android.datamodel
+
+import android.content.ContentResolver
+import android.content.ContentValues
+import android.database.Cursor
+import com.owncloud.android.db.ProviderMeta.ProviderTableMeta
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import org.mockito.kotlin.any
+import org.mockito.kotlin.anyOrNull
+import org.mockito.kotlin.doAnswer
+import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.mock
+import org.mockito.kotlin.never
+import org.mockito.kotlin.verify
+
+class FilesystemDataProviderTest {
+
+    private companion object {
+        const val LOCAL_PATH = "/sdcard/DCIM/photo.jpg"
+        const val MODIFIED_AT = 1000L
+    }
+
+    private val row = mapOf<String, Any?>(
+        ProviderTableMeta._ID to 1,
+        ProviderTableMeta.FILESYSTEM_FILE_LOCAL_PATH to LOCAL_PATH,
+        ProviderTableMeta.FILESYSTEM_FILE_MODIFIED to MODIFIED_AT,
+        ProviderTableMeta.FILESYSTEM_FILE_IS_FOLDER to 0,
+        ProviderTableMeta.FILESYSTEM_FILE_FOUND_RECENTLY to 500L,
+        ProviderTableMeta.FILESYSTEM_FILE_SENT_FOR_UPLOAD to 1,
+        ProviderTableMeta.FILESYSTEM_CRC32 to "1234",
+        ProviderTableMeta.FILESYSTEM_HASH_STRATEGY to FileChangeDetector.HASH_STRATEGY_SAMPLED_CRC32
+    )
+    private val columns = row.keys.toList()
+
+    /**
+     * Cursor holding [row] once for every query, columns not in it are null.
+     */
+    private fun cursor(): Cursor {
+        var position = -1
+        fun value(index: Int) = columns.getOrNull(index)?.let { row[it] }
+        return mock {
+            on { moveToFirst() } doAnswer { position = 0; true }
+            on { moveToNext() } doAnswer { ++position == 0 }
+            on { getColumnIndexOrThrow(any()) } doAnswer { columns.indexOf(it.arguments[0] as String) }
+            on { isNull(any()) } doAnswer { value(it.arguments[0] as Int) == null }
+            on { getInt(any()) } doAnswer { (value(it.arguments[0] as Int) as Number?)?.toInt() ?: 0 }
+            on { getLong(any()) } doAnswer { (value(it.arguments[0] as Int) as Number?)?.toLong() ?: 0L }
+            on { getString(any()) } doAnswer { value(it.arguments[0] as Int)?.toString() }
+        }
+    }
+
+    private val contentResolver = mock<ContentResolver> {
+        on { query(anyOrNull(), anyOrNull(), anyOrNull(), anyOrNull(), anyOrNull<String>()) } doAnswer { cursor() }
+    }
+    private val syncedFolder = mock<SyncedFolder> {
+        on { id } doReturn 1L
+    }
+    private val sut = FilesystemDataProvider(contentResolver)
+
+    @Test
+    fun unchangedRowIsNotWritten() {
+        sut.storeOrUpdateFileValue(LOCAL_PATH, MODIFIED_AT, false, syncedFolder)
+
+        verify(contentResolver, never())
+            .update(anyOrNull(), anyOrNull<ContentValues>(), anyOrNull<String>(), anyOrNull<Array<String>>())
+        verify(contentResolver, never()).insert(anyOrNull(), anyOrNull<ContentValues>())
+    }
+
+    @Test
+    fun unchangedRowsProduceNoBulkOperations() {
+        val indexer = sut.startBulkIndexing(syncedFolder)
+
+        indexer.storeOrUpdateFileValue(LOCAL_PATH, MODIFIED_AT, false)
+
+        assertEquals(0, indexer.finish())
+        verify(contentResolver, never()).applyBatch(anyOrNull(), anyOrNull())
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.owncloud.android.datamodel
+
+import com.nextcloud.client.database.entity.FileListRow
+import com.owncloud.android.utils.FileSortOrder
+import com.owncloud.android.utils.MimeType
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertSame
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class FolderContentWindowTest {
+    private val folder = OCFile("/folder/").apply {
+        fileId = 1
+        mimeType = MimeType.DIRECTORY
+    }
+
+    private val loadedIds = mutableListOf<List<Long>>()
+
+    private val loader = FolderContentWindow.Loader { ids ->
+        loadedIds.add(ids)
+        ids.map { id ->
+            OCFile("/folder/file$id").apply {
+                fileId = id
+                parentId = folder.fileId
+            }
+        }
+    }
+
+    private fun row(
+        id: Long,
+        name: String,
+        contentType: String = "text/plain",
+        favorite: Int = 0,
+        storagePath: String? = null,
+        localId: Long = -1,
+        livePhoto: String? = null
+    ) = FileListRow(id, name, contentType, id, id, favorite, 0, storagePath, localId, null, livePhoto)
+
+    private fun window(rows: List<FileListRow>, sortOrder: FileSortOrder = FileSortOrder.SORT_NEW_TO_OLD) =
+        FolderContentWindow.create(folder, rows, sortOrder, false, "/tmp/", loader)
+
+    @Test
+    fun testFilesAreLoadedPageByPage() {
+        val sut = window((1L..250L).map { row(it, "file$it") })
+
+        assertEquals(250, sut.size)
+        assertTrue(loadedIds.isEmpty())
+
+        assertEquals(150L, sut[149].fileId)
+        assertEquals(101L, sut[100].fileId)
+        assertEquals(1, loadedIds.size)
+        assertEquals((101L..200L).toList(), loadedIds[0])
+    }
+
+    @Test
+    fun testLookupsWithoutLoading() {
+        val sut = window((1L..10L).map { row(it, "file$it") })
+        val file = OCFile("/folder/file5").apply {
+            fileId = 5
+            parentId = folder.fileId
+        }
+        val otherFolderFile = OCFile("/other/file5").apply {
+            fileId = 5
+            parentId = 2
+        }
+
+        assertEquals(4, sut.indexOf(file))
+        assertTrue(sut.contains(file))
+        assertFalse(sut.contains(otherFolderFile))
+        assertEquals(7L, sut.getFileId(6))
+        assertEquals("file7", sut.getFileName(6))
+        assertTrue(loadedIds.isEmpty())
+    }
+
+    @Test
+    fun testFilters() {
+        val rows = listOf(
+            row(1, ".hidden"),
+            row(2, "temp", storagePath = "/tmp/upload"),
+            row(3, "duplicate"),
+            row(4, "duplicate"),
+            row(5, "folder", contentType = MimeType.DIRECTORY)
+        )
+        val sut = window(rows)
+
+        assertEquals(listOf(3L, 5L), (0 until sut.size).map { sut.getFileId(it) })
+        assertEquals(1, sut.filesCount)
+        assertEquals(1, sut.foldersCount)
+    }
+
+    @Test
+    fun testNaturalOrderByName() {
+        val rows = listOf(
+            row(1, "file10"),
+            row(2, "file2"),
+            row(3, "folder", contentType = MimeType.DIRECTORY),
+            row(4, "favorite", favorite = 1)
+        )
+
+        val ascending = window(rows, FileSortOrder.SORT_A_TO_Z)
+        assertEquals(listOf(4L, 3L, 2L, 1L), (0 until ascending.size).map { ascending.getFileId(it) })
+
+        val descending = window(rows, FileSortOrder.SORT_Z_TO_A)
+        assertEquals(listOf(4L, 3L, 1L, 2L), (0 until descending.size).map { descending.getFileId(it) })
+    }
+
+    @Test
+    fun testLivePhotoVideoIsAttachedToImage() {
+        val rows = listOf(
+            row(1, "photo.jpg", contentType = "image/jpeg", localId = 11, livePhoto = "12"),
+            row(2, "photo.mov", contentType = "video/quicktime", localId = 12, livePhoto = "11")
+        )
+        val sut = window(rows)
+
+        assertEquals(1, sut.size)
+        assertEquals(1L, sut[0].fileId)
+        assertEquals(2L, sut[0].livePhotoVideo.fileId)
+    }
+
+    @Test
+    fun testSetReplacesFile() {
+        val sut = window((1L..3L).map { row(it, "file$it") })
+        val file = OCFile("/folder/file2").apply {
+            fileId = 2
+            parentId = folder.fileId
+        }
+
+        sut[1] = file
+
+        assertSame(file, sut[1])
+    }
+}
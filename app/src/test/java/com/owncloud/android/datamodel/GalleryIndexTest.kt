@@ -0,0 +1,137 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.owncloud.android.datamodel
+
+import androidx.recyclerview.widget.ListUpdateCallback
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.Calendar
+
+class GalleryIndexTest {
+
+    private companion object {
+        const val COLUMNS = 2
+        const val THUMBNAIL_SIZE = 50
+    }
+
+    private val changes = mutableListOf<String>()
+
+    private val callback = object : ListUpdateCallback {
+        override fun onInserted(position: Int, count: Int) {
+            changes.add("insert $position $count")
+        }
+
+        override fun onRemoved(position: Int, count: Int) {
+            changes.add("remove $position $count")
+        }
+
+        override fun onMoved(fromPosition: Int, toPosition: Int) {
+            changes.add("move $fromPosition $toPosition")
+        }
+
+        override fun onChanged(position: Int, count: Int, payload: Any?) {
+            changes.add("change $position $count")
+        }
+    }
+
+    private val sut = GalleryIndex(COLUMNS, THUMBNAIL_SIZE)
+
+    private fun file(name: String, month: Int, day: Int, etag: String = "etag"): OCFile = OCFile("/$name").apply {
+        fileId = name.hashCode().toLong()
+        this.etag = etag
+        modificationTimestamp = Calendar.getInstance().run {
+            clear()
+            set(2024, month, day, 12, 0)
+            timeInMillis
+        }
+    }
+
+    private fun update(files: List<OCFile>) {
+        changes.clear()
+        sut.update(files, callback)
+    }
+
+    private val january = listOf(file("j1", Calendar.JANUARY, 1), file("j2", Calendar.JANUARY, 2))
+    private val march = listOf(
+        file("m1", Calendar.MARCH, 1),
+        file("m2", Calendar.MARCH, 2),
+        file("m3", Calendar.MARCH, 3)
+    )
+
+    @Test
+    fun `files are grouped by month and sorted newest first`() {
+        update(january + march)
+
+        assertEquals(listOf("insert 0 3", "insert 3 2"), changes)
+        assertEquals(2, sut.items.size)
+        assertEquals(
+            listOf(listOf("/m3", "/m2"), listOf("/m1")),
+            sut.items[0].rows.map { row -> row.files.map { it.remotePath } }
+        )
+        assertEquals(listOf(listOf("/j2", "/j1")), sut.items[1].rows.map { row -> row.files.map { it.remotePath } })
+    }
+
+    @Test
+    fun `unchanged months are not reported`() {
+        update(january + march)
+        val marchItem = sut.items[0]
+
+        update(january.map { file(it.fileName, Calendar.JANUARY, 1, "changed") } + march)
+
+        assertEquals(listOf("change 4 1"), changes)
+        assertTrue(marchItem === sut.items[0])
+    }
+
+    @Test
+    fun `new and removed months are inserted and removed`() {
+        update(january + march)
+        val february = file("f1", Calendar.FEBRUARY, 1)
+
+        update(march + february)
+
+        assertEquals(listOf("insert 3 2", "remove 5 2"), changes)
+        assertEquals(listOf("/f1"), sut.items[1].rows[0].files.map { it.remotePath })
+    }
+
+    @Test
+    fun `added files change and append rows of their month only`() {
+        update(january + march)
+
+        update(january + march + file("m4", Calendar.MARCH, 4))
+
+        assertEquals(listOf("change 1 2"), changes)
+        update(january + march + file("m4", Calendar.MARCH, 4) + file("m0", Calendar.MARCH, 1))
+        assertEquals(listOf("insert 3 1"), changes)
+    }
+
+    @Test
+    fun `column change splits months anew`() {
+        update(january + march)
+
+        sut.columns = 3
+        update(january + march)
+
+        assertEquals(listOf("change 1 1", "remove 2 1"), changes)
+        assertEquals(listOf("/m3", "/m2", "/m1"), sut.items[0].rows[0].files.map { it.remotePath })
+    }
+
+    @Test
+    fun `ids are stable per month and row`() {
+        update(march)
+        val headerId = sut.headerId(0)
+        val rowId = sut.rowId(0, 1)
+
+        update(january + march + file("m4", Calendar.MARCH, 4))
+
+        assertEquals(headerId, sut.headerId(0))
+        assertEquals(rowId, sut.rowId(0, 1))
+        assertNotEquals(sut.rowId(0, 0), sut.rowId(1, 0))
+        assertNotEquals(sut.headerId(0), sut.rowId(0, 0))
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.owncloud.android.datamodel
+
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.Collections
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.FutureTask
+import java.util.concurrent.TimeUnit
+
+class ThumbnailLoaderTest {
+
+    private companion object {
+        const val TIMEOUT = 10_000L
+    }
+
+    private val started: MutableList<String> = Collections.synchronizedList(mutableListOf())
+    private val startedCount = CountDownLatch(ThumbnailLoader.poolSize)
+    private val blockers = (0 until ThumbnailLoader.poolSize).map { CountDownLatch(1) }
+
+    @After
+    fun tearDown() {
+        blockers.forEach { it.countDown() }
+    }
+
+    /**
+     * Occupies every pool thread, so that the tasks executed afterwards stay queued until a blocker is released.
+     */
+    private fun blockPool() {
+        blockers.forEach { blocker ->
+            ThumbnailLoader.executor.execute {
+                startedCount.countDown()
+                blocker.await(TIMEOUT, TimeUnit.MILLISECONDS)
+            }
+        }
+        assertTrue(startedCount.await(TIMEOUT, TimeUnit.MILLISECONDS))
+    }
+
+    private fun task(name: String, done: CountDownLatch? = null) = FutureTask {
+        started.add(name)
+        done?.countDown()
+    }
+
+    @Test(timeout = TIMEOUT)
+    fun latestTaskRunsFirstAndCancelledTaskIsDropped() {
+        blockPool()
+        val done = CountDownLatch(2)
+        val first = task("first", done)
+        val cancelled = task("cancelled", done)
+        val latest = task("latest", done)
+        listOf(first, cancelled, latest).forEach { ThumbnailLoader.executor.execute(it) }
+        assertEquals(3, ThumbnailLoader.getQueueDepth())
+
+        cancelled.cancel(true)
+        // a single free thread works through the queue in order
+        blockers.first().countDown()
+
+        assertTrue(done.await(TIMEOUT, TimeUnit.MILLISECONDS))
+        val deadline = System.currentTimeMillis() + TIMEOUT
+        while (ThumbnailLoader.getQueueDepth() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1)
+        }
+        assertEquals(0, ThumbnailLoader.getQueueDepth())
+        assertEquals(listOf("latest", "first"), started.toList())
+    }
+}
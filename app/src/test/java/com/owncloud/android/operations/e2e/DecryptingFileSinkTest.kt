@@ -0,0 +1,83 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.owncloud.android.operations.e2e
+
+import org.junit.After
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.fail
+import org.junit.Test
+import java.io.File
+import java.nio.file.Files
+import javax.crypto.Cipher
+import javax.crypto.spec.GCMParameterSpec
+import javax.crypto.spec.SecretKeySpec
+import kotlin.random.Random
+
+class DecryptingFileSinkTest {
+    private val folder = Files.createTempDirectory("decrypting-sink").toFile()
+    private val target = File(folder, "file.bin")
+
+    private val key = Random.nextBytes(16)
+    private val iv = Random.nextBytes(16)
+
+    @After
+    fun tearDown() {
+        folder.deleteRecursively()
+    }
+
+    private fun encrypt(plaintext: ByteArray): ByteArray = Cipher.getInstance("AES/GCM/NoPadding").run {
+        init(Cipher.ENCRYPT_MODE, SecretKeySpec(key, "AES"), GCMParameterSpec(128, iv))
+        doFinal(plaintext)
+    }
+
+    private fun decrypt(ciphertext: ByteArray, chunkSize: Int) {
+        DecryptingFileSink(key, iv, target).use { sink ->
+            ciphertext.toList().chunked(chunkSize).forEach {
+                sink.write(it.toByteArray(), 0, it.size)
+            }
+            sink.finish()
+        }
+    }
+
+    @Test
+    fun testDecryptsInChunks() {
+        val plaintext = Random.nextBytes(DecryptingFileSink.BUFFER_SIZE * 2 + 123)
+
+        decrypt(encrypt(plaintext), 7777)
+
+        assertArrayEquals(plaintext, target.readBytes())
+        assertFalse(File(folder, "file.bin.part").exists())
+    }
+
+    @Test
+    fun testTamperedFileIsDeleted() {
+        val ciphertext = encrypt(Random.nextBytes(1000))
+        ciphertext[500] = (ciphertext[500].toInt() xor 1).toByte()
+
+        try {
+            decrypt(ciphertext, 100)
+            fail("tampered file must not pass")
+        } catch (e: SecurityException) {
+            assertFalse(target.exists())
+            assertFalse(File(folder, "file.bin.part").exists())
+            assertEquals(0, folder.listFiles()!!.size)
+        }
+    }
+
+    @Test
+    fun testIncompleteDownloadLeavesNothing() {
+        DecryptingFileSink(key, iv, target).use { sink ->
+            val ciphertext = encrypt(Random.nextBytes(1000))
+            sink.write(ciphertext, 0, 400)
+        }
+
+        assertFalse(target.exists())
+        assertFalse(File(folder, "file.bin.part").exists())
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.owncloud.android.operations.e2e
+
+import com.owncloud.android.datamodel.ArbitraryDataProvider
+import com.owncloud.android.utils.EncryptionUtils
+import org.junit.After
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.mockito.kotlin.any
+import org.mockito.kotlin.doAnswer
+import org.mockito.kotlin.mock
+import java.io.File
+import java.nio.file.Files
+import javax.crypto.Cipher
+import kotlin.random.Random
+
+class E2EUploadStateTest {
+
+    private companion object {
+        const val ACCOUNT = "user@cloud.example.com"
+        const val UPLOAD_ID = 42L
+        const val GCM_TAG_LENGTH = 16
+    }
+
+    private val folder = Files.createTempDirectory("e2e-upload-state").toFile()
+    private val source = File(folder, "photo.jpg").apply { writeBytes(Random.nextBytes(1000)) }
+    private val encryptedCopy = File(folder, "photo.jpg.tmp").apply {
+        writeBytes(Random.nextBytes(source.length().toInt() + GCM_TAG_LENGTH))
+    }
+
+    private val values = mutableMapOf<String, String>()
+    private val provider = mock<ArbitraryDataProvider> {
+        on { getValue(any<String>(), any()) } doAnswer { values["${it.arguments[0]}/${it.arguments[1]}"] ?: "" }
+        on { storeOrUpdateKeyValue(any<String>(), any(), any<String>()) } doAnswer {
+            values["${it.arguments[0]}/${it.arguments[1]}"] = it.arguments[2] as String
+        }
+        on { deleteKeyForAccount(any(), any()) } doAnswer {
+            values.remove("${it.arguments[0]}/${it.arguments[1]}")
+        }
+    }
+
+    @After
+    fun tearDown() {
+        folder.deleteRecursively()
+    }
+
+    private fun state() = E2EUploadState(
+        "5a2f0d8e",
+        encryptedCopy.absolutePath,
+        "wrapped key",
+        "iv",
+        "tag",
+        source.length(),
+        source.lastModified()
+    )
+
+    @Test
+    fun completeCopyOfUnchangedSourceIsReusable() {
+        assertTrue(state().isReusableFor(source))
+    }
+
+    @Test
+    fun copyIsRejectedAfterSourceChanged() {
+        val state = state()
+
+        source.setLastModified(source.lastModified() + 1000)
+        assertFalse(state.isReusableFor(source))
+
+        val resized = state.copy(sourceLastModified = source.lastModified())
+        source.appendBytes(ByteArray(1))
+        assertFalse(resized.isReusableFor(source))
+    }
+
+    @Test
+    fun incompleteCopyIsRejected() {
+        val state = state()
+        encryptedCopy.writeBytes(ByteArray(10))
+
+        assertFalse(state.isReusableFor(source))
+    }
+
+    @Test
+    fun savedStateIsLoadedAndDeletedWithItsCopy() {
+        val state = state()
+        state.save(provider, ACCOUNT, UPLOAD_ID)
+
+        assertEquals(state, E2EUploadState.load(provider, ACCOUNT, UPLOAD_ID))
+        assertNull(E2EUploadState.load(provider, ACCOUNT, UPLOAD_ID + 1))
+
+        E2EUploadState.delete(provider, ACCOUNT, UPLOAD_ID)
+
+        assertNull(E2EUploadState.load(provider, ACCOUNT, UPLOAD_ID))
+        assertFalse(encryptedCopy.exists())
+        assertTrue(source.exists())
+    }
+
+    @Test
+    fun encryptedCopyDecryptsToTheSource() {
+        val key = EncryptionUtils.generateKey()
+        val iv = EncryptionUtils.randomBytes(EncryptionUtils.ivLength)
+        // several cipher buffers and a partial one
+        source.writeBytes(Random.nextBytes(3 * 64 * 1024 + 123))
+
+        EncryptionUtils.encryptFile(source, encryptedCopy, EncryptionUtils.getCipher(Cipher.ENCRYPT_MODE, key, iv))
+
+        assertEquals(source.length() + GCM_TAG_LENGTH, encryptedCopy.length())
+        val decrypted = EncryptionUtils.getCipher(Cipher.DECRYPT_MODE, key, iv).doFinal(encryptedCopy.readBytes())
+        assertArrayEquals(source.readBytes(), decrypted)
+    }
+}
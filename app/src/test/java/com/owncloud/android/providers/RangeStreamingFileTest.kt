@@ -0,0 +1,290 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.owncloud.android.providers
+
+import android.os.ParcelFileDescriptor
+import android.os.ProxyFileDescriptorCallback
+import android.os.storage.StorageManager
+import android.system.ErrnoException
+import com.owncloud.android.lib.common.OwnCloudClient
+import com.owncloud.android.providers.RangeStreamingFile.Companion.BLOCK_SIZE
+import org.apache.commons.httpclient.Header
+import org.apache.commons.httpclient.HttpMethod
+import org.apache.commons.httpclient.HttpStatus
+import org.apache.commons.httpclient.methods.GetMethod
+import org.junit.After
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Assert.fail
+import org.junit.Test
+import org.mockito.kotlin.any
+import org.mockito.kotlin.anyOrNull
+import org.mockito.kotlin.doAnswer
+import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.mock
+import java.io.ByteArrayInputStream
+import java.io.File
+import java.io.IOException
+import java.io.InputStream
+import java.nio.file.Files
+import java.util.Collections
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executor
+import java.util.concurrent.Executors
+import java.util.concurrent.FutureTask
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.random.Random
+
+class RangeStreamingFileTest {
+
+    private companion object {
+        const val TIMEOUT = 10_000L
+        const val ETAG = "\"5e1f\""
+    }
+
+    /**
+     * Request answered by [FakeServer] instead of the network.
+     */
+    private class FakeGet(uri: String) : GetMethod(uri) {
+        var responseHeaders = emptyMap<String, String>()
+        var body: InputStream = ByteArrayInputStream(ByteArray(0))
+
+        override fun getResponseHeader(headerName: String): Header? =
+            responseHeaders[headerName]?.let { Header(headerName, it) }
+
+        override fun getResponseBodyAsStream(): InputStream = body
+
+        override fun releaseConnection() = Unit
+    }
+
+    /**
+     * Answers range requests for [content]; [onRequest] runs before each answer, bytes from [truncateFrom] on are
+     * not sent.
+     */
+    private class FakeServer(val content: ByteArray) {
+        val requests: MutableList<LongRange> = Collections.synchronizedList(mutableListOf())
+
+        @Volatile
+        var onRequest: (LongRange) -> Unit = {}
+
+        @Volatile
+        var truncateFrom = Long.MAX_VALUE
+
+        fun respond(get: FakeGet): Int {
+            val (start, end) = get.getRequestHeader("Range").value.removePrefix("bytes=").split('-').map { it.toLong() }
+            val range = start..minOf(end, content.size - 1L)
+            requests.add(range)
+            onRequest(range)
+
+            get.responseHeaders = mapOf(
+                "ETag" to ETAG,
+                "Content-Range" to "bytes ${range.first}-${range.last}/${content.size}"
+            )
+            val sentEnd = minOf(range.last, truncateFrom - 1)
+            get.body = ByteArrayInputStream(content, start.toInt(), maxOf(0, sentEnd - start + 1).toInt())
+            return HttpStatus.SC_PARTIAL_CONTENT
+        }
+
+        fun requestedBlocks(): List<Int> = synchronized(requests) {
+            requests.flatMap { (it.first / BLOCK_SIZE).toInt()..(it.last / BLOCK_SIZE).toInt() }
+        }
+    }
+
+    private val dir = Files.createTempDirectory("range-streaming").toFile()
+    private val cacheFile = File(dir, "cache")
+    private val target = File(dir, "files/movie.mp4")
+    private val server = FakeServer(Random(1).nextBytes(BLOCK_SIZE * 3 + BLOCK_SIZE / 2))
+    private val client = mock<OwnCloudClient> {
+        on { getFilesDavUri(any<String>()) } doReturn "https://cloud.example.com/remote.php/dav/files/user/movie.mp4"
+        on { executeMethod(any<HttpMethod>()) } doAnswer { server.respond(it.arguments[0] as FakeGet) }
+    }
+
+    /** Background fills, run by the tests when they want */
+    private val fills = mutableListOf<Runnable>()
+    private val executor = Executor { task -> if (task is FutureTask<*>) task.run() else fills.add(task) }
+
+    private val filledCount = AtomicInteger()
+    private val failedCount = AtomicInteger()
+    private val listener = object : RangeStreamingFile.Listener {
+        override fun onFilled(file: RangeStreamingFile) {
+            filledCount.incrementAndGet()
+        }
+
+        override fun onFailed(file: RangeStreamingFile, error: IOException) {
+            failedCount.incrementAndGet()
+        }
+    }
+
+    @After
+    fun tearDown() {
+        dir.deleteRecursively()
+    }
+
+    private fun start(): RangeStreamingFile =
+        RangeStreamingFile.start(client, "/movie.mp4", cacheFile, target, executor, listener) { FakeGet(it) }!!
+
+    private fun open(file: RangeStreamingFile): ProxyFileDescriptorCallback {
+        var callback: ProxyFileDescriptorCallback? = null
+        val storageManager = mock<StorageManager> {
+            on { openProxyFileDescriptor(any(), any(), anyOrNull()) } doAnswer {
+                callback = it.arguments[1] as ProxyFileDescriptorCallback
+                mock<ParcelFileDescriptor>()
+            }
+        }
+        file.openDescriptor(storageManager)
+        return callback!!
+    }
+
+    private fun ProxyFileDescriptorCallback.readBytes(offset: Long, size: Int): ByteArray {
+        val data = ByteArray(size)
+        return data.copyOf(onRead(offset, size, data))
+    }
+
+    private fun content(offset: Long, size: Int) = server.content.copyOfRange(offset.toInt(), offset.toInt() + size)
+
+    @Test(timeout = TIMEOUT)
+    fun readAcrossBlocksFetchesOnlyTheMissingBlocks() {
+        val file = start()
+        val callback = open(file)
+        assertEquals(server.content.size.toLong(), callback.onGetSize())
+
+        val offset = BLOCK_SIZE - 10L
+        assertArrayEquals(content(offset, BLOCK_SIZE + 20), callback.readBytes(offset, BLOCK_SIZE + 20))
+        assertEquals(listOf(0, 1, 2), server.requestedBlocks())
+
+        // the fill continues after the read
+        fills.single().run()
+        assertEquals(listOf(0, 1, 2, 3), server.requestedBlocks())
+        assertEquals(1, filledCount.get())
+        assertArrayEquals(server.content, target.readBytes())
+        assertFalse(cacheFile.exists())
+    }
+
+    @Test(timeout = TIMEOUT)
+    fun overlappingReadsAndFillFetchEveryBlockOnce() {
+        val file = start()
+        val first = open(file)
+        val second = open(file)
+        val blockOneRequested = CountDownLatch(1)
+        val blockOneAnswered = CountDownLatch(1)
+        server.onRequest = { range ->
+            if (range.first == BLOCK_SIZE.toLong()) {
+                blockOneRequested.countDown()
+                blockOneAnswered.await()
+            }
+        }
+
+        val readers = Executors.newFixedThreadPool(2)
+        try {
+            val firstRead = readers.submit<ByteArray> { first.readBytes(BLOCK_SIZE.toLong(), 100) }
+            assertTrue(blockOneRequested.await(TIMEOUT, TimeUnit.MILLISECONDS))
+            val secondRead = readers.submit<ByteArray> { second.readBytes(BLOCK_SIZE + 50L, 100) }
+            val fill = Thread(fills.single()).apply { start() }
+
+            blockOneAnswered.countDown()
+            assertArrayEquals(content(BLOCK_SIZE.toLong(), 100), firstRead.get())
+            assertArrayEquals(content(BLOCK_SIZE + 50L, 100), secondRead.get())
+            fill.join()
+        } finally {
+            readers.shutdownNow()
+        }
+
+        assertEquals(listOf(0, 1, 2, 3), server.requestedBlocks().sorted())
+        assertEquals(1, filledCount.get())
+        assertArrayEquals(server.content, target.readBytes())
+    }
+
+    @Test(timeout = TIMEOUT)
+    fun serverFailingMidRunFailsReadsAndDropsTheCache() {
+        val file = start()
+        val callback = open(file)
+        server.truncateFrom = 2L * BLOCK_SIZE + 100
+
+        fills.single().run()
+
+        assertEquals(1, failedCount.get())
+        assertFalse(file.isStreaming)
+        try {
+            callback.onRead(2L * BLOCK_SIZE, 10, ByteArray(10))
+            fail("Read of a failed file must fail")
+        } catch (e: ErrnoException) {
+            // expected
+        }
+
+        // the partial cache is kept until the last reader is gone
+        assertTrue(cacheFile.exists())
+        callback.onRelease()
+        assertFalse(cacheFile.exists())
+        assertFalse(target.exists())
+        assertEquals(0, filledCount.get())
+    }
+
+    @Test(timeout = TIMEOUT)
+    fun lastReleaseCancelsTheFill() {
+        val file = start()
+        val first = open(file)
+        val second = open(file)
+        assertArrayEquals(content(0, 10), first.readBytes(0, 10))
+
+        first.onRelease()
+        assertTrue(file.isStreaming)
+        second.onRelease()
+        assertFalse(file.isStreaming)
+
+        fills.single().run()
+        assertEquals(listOf(0), server.requestedBlocks())
+        assertEquals(0, filledCount.get())
+        assertEquals(1, failedCount.get())
+        assertFalse(cacheFile.exists())
+        assertFalse(target.exists())
+        try {
+            file.openDescriptor(mock())
+            fail("Opening a cancelled file must fail")
+        } catch (e: IOException) {
+            // expected
+        }
+    }
+
+    @Test(timeout = TIMEOUT)
+    fun targetChangedWhileStreamingIsKept() {
+        target.parentFile!!.mkdirs()
+        target.writeText("previous version")
+        val file = start()
+        val callback = open(file)
+        target.writeText("saved by someone else")
+
+        fills.single().run()
+
+        assertEquals(0, filledCount.get())
+        assertEquals(1, failedCount.get())
+        assertEquals("saved by someone else", target.readText())
+        callback.onRelease()
+        assertFalse(cacheFile.exists())
+    }
+
+    @Test(timeout = TIMEOUT)
+    fun unchangedTargetIsReplaced() {
+        target.parentFile!!.mkdirs()
+        target.writeText("previous version")
+        val file = start()
+        open(file)
+
+        fills.single().run()
+
+        assertEquals(1, filledCount.get())
+        assertArrayEquals(server.content, target.readBytes())
+        try {
+            file.openDescriptor(mock())
+            fail("Opening a file moved to its target must fail")
+        } catch (e: IOException) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Nextcloud - Android Client
+ *
+ * SPDX-FileCopyrightText: 2026 Nextcloud GmbH
+ * SPDX-License-Identifier: AGPL-3.0-or-later OR GPL-2.0-only
+ */
+package com.owncloud.android.ui.adapter
+
+import androidx.recyclerview.widget.LinearLayoutManager
+import androidx.recyclerview.widget.RecyclerView
+import com.owncloud.android.datamodel.OCFile
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.mockito.kotlin.doAnswer
+import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.mock
+import java.util.Collections
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class ThumbnailPrefetcherTest {
+
+    private companion object {
+        const val TIMEOUT = 10_000L
+        const val ITEM_COUNT = 100
+        const val LOOK_AHEAD = 3
+    }
+
+    private val files = (0 until ITEM_COUNT).map { position ->
+        OCFile("/$position.jpg").apply {
+            remoteId = "$position"
+            mimeType = "image/jpeg"
+            storagePath = "/nonexistent/$position.jpg"
+        }
+    }
+
+    private var firstVisible = 0
+    private var lastVisible = 4
+    private val linearLayoutManager = mock<LinearLayoutManager> {
+        on { findFirstVisibleItemPosition() } doAnswer { firstVisible }
+        on { findLastVisibleItemPosition() } doAnswer { lastVisible }
+        on { itemCount } doReturn ITEM_COUNT
+    }
+    private val recyclerView = mock<RecyclerView> {
+        on { layoutManager } doReturn linearLayoutManager
+    }
+
+    private val loaded: MutableList<String> = Collections.synchronizedList(mutableListOf())
+
+    @Volatile
+    private var release = CountDownLatch(0)
+    private val loader = ThumbnailPrefetcher.Loader { file ->
+        loaded.add(file.remoteId)
+        release.await(TIMEOUT, TimeUnit.MILLISECONDS)
+    }
+
+    private val sut = ThumbnailPrefetcher(
+        mock(),
+        mock(),
+        ThumbnailPrefetcher.Target.THUMBNAIL,
+        { listOf(files[it]) },
+        LOOK_AHEAD,
+        loader
+    )
+
+    @After
+    fun tearDown() {
+        release.countDown()
+        sut.close()
+    }
+
+    private fun scrollTo(first: Int, last: Int, dy: Int) {
+        firstVisible = first
+        lastVisible = last
+        sut.onScrolled(recyclerView, 0, dy)
+    }
+
+    private fun awaitFetched(count: Int) {
+        val deadline = System.currentTimeMillis() + TIMEOUT
+        while (sut.fetchedCount < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1)
+        }
+        assertEquals(count, sut.fetchedCount)
+    }
+
+    @Test(timeout = TIMEOUT)
+    fun positionsAheadInScrollDirectionArePrefetched() {
+        scrollTo(0, 4, 10)
+        awaitFetched(LOOK_AHEAD)
+
+        assertEquals(listOf("5", "6", "7"), loaded.sorted())
+    }
+
+    @Test(timeout = TIMEOUT)
+    fun filesScrolledIntoViewAfterPrefetchingCountAsHits() {
+        scrollTo(0, 4, 10)
+        awaitFetched(LOOK_AHEAD)
+
+        // 5 to 7 were prefetched, 8 was not
+        scrollTo(5, 8, 10)
+
+        assertEquals(3 * 100 / 4, sut.getHitRate())
+        assertTrue(sut.getStatistics().contains("(3/4)"))
+    }
+
+    @Test(timeout = TIMEOUT)
+    fun queuedRequestsNoLongerAheadAreDropped() {
+        release = CountDownLatch(1)
+        // two requests run and block, the third waits in the queue
+        scrollTo(10, 14, 10)
+        val deadline = System.currentTimeMillis() + TIMEOUT
+        while (loaded.size < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1)
+        }
+
+        // scrolling back replaces the queued request with the positions above
+        scrollTo(10, 14, -10)
+        release.countDown()
+        awaitFetched(2 + LOOK_AHEAD)
+
+        assertEquals(listOf("15", "16", "7", "8", "9"), loaded.sorted())
+    }
+}